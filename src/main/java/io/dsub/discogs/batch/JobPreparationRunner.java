@@ -1,9 +1,12 @@
 package io.dsub.discogs.batch;
 
 import com.zaxxer.hikari.HikariDataSource;
+import io.dsub.discogs.batch.argument.ArgType;
 import io.dsub.discogs.batch.exception.DumpNotFoundException;
 import io.dsub.discogs.batch.exception.InvalidArgumentException;
 import io.dsub.discogs.batch.job.JobParameterResolver;
+import io.dsub.discogs.batch.job.writer.ParallelCollectionItemWriter;
+import io.dsub.discogs.batch.job.writer.WriteBehindStage;
 
 import java.io.BufferedReader;
 import java.sql.Connection;
@@ -45,6 +48,13 @@ public class JobPreparationRunner implements ApplicationRunner {
   @Override
   public void run(ApplicationArguments args) {
     int poolSize = taskExecutor.getMaxPoolSize() + 3;
+    if (args.containsOption(ArgType.WRITE_BEHIND.getGlobalName())) {
+      // reserved for the writers writing behind the chunks.
+      poolSize += WriteBehindStage.getWriterCount(taskExecutor.getMaxPoolSize());
+    } else if (args.containsOption(ArgType.PARALLEL_FLUSH.getGlobalName())) {
+      // reserved for the tables being written concurrently by each worker.
+      poolSize += ParallelCollectionItemWriter.getConnectionBudget(taskExecutor.getMaxPoolSize());
+    }
 
     if (dataSource instanceof HikariDataSource) {
       log.info("setting db connection pool size to " + poolSize);
@@ -14,12 +14,36 @@ public enum ArgType {
           .supportedType(Long.class)
           .synonyms("chunk", "c")
           .build()),
+  COPY(
+      ArgumentProperty.builder()
+          .globalName("copy")
+          .synonyms("copyIn")
+          .required(false)
+          .maxValuesCount(64)
+          .minValuesCount(0)
+          .build()),
   CORE_COUNT(
       ArgumentProperty.builder()
           .globalName("coreCount")
           .synonyms("core")
           .supportedType(Long.class)
           .build()),
+  CURSOR(
+      ArgumentProperty.builder()
+          .globalName("cursor")
+          .synonyms("staxCursor")
+          .required(false)
+          .maxValuesCount(0)
+          .minValuesCount(0)
+          .build()),
+  DEDUPE(
+      ArgumentProperty.builder()
+          .globalName("dedupe")
+          .synonyms("suppressDuplicates")
+          .required(false)
+          .maxValuesCount(0)
+          .minValuesCount(0)
+          .build()),
   ETAG(ArgumentProperty.builder().globalName("eTag").synonyms("e").maxValuesCount(4).build()),
   MOUNT(
       ArgumentProperty.builder()
@@ -29,12 +53,78 @@ public enum ArgType {
           .maxValuesCount(0)
           .minValuesCount(0)
           .build()),
+  OFF_HEAP(
+      ArgumentProperty.builder()
+          .globalName("offHeap")
+          .synonyms("mappedRegistry")
+          .required(false)
+          .maxValuesCount(0)
+          .minValuesCount(0)
+          .build()),
+  PIPELINE(
+      ArgumentProperty.builder()
+          .globalName("pipeline")
+          .synonyms("pipe")
+          .required(false)
+          .maxValuesCount(0)
+          .minValuesCount(0)
+          .build()),
+  FAN_OUT(
+      ArgumentProperty.builder()
+          .globalName("fanOut")
+          .synonyms("fanout", "fan")
+          .required(false)
+          .maxValuesCount(0)
+          .minValuesCount(0)
+          .build()),
+  PARALLEL_FLUSH(
+      ArgumentProperty.builder()
+          .globalName("parallelFlush")
+          .synonyms("flushParallel")
+          .required(false)
+          .maxValuesCount(0)
+          .minValuesCount(0)
+          .build()),
+  WRITE_BEHIND(
+      ArgumentProperty.builder()
+          .globalName("writeBehind")
+          .synonyms("asyncWrite")
+          .required(false)
+          .maxValuesCount(0)
+          .minValuesCount(0)
+          .build()),
   PASSWORD(
       ArgumentProperty.builder()
           .globalName("password")
           .synonyms("password", "pass", "p")
           .required(true)
           .build()),
+  PROFILE(
+      ArgumentProperty.builder()
+          .globalName("profile")
+          .synonyms("dumpStats")
+          .required(false)
+          .maxValuesCount(0)
+          .minValuesCount(0)
+          .build()),
+  PRUNE(
+      ArgumentProperty.builder()
+          .globalName("prune")
+          .synonyms("skipUnmapped")
+          .required(false)
+          .maxValuesCount(0)
+          .minValuesCount(0)
+          .build()),
+  READER(ArgumentProperty.builder().globalName("reader").synonyms("readerMode").build()),
+  SHARD(ArgumentProperty.builder().globalName("shard").synonyms("idShard").build()),
+  STORE(
+      ArgumentProperty.builder()
+          .globalName("store")
+          .synonyms("fragmentStore")
+          .required(false)
+          .maxValuesCount(0)
+          .minValuesCount(0)
+          .build()),
   STRICT(
       ArgumentProperty.builder()
           .globalName("strict")
@@ -43,6 +133,14 @@ public enum ArgType {
           .maxValuesCount(0)
           .minValuesCount(0)
           .build()),
+  TEE(
+      ArgumentProperty.builder()
+          .globalName("tee")
+          .synonyms("streamFetch")
+          .required(false)
+          .maxValuesCount(0)
+          .minValuesCount(0)
+          .build()),
   TYPE(ArgumentProperty.builder().globalName("type").synonyms("t").maxValuesCount(4).build()),
   URL(ArgumentProperty.builder().globalName("url").required(true).build()),
   USERNAME(
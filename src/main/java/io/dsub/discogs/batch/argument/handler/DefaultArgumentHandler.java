@@ -11,6 +11,8 @@ import io.dsub.discogs.batch.argument.validator.DataSourceArgumentValidator;
 import io.dsub.discogs.batch.argument.validator.DefaultDatabaseConnectionValidator;
 import io.dsub.discogs.batch.argument.validator.KnownArgumentValidator;
 import io.dsub.discogs.batch.argument.validator.MappedValueValidator;
+import io.dsub.discogs.batch.argument.validator.ReaderModeValidator;
+import io.dsub.discogs.batch.argument.validator.ShardSpecValidator;
 import io.dsub.discogs.batch.argument.validator.TypeArgumentValidator;
 import io.dsub.discogs.batch.argument.validator.ValidationResult;
 import io.dsub.discogs.batch.argument.validator.YearMonthValidator;
@@ -59,6 +61,8 @@ public class DefaultArgumentHandler implements ArgumentHandler {
             .addValidator(new DefaultDatabaseConnectionValidator())
             .addValidator(new KnownArgumentValidator())
             .addValidator(new MappedValueValidator())
+            .addValidator(new ReaderModeValidator())
+            .addValidator(new ShardSpecValidator())
             .addValidator(new TypeArgumentValidator())
             .addValidator(new YearMonthValidator());
     CompositeArgumentFormatter formatter =
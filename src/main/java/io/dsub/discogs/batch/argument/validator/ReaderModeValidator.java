@@ -0,0 +1,34 @@
+package io.dsub.discogs.batch.argument.validator;
+
+import io.dsub.discogs.batch.argument.ArgType;
+import io.dsub.discogs.batch.exception.InvalidArgumentException;
+import io.dsub.discogs.batch.job.reader.ReaderMode;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.boot.ApplicationArguments;
+
+/**
+ * {@link ArgumentValidator} implementation to validate the value of reader argument.
+ */
+public class ReaderModeValidator implements ArgumentValidator {
+
+  @Override
+  public ValidationResult validate(ApplicationArguments args) {
+    ValidationResult result = new DefaultValidationResult();
+
+    List<String> values =
+        args.getOptionNames().stream()
+            .filter(name -> ArgType.getTypeOf(name) == ArgType.READER)
+            .flatMap(name -> args.getOptionValues(name).stream())
+            .collect(Collectors.toList());
+
+    for (String value : values) {
+      try {
+        ReaderMode.of(value);
+      } catch (InvalidArgumentException e) {
+        result = result.withIssues(e.getMessage());
+      }
+    }
+    return result;
+  }
+}
@@ -42,10 +42,11 @@ public class BatchConfig {
     return jobBuilderFactory
         .get(JOB_NAME)
 
-        // listeners
-        .listener(idCachingJobExecutionListener)
+        // listeners (afterJob is called in reverse order, so that the id caches are written
+        // as snapshots before being cleared)
         .listener(exitSignalJobExecutionListener)
         .listener(clearanceJobExecutionListener)
+        .listener(idCachingJobExecutionListener)
 
         // incrementer
         .incrementer(new UniqueRunIdIncrementer())
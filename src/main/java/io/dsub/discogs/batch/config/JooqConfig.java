@@ -7,6 +7,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jooq.DSLContext;
 import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.springframework.boot.autoconfigure.jooq.JooqExceptionTranslator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -17,10 +20,21 @@ public class JooqConfig {
 
   private final DataSource dataSource;
 
+  /**
+   * Context of which the exceptions are translated as spring does, i.e. into {@link
+   * org.springframework.dao.DeadlockLoserDataAccessException} for a deadlock, so that the steps
+   * can retry on them.
+   *
+   * @return the context.
+   */
   @Bean
   public DSLContext dslContext() {
     DataSourceDetails details = dataSourceDetails();
-    return DSL.using(dataSource, details.dialect());
+    return DSL.using(
+        new DefaultConfiguration()
+            .set(dataSource)
+            .set(details.dialect())
+            .set(new DefaultExecuteListenerProvider(new JooqExceptionTranslator())));
   }
 
   @Bean
@@ -1,6 +1,7 @@
 package io.dsub.discogs.batch.domain.artist;
 
 import io.dsub.discogs.batch.domain.BaseXML;
+import io.dsub.discogs.batch.util.InterningXmlAdapter;
 import io.dsub.discogs.jooq.tables.records.ArtistRecord;
 import java.time.Clock;
 import java.time.LocalDateTime;
@@ -8,6 +9,7 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import lombok.Data;
 
 @Data
@@ -28,6 +30,7 @@ public class ArtistXML implements BaseXML<ArtistRecord> {
   private String profile;
 
   @XmlElement(name = "data_quality")
+  @XmlJavaTypeAdapter(InterningXmlAdapter.class)
   private String dataQuality;
 
   @Override
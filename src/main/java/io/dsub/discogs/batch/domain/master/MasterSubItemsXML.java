@@ -2,6 +2,7 @@ package io.dsub.discogs.batch.domain.master;
 
 import io.dsub.discogs.batch.domain.HashXML;
 import io.dsub.discogs.batch.domain.SubItemXML;
+import io.dsub.discogs.batch.util.InterningXmlAdapter;
 import io.dsub.discogs.jooq.tables.records.MasterArtistRecord;
 import io.dsub.discogs.jooq.tables.records.MasterVideoRecord;
 import java.time.Clock;
@@ -13,6 +14,7 @@ import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -31,10 +33,12 @@ public class MasterSubItemsXML {
 
   @XmlElementWrapper(name = "genres")
   @XmlElement(name = "genre")
+  @XmlJavaTypeAdapter(InterningXmlAdapter.class)
   private List<String> genres;
 
   @XmlElementWrapper(name = "styles")
   @XmlElement(name = "style")
+  @XmlJavaTypeAdapter(InterningXmlAdapter.class)
   private List<String> styles;
 
   @XmlElementWrapper(name = "videos")
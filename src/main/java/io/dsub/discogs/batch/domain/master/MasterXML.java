@@ -1,6 +1,7 @@
 package io.dsub.discogs.batch.domain.master;
 
 import io.dsub.discogs.batch.domain.BaseXML;
+import io.dsub.discogs.batch.util.InterningXmlAdapter;
 import io.dsub.discogs.jooq.tables.records.MasterRecord;
 import java.time.Clock;
 import java.time.LocalDateTime;
@@ -11,6 +12,7 @@ import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -33,14 +35,17 @@ public class MasterXML implements BaseXML<MasterRecord> {
   private Integer mainReleaseId;
 
   @XmlElement(name = "data_quality")
+  @XmlJavaTypeAdapter(InterningXmlAdapter.class)
   private String dataQuality;
 
   @XmlElementWrapper(name = "genres")
   @XmlElement(name = "genre")
+  @XmlJavaTypeAdapter(InterningXmlAdapter.class)
   private List<String> genres;
 
   @XmlElementWrapper(name = "styles")
   @XmlElement(name = "style")
+  @XmlJavaTypeAdapter(InterningXmlAdapter.class)
   private List<String> styles;
 
   @Override
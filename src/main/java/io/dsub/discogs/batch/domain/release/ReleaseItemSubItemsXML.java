@@ -2,6 +2,7 @@ package io.dsub.discogs.batch.domain.release;
 
 import io.dsub.discogs.batch.domain.HashXML;
 import io.dsub.discogs.batch.domain.SubItemXML;
+import io.dsub.discogs.batch.util.InterningXmlAdapter;
 import io.dsub.discogs.jooq.tables.records.LabelReleaseItemRecord;
 import io.dsub.discogs.jooq.tables.records.ReleaseItemArtistRecord;
 import io.dsub.discogs.jooq.tables.records.ReleaseItemCreditedArtistRecord;
@@ -21,6 +22,7 @@ import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -67,10 +69,12 @@ public class ReleaseItemSubItemsXML {
 
   @XmlElementWrapper(name = "genres")
   @XmlElement(name = "genre")
+  @XmlJavaTypeAdapter(InterningXmlAdapter.class)
   private List<String> genres;
 
   @XmlElementWrapper(name = "styles")
   @XmlElement(name = "style")
+  @XmlJavaTypeAdapter(InterningXmlAdapter.class)
   private List<String> styles;
 
   @Data
@@ -104,6 +108,7 @@ public class ReleaseItemSubItemsXML {
     String name;
 
     @XmlElement(name = "role")
+    @XmlJavaTypeAdapter(InterningXmlAdapter.class)
     String role;
 
     @Override
@@ -152,6 +157,7 @@ public class ReleaseItemSubItemsXML {
   public static class ReleaseFormat implements HashXML<ReleaseItemFormatRecord> {
 
     @XmlAttribute(name = "name")
+    @XmlJavaTypeAdapter(InterningXmlAdapter.class)
     String name;
 
     @XmlAttribute(name = "qty")
@@ -162,6 +168,7 @@ public class ReleaseItemSubItemsXML {
 
     @XmlElementWrapper(name = "descriptions")
     @XmlElement(name = "description")
+    @XmlJavaTypeAdapter(InterningXmlAdapter.class)
     List<String> descriptions;
 
     @Override
@@ -234,6 +241,7 @@ public class ReleaseItemSubItemsXML {
   public static class ReleaseIdentifier implements HashXML<ReleaseItemIdentifierRecord> {
 
     @XmlAttribute(name = "type")
+    @XmlJavaTypeAdapter(InterningXmlAdapter.class)
     String type;
 
     @XmlAttribute(name = "description")
@@ -1,5 +1,6 @@
 package io.dsub.discogs.batch.domain.release;
 
+import io.dsub.discogs.batch.util.InterningXmlAdapter;
 import java.util.List;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -8,6 +9,7 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlValue;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -21,18 +23,21 @@ public class ReleaseItemXML {
   private Integer id;
 
   @XmlAttribute(name = "status")
+  @XmlJavaTypeAdapter(InterningXmlAdapter.class)
   private String status;
 
   @XmlElement(name = "title")
   private String title;
 
   @XmlElement(name = "country")
+  @XmlJavaTypeAdapter(InterningXmlAdapter.class)
   private String country;
 
   @XmlElement(name = "notes")
   private String notes;
 
   @XmlElement(name = "data_quality")
+  @XmlJavaTypeAdapter(InterningXmlAdapter.class)
   private String dataQuality;
 
   @XmlElement(name = "released")
@@ -43,10 +48,12 @@ public class ReleaseItemXML {
 
   @XmlElementWrapper(name = "genres")
   @XmlElement(name = "genre")
+  @XmlJavaTypeAdapter(InterningXmlAdapter.class)
   private List<String> genres;
 
   @XmlElementWrapper(name = "styles")
   @XmlElement(name = "style")
+  @XmlJavaTypeAdapter(InterningXmlAdapter.class)
   private List<String> styles;
 
   @Data
@@ -0,0 +1,227 @@
+package io.dsub.discogs.batch.dump;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A dump being written to the disk in background, whose written part may already be read by
+ * {@link #follow()} while the rest is still being downloaded.
+ *
+ * <p>A download stays registered by its path until it completes, so that a reader opened on the
+ * path can tell that the file is not yet complete. A failed download stays registered, so that
+ * the readers opened after the failure fail as well, instead of reading a truncated dump.
+ */
+public class DumpDownload {
+
+  private static final Map<Path, DumpDownload> IN_FLIGHT = new ConcurrentHashMap<>();
+
+  private final Path path;
+  private final long expectedSize;
+  private volatile long written = 0;
+  private volatile boolean done = false;
+  private volatile IOException failure;
+
+  private DumpDownload(Path path, long expectedSize) {
+    this.path = path;
+    this.expectedSize = expectedSize;
+  }
+
+  /**
+   * Registers a download of given path.
+   *
+   * @param path         path to be written.
+   * @param expectedSize size of the dump, or zero if unknown.
+   * @return registered download.
+   * @throws IllegalStateException if the path is already being downloaded.
+   */
+  public static DumpDownload start(Path path, long expectedSize) {
+    DumpDownload download = new DumpDownload(keyOf(path), expectedSize);
+    IN_FLIGHT.compute(
+        download.path,
+        (key, prior) -> {
+          if (prior != null && !prior.done) {
+            throw new IllegalStateException(key + " is already being downloaded");
+          }
+          return download;
+        });
+    return download;
+  }
+
+  /**
+   * Finds the download of given path.
+   *
+   * @param path path of the dump.
+   * @return download which is still in progress or has failed, otherwise null.
+   */
+  public static DumpDownload inFlight(Path path) {
+    return IN_FLIGHT.get(keyOf(path));
+  }
+
+  /**
+   * Waits for every download in progress to be done. Note that the readers of a dump may finish
+   * before its download, as they stop reading at the end of the document.
+   *
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public static void awaitAll() throws InterruptedException {
+    for (DumpDownload download : IN_FLIGHT.values()) {
+      download.await();
+    }
+  }
+
+  private static Path keyOf(Path path) {
+    return path.toAbsolutePath().normalize();
+  }
+
+  /**
+   * Notifies that given count of bytes were written to the file.
+   *
+   * @param count count of bytes appended since the last notification.
+   */
+  public synchronized void progress(long count) {
+    written += count;
+    notifyAll();
+  }
+
+  /**
+   * Marks the download as complete, and unregisters it.
+   */
+  public synchronized void complete() {
+    done = true;
+    IN_FLIGHT.remove(path, this);
+    notifyAll();
+  }
+
+  /**
+   * Marks the download as failed. The followers will throw given exception once they have read
+   * everything written before the failure.
+   *
+   * @param cause cause of the failure.
+   */
+  public synchronized void fail(IOException cause) {
+    failure = cause;
+    done = true;
+    notifyAll();
+  }
+
+  /**
+   * Waits for the download to be done, either completed or failed.
+   *
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public synchronized void await() throws InterruptedException {
+    while (!done) {
+      wait();
+    }
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * Size to be reported by the progress bars of the followers.
+   *
+   * @return expected size of the dump if known, otherwise count of bytes written so far.
+   */
+  public long getExpectedSize() {
+    return expectedSize > 0 ? expectedSize : written;
+  }
+
+  public long getWritten() {
+    return written;
+  }
+
+  public boolean isDone() {
+    return done;
+  }
+
+  /**
+   * Opens a stream over the file which blocks at the written end of the file until more bytes are
+   * written, and ends when the download completes.
+   *
+   * @return input stream following the download.
+   * @throws IOException if the download has already failed, or failed to open the file.
+   */
+  public InputStream follow() throws IOException {
+    checkFailure();
+    return new FollowingInputStream(FileChannel.open(path, StandardOpenOption.READ));
+  }
+
+  /**
+   * Waits until the file is written beyond given position, or the download is done.
+   *
+   * @return count of bytes written, which equals to the position if the download completed.
+   */
+  private synchronized long awaitBeyond(long position) throws IOException {
+    while (written <= position && !done) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("interrupted while waiting for " + path);
+      }
+    }
+    if (written <= position) {
+      checkFailure();
+    }
+    return written;
+  }
+
+  private void checkFailure() throws IOException {
+    if (failure != null) {
+      throw new IOException("failed to download " + path, failure);
+    }
+  }
+
+  private class FollowingInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private long position = 0;
+
+    private FollowingInputStream(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int read = read(b, 0, 1);
+      return read == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      long available = awaitBeyond(position) - position;
+      if (available <= 0) {
+        return -1;
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, available));
+      int read = channel.read(buffer, position);
+      if (read > 0) {
+        position += read;
+      }
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(Integer.MAX_VALUE, Math.max(0, written - position));
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
@@ -4,4 +4,8 @@ public abstract class BaseRuntimeException extends RuntimeException {
   public BaseRuntimeException(String message) {
     super(message);
   }
+
+  public BaseRuntimeException(String message, Throwable cause) {
+    super(message, cause);
+  }
 }
@@ -0,0 +1,44 @@
+package io.dsub.discogs.batch.exception;
+
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Thrown when rows written behind the chunks failed to be written, holding the rows of the failed
+ * write, each described by its values.
+ */
+@Getter
+public class WriteBehindException extends BaseRuntimeException {
+
+  private static final int MAX_ROWS_IN_MESSAGE = 10;
+
+  private final String table;
+  private final List<String> rows;
+
+  public WriteBehindException(String table, List<String> rows, Throwable cause) {
+    super(getMessage(table, rows, cause), cause);
+    this.table = table;
+    this.rows = rows;
+  }
+
+  private static String getMessage(String table, List<String> rows, Throwable cause) {
+    StringBuilder message =
+        new StringBuilder("failed to write ")
+            .append(rows.size())
+            .append(" rows of ")
+            .append(table)
+            .append(": ")
+            .append(cause.getMessage());
+    rows.stream()
+        .limit(MAX_ROWS_IN_MESSAGE)
+        .forEach(row -> message.append(System.lineSeparator()).append("  ").append(row));
+    if (rows.size() > MAX_ROWS_IN_MESSAGE) {
+      message
+          .append(System.lineSeparator())
+          .append("  ... and ")
+          .append(rows.size() - MAX_ROWS_IN_MESSAGE)
+          .append(" more");
+    }
+    return message.toString();
+  }
+}
@@ -8,6 +8,8 @@ import io.dsub.discogs.batch.job.listener.BatchListenerConfig;
 import io.dsub.discogs.batch.job.processor.ItemProcessorConfig;
 import io.dsub.discogs.batch.job.reader.DiscogsDumpItemReaderBuilder;
 import io.dsub.discogs.batch.job.reader.ItemReaderConfig;
+import io.dsub.discogs.batch.job.reader.ReaderMode;
+import io.dsub.discogs.batch.job.reader.ShardSpec;
 import io.dsub.discogs.batch.job.registry.EntityIdRegistry;
 import io.dsub.discogs.batch.job.step.GlobalStepConfig;
 import io.dsub.discogs.batch.job.tasklet.GenreStyleInsertionTasklet;
@@ -69,6 +71,45 @@ public class BatchInfrastructureConfig {
 
   @Bean
   public DiscogsDumpItemReaderBuilder discogsDumpItemReaderBuilder() {
-    return new DiscogsDumpItemReaderBuilder(fileUtil());
+    DiscogsDumpItemReaderBuilder readerBuilder = new DiscogsDumpItemReaderBuilder(fileUtil());
+    if (args.containsOption(ArgType.PIPELINE.getGlobalName())) {
+      log.info("detected pipeline option. dumps will be inflated on a dedicated thread.");
+      readerBuilder.setPipelined(true);
+    }
+    if (args.containsOption(ArgType.FAN_OUT.getGlobalName())) {
+      log.info("detected fanout option. each dump will be parsed only once.");
+      readerBuilder.setFanOut(true);
+    }
+    if (args.containsOption(ArgType.CURSOR.getGlobalName())) {
+      log.info("detected cursor option. items will be mapped from stax cursors.");
+      readerBuilder.setCursor(true);
+    }
+    if (args.containsOption(ArgType.STORE.getGlobalName())) {
+      log.info("detected store option. dumps will be stored as indexed fragments after fetch.");
+      readerBuilder.setStore(true);
+    }
+    if (args.containsOption(ArgType.TEE.getGlobalName())) {
+      log.info("detected tee option. dumps will be read while they are being fetched.");
+      readerBuilder.setTee(true);
+    }
+    if (args.containsOption(ArgType.SHARD.getGlobalName())) {
+      ShardSpec shard = ShardSpec.of(args.getOptionValues(ArgType.SHARD.getGlobalName()).get(0));
+      log.info("detected shard option. only releases of shard {} will be read.", shard);
+      readerBuilder.setShard(shard);
+    }
+    if (args.containsOption(ArgType.PROFILE.getGlobalName())) {
+      log.info("detected profile option. statistics will be written next to each dump.");
+      readerBuilder.setProfile(true);
+    }
+    if (args.containsOption(ArgType.PRUNE.getGlobalName())) {
+      log.info("detected prune option. unmapped elements will be skipped before parsing.");
+      readerBuilder.setPrune(true);
+    }
+    if (args.containsOption(ArgType.READER.getGlobalName())) {
+      ReaderMode mode = ReaderMode.of(args.getOptionValues(ArgType.READER.getGlobalName()).get(0));
+      log.info("detected reader option. dumps will be read in {} mode.", mode);
+      readerBuilder.setMode(mode);
+    }
+    return readerBuilder;
   }
 }
@@ -31,10 +31,7 @@ public class MasterMainReleaseStepJobExecutionDecider implements JobExecutionDec
       log.info("master eTag missing. " + SKIP_MSG);
     } else if (!jobExecution.getJobParameters().getParameters().containsKey(RELEASE_ITEM)) {
       log.info("release item eTag missing. " + SKIP_MSG);
-    } else if (idRegistry
-        .getLongIdCache(EntityIdRegistry.Type.RELEASE)
-        .getConcurrentSkipListSet()
-        .isEmpty()) {
+    } else if (idRegistry.getLongIdCache(EntityIdRegistry.Type.RELEASE).isEmpty()) {
       log.info("release item identity cache is missing. " + SKIP_MSG);
     } else {
       return FlowExecutionStatus.COMPLETED;
@@ -1,21 +1,75 @@
 package io.dsub.discogs.batch.job.listener;
 
+import io.dsub.discogs.batch.argument.ArgType;
+import io.dsub.discogs.batch.exception.FileException;
+import io.dsub.discogs.batch.exception.InitializationFailureException;
 import io.dsub.discogs.batch.job.registry.EntityIdRegistry;
+import io.dsub.discogs.batch.job.registry.IdBitSet;
+import io.dsub.discogs.batch.job.registry.MappedBitSet;
+import io.dsub.discogs.batch.job.registry.RowFingerprintFilter;
 import io.dsub.discogs.batch.util.FileUtil;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicLong;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.jooq.DSLContext;
+import org.springframework.boot.ApplicationArguments;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+@Slf4j
 @Configuration
 @RequiredArgsConstructor
 public class BatchListenerConfig {
 
+  private static final String ID_CACHE_FILE_PREPEND = "id-cache-";
+  private static final String ID_CACHE_FILE_SUFFIX = ".bits";
+
+  private final ApplicationArguments args;
+  private final FileUtil fileUtil;
+
   @Bean
   public EntityIdRegistry entityIdRegistry() {
-    return new EntityIdRegistry();
+    if (!args.containsOption(ArgType.OFF_HEAP.getGlobalName())) {
+      return new EntityIdRegistry();
+    }
+    log.info("detected off heap option. id caches will be kept in memory-mapped files.");
+    Map<EntityIdRegistry.Type, IdBitSet> bitSets = new EnumMap<>(EntityIdRegistry.Type.class);
+    for (EntityIdRegistry.Type type :
+        List.of(
+            EntityIdRegistry.Type.ARTIST,
+            EntityIdRegistry.Type.LABEL,
+            EntityIdRegistry.Type.MASTER,
+            EntityIdRegistry.Type.RELEASE)) {
+      String filename = ID_CACHE_FILE_PREPEND + type.name().toLowerCase() + ID_CACHE_FILE_SUFFIX;
+      try {
+        bitSets.put(type, MappedBitSet.create(fileUtil.getFilePath(filename)));
+      } catch (FileException | IOException e) {
+        throw new InitializationFailureException(
+            "failed to initialize off heap id cache: " + e.getMessage());
+      }
+    }
+    return new EntityIdRegistry(bitSets::get);
+  }
+
+  @Bean
+  public RowFingerprintFilter rowFingerprintFilter() {
+    return new RowFingerprintFilter();
+  }
+
+  @Bean
+  public RowFingerprintChunkListener rowFingerprintChunkListener() {
+    return new RowFingerprintChunkListener(rowFingerprintFilter());
+  }
+
+  @Bean
+  public ChunkBindingListener chunkBindingListener() {
+    return new ChunkBindingListener();
   }
 
   @Bean
@@ -43,6 +97,11 @@ public class BatchListenerConfig {
     return new StopWatchStepExecutionListener(itemsCounter());
   }
 
+  @Bean
+  public DeadlockRetryCountingListener deadlockRetryCountingListener() {
+    return new DeadlockRetryCountingListener();
+  }
+
   @Bean
   public StringNormalizingItemReadListener stringNormalizingItemReadListener() {
     return new StringNormalizingItemReadListener();
@@ -54,12 +113,14 @@ public class BatchListenerConfig {
   }
 
   @Bean
-  public IdCachingJobExecutionListener idCachingJobExecutionListener(DSLContext context) {
-    return new IdCachingJobExecutionListener(entityIdRegistry(), context);
+  public IdCachingJobExecutionListener idCachingJobExecutionListener(
+      DSLContext context, ThreadPoolTaskExecutor batchTaskExecutor) {
+    return new IdCachingJobExecutionListener(
+        entityIdRegistry(), context, fileUtil, Math.max(1, batchTaskExecutor.getCorePoolSize()));
   }
 
   @Bean
   public ClearanceJobExecutionListener clearanceJobExecutionListener(FileUtil fileUtil) {
-    return new ClearanceJobExecutionListener(entityIdRegistry(), fileUtil);
+    return new ClearanceJobExecutionListener(entityIdRegistry(), rowFingerprintFilter(), fileUtil);
   }
 }
@@ -0,0 +1,29 @@
+package io.dsub.discogs.batch.job.listener;
+
+import io.dsub.discogs.batch.job.reader.ChunkBinding;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+
+/**
+ * Binds each chunk to the thread processing it, so that the readers keep the states of the items
+ * with the chunk (see {@link ChunkBinding}). The states are settled once the chunk is committed,
+ * and stay with the chunk rolled back while its items are kept to be retried, on any thread.
+ */
+public class ChunkBindingListener implements ChunkListener {
+
+  @Override
+  public void beforeChunk(ChunkContext context) {
+    ChunkBinding.bind(context);
+  }
+
+  @Override
+  public void afterChunk(ChunkContext context) {
+    ChunkBinding.unbind();
+    ChunkBinding.settle(context);
+  }
+
+  @Override
+  public void afterChunkError(ChunkContext context) {
+    ChunkBinding.release(context);
+  }
+}
@@ -2,7 +2,9 @@ package io.dsub.discogs.batch.job.listener;
 
 import io.dsub.discogs.batch.exception.FileException;
 import io.dsub.discogs.batch.job.registry.EntityIdRegistry;
+import io.dsub.discogs.batch.job.registry.RowFingerprintFilter;
 import io.dsub.discogs.batch.util.FileUtil;
+import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.JobExecution;
@@ -13,6 +15,7 @@ import org.springframework.batch.core.JobExecutionListener;
 public class ClearanceJobExecutionListener implements JobExecutionListener {
 
   private final EntityIdRegistry registry;
+  private final RowFingerprintFilter rowFingerprintFilter;
   private final FileUtil fileUtil;
 
   @Override
@@ -39,6 +42,11 @@ public class ClearanceJobExecutionListener implements JobExecutionListener {
 
   private void clearCache() {
     registry.clearAll();
+    Map<String, Long> suppressedCounts = rowFingerprintFilter.getSuppressedCounts();
+    if (!suppressedCounts.isEmpty()) {
+      log.info("suppressed duplicate rows: {}", suppressedCounts);
+    }
+    rowFingerprintFilter.clear();
     log.info("cache cleared");
   }
 }
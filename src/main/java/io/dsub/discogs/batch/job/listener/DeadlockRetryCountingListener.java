@@ -0,0 +1,86 @@
+package io.dsub.discogs.batch.job.listener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.listener.RetryListenerSupport;
+
+/**
+ * Counts the chunks retried on deadlocks of each step, along with the writes retried apart from
+ * the chunks (i.e. the batches written behind them, by {@link #countRetry(StepExecution)}), which
+ * is logged and stored to the step execution context as {@link #DEADLOCK_RETRY_COUNT} once the
+ * step is done. The count should stay at zero as the writers acquire the row locks in the same
+ * order.
+ *
+ * <p>Should be registered to a fault tolerant step as both of {@link
+ * org.springframework.retry.RetryListener} and {@link StepExecutionListener}, the latter before
+ * any listener writing through the step in its {@code afterStep}, so as to be the last to run.
+ */
+@Slf4j
+public class DeadlockRetryCountingListener extends RetryListenerSupport
+    implements StepExecutionListener {
+
+  public static final String DEADLOCK_RETRY_COUNT = "deadlockRetryCount";
+
+  private final Map<Long, LongAdder> counts = new ConcurrentHashMap<>();
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+    counts.put(stepExecution.getId(), new LongAdder());
+  }
+
+  @Override
+  public <T, E extends Throwable> void onError(
+      RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+    if (!isDeadlock(throwable)) {
+      return;
+    }
+    StepContext stepContext = StepSynchronizationManager.getContext();
+    if (stepContext != null) {
+      countRetry(stepContext.getStepExecution());
+    }
+  }
+
+  /**
+   * Counts a write retried on a deadlock, on any thread.
+   *
+   * @param stepExecution step of the write.
+   */
+  public void countRetry(StepExecution stepExecution) {
+    LongAdder count = counts.get(stepExecution.getId());
+    if (count != null) {
+      count.increment();
+    }
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    LongAdder count = counts.remove(stepExecution.getId());
+    long retries = count == null ? 0 : count.sum();
+    stepExecution.getExecutionContext().putLong(DEADLOCK_RETRY_COUNT, retries);
+    log.info("{} retried {} chunks on deadlocks", stepExecution.getStepName(), retries);
+    return null;
+  }
+
+  /**
+   * @param throwable thrown by an attempt.
+   * @return true if it was thrown by a deadlock, or by a failure caused by one.
+   */
+  static boolean isDeadlock(Throwable throwable) {
+    for (Throwable t = throwable; t != null; t = t.getCause() == t ? null : t.getCause()) {
+      if (t instanceof DeadlockLoserDataAccessException) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
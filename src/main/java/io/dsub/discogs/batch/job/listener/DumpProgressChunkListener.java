@@ -0,0 +1,105 @@
+package io.dsub.discogs.batch.job.listener;
+
+import io.dsub.discogs.batch.dump.DiscogsDump;
+import io.dsub.discogs.batch.exception.FileException;
+import io.dsub.discogs.batch.job.reader.DumpStatistics;
+import io.dsub.discogs.batch.util.FileUtil;
+import java.util.Date;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+
+/**
+ * Reports the items read so far against the fragment count of the dump, with the estimated time
+ * remaining, at most once per {@link #REPORT_INTERVAL_MILLIS}. The fragment count is taken from
+ * the {@link DumpStatistics} of the dump; if the dump was not profiled, nothing is reported.
+ *
+ * <p>The estimation assumes every item of the dump is read by the step (i.e. not sharded, and not
+ * restarted in the middle of the dump).
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class DumpProgressChunkListener implements ChunkListener {
+
+  public static final long REPORT_INTERVAL_MILLIS = 30_000;
+
+  private final DiscogsDump targetDump;
+  private final FileUtil fileUtil;
+  private DumpStatistics statistics;
+  private boolean loaded = false;
+  private long lastReported = 0;
+
+  @Override
+  public void beforeChunk(ChunkContext context) {
+  }
+
+  @Override
+  public void afterChunk(ChunkContext context) {
+    long now = System.currentTimeMillis();
+    synchronized (this) {
+      if (!loaded) {
+        loaded = true;
+        lastReported = now;
+        statistics = loadStatistics();
+        return;
+      }
+      if (statistics == null || now - lastReported < REPORT_INTERVAL_MILLIS) {
+        return;
+      }
+      lastReported = now;
+    }
+    String report = report(context.getStepContext().getStepExecution(), now);
+    if (report != null) {
+      log.info(report);
+    }
+  }
+
+  @Override
+  public void afterChunkError(ChunkContext context) {
+  }
+
+  /**
+   * Builds a report of given step execution.
+   *
+   * @param stepExecution step execution reading the dump.
+   * @param now           current time in millis.
+   * @return the report, or null if nothing to report yet.
+   */
+  String report(StepExecution stepExecution, long now) {
+    int read = stepExecution.getReadCount();
+    Date startTime = stepExecution.getStartTime();
+    if (statistics == null || read == 0 || startTime == null) {
+      return null;
+    }
+    long total = statistics.getFragmentCount();
+    long remaining = Math.max(0, total - read);
+    long elapsed = Math.max(0, now - startTime.getTime());
+    long etaSeconds = elapsed * remaining / read / 1000;
+    return String.format(
+        "%s: %d/%d items (%.1f%%), about %d:%02d:%02d remaining",
+        stepExecution.getStepName(),
+        read,
+        total,
+        total == 0 ? 100.0 : Math.min(100.0, read * 100.0 / total),
+        etaSeconds / 3600,
+        etaSeconds / 60 % 60,
+        etaSeconds % 60);
+  }
+
+  void setStatistics(DumpStatistics statistics) {
+    this.statistics = statistics;
+    this.loaded = true;
+  }
+
+  private DumpStatistics loadStatistics() {
+    try {
+      return DumpStatistics.loadIfExists(
+          DumpStatistics.statsPathOf(fileUtil.getFilePath(targetDump.getFileName())));
+    } catch (FileException e) {
+      log.debug("failed to resolve dump statistics of " + targetDump.getFileName(), e);
+      return null;
+    }
+  }
+}
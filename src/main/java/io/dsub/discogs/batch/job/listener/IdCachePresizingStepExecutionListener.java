@@ -0,0 +1,50 @@
+package io.dsub.discogs.batch.job.listener;
+
+import io.dsub.discogs.batch.dump.DiscogsDump;
+import io.dsub.discogs.batch.exception.FileException;
+import io.dsub.discogs.batch.job.reader.DumpStatistics;
+import io.dsub.discogs.batch.job.registry.EntityIdRegistry;
+import io.dsub.discogs.batch.util.FileUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+
+/**
+ * Presizes the id cache of the step's entity type up to the max id of the dump, before the step
+ * starts caching the ids. Does nothing if the dump was not profiled. See {@link DumpStatistics}.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class IdCachePresizingStepExecutionListener implements StepExecutionListener {
+
+  private final EntityIdRegistry idRegistry;
+  private final EntityIdRegistry.Type type;
+  private final DiscogsDump targetDump;
+  private final FileUtil fileUtil;
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+    DumpStatistics statistics;
+    try {
+      statistics =
+          DumpStatistics.loadIfExists(
+              DumpStatistics.statsPathOf(fileUtil.getFilePath(targetDump.getFileName())));
+    } catch (FileException e) {
+      log.debug("failed to resolve dump statistics of " + targetDump.getFileName(), e);
+      return;
+    }
+    if (statistics == null || statistics.getMaxId() < 1) {
+      return;
+    }
+    log.info(
+        "presizing {} id cache up to {}", type.name().toLowerCase(), statistics.getMaxId());
+    idRegistry.presize(type, statistics.getMaxId());
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    return stepExecution.getExitStatus();
+  }
+}
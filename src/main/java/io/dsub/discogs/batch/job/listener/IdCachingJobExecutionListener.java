@@ -1,20 +1,50 @@
 package io.dsub.discogs.batch.job.listener;
 
 import io.dsub.discogs.batch.argument.ArgType;
+import io.dsub.discogs.batch.exception.FileException;
 import io.dsub.discogs.batch.job.registry.EntityIdRegistry;
+import io.dsub.discogs.batch.job.registry.IdCache;
+import io.dsub.discogs.batch.job.registry.IdCacheSnapshot;
+import io.dsub.discogs.batch.job.registry.IdCacheSnapshot.Fingerprint;
+import io.dsub.discogs.batch.util.FileUtil;
 import io.dsub.discogs.jooq.tables.Artist;
 import io.dsub.discogs.jooq.tables.Label;
 import io.dsub.discogs.jooq.tables.Master;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record2;
+import org.jooq.Table;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobExecutionListener;
 
+/**
+ * Caches the ids of the tables that the dumps of the job refer to, but are not read by the job.
+ *
+ * <p>Unless the files are temporary, the id caches are written as {@link IdCacheSnapshot} after
+ * a completed job, tagged with the fingerprint of each table. The next job restores a cache from
+ * its snapshot instead of selecting every id of the table, as long as the fingerprint of the table
+ * still matches.
+ *
+ * <p>The tables are pre-cached concurrently, each split into slices of id range that are fetched
+ * in parallel by up to {@code parallelism} threads.
+ */
 @Slf4j
 @RequiredArgsConstructor
 public class IdCachingJobExecutionListener implements JobExecutionListener {
@@ -25,8 +55,12 @@ public class IdCachingJobExecutionListener implements JobExecutionListener {
   protected static final String RELEASE = "release";
   protected static final String STRICT = ArgType.STRICT.getGlobalName();
 
+  private static final int FETCH_SIZE = 10_000;
+
   private final EntityIdRegistry idRegistry;
   private final DSLContext context;
+  private final FileUtil fileUtil;
+  private final int parallelism;
 
   @Override
   public void beforeJob(JobExecution jobExecution) {
@@ -42,81 +76,239 @@ public class IdCachingJobExecutionListener implements JobExecutionListener {
     boolean doMaster = params.containsKey(MASTER);
     boolean doRelease = params.containsKey(RELEASE);
 
+    List<EntityIdRegistry.Type> types = new ArrayList<>();
     if (doMaster && !doRelease) {
       if (!doArtist) {
-        preCacheArtistIds();
+        types.add(EntityIdRegistry.Type.ARTIST);
       }
     } else if (!doMaster && doRelease) {
       if (!doArtist) {
-        preCacheArtistIds();
+        types.add(EntityIdRegistry.Type.ARTIST);
       }
       if (!doLabel) {
-        preCacheLabelIds();
+        types.add(EntityIdRegistry.Type.LABEL);
       }
-      preCacheMasterIds();
+      types.add(EntityIdRegistry.Type.MASTER);
     } else if (doMaster) { // doMaster && doRelease
       if (!doArtist) {
-        preCacheArtistIds();
+        types.add(EntityIdRegistry.Type.ARTIST);
       }
       if (!doLabel) {
-        preCacheLabelIds();
+        types.add(EntityIdRegistry.Type.LABEL);
       }
     }
+    preCache(types);
   }
 
-  private void preCacheMasterIds() {
-    cacheThenInvert(fetchMasterIdentifiers(), EntityIdRegistry.Type.MASTER);
+  /**
+   * Pre-caches the ids of given types concurrently. Each table is restored from its snapshot if
+   * possible, or else split into slices of id range, each of which is streamed into the registry
+   * by a server-side cursor of its own. A cache is inverted as soon as every slice of the table
+   * is done.
+   *
+   * @param types types to be pre-cached.
+   */
+  private void preCache(List<EntityIdRegistry.Type> types) {
+    if (types.isEmpty()) {
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      CompletableFuture.allOf(
+              types.stream()
+                  .map(type -> preCache(type, executor))
+                  .toArray(CompletableFuture[]::new))
+          .join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
-  private void preCacheLabelIds() {
-    cacheThenInvert(fetchLabelIdentifiers(), EntityIdRegistry.Type.LABEL);
+  private CompletableFuture<Void> preCache(EntityIdRegistry.Type type, ExecutorService executor) {
+    Table<?> table = tableOf(type);
+    Field<Integer> id = idFieldOf(type);
+    return CompletableFuture.supplyAsync(() -> restore(type, table, id), executor)
+        .thenCompose(
+            restored ->
+                restored
+                    ? CompletableFuture.<Void>completedFuture(null)
+                    : fetch(type, table, id, executor))
+        .thenRun(() -> invert(type));
   }
 
-  private void preCacheArtistIds() {
-    cacheThenInvert(fetchArtistIdentifiers(), EntityIdRegistry.Type.ARTIST);
+  private CompletableFuture<Void> fetch(
+      EntityIdRegistry.Type type, Table<?> table, Field<Integer> id, ExecutorService executor) {
+    String typeName = type.name().toLowerCase();
+    Record2<Integer, Integer> range =
+        context.select(DSL.min(id), DSL.max(id)).from(table).fetchOne();
+    if (range == null || range.value1() == null) {
+      log.info("no {} identifiers to fetch", typeName);
+      return CompletableFuture.completedFuture(null);
+    }
+    idRegistry.presize(type, range.value2());
+    int[][] slices = slicesOf(range.value1(), range.value2(), parallelism);
+    log.info("fetching {} identifiers in {} slices", typeName, slices.length);
+    long startedAt = System.currentTimeMillis();
+    AtomicLong fetched = new AtomicLong();
+    return CompletableFuture.allOf(
+            Arrays.stream(slices)
+                .map(
+                    slice ->
+                        CompletableFuture.runAsync(
+                            () -> fetched.addAndGet(fetchSlice(type, table, id, slice)), executor))
+                .toArray(CompletableFuture[]::new))
+        .thenRun(
+            () ->
+                log.info(
+                    "fetched {} ids. count: {}, took {}ms",
+                    typeName,
+                    fetched.get(),
+                    System.currentTimeMillis() - startedAt));
   }
 
-  private void cacheThenInvert(List<Integer> idList, EntityIdRegistry.Type type) {
-    cache(idList, type);
-    invert(type);
+  /**
+   * Streams the ids of given slice straight into the id cache. The cursor is only served from the
+   * server by {@link #FETCH_SIZE} rows at a time within a transaction, so it is opened in one.
+   *
+   * @return count of the ids fetched.
+   */
+  private long fetchSlice(
+      EntityIdRegistry.Type type, Table<?> table, Field<Integer> id, int[] slice) {
+    IdCache cache = idRegistry.getLongIdCache(type);
+    return context.transactionResult(
+        configuration -> {
+          try (ResultSet resultSet =
+              DSL.using(configuration)
+                  .select(id)
+                  .from(table)
+                  .where(id.between(slice[0], slice[1]))
+                  .fetchSize(FETCH_SIZE)
+                  .fetchResultSet()) {
+            long count = 0;
+            while (resultSet.next()) {
+              cache.add(resultSet.getInt(1));
+              count++;
+            }
+            return count;
+          } catch (SQLException e) {
+            throw new DataAccessException("failed to fetch " + table.getName() + " ids", e);
+          }
+        });
   }
 
-  private void invert(EntityIdRegistry.Type type) {
-    idRegistry.invert(type);
+  /**
+   * Splits given range of ids into slices of even width.
+   *
+   * @param min   smallest id.
+   * @param max   largest id.
+   * @param count count of the slices desired.
+   * @return inclusive bounds of each slice, which are fewer than desired if the range is too
+   * narrow.
+   */
+  static int[][] slicesOf(int min, int max, int count) {
+    long span = (long) max - min + 1;
+    long width = Math.max(1, (span + Math.max(1, count) - 1) / Math.max(1, count));
+    int[][] slices = new int[(int) ((span + width - 1) / width)][];
+    for (int i = 0; i < slices.length; i++) {
+      long from = min + i * width;
+      slices[i] = new int[] {(int) from, (int) Math.min(max, from + width - 1)};
+    }
+    return slices;
   }
 
-  private void cache(List<Integer> idList, EntityIdRegistry.Type type) {
-    log.info("caching {} identifiers", type.name().toLowerCase());
-    idList.stream().filter(Objects::nonNull).forEach(id -> idRegistry.put(type, id));
+  private static Table<?> tableOf(EntityIdRegistry.Type type) {
+    return switch (type) {
+      case ARTIST -> Artist.ARTIST;
+      case LABEL -> Label.LABEL;
+      case MASTER -> Master.MASTER;
+      default -> throw new IllegalArgumentException("no table to pre-cache for " + type);
+    };
   }
 
-  private List<Integer> fetchArtistIdentifiers() {
-    log.info("fetching artist identifiers");
-    List<Integer> list =
-        new ArrayList<>(
-            context.select(Artist.ARTIST.ID).from(Artist.ARTIST).fetch(Artist.ARTIST.ID));
-    log.info("fetched artists ids. count: {}", list.size());
-    return list;
+  private static Field<Integer> idFieldOf(EntityIdRegistry.Type type) {
+    return switch (type) {
+      case ARTIST -> Artist.ARTIST.ID;
+      case LABEL -> Label.LABEL.ID;
+      case MASTER -> Master.MASTER.ID;
+      default -> throw new IllegalArgumentException("no table to pre-cache for " + type);
+    };
   }
 
-  private List<Integer> fetchLabelIdentifiers() {
-    log.info("fetching label identifiers");
-    List<Integer> list =
-        new ArrayList<>(context.select(Label.LABEL.ID).from(Label.LABEL).fetch(Label.LABEL.ID));
-    log.info("fetched label ids. count: {}", list.size());
-    return list;
+  /**
+   * Restores the id cache of given type from its snapshot, if the files are kept between the runs.
+   *
+   * @return true if restored.
+   */
+  private boolean restore(EntityIdRegistry.Type type, Table<?> table, Field<Integer> id) {
+    if (fileUtil.isTemporary()) {
+      return false;
+    }
+    try {
+      return IdCacheSnapshot.restore(
+          fileUtil.getFilePath(IdCacheSnapshot.filenameOf(type)),
+          idRegistry.getLongIdCache(type),
+          fingerprintOf(table, id));
+    } catch (FileException | DataAccessException e) {
+      log.warn("failed to restore " + type.name().toLowerCase() + " id cache snapshot", e);
+      return false;
+    }
   }
 
-  private List<Integer> fetchMasterIdentifiers() {
-    log.info("fetching master identifiers");
-    List<Integer> list =
-        new ArrayList<>(
-            context.select(Master.MASTER.ID).from(Master.MASTER).fetch(Master.MASTER.ID));
-    log.info("fetched master ids. count: {}", list.size());
-    return list;
+  private void writeSnapshot(
+      EntityIdRegistry.Type type, Table<?> table, Field<Integer> id, String eTag) {
+    IdCache cache = idRegistry.getLongIdCache(type);
+    if (cache.isEmpty()) {
+      return;
+    }
+    String typeName = type.name().toLowerCase();
+    try {
+      Fingerprint fingerprint = fingerprintOf(table, id);
+      if (!fingerprint.matches(cache)) {
+        log.info("{} id cache does not match the table. skipping snapshot...", typeName);
+        return;
+      }
+      IdCacheSnapshot.write(
+          fileUtil.getFilePath(IdCacheSnapshot.filenameOf(type)), cache, fingerprint, eTag);
+      log.info("wrote {} id cache snapshot. {}", typeName, fingerprint);
+    } catch (FileException | IOException | DataAccessException e) {
+      log.warn("failed to write " + typeName + " id cache snapshot", e);
+    }
+  }
+
+  private Fingerprint fingerprintOf(Table<?> table, Field<Integer> id) {
+    Record2<Integer, Integer> record =
+        context.select(DSL.count(), DSL.max(id)).from(table).fetchOne();
+    if (record == null || record.value2() == null) {
+      return new Fingerprint(0, -1);
+    }
+    return new Fingerprint(record.value1(), record.value2());
+  }
+
+  private void invert(EntityIdRegistry.Type type) {
+    idRegistry.invert(type);
   }
 
   @Override
   public void afterJob(JobExecution jobExecution) {
+    if (fileUtil.isTemporary() || jobExecution.getStatus() != BatchStatus.COMPLETED) {
+      return;
+    }
+    Map<String, ?> params = jobExecution.getJobParameters().getParameters();
+    writeSnapshot(
+        EntityIdRegistry.Type.ARTIST, Artist.ARTIST, Artist.ARTIST.ID, eTagOf(params, ARTIST));
+    writeSnapshot(
+        EntityIdRegistry.Type.LABEL, Label.LABEL, Label.LABEL.ID, eTagOf(params, LABEL));
+    writeSnapshot(
+        EntityIdRegistry.Type.MASTER, Master.MASTER, Master.MASTER.ID, eTagOf(params, MASTER));
+  }
+
+  private static String eTagOf(Map<String, ?> params, String key) {
+    Object value = params.get(key);
+    return value == null ? null : value.toString();
   }
 }
@@ -0,0 +1,32 @@
+package io.dsub.discogs.batch.job.listener;
+
+import io.dsub.discogs.batch.job.registry.RowFingerprintFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+
+/**
+ * Commits the fingerprints staged by the {@link RowFingerprintFilter} once the chunk is written,
+ * or discards them if the chunk is rolled back, so that the rows of a failed chunk are written
+ * again on retry.
+ */
+@RequiredArgsConstructor
+public class RowFingerprintChunkListener implements ChunkListener {
+
+  private final RowFingerprintFilter filter;
+
+  @Override
+  public void beforeChunk(ChunkContext context) {
+    filter.discardStaged();
+  }
+
+  @Override
+  public void afterChunk(ChunkContext context) {
+    filter.commitStaged();
+  }
+
+  @Override
+  public void afterChunkError(ChunkContext context) {
+    filter.discardStaged();
+  }
+}
@@ -4,7 +4,6 @@ import io.dsub.discogs.batch.domain.artist.ArtistSubItemsXML;
 import io.dsub.discogs.batch.domain.artist.ArtistXML;
 import io.dsub.discogs.batch.domain.label.LabelSubItemsXML;
 import io.dsub.discogs.batch.domain.label.LabelXML;
-import io.dsub.discogs.batch.domain.master.MasterMainReleaseXML;
 import io.dsub.discogs.batch.domain.master.MasterSubItemsXML;
 import io.dsub.discogs.batch.domain.master.MasterXML;
 import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML;
@@ -56,7 +55,7 @@ public class ItemProcessorConfig {
   @Bean
   @StepScope
   public ItemProcessor<MasterXML, MasterRecord> masterCoreProcessor() {
-    return new MasterCoreProcessor();
+    return new MasterCoreProcessor(entityIdRegistry);
   }
 
   @Bean
@@ -78,10 +77,4 @@ public class ItemProcessorConfig {
   releaseItemSubItemsProcessor() {
     return new ReleaseItemSubItemsProcessor(entityIdRegistry);
   }
-
-  @Bean
-  @StepScope
-  public ItemProcessor<MasterMainReleaseXML, MasterRecord> masterMainReleaseItemProcessor() {
-    return new MasterMainReleaseItemProcessor(entityIdRegistry);
-  }
 }
@@ -1,6 +1,7 @@
 package io.dsub.discogs.batch.job.processor;
 
 import io.dsub.discogs.batch.domain.master.MasterXML;
+import io.dsub.discogs.batch.job.registry.EntityIdRegistry;
 import io.dsub.discogs.batch.util.ReflectionUtil;
 import io.dsub.discogs.jooq.tables.records.MasterRecord;
 import lombok.RequiredArgsConstructor;
@@ -9,12 +10,16 @@ import org.springframework.batch.item.ItemProcessor;
 @RequiredArgsConstructor
 public class MasterCoreProcessor implements ItemProcessor<MasterXML, MasterRecord> {
 
+  private final EntityIdRegistry idRegistry;
+
   @Override
   public MasterRecord process(MasterXML master) throws Exception {
     if (master.getId() == null || master.getId() < 1) {
       return null;
     }
     ReflectionUtil.normalizeStringFields(master);
+    // main release is applied after the releases are inserted. see MasterMainReleaseUpdateTasklet.
+    idRegistry.getMainReleases().put(master.getId(), master.getMainReleaseId());
     return master.buildRecord();
   }
 }
@@ -0,0 +1,135 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded single-producer, multi-consumer queue backed by {@link ConcurrentLinkedQueue}. Neither
+ * side takes a lock; a full queue parks the producer, and an empty queue parks the consumers for
+ * a short while until the other side catches up.
+ *
+ * <p>The time each side spent being blocked, and the depth of the queue observed by the consumers
+ * are tracked to tell whether the producer is the bottleneck.
+ *
+ * @param <T> type of the item.
+ */
+public class BoundedItemQueue<T> {
+
+  private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  private final int capacity;
+  private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong producerBlockedNanos = new AtomicLong();
+  private final AtomicLong consumerBlockedNanos = new AtomicLong();
+  private final AtomicLong depthSum = new AtomicLong();
+  private final AtomicLong depthSamples = new AtomicLong();
+  private final AtomicInteger maxDepth = new AtomicInteger();
+  private volatile boolean finished = false;
+
+  public BoundedItemQueue(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be greater than zero");
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * Puts an item, waiting while the queue is full. Only a single producer is expected.
+   *
+   * @param item item to be put.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public void put(T item) throws InterruptedException {
+    if (size.get() >= capacity) {
+      long start = System.nanoTime();
+      while (size.get() >= capacity) {
+        LockSupport.parkNanos(PARK_NANOS);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      }
+      producerBlockedNanos.addAndGet(System.nanoTime() - start);
+    }
+    queue.offer(item);
+    maxDepth.accumulateAndGet(size.incrementAndGet(), Math::max);
+  }
+
+  /**
+   * Marks that no more item will be put.
+   */
+  public void finish() {
+    finished = true;
+  }
+
+  /**
+   * Takes a single item, waiting while the queue is empty and not yet finished.
+   *
+   * @return the item, or null if the queue is finished and drained.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public T take() throws InterruptedException {
+    T item = poll();
+    if (item != null) {
+      return item;
+    }
+    long start = System.nanoTime();
+    try {
+      while (true) {
+        // read the flag first, so that the last items put before finishing are not missed.
+        boolean done = finished;
+        item = poll();
+        if (item != null || done) {
+          return item;
+        }
+        LockSupport.parkNanos(PARK_NANOS);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      }
+    } finally {
+      consumerBlockedNanos.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+  private T poll() {
+    int depth = size.get();
+    T item = queue.poll();
+    if (item != null) {
+      size.decrementAndGet();
+      depthSum.addAndGet(depth);
+      depthSamples.incrementAndGet();
+    }
+    return item;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public int getMaxDepth() {
+    return maxDepth.get();
+  }
+
+  /**
+   * Average depth of the queue, observed whenever a consumer takes an item.
+   *
+   * @return average depth, or zero if nothing was taken yet.
+   */
+  public double getAverageDepth() {
+    long samples = depthSamples.get();
+    return samples == 0 ? 0 : (double) depthSum.get() / samples;
+  }
+
+  public long getProducerBlockedNanos() {
+    return producerBlockedNanos.get();
+  }
+
+  public long getConsumerBlockedNanos() {
+    return consumerBlockedNanos.get();
+  }
+}
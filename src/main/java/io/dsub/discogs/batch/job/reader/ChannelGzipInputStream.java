@@ -0,0 +1,240 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import me.tongfei.progressbar.ProgressBar;
+
+/**
+ * An {@link InputStream} that inflates a gzip file straight from its {@link FileChannel}. The
+ * compressed bytes are read into a single direct {@link ByteBuffer} which is handed to the {@link
+ * Inflater} as it is, and the inflated bytes are written straight into the buffer of the caller
+ * (i.e. the parser), so no intermediate heap buffer sits between the file and the parser. The gzip
+ * header and trailer are handled here, including concatenated members.
+ *
+ * <p>Progress is reported by the count of compressed bytes read from the channel, as each refill
+ * of the input buffer takes place.
+ *
+ * <p>This implementation is NOT thread-safe.
+ */
+public class ChannelGzipInputStream extends InputStream {
+
+  public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+  private static final int GZIP_MAGIC = 0x8b1f;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  private final FileChannel channel;
+  private final ProgressBar pb;
+  private final ByteBuffer input;
+  private final Inflater inflater = new Inflater(true);
+  private final CRC32 crc = new CRC32();
+  private boolean channelEof = false;
+  private boolean eof = false;
+  private boolean closed = false;
+
+  public ChannelGzipInputStream(FileChannel channel) throws IOException {
+    this(channel, null, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Constructor that reads the gzip header of the first member immediately.
+   *
+   * @param channel    channel of the gzip file, positioned at the start of the file.
+   * @param pb         progress bar to be stepped by the compressed bytes read. nullable.
+   * @param bufferSize size of the direct input buffer.
+   * @throws IOException if failed to read, or the file is not in gzip format.
+   */
+  public ChannelGzipInputStream(FileChannel channel, ProgressBar pb, int bufferSize)
+      throws IOException {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("bufferSize must be greater than zero");
+    }
+    this.channel = channel;
+    this.pb = pb;
+    this.input = ByteBuffer.allocateDirect(bufferSize);
+    this.input.limit(0);
+    try {
+      readHeader();
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    int read = read(single, 0, 1);
+    return read == -1 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("stream closed");
+    }
+    if (len == 0) {
+      return 0;
+    }
+    while (!eof) {
+      int inflated;
+      try {
+        inflated = inflater.inflate(b, off, len);
+      } catch (DataFormatException e) {
+        String message = e.getMessage();
+        throw new ZipException(message == null ? "invalid deflate data" : message);
+      }
+      if (inflated > 0) {
+        crc.update(b, off, inflated);
+        return inflated;
+      }
+      if (inflater.finished()) {
+        readTrailer();
+        if (!nextMember()) {
+          eof = true;
+        }
+      } else if (inflater.needsDictionary()) {
+        throw new ZipException("deflate data requires a preset dictionary");
+      } else if (inflater.needsInput()) {
+        if (!fill()) {
+          throw new EOFException("unexpected end of gzip input");
+        }
+        inflater.setInput(input);
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    inflater.end();
+    if (pb != null) {
+      pb.close();
+    }
+    channel.close();
+  }
+
+  private void readHeader() throws IOException {
+    if (readUShort() != GZIP_MAGIC) {
+      throw new ZipException("not in gzip format");
+    }
+    if (readUByte() != 8) {
+      throw new ZipException("unsupported compression method");
+    }
+    int flags = readUByte();
+    skipBytes(6);
+    if ((flags & FEXTRA) == FEXTRA) {
+      skipBytes(readUShort());
+    }
+    if ((flags & FNAME) == FNAME) {
+      skipZeroTerminated();
+    }
+    if ((flags & FCOMMENT) == FCOMMENT) {
+      skipZeroTerminated();
+    }
+    if ((flags & FHCRC) == FHCRC) {
+      skipBytes(2);
+    }
+    crc.reset();
+    inflater.setInput(input);
+  }
+
+  private void readTrailer() throws IOException {
+    long expectedCrc = readUInt();
+    long expectedSize = readUInt();
+    if (expectedCrc != crc.getValue()) {
+      throw new ZipException("corrupt gzip trailer: crc mismatch");
+    }
+    if (expectedSize != (inflater.getBytesWritten() & 0xFFFFFFFFL)) {
+      throw new ZipException("corrupt gzip trailer: size mismatch");
+    }
+  }
+
+  /**
+   * Starts to inflate the next member if the file continues with one. As with {@link
+   * java.util.zip.GZIPInputStream}, trailing bytes which do not start a member are ignored.
+   *
+   * @return false if the file has no more member.
+   */
+  private boolean nextMember() throws IOException {
+    if (!input.hasRemaining() && !fill()) {
+      return false;
+    }
+    inflater.reset();
+    try {
+      readHeader();
+    } catch (ZipException | EOFException e) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Reads more bytes from the channel into the input buffer, keeping the unread ones.
+   *
+   * @return false if the channel has no more bytes.
+   */
+  private boolean fill() throws IOException {
+    if (channelEof) {
+      return false;
+    }
+    input.compact();
+    int read;
+    try {
+      read = channel.read(input);
+    } finally {
+      input.flip();
+    }
+    if (read == -1) {
+      channelEof = true;
+      return input.hasRemaining();
+    }
+    if (pb != null) {
+      pb.stepBy(read);
+    }
+    return true;
+  }
+
+  private int readUByte() throws IOException {
+    while (!input.hasRemaining()) {
+      if (!fill()) {
+        throw new EOFException("unexpected end of gzip header");
+      }
+    }
+    return input.get() & 0xFF;
+  }
+
+  private int readUShort() throws IOException {
+    return readUByte() | (readUByte() << 8);
+  }
+
+  private long readUInt() throws IOException {
+    return ((long) readUShort()) | ((long) readUShort() << 16);
+  }
+
+  private void skipBytes(int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      readUByte();
+    }
+  }
+
+  private void skipZeroTerminated() throws IOException {
+    while (readUByte() != 0) {
+      // skip until the terminator
+    }
+  }
+}
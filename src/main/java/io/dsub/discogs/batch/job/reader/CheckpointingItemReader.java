@@ -0,0 +1,72 @@
+package io.dsub.discogs.batch.job.reader;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+
+/**
+ * A synchronized {@link ItemStreamReader} that records a safe resume point of the delegate to the
+ * step execution context on each commit. Each item is given an ordinal as it is read, and the
+ * ordinals committed by all chunk workers are tracked by {@link CommitWatermark}. On restart, the
+ * delegate resumes from the last watermark, so that only the items read after the watermark are
+ * read again. The step must bind its chunks by {@link
+ * io.dsub.discogs.batch.job.listener.ChunkBindingListener}.
+ *
+ * @param <T> type to be read.
+ */
+@Slf4j
+public class CheckpointingItemReader<T> implements ItemStreamReader<T> {
+
+  public static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+  private final ResumableItemStreamReader<T> delegate;
+  private final String key;
+  private final CommitWatermark watermark = new CommitWatermark();
+  private long next = 0;
+
+  /**
+   * Constructor of the reader.
+   *
+   * @param delegate reader to be read in order.
+   * @param name     name to be used for the key of the checkpoint.
+   */
+  public CheckpointingItemReader(ResumableItemStreamReader<T> delegate, String name) {
+    this.delegate = delegate;
+    this.key = name + CHECKPOINT_SUFFIX;
+  }
+
+  @Override
+  public synchronized void open(ExecutionContext executionContext) throws ItemStreamException {
+    if (executionContext.containsKey(key)) {
+      long checkpoint = executionContext.getLong(key);
+      log.info("resuming {} from item #{}", key, checkpoint);
+      delegate.resumeAt(checkpoint);
+      watermark.reset(checkpoint);
+      next = checkpoint;
+    }
+    delegate.open(executionContext);
+  }
+
+  @Override
+  public synchronized T read() throws Exception {
+    T item = delegate.read();
+    if (item != null) {
+      watermark.record(next++);
+    }
+    return item;
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    executionContext.putLong(key, watermark.update());
+    synchronized (this) {
+      delegate.update(executionContext);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws ItemStreamException {
+    delegate.close();
+  }
+}
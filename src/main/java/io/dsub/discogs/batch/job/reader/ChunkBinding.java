@@ -0,0 +1,115 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.util.concurrent.Callable;
+import org.springframework.batch.core.scope.context.ChunkContext;
+
+/**
+ * Binds the {@link ChunkStates} of the chunk being processed to the calling thread. The states are
+ * kept in the {@link ChunkContext}, since a chunk rolled back is retried by the same context,
+ * possibly on another thread; the states of a chunk must follow the chunk rather than the thread.
+ *
+ * <p>Chunks are bound by {@link io.dsub.discogs.batch.job.listener.ChunkBindingListener}. Without a
+ * chunk bound (i.e. reading outside of a chunk oriented step), the states are kept per thread and
+ * settled on the next update of the reader, by {@link #settleUnbound()}.
+ */
+public final class ChunkBinding {
+
+  public static final String STATES_KEY = "chunkStates";
+
+  // attribute of the items read by ChunkOrientedTasklet, kept in the context for a retry.
+  private static final String INPUTS_KEY = "INPUTS";
+
+  private static final ThreadLocal<ChunkStates> BOUND = new ThreadLocal<>();
+  private static final ThreadLocal<ChunkStates> UNBOUND = ThreadLocal.withInitial(ChunkStates::new);
+
+  private ChunkBinding() {}
+
+  /**
+   * Binds the states of the chunk to the calling thread, creating them if the chunk is new.
+   *
+   * @param chunkContext context of the chunk to be processed by the calling thread.
+   */
+  public static void bind(ChunkContext chunkContext) {
+    ChunkStates states = (ChunkStates) chunkContext.getAttribute(STATES_KEY);
+    if (states == null) {
+      states = new ChunkStates();
+      chunkContext.setAttribute(STATES_KEY, states);
+    }
+    BOUND.set(states);
+  }
+
+  /**
+   * Unbinds the chunk from the calling thread. The states stay with the chunk for a retry.
+   */
+  public static void unbind() {
+    BOUND.remove();
+  }
+
+  /**
+   * Unbinds the chunk rolled back from the calling thread. The states stay with the chunk if its
+   * items are kept for the retry; otherwise the items are read again by the retry, and the states
+   * left over are discarded.
+   *
+   * @param chunkContext context of the chunk rolled back.
+   */
+  public static void release(ChunkContext chunkContext) {
+    BOUND.remove();
+    if (!chunkContext.hasAttribute(INPUTS_KEY)) {
+      chunkContext.removeAttribute(STATES_KEY);
+    }
+  }
+
+  /**
+   * Settles the states of the committed chunk.
+   *
+   * @param chunkContext context of the committed chunk.
+   */
+  public static void settle(ChunkContext chunkContext) {
+    ChunkStates states = (ChunkStates) chunkContext.removeAttribute(STATES_KEY);
+    if (states != null) {
+      states.settle();
+    }
+  }
+
+  /**
+   * @return states of the chunk bound to the calling thread, or of the thread if none is bound.
+   */
+  public static ChunkStates current() {
+    ChunkStates states = BOUND.get();
+    return states != null ? states : UNBOUND.get();
+  }
+
+  /**
+   * Settles the states kept by the calling thread without a chunk bound. Does nothing within a
+   * chunk, of which the states are settled once it is committed.
+   */
+  public static void settleUnbound() {
+    if (BOUND.get() == null) {
+      UNBOUND.get().settle();
+    }
+  }
+
+  /**
+   * Calls with given states bound instead, so that the states kept by the call can be settled
+   * apart from the chunk.
+   *
+   * @param states   states to be bound during the call.
+   * @param callable call to be made.
+   * @param <V>      type of the result.
+   * @return result of the call.
+   * @throws Exception thrown by the call.
+   */
+  public static <V> V callWith(ChunkStates states, Callable<V> callable) throws Exception {
+    ChunkStates previous = BOUND.get();
+    BOUND.set(states);
+    try {
+      return callable.call();
+    } finally {
+      if (previous == null) {
+        BOUND.remove();
+      } else {
+        BOUND.set(previous);
+      }
+    }
+  }
+}
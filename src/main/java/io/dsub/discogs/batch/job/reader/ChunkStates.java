@@ -0,0 +1,106 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * States the readers keep for the items of a chunk, i.e. the ordinals read by {@link
+ * CommitWatermark}. The states are settled only once the chunk is committed, which is reported by
+ * {@link ChunkBinding#settle}. States of other holders may be included, to be settled along with
+ * this one.
+ *
+ * <p>The settlement may also be held until the items are done with apart from the chunk (i.e. rows
+ * written behind the chunk), by {@link #hold()}. A holder settled while held is only settled once
+ * every hold is released.
+ */
+public class ChunkStates {
+
+  private final Map<String, State> states = new LinkedHashMap<>();
+  private final List<ChunkStates> included = new ArrayList<>();
+  private int holds;
+  private boolean settleHeld;
+
+  /**
+   * @param key     key of the state, unique to its owner.
+   * @param factory factory of the state if absent.
+   * @param <S>     type of the state.
+   * @return the state of given key.
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized <S extends State> S get(String key, Supplier<S> factory) {
+    return (S) states.computeIfAbsent(key, k -> factory.get());
+  }
+
+  /**
+   * Includes the states of another holder, to be settled along with this one.
+   *
+   * @param other holder to be included.
+   */
+  public synchronized void include(ChunkStates other) {
+    included.add(other);
+  }
+
+  /**
+   * Holds the settlement of this holder until the returned state is settled.
+   *
+   * @return state releasing the hold once settled, of which only the first settlement counts.
+   */
+  public synchronized State hold() {
+    holds++;
+    AtomicBoolean released = new AtomicBoolean();
+    return () -> {
+      if (released.compareAndSet(false, true)) {
+        release();
+      }
+    };
+  }
+
+  private void release() {
+    synchronized (this) {
+      holds--;
+      if (holds > 0 || !settleHeld) {
+        return;
+      }
+      settleHeld = false;
+    }
+    settle();
+  }
+
+  /**
+   * Settles every state held or included, then forgets them. If held, the settlement is deferred
+   * until every hold is released.
+   */
+  public void settle() {
+    List<State> settling;
+    List<ChunkStates> nested;
+    synchronized (this) {
+      if (holds > 0) {
+        settleHeld = true;
+        return;
+      }
+      settling = new ArrayList<>(states.values());
+      nested = new ArrayList<>(included);
+      states.clear();
+      included.clear();
+    }
+    for (State state : settling) {
+      state.settle();
+    }
+    for (ChunkStates other : nested) {
+      other.settle();
+    }
+  }
+
+  /**
+   * A state to be settled once the items it was kept for are committed.
+   */
+  @FunctionalInterface
+  public interface State {
+
+    void settle();
+  }
+}
@@ -0,0 +1,96 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the ordinals of items that are safely committed, when the chunk workers commit their
+ * chunks out of order. The ordinals read are recorded to the {@link ChunkStates} of the chunk
+ * reading them, and only marked as committed once that chunk is committed (see {@link
+ * ChunkBinding#settle}). A chunk rolled back keeps its ordinals until it is retried and committed,
+ * on whichever thread, and the ordinals of a chunk never committed are never marked.
+ *
+ * <p>The watermark is the count of leading ordinals that are all committed, so that a restart can
+ * resume from it without losing any item. Items beyond the watermark may be read again. As the
+ * watermark is stored to the execution context before the chunk commits, it never covers the
+ * chunk storing it.
+ */
+public class CommitWatermark {
+
+  private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+  private final String key = "commitWatermark#" + SEQUENCE.incrementAndGet();
+  private BitSet committed = new BitSet();
+  private long watermark = 0;
+
+  /**
+   * Resets the watermark, i.e. to the one restored from the execution context.
+   *
+   * @param ordinal ordinal to start from.
+   */
+  public synchronized void reset(long ordinal) {
+    committed = new BitSet();
+    watermark = ordinal;
+  }
+
+  /**
+   * Records an ordinal read by the chunk bound to the calling thread.
+   *
+   * @param ordinal ordinal of the read item.
+   */
+  public void record(long ordinal) {
+    ChunkBinding.current().get(key, Ordinals::new).add(ordinal);
+  }
+
+  /**
+   * Settles the ordinals recorded by the calling thread without a chunk bound, then returns the
+   * watermark. Ordinals of the chunks are settled once their chunks are committed instead.
+   *
+   * @return the watermark.
+   */
+  public long update() {
+    ChunkBinding.settleUnbound();
+    return get();
+  }
+
+  public synchronized long get() {
+    return watermark;
+  }
+
+  private synchronized void commit(long[] values, int size) {
+    for (int i = 0; i < size; i++) {
+      long offset = values[i] - watermark;
+      if (offset >= 0) {
+        committed.set(Math.toIntExact(offset));
+      }
+    }
+    int advance = committed.nextClearBit(0);
+    if (advance > 0) {
+      watermark += advance;
+      committed = committed.get(advance, Math.max(advance, committed.length()));
+    }
+  }
+
+  /**
+   * Ordinals read by a chunk, marked as committed once the chunk is committed.
+   */
+  private final class Ordinals implements ChunkStates.State {
+
+    private long[] values = new long[64];
+    private int size = 0;
+
+    private synchronized void add(long value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    @Override
+    public synchronized void settle() {
+      commit(values, size);
+      size = 0;
+    }
+  }
+}
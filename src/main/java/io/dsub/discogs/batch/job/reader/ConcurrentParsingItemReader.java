@@ -0,0 +1,166 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.NonTransientResourceException;
+
+/**
+ * An {@link ItemStreamReader} that parses the dump on a dedicated thread. The parsing thread reads
+ * from the delegate and pushes each item into a {@link BoundedItemQueue}, while the chunk workers
+ * take the items from the queue one at a time. Unlike {@link
+ * org.springframework.batch.item.support.SynchronizedItemStreamReader}, the workers do not contend
+ * on a lock for every item.
+ *
+ * <p>Items are never held back by a worker, as a multi-threaded step stops scheduling chunks once
+ * any worker reads null; items held by the other workers would be silently dropped.
+ *
+ * <p>Metrics of the queue are written to the execution context on each update, and logged when
+ * the reader is closed.
+ *
+ * <p>If the delegate is a {@link ResumableItemStreamReader}, each item carries its ordinal through
+ * the queue, and a safe resume point is recorded on each update as {@link CheckpointingItemReader}
+ * does, even though the workers commit out of order.
+ *
+ * @param <T> type to be read.
+ */
+@Slf4j
+public class ConcurrentParsingItemReader<T> implements ItemStreamReader<T> {
+
+  public static final int DEFAULT_CAPACITY = 8192;
+
+  private static final long JOIN_TIMEOUT_MILLIS = 5000;
+
+  private final ItemStreamReader<T> delegate;
+  private final String name;
+  private final String checkpointKey;
+  private final BoundedItemQueue<Entry<T>> queue;
+  private final CommitWatermark watermark = new CommitWatermark();
+
+  private volatile Throwable failure;
+  private Thread parser;
+  private long start = 0;
+
+  public ConcurrentParsingItemReader(ItemStreamReader<T> delegate, String name) {
+    this(delegate, name, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructor with explicit queue capacity.
+   *
+   * @param delegate reader to be read by the parsing thread.
+   * @param name     name to be used for the parsing thread and the metrics.
+   * @param capacity maximum count of items to be queued.
+   */
+  public ConcurrentParsingItemReader(ItemStreamReader<T> delegate, String name, int capacity) {
+    this.delegate = delegate;
+    this.name = name;
+    this.checkpointKey = name + CheckpointingItemReader.CHECKPOINT_SUFFIX;
+    this.queue = new BoundedItemQueue<>(capacity);
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    if (isResumable() && executionContext.containsKey(checkpointKey)) {
+      start = executionContext.getLong(checkpointKey);
+      log.info("resuming {} from item #{}", name, start);
+      ((ResumableItemStreamReader<?>) delegate).resumeAt(start);
+      watermark.reset(start);
+    }
+    delegate.open(executionContext);
+    parser = new Thread(this::parse, "parser-" + name);
+    parser.setDaemon(true);
+    parser.start();
+  }
+
+  private void parse() {
+    try {
+      long ordinal = start;
+      T item = delegate.read();
+      while (item != null) {
+        queue.put(new Entry<>(ordinal++, item));
+        item = delegate.read();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable t) {
+      failure = t;
+    } finally {
+      queue.finish();
+    }
+  }
+
+  @Override
+  public T read() throws Exception {
+    Entry<T> entry = queue.take();
+    if (entry == null) {
+      if (failure != null) {
+        throw new NonTransientResourceException("failed to parse " + name, failure);
+      }
+      return null;
+    }
+    watermark.record(entry.ordinal);
+    return entry.item;
+  }
+
+  private boolean isResumable() {
+    return delegate instanceof ResumableItemStreamReader;
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    delegate.update(executionContext);
+    if (isResumable()) {
+      executionContext.putLong(checkpointKey, watermark.update());
+    }
+    executionContext.putInt(name + ".queue.capacity", queue.getCapacity());
+    executionContext.putInt(name + ".queue.depth.max", queue.getMaxDepth());
+    executionContext.putDouble(name + ".queue.depth.avg", queue.getAverageDepth());
+    executionContext.putLong(
+        name + ".parser.blocked.ms", toMillis(queue.getProducerBlockedNanos()));
+    executionContext.putLong(
+        name + ".workers.blocked.ms", toMillis(queue.getConsumerBlockedNanos()));
+  }
+
+  @Override
+  public void close() throws ItemStreamException {
+    if (parser != null) {
+      parser.interrupt();
+      try {
+        parser.join(JOIN_TIMEOUT_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    delegate.close();
+    log.info(
+        "{} queue: capacity {}, average depth {}, max depth {}. "
+            + "parser blocked {} ms on full queue, workers blocked {} ms on empty queue in total.",
+        name,
+        queue.getCapacity(),
+        String.format("%.1f", queue.getAverageDepth()),
+        queue.getMaxDepth(),
+        toMillis(queue.getProducerBlockedNanos()),
+        toMillis(queue.getConsumerBlockedNanos()));
+  }
+
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  /**
+   * An item with its ordinal in the delegate.
+   */
+  private static final class Entry<T> {
+
+    private final long ordinal;
+    private final T item;
+
+    private Entry(long ordinal, T item) {
+      this.ordinal = ordinal;
+      this.item = item;
+    }
+  }
+}
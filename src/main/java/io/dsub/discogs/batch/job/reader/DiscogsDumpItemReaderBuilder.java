@@ -1,35 +1,212 @@
 package io.dsub.discogs.batch.job.reader;
 
 import io.dsub.discogs.batch.dump.DiscogsDump;
+import io.dsub.discogs.batch.dump.EntityType;
+import io.dsub.discogs.batch.exception.FileException;
+import io.dsub.discogs.batch.job.reader.mapper.FragmentMappers;
 import io.dsub.discogs.batch.util.FileUtil;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import org.springframework.batch.item.support.SynchronizedItemStreamReader;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.oxm.Unmarshaller;
 import org.springframework.util.Assert;
 
 /**
- * Utility class that provides single static method {@link #build(Class, DiscogsDump)}.
+ * Utility class that provides single static method {@link #build(Class, DiscogsDump, Class[])}.
  */
+@Slf4j
 @RequiredArgsConstructor
 public class DiscogsDumpItemReaderBuilder {
 
+  private static final String TASK_NAME_PREPEND = "READ ";
+
   private final FileUtil fileUtil;
 
-  public <T> SynchronizedItemStreamReader<T> build(Class<T> mappedClass, DiscogsDump dump)
-      throws Exception {
+  /**
+   * Whether to inflate dumps on a dedicated thread. See {@link PipelinedGzipInputStream}.
+   */
+  @Getter
+  @Setter
+  private boolean pipelined = false;
+
+  /**
+   * Whether to spool projections while reading the dump once. See {@link FanOutUnmarshaller}.
+   */
+  @Setter
+  private boolean fanOut = false;
+
+  /**
+   * Whether to map items from StAX cursors instead of JAXB. See {@link StaxCursorItemReader}.
+   */
+  @Setter
+  private boolean cursor = false;
+
+  /**
+   * Whether to read from the fragment store of the dump if exists. See {@link FragmentStore}.
+   */
+  @Getter
+  @Setter
+  private boolean store = false;
+
+  /**
+   * Whether the fetch steps hand over dumps while they are being downloaded. See {@link
+   * io.dsub.discogs.batch.dump.DumpDownload}.
+   */
+  @Getter
+  @Setter
+  private boolean tee = false;
+
+  /**
+   * Shard of the release dump to be read. If null, every release will be read. Other dumps are
+   * always read as a whole, as the sub items of their entities refer to each other (i.e. members
+   * of an artist), and such references are only kept if both ends were read by the same process.
+   */
+  @Getter
+  @Setter
+  private ShardSpec shard;
+
+  /**
+   * Whether to remove the child elements not mapped by the class to be read, before the fragments
+   * are parsed. See {@link FragmentPruner}.
+   */
+  @Getter
+  @Setter
+  private boolean prune = false;
+
+  /**
+   * Whether the fragment store steps write the statistics of the dumps. See {@link
+   * DumpStatistics}.
+   */
+  @Getter
+  @Setter
+  private boolean profile = false;
+
+  /**
+   * How the chunk workers share the reader. See {@link ReaderMode}.
+   */
+  @Setter
+  private ReaderMode mode = ReaderMode.SYNCHRONIZED;
+
+  /**
+   * Builds a reader for given mapped class. If fan out is enabled, the reader will also spool each
+   * of given projections, and a reader of a projection will read from its spool file if a complete
+   * one exists, instead of reading the whole dump again. If store is enabled and the fragment store
+   * of the dump exists, the reader will hand out fragments from the store regardless of the mode.
+   * If a shard is given, releases of the other shards are dropped before being parsed, and are not
+   * spooled either. If prune is enabled, the child elements that are not mapped by the mapped
+   * class (nor by any projection being spooled) are dropped before being parsed.
+   *
+   * @param mappedClass class to be read.
+   * @param dump        dump to be read.
+   * @param projections classes to be spooled while reading the dump.
+   * @param <T>         type to be read.
+   * @return reader that is safe to be shared by the chunk workers.
+   * @throws Exception if failed to initialize the reader.
+   */
+  public <T> ItemStreamReader<T> build(
+      Class<T> mappedClass, DiscogsDump dump, Class<?>... projections) throws Exception {
     Assert.notNull(dump.getFileName(), "fileName of DiscogsDump cannot be null");
     Assert.notNull(dump.getType(), "type of DiscogsDump cannot be null");
 
     Path filePath = fileUtil.getFilePath(dump.getFileName());
+    String rootElement = dump.getType().toString();
+    String name = rootElement + "-" + mappedClass.getSimpleName();
+    ShardSpec dumpShard = dump.getType() == EntityType.RELEASE ? shard : null;
+    Unmarshaller unmarshaller = null;
 
-    ProgressBarStaxEventItemReader<T> delegate;
-    delegate =
-        new ProgressBarStaxEventItemReader<>(mappedClass, filePath, dump.getType().toString());
-    delegate.afterPropertiesSet();
+    if (store) {
+      Path storePath = fileUtil.getFilePath(dump.getFileName() + FragmentStore.STORE_SUFFIX);
+      if (FragmentStore.exists(storePath)) {
+        return new ParallelUnmarshallingItemReader<>(
+            mappedClass,
+            new FragmentStoreItemReader(storePath, name, dumpShard),
+            cursor ? FragmentMappers.of(mappedClass) : null,
+            getPruner(mappedClass));
+      }
+      log.info("fragment store {} not found. reading {} from the dump.", storePath, filePath);
+    }
+
+    if (fanOut) {
+      Path spoolPath = getSpoolPath(dump, mappedClass);
+      if (Files.exists(spoolPath)) {
+        log.info("reading {} from spool file {}", mappedClass.getSimpleName(), spoolPath);
+        filePath = spoolPath;
+      } else if (projections.length > 0
+          && mode != ReaderMode.PARALLEL
+          && !cursor
+          && dumpShard == null) {
+        Map<Class<?>, Path> spoolPaths = new LinkedHashMap<>();
+        for (Class<?> projection : projections) {
+          spoolPaths.put(projection, getSpoolPath(dump, projection));
+        }
+        unmarshaller = new FanOutUnmarshaller(mappedClass, spoolPaths);
+      }
+    }
+
+    FragmentPruner pruner =
+        unmarshaller == null ? getPruner(mappedClass) : getPruner(mappedClass, projections);
+
+    if (mode == ReaderMode.PARALLEL) {
+      FragmentItemReader fragments =
+          new FragmentItemReader(
+              filePath,
+              rootElement,
+              pipelined,
+              TASK_NAME_PREPEND + mappedClass.getSimpleName(),
+              dumpShard);
+      return new ParallelUnmarshallingItemReader<>(
+          mappedClass,
+          new ConcurrentParsingItemReader<>(fragments, name),
+          cursor ? FragmentMappers.of(mappedClass) : null,
+          pruner);
+    }
+
+    ResumableItemStreamReader<T> delegate;
+    if (cursor) {
+      delegate =
+          new StaxCursorItemReader<>(
+              mappedClass, filePath, rootElement, pipelined, dumpShard, pruner);
+    } else {
+      ProgressBarStaxEventItemReader<T> staxEventItemReader =
+          new ProgressBarStaxEventItemReader<>(
+              mappedClass, filePath, pipelined, unmarshaller, dumpShard, pruner, rootElement);
+      staxEventItemReader.afterPropertiesSet();
+      delegate = staxEventItemReader;
+    }
+
+    if (mode == ReaderMode.QUEUED) {
+      return new ConcurrentParsingItemReader<>(delegate, name);
+    }
+
+    return new CheckpointingItemReader<>(delegate, name);
+  }
+
+  private FragmentPruner getPruner(Class<?> mappedClass, Class<?>... projections) {
+    if (!prune) {
+      return null;
+    }
+    Class<?>[] classes = new Class<?>[projections.length + 1];
+    classes[0] = mappedClass;
+    System.arraycopy(projections, 0, classes, 1, projections.length);
+    FragmentPruner pruner = FragmentPruner.of(classes);
+    if (pruner == null) {
+      log.info("mapped elements of {} cannot be derived. reading without pruning.",
+          mappedClass.getSimpleName());
+    }
+    return pruner;
+  }
 
-    SynchronizedItemStreamReader<T> reader = new SynchronizedItemStreamReader<>();
-    reader.setDelegate(delegate);
-    reader.afterPropertiesSet(); // this won't trigger that of delegate's.
-    return reader;
+  private Path getSpoolPath(DiscogsDump dump, Class<?> projection) throws FileException {
+    Path path = fileUtil.getFilePath(dump.getFileName() + "." + projection.getSimpleName());
+    if (fileUtil.isTemporary()) {
+      path.toFile().deleteOnExit();
+    }
+    return path;
   }
 }
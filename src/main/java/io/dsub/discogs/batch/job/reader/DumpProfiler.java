@@ -0,0 +1,98 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Collects {@link DumpStatistics} from the raw fragments of a dump, without parsing them. The
+ * profiler can be fed with the fragments already being scanned for another purpose (i.e. by
+ * {@link FragmentStoreWriter}), so that the statistics come without an extra pass over the dump.
+ *
+ * <p>The grandchildren are counted by the depth over the raw bytes, as {@link FragmentPruner}
+ * does; i.e. the {@code <track>} elements directly under {@code <tracklist>} of a release.
+ *
+ * <p>This implementation is NOT thread-safe.
+ */
+public class DumpProfiler {
+
+  private final DumpStatistics statistics = new DumpStatistics();
+
+  /**
+   * Profiles a whole decompressed dump.
+   *
+   * @param in          decompressed dump.
+   * @param rootElement root element of the fragments (i.e. release).
+   * @return statistics of the dump.
+   * @throws IOException if failed to read.
+   */
+  public static DumpStatistics profile(InputStream in, String rootElement) throws IOException {
+    DumpProfiler profiler = new DumpProfiler();
+    FragmentScanner scanner = new FragmentScanner(in, rootElement);
+    for (byte[] fragment = scanner.next(); fragment != null; fragment = scanner.next()) {
+      profiler.accept(fragment);
+    }
+    return profiler.getStatistics();
+  }
+
+  /**
+   * Records a fragment. A malformed fragment is counted, but its children are recorded only up to
+   * where it could be scanned.
+   *
+   * @param fragment raw bytes of the fragment.
+   */
+  public void accept(byte[] fragment) {
+    statistics.recordFragment(FragmentStore.peekId(fragment));
+    int rootEnd = FragmentPruner.tagEnd(fragment, 1);
+    if (rootEnd == -1 || fragment[rootEnd - 1] == '/') {
+      return;
+    }
+
+    int depth = 1;
+    String child = null;
+    long count = 0;
+    int i = rootEnd + 1;
+    while (depth > 0) {
+      int lt = FragmentPruner.indexOf(fragment, i, (byte) '<');
+      if (lt == -1 || lt + 1 >= fragment.length) {
+        return;
+      }
+      byte next = fragment[lt + 1];
+      if (next == '!' || next == '?') {
+        i = FragmentPruner.endOfMarkup(fragment, lt);
+      } else if (next == '/') {
+        if (depth == 2) {
+          statistics.recordChildren(child, count);
+        }
+        depth--;
+        i = FragmentPruner.indexOf(fragment, lt + 2, (byte) '>');
+        i = i == -1 ? -1 : i + 1;
+      } else {
+        int gt = FragmentPruner.tagEnd(fragment, lt + 1);
+        if (gt == -1) {
+          return;
+        }
+        boolean selfClosing = fragment[gt - 1] == '/';
+        if (depth == 1) {
+          child = FragmentPruner.nameAt(fragment, lt + 1);
+          count = 0;
+          if (selfClosing) {
+            statistics.recordChildren(child, 0);
+          }
+        } else if (depth == 2) {
+          count++;
+        }
+        if (!selfClosing) {
+          depth++;
+        }
+        i = gt + 1;
+      }
+      if (i == -1) {
+        return;
+      }
+    }
+  }
+
+  public DumpStatistics getStatistics() {
+    return statistics;
+  }
+}
@@ -0,0 +1,239 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Statistics of a dump written by {@link DumpProfiler}, in a small properties file next to the
+ * dump (i.e. {@code discogs_20210101_releases.xml.gz.stats}): the count of the fragments, the
+ * min and max id, and the count of the grandchildren under each child element of the fragments
+ * (i.e. tracks under {@code <tracklist>}), as total, max and histogram.
+ *
+ * <p>The histogram of a child element has a bucket per power of two, where the bucket {@code b}
+ * counts the fragments having {@code [2^(b-1), 2^b)} grandchildren under the element, and the
+ * bucket 0 counts the fragments having the element empty. Fragments without the element are not
+ * counted at all.
+ */
+@Slf4j
+public class DumpStatistics {
+
+  public static final String STATS_SUFFIX = ".stats";
+  public static final int BUCKET_COUNT = 64;
+
+  private static final String FRAGMENTS = "fragments";
+  private static final String MIN_ID = "minId";
+  private static final String MAX_ID = "maxId";
+  private static final String CHILDREN_PREFIX = "children.";
+  private static final String TOTAL = ".total";
+  private static final String MAX = ".max";
+  private static final String HISTOGRAM = ".histogram";
+
+  private long fragmentCount = 0;
+  private long minId = -1;
+  private long maxId = -1;
+  private final Map<String, ChildCounts> children = new TreeMap<>();
+
+  public static Path statsPathOf(Path dumpPath) {
+    return dumpPath.resolveSibling(dumpPath.getFileName() + STATS_SUFFIX);
+  }
+
+  public static boolean exists(Path statsPath) {
+    return Files.isRegularFile(statsPath);
+  }
+
+  /**
+   * Loads the statistics of given path.
+   *
+   * @param statsPath path of the stats file.
+   * @return the statistics, or null if the file does not exist or is not readable.
+   */
+  public static DumpStatistics loadIfExists(Path statsPath) {
+    if (!exists(statsPath)) {
+      return null;
+    }
+    try {
+      return load(statsPath);
+    } catch (IOException | IllegalArgumentException e) {
+      log.warn("ignoring unreadable dump statistics: " + statsPath, e);
+      return null;
+    }
+  }
+
+  public static DumpStatistics load(Path statsPath) throws IOException {
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(statsPath)) {
+      properties.load(in);
+    }
+    DumpStatistics statistics = new DumpStatistics();
+    statistics.fragmentCount = parseLong(properties, FRAGMENTS);
+    statistics.minId = parseLong(properties, MIN_ID);
+    statistics.maxId = parseLong(properties, MAX_ID);
+    for (String key : properties.stringPropertyNames()) {
+      if (!key.startsWith(CHILDREN_PREFIX) || !key.endsWith(TOTAL)) {
+        continue;
+      }
+      String prefix = key.substring(0, key.length() - TOTAL.length());
+      ChildCounts counts = new ChildCounts();
+      counts.total = parseLong(properties, prefix + TOTAL);
+      counts.max = parseLong(properties, prefix + MAX);
+      String[] buckets = properties.getProperty(prefix + HISTOGRAM, "").split(",");
+      for (int i = 0; i < buckets.length && i < BUCKET_COUNT; i++) {
+        if (!buckets[i].isBlank()) {
+          counts.histogram[i] = Long.parseLong(buckets[i].trim());
+        }
+      }
+      statistics.children.put(prefix.substring(CHILDREN_PREFIX.length()), counts);
+    }
+    return statistics;
+  }
+
+  /**
+   * Writes the statistics to given path. The file is written aside and then moved, so that a
+   * reader never sees a partial file.
+   *
+   * @param statsPath path of the stats file.
+   * @throws IOException if failed to write.
+   */
+  public void write(Path statsPath) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty(FRAGMENTS, String.valueOf(fragmentCount));
+    properties.setProperty(MIN_ID, String.valueOf(minId));
+    properties.setProperty(MAX_ID, String.valueOf(maxId));
+    children.forEach(
+        (name, counts) -> {
+          if (counts.max == 0) {
+            return;
+          }
+          properties.setProperty(CHILDREN_PREFIX + name + TOTAL, String.valueOf(counts.total));
+          properties.setProperty(CHILDREN_PREFIX + name + MAX, String.valueOf(counts.max));
+          properties.setProperty(CHILDREN_PREFIX + name + HISTOGRAM, counts.histogramString());
+        });
+    Path temp = statsPath.resolveSibling(statsPath.getFileName() + ".tmp");
+    try (OutputStream out = Files.newOutputStream(temp)) {
+      properties.store(out, "dump statistics");
+    }
+    Files.move(temp, statsPath, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  void recordFragment(long id) {
+    fragmentCount++;
+    if (id < 0) {
+      return;
+    }
+    if (minId == -1 || id < minId) {
+      minId = id;
+    }
+    if (id > maxId) {
+      maxId = id;
+    }
+  }
+
+  void recordChildren(String name, long count) {
+    ChildCounts counts = children.computeIfAbsent(name, key -> new ChildCounts());
+    counts.total += count;
+    counts.max = Math.max(counts.max, count);
+    counts.histogram[bucketOf(count)]++;
+  }
+
+  static int bucketOf(long count) {
+    return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(count));
+  }
+
+  public long getFragmentCount() {
+    return fragmentCount;
+  }
+
+  /**
+   * @return the smallest id, or -1 if no fragment had an id.
+   */
+  public long getMinId() {
+    return minId;
+  }
+
+  /**
+   * @return the largest id, or -1 if no fragment had an id.
+   */
+  public long getMaxId() {
+    return maxId;
+  }
+
+  /**
+   * @return names of the child elements having any grandchild.
+   */
+  public Set<String> getChildNames() {
+    Set<String> names = new TreeSet<>();
+    children.forEach(
+        (name, counts) -> {
+          if (counts.max > 0) {
+            names.add(name);
+          }
+        });
+    return Collections.unmodifiableSet(names);
+  }
+
+  /**
+   * @param name name of the child element (i.e. {@code tracklist}).
+   * @return counts of the grandchildren under the element, or null if none was found.
+   */
+  public ChildCounts getChildCounts(String name) {
+    ChildCounts counts = children.get(name);
+    return counts == null || counts.max == 0 ? null : counts;
+  }
+
+  private static long parseLong(Properties properties, String key) {
+    String value = properties.getProperty(key);
+    if (value == null) {
+      throw new IllegalArgumentException("missing " + key);
+    }
+    return Long.parseLong(value.trim());
+  }
+
+  /**
+   * Counts of the grandchildren under a child element over every fragment.
+   */
+  public static class ChildCounts {
+
+    private long total = 0;
+    private long max = 0;
+    private final long[] histogram = new long[BUCKET_COUNT];
+
+    public long getTotal() {
+      return total;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    /**
+     * @param bucket bucket of the histogram.
+     * @return count of the fragments within the bucket.
+     */
+    public long getBucket(int bucket) {
+      return histogram[bucket];
+    }
+
+    private String histogramString() {
+      int last = histogram.length - 1;
+      while (last > 0 && histogram[last] == 0) {
+        last--;
+      }
+      return Arrays.stream(histogram, 0, last + 1)
+          .mapToObj(String::valueOf)
+          .collect(Collectors.joining(","));
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package io.dsub.discogs.batch.job.reader;
+
+import io.dsub.discogs.batch.dump.DumpDownload;
+import io.dsub.discogs.batch.util.ProgressBarUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import me.tongfei.progressbar.ProgressBar;
+import me.tongfei.progressbar.ProgressBarConsumer;
+import me.tongfei.progressbar.wrapped.ProgressBarWrappedInputStream;
+
+/**
+ * A convenient class to open a dump file to be read, with its progress reported to a {@link
+ * ProgressBar}. If the file is still being downloaded, the opened stream follows the {@link
+ * DumpDownload} until the download completes. A complete gzip file is inflated straight from its
+ * {@link FileChannel} by {@link ChannelGzipInputStream}.
+ */
+public class DumpStreamUtil {
+
+  private static final String GZIP_EXTENSION = ".gz";
+
+  // prevent initialize
+  private DumpStreamUtil() {
+  }
+
+  /**
+   * Opens given file. Files with {@code .gz} extension will be inflated, others will be read as
+   * they are.
+   *
+   * @param filePath  path of the file.
+   * @param taskName  task name to be shown on the progress bar.
+   * @param pipelined if true, inflates through {@link PipelinedGzipInputStream}.
+   * @param consumer  consumer of the progress bar.
+   * @return opened input stream.
+   * @throws IOException if failed to open the file, or the download of the file has failed.
+   */
+  public static InputStream open(
+      Path filePath, String taskName, boolean pipelined, ProgressBarConsumer consumer)
+      throws IOException {
+    DumpDownload download = DumpDownload.inFlight(filePath);
+    if (download == null && isCompressed(filePath)) {
+      FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+      ProgressBar pb = ProgressBarUtil.get(taskName, channel.size(), consumer);
+      InputStream in =
+          new ChannelGzipInputStream(channel, pb, ChannelGzipInputStream.DEFAULT_BUFFER_SIZE);
+      return pipelined ? PipelinedGzipInputStream.ofInflated(in, taskName) : in;
+    }
+    InputStream in = download == null ? Files.newInputStream(filePath) : download.follow();
+    long size = download == null ? Files.size(filePath) : download.getExpectedSize();
+    ProgressBar pb = ProgressBarUtil.get(taskName, size, consumer);
+    InputStream wrapped = new ProgressBarWrappedInputStream(in, pb);
+    if (!isCompressed(filePath)) {
+      return wrapped;
+    }
+    if (pipelined) {
+      return new PipelinedGzipInputStream(wrapped, taskName);
+    }
+    return new GZIPInputStream(wrapped);
+  }
+
+  /**
+   * Opens given file, only with the fragments that belong to given shard, pruned by given pruner.
+   * See {@link FilteredDocumentInputStream}.
+   *
+   * @param filePath    path of the file.
+   * @param taskName    task name to be shown on the progress bar.
+   * @param pipelined   if true, inflates through {@link PipelinedGzipInputStream}.
+   * @param consumer    consumer of the progress bar.
+   * @param rootElement root element name of each fragment.
+   * @param shard       shard to be read, or null to read every fragment.
+   * @param pruner      pruner to be applied to each fragment, or null to keep them as they are.
+   * @return opened input stream.
+   * @throws IOException if failed to open the file, or the download of the file has failed.
+   */
+  public static InputStream open(
+      Path filePath,
+      String taskName,
+      boolean pipelined,
+      ProgressBarConsumer consumer,
+      String rootElement,
+      ShardSpec shard,
+      FragmentPruner pruner)
+      throws IOException {
+    InputStream in = open(filePath, taskName, pipelined, consumer);
+    if (shard == null && pruner == null) {
+      return in;
+    }
+    return new FilteredDocumentInputStream(in, rootElement, shard, pruner);
+  }
+
+  public static boolean isCompressed(Path filePath) {
+    return filePath.toString().endsWith(GZIP_EXTENSION);
+  }
+}
@@ -0,0 +1,181 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.xml.bind.Marshaller;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.oxm.Unmarshaller;
+import org.springframework.oxm.UnmarshallingFailureException;
+import org.springframework.oxm.XmlMappingException;
+import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+
+/**
+ * An {@link Unmarshaller} that parses each fragment only once, and fans it out to several
+ * projections. The fragment is first transformed into a DOM node, from which the mapped class gets
+ * unmarshalled and returned. Every other projection is unmarshalled from the same node, then
+ * marshalled into its own spool file so that the steps consuming them later can skip inflating and
+ * tokenizing the whole dump again.
+ *
+ * <p>A spool file is written as {@code <name>.part}, and only gets moved to its final path by
+ * {@link #complete()}. Hence, an existing spool file is always a complete one.
+ *
+ * <p>This implementation is NOT thread-safe, and relies on the caller (i.e. the reader) to
+ * serialize the invocations.
+ */
+@Slf4j
+public class FanOutUnmarshaller implements Unmarshaller, Closeable {
+
+  public static final String SPOOL_ROOT_ELEMENT = "spool";
+
+  private static final String PART_SUFFIX = ".part";
+  private static final byte[] HEADER =
+      ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<" + SPOOL_ROOT_ELEMENT + ">\n")
+          .getBytes(StandardCharsets.UTF_8);
+  private static final byte[] FOOTER =
+      ("</" + SPOOL_ROOT_ELEMENT + ">\n").getBytes(StandardCharsets.UTF_8);
+
+  private final Class<?> mappedClass;
+  private final Jaxb2Marshaller mappedUnmarshaller;
+  private final List<Spool> spools = new ArrayList<>();
+  private final Transformer transformer;
+  private boolean finished = false;
+
+  /**
+   * Constructor that opens all spool files at once.
+   *
+   * @param mappedClass class to be unmarshalled and returned.
+   * @param spoolPaths  final spool file path for each projection.
+   * @throws Exception if failed to initialize marshallers or to open spool files.
+   */
+  public FanOutUnmarshaller(Class<?> mappedClass, Map<Class<?>, Path> spoolPaths)
+      throws Exception {
+    this.mappedClass = mappedClass;
+    this.mappedUnmarshaller = getMarshaller(mappedClass);
+    this.transformer = TransformerFactory.newInstance().newTransformer();
+    for (Map.Entry<Class<?>, Path> entry : spoolPaths.entrySet()) {
+      spools.add(new Spool(entry.getKey(), entry.getValue(), getMarshaller(entry.getKey())));
+    }
+  }
+
+  private static Jaxb2Marshaller getMarshaller(Class<?> clazz) throws Exception {
+    Jaxb2Marshaller jaxb2Marshaller = new Jaxb2Marshaller();
+    jaxb2Marshaller.setClassesToBeBound(clazz);
+    jaxb2Marshaller.setMarshallerProperties(
+        Map.of(Marshaller.JAXB_FRAGMENT, true, Marshaller.JAXB_ENCODING, "UTF-8"));
+    jaxb2Marshaller.afterPropertiesSet();
+    return jaxb2Marshaller;
+  }
+
+  @Override
+  public boolean supports(Class<?> clazz) {
+    return mappedClass.isAssignableFrom(clazz);
+  }
+
+  @Override
+  public Object unmarshal(Source source) throws IOException, XmlMappingException {
+    DOMResult result = new DOMResult();
+    try {
+      transformer.transform(source, result);
+    } catch (TransformerException e) {
+      throw new UnmarshallingFailureException("failed to read fragment", e);
+    }
+    for (Spool spool : spools) {
+      spool.write(new DOMSource(result.getNode()));
+    }
+    return mappedUnmarshaller.unmarshal(new DOMSource(result.getNode()));
+  }
+
+  /**
+   * Finishes every spool file then moves them to their final paths. Invoking this method more than
+   * once takes no effect.
+   *
+   * @throws IOException if failed to write or move the spool files.
+   */
+  public void complete() throws IOException {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    for (Spool spool : spools) {
+      spool.complete();
+    }
+  }
+
+  /**
+   * Closes every spool file. Spool files that are not completed will be deleted.
+   */
+  @Override
+  public void close() {
+    finished = true;
+    for (Spool spool : spools) {
+      spool.discard();
+    }
+  }
+
+  /**
+   * A spool file of a single projection.
+   */
+  private static final class Spool {
+
+    private final Class<?> projection;
+    private final Path target;
+    private final Path part;
+    private final Jaxb2Marshaller marshaller;
+    private final OutputStream out;
+    private long count = 0;
+    private boolean completed = false;
+
+    private Spool(Class<?> projection, Path target, Jaxb2Marshaller marshaller)
+        throws IOException {
+      this.projection = projection;
+      this.target = target;
+      this.part = Path.of(target.toString() + PART_SUFFIX);
+      this.marshaller = marshaller;
+      this.out = new BufferedOutputStream(Files.newOutputStream(part));
+      this.out.write(HEADER);
+    }
+
+    private void write(Source source) throws IOException {
+      Object item = marshaller.unmarshal(source);
+      marshaller.marshal(item, new StreamResult(out));
+      out.write('\n');
+      count++;
+    }
+
+    private void complete() throws IOException {
+      out.write(FOOTER);
+      out.close();
+      Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+      completed = true;
+      log.info("spooled {} {} item(s) to {}", count, projection.getSimpleName(), target);
+    }
+
+    private void discard() {
+      if (completed) {
+        return;
+      }
+      try {
+        out.close();
+        Files.deleteIfExists(part);
+      } catch (IOException e) {
+        log.warn("failed to discard spool file " + part, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An input stream over a dump document, of which the fragments are filtered before any xml parsing
+ * takes place. Fragments are cut by {@link FragmentScanner}, then
+ *
+ * <ul>
+ *   <li>the fragments out of a {@link ShardSpec} are dropped, by the id peeked from the raw bytes
+ *   by {@link FragmentStore#peekId(byte[])}.
+ *   <li>the unmapped child elements of the remaining fragments are removed by a {@link
+ *   FragmentPruner}.
+ * </ul>
+ *
+ * <p>The stream is still a well-formed document: the prolog, the filtered fragments, then the end
+ * tag of the document element.
+ */
+@Slf4j
+public class FilteredDocumentInputStream extends InputStream {
+
+  private static final byte[] EMPTY = new byte[0];
+
+  private final InputStream in;
+  private final FragmentScanner scanner;
+  private final ShardSpec shard;
+  private final FragmentPruner pruner;
+
+  private byte[] chunk = EMPTY;
+  private int position = 0;
+  private byte[] pending;
+  private boolean started = false;
+  private boolean ended = false;
+  private long accepted = 0;
+  private long dropped = 0;
+
+  /**
+   * Constructor with the filters to be applied.
+   *
+   * @param in          input stream of the document.
+   * @param rootElement root element name of each fragment.
+   * @param shard       shard to be read, or null to read every fragment.
+   * @param pruner      pruner to be applied to each fragment, or null to keep them as they are.
+   */
+  public FilteredDocumentInputStream(
+      InputStream in, String rootElement, ShardSpec shard, FragmentPruner pruner) {
+    this.in = in;
+    this.scanner = new FragmentScanner(in, rootElement);
+    this.shard = shard;
+    this.pruner = pruner;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!fill()) {
+      return -1;
+    }
+    return chunk[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!fill()) {
+      return -1;
+    }
+    int count = Math.min(len, chunk.length - position);
+    System.arraycopy(chunk, position, b, off, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (shard != null) {
+      log.info("{} fragment(s) read, {} fragment(s) out of shard {}", accepted, dropped, shard);
+    }
+    in.close();
+  }
+
+  private boolean fill() throws IOException {
+    while (position == chunk.length) {
+      byte[] next = nextChunk();
+      if (next == null) {
+        return false;
+      }
+      chunk = next;
+      position = 0;
+    }
+    return true;
+  }
+
+  private byte[] nextChunk() throws IOException {
+    if (pending != null) {
+      byte[] next = pending;
+      pending = null;
+      return next;
+    }
+    if (ended) {
+      return null;
+    }
+    byte[] fragment = nextAccepted();
+    if (fragment == null) {
+      ended = true;
+    }
+    if (!started) {
+      // the prolog is complete only after the first fragment is scanned.
+      started = true;
+      pending = fragment == null ? endTag() : fragment;
+      return scanner.getProlog();
+    }
+    return fragment == null ? endTag() : fragment;
+  }
+
+  private byte[] nextAccepted() throws IOException {
+    for (byte[] fragment = scanner.next(); fragment != null; fragment = scanner.next()) {
+      if (shard == null || shard.accepts(FragmentStore.peekId(fragment))) {
+        accepted++;
+        return pruner == null ? fragment : pruner.prune(fragment);
+      }
+      dropped++;
+    }
+    return null;
+  }
+
+  /**
+   * Builds the end tag of the document element, which is the last start tag within the prolog. If
+   * no fragment was found, the prolog already holds the whole document.
+   */
+  private byte[] endTag() {
+    if (!scanner.isPrologComplete()) {
+      return EMPTY;
+    }
+    byte[] prolog = scanner.getProlog();
+    for (int i = prolog.length - 2; i >= 0; i--) {
+      if (prolog[i] != '<' || prolog[i + 1] == '?' || prolog[i + 1] == '!') {
+        continue;
+      }
+      int end = i + 1;
+      while (end < prolog.length && isNameByte(prolog[end])) {
+        end++;
+      }
+      String name = new String(prolog, i + 1, end - i - 1, StandardCharsets.UTF_8);
+      return ("</" + name + ">").getBytes(StandardCharsets.UTF_8);
+    }
+    return EMPTY;
+  }
+
+  private static boolean isNameByte(byte b) {
+    return b != ' ' && b != '\t' && b != '\n' && b != '\r' && b != '>' && b != '/';
+  }
+}
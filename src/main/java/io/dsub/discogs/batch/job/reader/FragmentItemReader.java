@@ -0,0 +1,126 @@
+package io.dsub.discogs.batch.job.reader;
+
+import io.dsub.discogs.batch.util.ToggleProgressBarConsumer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+
+/**
+ * An {@link org.springframework.batch.item.ItemStreamReader} that reads raw bytes of each fragment
+ * from a dump by {@link FragmentScanner}, while showing the progress bar. When resumed, the
+ * preceding fragments are skipped by the scanner.
+ *
+ * <p>This implementation is NOT thread-safe.
+ */
+@Slf4j
+public class FragmentItemReader implements ResumableItemStreamReader<byte[]> {
+
+  private final Path filePath;
+  private final String rootElement;
+  private final boolean pipelined;
+  private final String taskName;
+  private final ShardSpec shard;
+  private final ToggleProgressBarConsumer pbConsumer = new ToggleProgressBarConsumer(System.err);
+  private InputStream in;
+  private FragmentScanner scanner;
+  private long resumeAt = 0;
+
+  /**
+   * Constructor of the reader. The file will be opened on {@link #open(ExecutionContext)}.
+   *
+   * @param filePath    path of the dump.
+   * @param rootElement root element name of each fragment.
+   * @param pipelined   if true, inflates through {@link PipelinedGzipInputStream}.
+   * @param taskName    task name to be shown on the progress bar.
+   */
+  public FragmentItemReader(
+      Path filePath, String rootElement, boolean pipelined, String taskName) {
+    this(filePath, rootElement, pipelined, taskName, null);
+  }
+
+  /**
+   * Constructor to hand out only the fragments of given shard. The other fragments are dropped as
+   * raw bytes, and are not counted as items.
+   *
+   * @param filePath    path of the dump.
+   * @param rootElement root element name of each fragment.
+   * @param pipelined   if true, inflates through {@link PipelinedGzipInputStream}.
+   * @param taskName    task name to be shown on the progress bar.
+   * @param shard       shard to be read. if null, every fragment will be read.
+   */
+  public FragmentItemReader(
+      Path filePath, String rootElement, boolean pipelined, String taskName, ShardSpec shard) {
+    this.filePath = filePath;
+    this.rootElement = rootElement;
+    this.pipelined = pipelined;
+    this.taskName = taskName;
+    this.shard = shard;
+  }
+
+  @Override
+  public void resumeAt(long ordinal) {
+    this.resumeAt = ordinal;
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    try {
+      in = DumpStreamUtil.open(filePath, taskName, pipelined, pbConsumer);
+      scanner = new FragmentScanner(in, rootElement);
+      if (resumeAt > 0) {
+        log.info("skipped {} fragment(s) of {} to resume", skip(resumeAt), filePath);
+      }
+    } catch (IOException e) {
+      throw new ItemStreamException("failed to open " + filePath, e);
+    }
+    pbConsumer.on();
+  }
+
+  @Override
+  public byte[] read() throws Exception {
+    if (scanner == null) {
+      throw new ItemStreamException("reader must be opened before it is read");
+    }
+    return next();
+  }
+
+  private byte[] next() throws IOException {
+    byte[] fragment = scanner.next();
+    while (fragment != null && shard != null && !shard.accepts(FragmentStore.peekId(fragment))) {
+      fragment = scanner.next();
+    }
+    return fragment;
+  }
+
+  private long skip(long count) throws IOException {
+    if (shard == null) {
+      return scanner.skip(count);
+    }
+    long skipped = 0;
+    while (skipped < count && next() != null) {
+      skipped++;
+    }
+    return skipped;
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    // nothing to save
+  }
+
+  @Override
+  public void close() throws ItemStreamException {
+    pbConsumer.close();
+    if (in == null) {
+      return;
+    }
+    try {
+      in.close();
+    } catch (IOException e) {
+      log.warn("failed to close " + filePath, e);
+    }
+  }
+}
@@ -0,0 +1,298 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAnyElement;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementRef;
+import javax.xml.bind.annotation.XmlElementRefs;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlElements;
+import javax.xml.bind.annotation.XmlMixed;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlValue;
+
+/**
+ * Removes the child elements of a fragment that are not mapped by the classes to be read, before
+ * the fragment is parsed. The mapped elements are derived from the JAXB annotations of the
+ * classes, and the unmapped subtrees are cut out by counting the depth over the raw bytes, so that
+ * neither JAXB nor a cursor spends any time on them (i.e. {@code <tracklist>} of a release, when
+ * only the core fields are read).
+ *
+ * <p>Only the direct children of the root element are pruned. The root element, its attributes
+ * and the mapped subtrees are kept byte by byte.
+ */
+public class FragmentPruner {
+
+  private static final String DEFAULT_NAME = "##default";
+  private static final byte[] COMMENT_START = bytes("<!--");
+  private static final byte[] COMMENT_END = bytes("-->");
+  private static final byte[] CDATA_START = bytes("<![CDATA[");
+  private static final byte[] CDATA_END = bytes("]]>");
+  private static final byte[] PI_END = bytes("?>");
+
+  private final Set<String> elementNames;
+
+  public FragmentPruner(Set<String> elementNames) {
+    this.elementNames = Set.copyOf(elementNames);
+  }
+
+  /**
+   * Creates a pruner which keeps every element mapped by any of given classes.
+   *
+   * @param classes classes to be read from the fragments.
+   * @return the pruner, or null if the mapped elements of any class cannot be told from its
+   * annotations (i.e. not a field accessed class, or it maps any element or mixed content).
+   */
+  public static FragmentPruner of(Class<?>... classes) {
+    Set<String> names = new HashSet<>();
+    for (Class<?> clazz : classes) {
+      Set<String> mapped = mappedElementsOf(clazz);
+      if (mapped == null) {
+        return null;
+      }
+      names.addAll(mapped);
+    }
+    return new FragmentPruner(names);
+  }
+
+  /**
+   * Derives the names of the child elements mapped by given class.
+   *
+   * @param clazz class to be inspected.
+   * @return names of the mapped child elements, or null if they cannot be derived.
+   */
+  static Set<String> mappedElementsOf(Class<?> clazz) {
+    Set<String> names = new HashSet<>();
+    for (Class<?> current = clazz; current != null && current != Object.class; ) {
+      XmlAccessorType accessorType = current.getAnnotation(XmlAccessorType.class);
+      if (accessorType == null || accessorType.value() != XmlAccessType.FIELD) {
+        return null;
+      }
+      for (Field field : current.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers)
+            || Modifier.isTransient(modifiers)
+            || field.isSynthetic()
+            || field.isAnnotationPresent(XmlTransient.class)
+            || field.isAnnotationPresent(XmlAttribute.class)) {
+          continue;
+        }
+        if (field.isAnnotationPresent(XmlValue.class)
+            || field.isAnnotationPresent(XmlAnyElement.class)
+            || field.isAnnotationPresent(XmlMixed.class)
+            || field.isAnnotationPresent(XmlElements.class)
+            || field.isAnnotationPresent(XmlElementRef.class)
+            || field.isAnnotationPresent(XmlElementRefs.class)) {
+          return null;
+        }
+        names.add(elementNameOf(field));
+      }
+      current = current.getSuperclass();
+    }
+    return Collections.unmodifiableSet(names);
+  }
+
+  private static String elementNameOf(Field field) {
+    XmlElementWrapper wrapper = field.getAnnotation(XmlElementWrapper.class);
+    if (wrapper != null) {
+      return DEFAULT_NAME.equals(wrapper.name()) ? field.getName() : wrapper.name();
+    }
+    XmlElement element = field.getAnnotation(XmlElement.class);
+    if (element != null && !DEFAULT_NAME.equals(element.name())) {
+      return element.name();
+    }
+    return field.getName();
+  }
+
+  public Set<String> getElementNames() {
+    return elementNames;
+  }
+
+  /**
+   * Removes the unmapped child elements of given fragment.
+   *
+   * @param fragment raw bytes of the fragment.
+   * @return the pruned fragment, or the given fragment itself if nothing was pruned, or if the
+   * fragment could not be scanned.
+   */
+  public byte[] prune(byte[] fragment) {
+    int rootEnd = tagEnd(fragment, 1);
+    if (rootEnd == -1 || fragment[rootEnd - 1] == '/') {
+      return fragment;
+    }
+    byte[] out = new byte[fragment.length];
+    int length = rootEnd + 1;
+    System.arraycopy(fragment, 0, out, 0, length);
+    boolean pruned = false;
+
+    int i = rootEnd + 1;
+    while (i < fragment.length) {
+      int lt = indexOf(fragment, i, (byte) '<');
+      if (lt == -1 || lt + 1 >= fragment.length) {
+        return fragment;
+      }
+      int end;
+      if (fragment[lt + 1] == '/') {
+        // end tag of the root element
+        end = fragment.length;
+      } else if (fragment[lt + 1] == '!' || fragment[lt + 1] == '?') {
+        end = endOfMarkup(fragment, lt);
+      } else {
+        end = endOfElement(fragment, lt);
+        if (end != -1 && !elementNames.contains(nameAt(fragment, lt + 1))) {
+          System.arraycopy(fragment, i, out, length, lt - i);
+          length += lt - i;
+          pruned = true;
+          i = end;
+          continue;
+        }
+      }
+      if (end == -1) {
+        return fragment;
+      }
+      System.arraycopy(fragment, i, out, length, end - i);
+      length += end - i;
+      i = end;
+    }
+    return pruned ? Arrays.copyOf(out, length) : fragment;
+  }
+
+  /**
+   * Finds the end of the element starting at given position, by counting the depth.
+   *
+   * @return position right after the end of the element, or -1 if the element is not closed.
+   */
+  private static int endOfElement(byte[] b, int start) {
+    int depth = 0;
+    int i = start;
+    while (i < b.length) {
+      if (b[i] != '<') {
+        i++;
+        continue;
+      }
+      if (i + 1 >= b.length) {
+        return -1;
+      }
+      byte next = b[i + 1];
+      if (next == '!' || next == '?') {
+        i = endOfMarkup(b, i);
+        if (i == -1) {
+          return -1;
+        }
+      } else if (next == '/') {
+        int gt = indexOf(b, i + 2, (byte) '>');
+        if (gt == -1) {
+          return -1;
+        }
+        i = gt + 1;
+        if (--depth == 0) {
+          return i;
+        }
+      } else {
+        int gt = tagEnd(b, i + 1);
+        if (gt == -1) {
+          return -1;
+        }
+        i = gt + 1;
+        if (b[gt - 1] != '/') {
+          depth++;
+        } else if (depth == 0) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the end of a comment, CDATA section or processing instruction.
+   *
+   * @return position right after the end, or -1 if not closed.
+   */
+  static int endOfMarkup(byte[] b, int start) {
+    byte[] terminator;
+    if (startsWith(b, start, COMMENT_START)) {
+      terminator = COMMENT_END;
+    } else if (startsWith(b, start, CDATA_START)) {
+      terminator = CDATA_END;
+    } else if (b[start + 1] == '?') {
+      terminator = PI_END;
+    } else {
+      int gt = indexOf(b, start, (byte) '>');
+      return gt == -1 ? -1 : gt + 1;
+    }
+    for (int i = start + 2; i + terminator.length <= b.length; i++) {
+      if (startsWith(b, i, terminator)) {
+        return i + terminator.length;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the {@code >} of the tag of which the name starts at given position, while ignoring
+   * {@code >} within quoted attribute values.
+   */
+  static int tagEnd(byte[] b, int from) {
+    int quote = -1;
+    for (int i = from; i < b.length; i++) {
+      byte c = b[i];
+      if (quote != -1) {
+        if (c == quote) {
+          quote = -1;
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '>') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  static String nameAt(byte[] b, int from) {
+    int end = from;
+    while (end < b.length && !isNameEnd(b[end])) {
+      end++;
+    }
+    return new String(b, from, end - from, StandardCharsets.UTF_8);
+  }
+
+  private static boolean isNameEnd(byte b) {
+    return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '>' || b == '/';
+  }
+
+  static int indexOf(byte[] b, int from, byte target) {
+    for (int i = from; i < b.length; i++) {
+      if (b[i] == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean startsWith(byte[] b, int from, byte[] prefix) {
+    if (from + prefix.length > b.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (b[from + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
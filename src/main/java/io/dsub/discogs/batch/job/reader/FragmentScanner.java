@@ -0,0 +1,259 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A byte level scanner that cuts fragments out of a decompressed dump, without tokenizing the
+ * whole document. Each fragment starts with {@code <rootElement ...>} and ends with the matching
+ * {@code </rootElement>}, so that it can be unmarshalled on its own.
+ *
+ * <p>Elements of the same name nested within a fragment (i.e. {@code <label>} under
+ * {@code <sublabels>}) are kept within the fragment by counting the depth. Comments and CDATA
+ * sections are not interpreted, as dumps do not contain them.
+ *
+ * <p>This implementation is NOT thread-safe.
+ */
+public class FragmentScanner {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final InputStream in;
+  private final byte[] name;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position = 0;
+  private int limit = 0;
+
+  private byte[] fragment = new byte[BUFFER_SIZE];
+  private int length = 0;
+  private boolean capturing = false;
+
+  private ByteArrayOutputStream prolog = new ByteArrayOutputStream();
+  private byte[] prologBytes = new byte[0];
+
+  public FragmentScanner(InputStream in, String rootElement) {
+    this.in = in;
+    this.name = rootElement.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Scans the next fragment.
+   *
+   * @return bytes of the fragment, or null if there is no more fragment.
+   * @throws IOException if failed to read, or the stream ended within a fragment.
+   */
+  public byte[] next() throws IOException {
+    length = 0;
+    capturing = false;
+    int depth = 0;
+    int b;
+    while ((b = read()) != -1) {
+      if (b != '<') {
+        continue;
+      }
+      if (!capturing) {
+        int delimiter = matchName();
+        if (delimiter == -1) {
+          continue;
+        }
+        capturing = true;
+        endProlog();
+        append('<');
+        append(name, name.length);
+        append(delimiter);
+        if (!isSelfClosing(delimiter)) {
+          depth = 1;
+          continue;
+        }
+        return Arrays.copyOf(fragment, length);
+      }
+      int next = read();
+      if (next == '/') {
+        int delimiter = matchName();
+        if (delimiter == -1 || delimiter == '/') {
+          continue;
+        }
+        if (delimiter != '>') {
+          skipTag(delimiter);
+        }
+        if (--depth == 0) {
+          return Arrays.copyOf(fragment, length);
+        }
+      } else if (next == name[0]) {
+        int delimiter = matchName(1);
+        if (delimiter != -1 && !isSelfClosing(delimiter)) {
+          depth++;
+        }
+      }
+    }
+    if (capturing) {
+      throw new IOException(
+          "unexpected end of stream within <" + new String(name, StandardCharsets.UTF_8) + ">");
+    }
+    return null;
+  }
+
+  /**
+   * Skips fragments without handing them out.
+   *
+   * @param count count of fragments to be skipped.
+   * @return count of skipped fragments, which is less than given count if the stream ended.
+   * @throws IOException if failed to read, or the stream ended within a fragment.
+   */
+  public long skip(long count) throws IOException {
+    long skipped = 0;
+    while (skipped < count && next() != null) {
+      skipped++;
+    }
+    return skipped;
+  }
+
+  /**
+   * Returns the rest of the document, prepended with everything before the first fragment (i.e.
+   * the xml declaration and the start tag of the document). Hence, the returned stream is still a
+   * well-formed document, only without the fragments that were already scanned.
+   *
+   * <p>The scanner must not be used after invoking this method.
+   *
+   * @return the rest of the document.
+   */
+  public InputStream remaining() {
+    return new SequenceInputStream(
+        Collections.enumeration(
+            List.of(
+                new ByteArrayInputStream(prologBytes),
+                new ByteArrayInputStream(buffer, position, limit - position),
+                in)));
+  }
+
+  /**
+   * Returns everything before the first fragment, i.e. the xml declaration and the start tag of
+   * the document. If no fragment was found, returns everything read so far.
+   *
+   * @return bytes before the first fragment.
+   */
+  public byte[] getProlog() {
+    return prolog == null ? prologBytes.clone() : prolog.toByteArray();
+  }
+
+  /**
+   * Checks if the first fragment was found, which ends the prolog.
+   *
+   * @return true if the prolog is complete.
+   */
+  public boolean isPrologComplete() {
+    return prolog == null;
+  }
+
+  private void endProlog() {
+    if (prolog == null) {
+      return;
+    }
+    // exclude the '<', name and the delimiter of the first fragment.
+    byte[] bytes = prolog.toByteArray();
+    prologBytes = Arrays.copyOf(bytes, Math.max(0, bytes.length - name.length - 2));
+    prolog = null;
+  }
+
+  /**
+   * Reads the name right after {@code <} or {@code </}, followed by a delimiter.
+   *
+   * @return the delimiter if matched, otherwise -1.
+   */
+  private int matchName() throws IOException {
+    return matchName(0);
+  }
+
+  private int matchName(int from) throws IOException {
+    for (int i = from; i < name.length; i++) {
+      if (read() != name[i]) {
+        return -1;
+      }
+    }
+    int delimiter = read();
+    if (delimiter == '>' || delimiter == '/' || isWhitespace(delimiter)) {
+      return delimiter;
+    }
+    return -1;
+  }
+
+  /**
+   * Reads the rest of the tag after the delimiter, then checks if the tag was self closing.
+   */
+  private boolean isSelfClosing(int delimiter) throws IOException {
+    if (delimiter == '>') {
+      return false;
+    }
+    return skipTag(delimiter) == '/';
+  }
+
+  /**
+   * Skips to the end of current tag, while ignoring {@code >} within quoted attribute values.
+   *
+   * @return the last byte before {@code >}.
+   */
+  private int skipTag(int delimiter) throws IOException {
+    int prev = delimiter;
+    int quote = -1;
+    int b;
+    while ((b = read()) != -1) {
+      if (quote != -1) {
+        if (b == quote) {
+          quote = -1;
+        }
+      } else if (b == '"' || b == '\'') {
+        quote = b;
+      } else if (b == '>') {
+        return prev;
+      }
+      prev = b;
+    }
+    return prev;
+  }
+
+  private static boolean isWhitespace(int b) {
+    return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+  }
+
+  private int read() throws IOException {
+    if (position == limit) {
+      limit = in.read(buffer, 0, buffer.length);
+      position = 0;
+      if (limit <= 0) {
+        limit = 0;
+        return -1;
+      }
+    }
+    int b = buffer[position++] & 0xFF;
+    if (capturing) {
+      append(b);
+    } else if (prolog != null) {
+      prolog.write(b);
+    }
+    return b;
+  }
+
+  private void append(int b) {
+    ensureCapacity(length + 1);
+    fragment[length++] = (byte) b;
+  }
+
+  private void append(byte[] bytes, int count) {
+    ensureCapacity(length + count);
+    System.arraycopy(bytes, 0, fragment, length, count);
+    length += count;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > fragment.length) {
+      fragment = Arrays.copyOf(fragment, Math.max(capacity, fragment.length * 2));
+    }
+  }
+}
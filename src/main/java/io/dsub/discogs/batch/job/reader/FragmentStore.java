@@ -0,0 +1,229 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A local store of decompressed fragments of a dump, written by {@link FragmentStoreWriter}. The
+ * store consists of two files:
+ *
+ * <ul>
+ *   <li>a data file, which holds raw bytes of each fragment one after another.</li>
+ *   <li>an index file, which holds an entry of {@value #ENTRY_SIZE} bytes for each fragment:
+ *   entity id (int), offset within the data file (long), and length (int).</li>
+ * </ul>
+ *
+ * <p>Both files are memory mapped, so that any fragment can be handed out by its ordinal without
+ * inflating or scanning the dump again. As a single mapping cannot exceed 2GB, the data file is
+ * mapped in segments, each of which holds whole fragments only.
+ *
+ * <p>Once opened, this implementation is safe to be shared by multiple threads.
+ */
+public class FragmentStore implements Closeable {
+
+  public static final int ENTRY_SIZE = 16;
+  public static final String STORE_SUFFIX = ".store";
+  public static final String INDEX_SUFFIX = ".idx";
+
+  private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+  private final Path dataPath;
+  private final FileChannel dataChannel;
+  private final FileChannel indexChannel;
+  private final ByteBuffer index;
+  private final int size;
+  private final List<Long> segmentOffsets = new ArrayList<>();
+  private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+  private FragmentStore(Path dataPath) throws IOException {
+    this.dataPath = dataPath;
+    this.indexChannel = FileChannel.open(indexPathOf(dataPath), StandardOpenOption.READ);
+    this.dataChannel = FileChannel.open(dataPath, StandardOpenOption.READ);
+    long indexSize = indexChannel.size();
+    if (indexSize % ENTRY_SIZE != 0 || indexSize / ENTRY_SIZE > Integer.MAX_VALUE) {
+      close();
+      throw new IOException("malformed index of fragment store " + dataPath);
+    }
+    this.size = (int) (indexSize / ENTRY_SIZE);
+    this.index = indexChannel.map(MapMode.READ_ONLY, 0, indexSize);
+    mapSegments();
+  }
+
+  /**
+   * Opens the store of given data file.
+   *
+   * @param dataPath path of the data file.
+   * @return opened store.
+   * @throws IOException if failed to open or map the files.
+   */
+  public static FragmentStore open(Path dataPath) throws IOException {
+    return new FragmentStore(dataPath);
+  }
+
+  /**
+   * Checks if a complete store exists. As the index file is the last one to be written, a store
+   * without its index file is not complete.
+   */
+  public static boolean exists(Path dataPath) {
+    return Files.exists(dataPath) && Files.exists(indexPathOf(dataPath));
+  }
+
+  public static Path indexPathOf(Path dataPath) {
+    return Path.of(dataPath.toString() + INDEX_SUFFIX);
+  }
+
+  /**
+   * Peeks the entity id of a fragment without parsing it. The id is either an {@code id}
+   * attribute of the root element (i.e. master, release), or the first {@code <id>} element (i.e.
+   * artist, label).
+   *
+   * @param fragment raw bytes of the fragment.
+   * @return the id, or -1 if not found.
+   */
+  public static int peekId(byte[] fragment) {
+    int tagEnd = indexOf(fragment, 0, fragment.length, (byte) '>');
+    if (tagEnd == -1) {
+      return -1;
+    }
+    int attribute = indexOf(fragment, 0, tagEnd, " id=");
+    if (attribute != -1 && attribute + 5 < tagEnd) {
+      return parseInt(fragment, attribute + 5);
+    }
+    int element = indexOf(fragment, tagEnd, fragment.length, "<id>");
+    if (element != -1) {
+      return parseInt(fragment, element + 4);
+    }
+    return -1;
+  }
+
+  private static int indexOf(byte[] bytes, int from, int to, byte target) {
+    for (int i = from; i < to; i++) {
+      if (bytes[i] == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int indexOf(byte[] bytes, int from, int to, String target) {
+    byte[] pattern = target.getBytes(StandardCharsets.US_ASCII);
+    outer:
+    for (int i = from; i <= to - pattern.length; i++) {
+      for (int j = 0; j < pattern.length; j++) {
+        if (bytes[i + j] != pattern[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  private static int parseInt(byte[] bytes, int from) {
+    long value = 0;
+    int i = from;
+    while (i < bytes.length && bytes[i] >= '0' && bytes[i] <= '9' && value <= Integer.MAX_VALUE) {
+      value = value * 10 + (bytes[i++] - '0');
+    }
+    return i == from || value > Integer.MAX_VALUE ? -1 : (int) value;
+  }
+
+  private void mapSegments() throws IOException {
+    long start = 0;
+    long end = 0;
+    for (int i = 0; i < size; i++) {
+      long offset = getOffset(i);
+      long fragmentEnd = offset + getLength(i);
+      if (fragmentEnd - start > MAX_SEGMENT_SIZE) {
+        addSegment(start, end);
+        start = offset;
+      }
+      end = fragmentEnd;
+    }
+    addSegment(start, end);
+  }
+
+  private void addSegment(long start, long end) throws IOException {
+    segmentOffsets.add(start);
+    segments.add(dataChannel.map(MapMode.READ_ONLY, start, end - start));
+  }
+
+  /**
+   * Count of the fragments in the store.
+   */
+  public int size() {
+    return size;
+  }
+
+  public int getId(int ordinal) {
+    return index.getInt(entryOffset(ordinal));
+  }
+
+  public long getOffset(int ordinal) {
+    return index.getLong(entryOffset(ordinal) + 4);
+  }
+
+  public int getLength(int ordinal) {
+    return index.getInt(entryOffset(ordinal) + 12);
+  }
+
+  private int entryOffset(int ordinal) {
+    if (ordinal < 0 || ordinal >= size) {
+      throw new IndexOutOfBoundsException("ordinal " + ordinal + " out of " + size);
+    }
+    return ordinal * ENTRY_SIZE;
+  }
+
+  /**
+   * Copies raw bytes of a fragment.
+   *
+   * @param ordinal ordinal of the fragment, from zero.
+   * @return raw bytes of the fragment.
+   */
+  public byte[] get(int ordinal) {
+    long offset = getOffset(ordinal);
+    byte[] fragment = new byte[getLength(ordinal)];
+    int segment = findSegment(offset);
+    ByteBuffer buffer = segments.get(segment).duplicate();
+    buffer.position((int) (offset - segmentOffsets.get(segment)));
+    buffer.get(fragment);
+    return fragment;
+  }
+
+  private int findSegment(long offset) {
+    int low = 0;
+    int high = segmentOffsets.size() - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (segmentOffsets.get(mid) <= offset) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  public Path getDataPath() {
+    return dataPath;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      dataChannel.close();
+    } finally {
+      indexChannel.close();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+
+/**
+ * An {@link ItemStreamReader} that hands out raw fragments from a {@link FragmentStore} by their
+ * ordinals. The next ordinal is taken from an atomic counter, so the reader can be shared by the
+ * chunk workers without a lock. A range of ordinals can be given to split a store among readers.
+ *
+ * <p>The ordinals committed by the workers are tracked by {@link CommitWatermark}, and the
+ * watermark is recorded to the execution context on each update. On restart, the reader seeks
+ * straight to the watermark.
+ *
+ * <p>If a {@link ShardSpec} is given, fragments of the other shards are passed over by the ids in
+ * the index, without touching the data file.
+ */
+@Slf4j
+public class FragmentStoreItemReader implements ItemStreamReader<byte[]> {
+
+  private final Path dataPath;
+  private final String key;
+  private final int from;
+  private final int to;
+  private final ShardSpec shard;
+  private final AtomicInteger next = new AtomicInteger();
+  private final CommitWatermark watermark = new CommitWatermark();
+  private volatile FragmentStore store;
+  private volatile int end;
+
+  public FragmentStoreItemReader(Path dataPath, String name) {
+    this(dataPath, name, 0, Integer.MAX_VALUE);
+  }
+
+  public FragmentStoreItemReader(Path dataPath, String name, ShardSpec shard) {
+    this(dataPath, name, 0, Integer.MAX_VALUE, shard);
+  }
+
+  public FragmentStoreItemReader(Path dataPath, String name, int from, int to) {
+    this(dataPath, name, from, to, null);
+  }
+
+  /**
+   * Constructor of the reader over a range of ordinals. The store will be opened on {@link
+   * #open(ExecutionContext)}.
+   *
+   * @param dataPath path of the data file of the store.
+   * @param name     name to be used for the key of the checkpoint.
+   * @param from     first ordinal to be read, inclusive.
+   * @param to       last ordinal to be read, exclusive. capped by the size of the store.
+   * @param shard    shard to be read. if null, every fragment in the range will be read.
+   */
+  public FragmentStoreItemReader(
+      Path dataPath, String name, int from, int to, ShardSpec shard) {
+    if (from < 0 || to < from) {
+      throw new IllegalArgumentException("invalid range [" + from + ", " + to + ")");
+    }
+    this.dataPath = dataPath;
+    this.key = name + CheckpointingItemReader.CHECKPOINT_SUFFIX;
+    this.from = from;
+    this.to = to;
+    this.shard = shard;
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    try {
+      store = FragmentStore.open(dataPath);
+    } catch (IOException e) {
+      throw new ItemStreamException("failed to open fragment store " + dataPath, e);
+    }
+    end = Math.min(to, store.size());
+    int start = from;
+    if (executionContext.containsKey(key)) {
+      start = (int) Math.max(from, Math.min(end, executionContext.getLong(key)));
+      log.info("resuming {} from fragment #{}", dataPath, start);
+    }
+    next.set(start);
+    watermark.reset(start);
+    log.info("reading {} fragment(s) from {}", Math.max(0, end - start), dataPath);
+  }
+
+  @Override
+  public byte[] read() throws Exception {
+    if (store == null) {
+      throw new ItemStreamException("reader must be opened before it is read");
+    }
+    int ordinal = next.getAndIncrement();
+    // ordinals out of the shard are recorded as well, so that they do not hold the watermark.
+    while (ordinal < end && shard != null && !shard.accepts(store.getId(ordinal))) {
+      watermark.record(ordinal);
+      ordinal = next.getAndIncrement();
+    }
+    if (ordinal >= end) {
+      return null;
+    }
+    watermark.record(ordinal);
+    return store.get(ordinal);
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    executionContext.putLong(key, watermark.update());
+  }
+
+  @Override
+  public void close() throws ItemStreamException {
+    if (store == null) {
+      return;
+    }
+    try {
+      store.close();
+    } catch (IOException e) {
+      log.warn("failed to close fragment store " + dataPath, e);
+    }
+  }
+}
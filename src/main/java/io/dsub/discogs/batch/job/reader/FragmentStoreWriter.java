@@ -0,0 +1,94 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes a {@link FragmentStore}. Both files are written as {@code <name>.part}, and only get moved
+ * to their final paths by {@link #complete()}, the index file being the last. Hence, an existing
+ * store is always a complete one.
+ *
+ * <p>This implementation is NOT thread-safe.
+ */
+@Slf4j
+public class FragmentStoreWriter implements Closeable {
+
+  private static final String PART_SUFFIX = ".part";
+
+  private final Path dataPath;
+  private final Path indexPath;
+  private final Path dataPart;
+  private final Path indexPart;
+  private final OutputStream data;
+  private final DataOutputStream index;
+  private long offset = 0;
+  private int count = 0;
+  private boolean completed = false;
+
+  public FragmentStoreWriter(Path dataPath) throws IOException {
+    this.dataPath = dataPath;
+    this.indexPath = FragmentStore.indexPathOf(dataPath);
+    this.dataPart = Path.of(dataPath.toString() + PART_SUFFIX);
+    this.indexPart = Path.of(indexPath.toString() + PART_SUFFIX);
+    this.data = new BufferedOutputStream(Files.newOutputStream(dataPart), 1 << 16);
+    this.index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPart)));
+  }
+
+  /**
+   * Appends a fragment, followed by a line feed to keep the data file readable.
+   *
+   * @param fragment raw bytes of the fragment.
+   * @throws IOException if failed to write.
+   */
+  public void append(byte[] fragment) throws IOException {
+    if (count == Integer.MAX_VALUE) {
+      throw new IOException("too many fragments for " + dataPath);
+    }
+    index.writeInt(FragmentStore.peekId(fragment));
+    index.writeLong(offset);
+    index.writeInt(fragment.length);
+    data.write(fragment);
+    data.write('\n');
+    offset += fragment.length + 1;
+    count++;
+  }
+
+  /**
+   * Finishes the files then moves them to their final paths.
+   *
+   * @throws IOException if failed to write or move the files.
+   */
+  public void complete() throws IOException {
+    data.close();
+    index.close();
+    Files.move(dataPart, dataPath, StandardCopyOption.REPLACE_EXISTING);
+    Files.move(indexPart, indexPath, StandardCopyOption.REPLACE_EXISTING);
+    completed = true;
+    log.info("stored {} fragment(s) ({} bytes) to {}", count, offset, dataPath);
+  }
+
+  /**
+   * Closes the files. Files that are not completed will be deleted.
+   */
+  @Override
+  public void close() {
+    if (completed) {
+      return;
+    }
+    try {
+      data.close();
+      index.close();
+      Files.deleteIfExists(dataPart);
+      Files.deleteIfExists(indexPart);
+    } catch (IOException e) {
+      log.warn("failed to discard fragment store " + dataPart, e);
+    }
+  }
+}
@@ -18,7 +18,7 @@ import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepScope;
-import org.springframework.batch.item.support.SynchronizedItemStreamReader;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -39,9 +39,9 @@ public class ItemReaderConfig {
 
   @Bean
   @StepScope
-  public SynchronizedItemStreamReader<ArtistXML> artistStreamReader() {
+  public ItemStreamReader<ArtistXML> artistStreamReader() {
     try {
-      return readerBuilder.build(ArtistXML.class, artistDump(null));
+      return readerBuilder.build(ArtistXML.class, artistDump(null), ArtistSubItemsXML.class);
     } catch (Exception e) {
       throw new InitializationFailureException(
           "failed to initialize artist stream reader: " + e.getMessage());
@@ -50,7 +50,7 @@ public class ItemReaderConfig {
 
   @Bean
   @StepScope
-  public SynchronizedItemStreamReader<ArtistSubItemsXML> artistSubItemsStreamReader() {
+  public ItemStreamReader<ArtistSubItemsXML> artistSubItemsStreamReader() {
     try {
       return readerBuilder.build(ArtistSubItemsXML.class, artistDump(null));
     } catch (Exception e) {
@@ -61,9 +61,9 @@ public class ItemReaderConfig {
 
   @Bean
   @StepScope
-  public SynchronizedItemStreamReader<LabelXML> labelStreamReader() {
+  public ItemStreamReader<LabelXML> labelStreamReader() {
     try {
-      return readerBuilder.build(LabelXML.class, labelDump(null));
+      return readerBuilder.build(LabelXML.class, labelDump(null), LabelSubItemsXML.class);
     } catch (Exception e) {
       throw new InitializationFailureException(
           "failed to initialize label stream reader: " + e.getMessage());
@@ -72,7 +72,7 @@ public class ItemReaderConfig {
 
   @Bean
   @StepScope
-  public SynchronizedItemStreamReader<LabelSubItemsXML> labelSubItemsStreamReader() {
+  public ItemStreamReader<LabelSubItemsXML> labelSubItemsStreamReader() {
     try {
       return readerBuilder.build(LabelSubItemsXML.class, labelDump(null));
     } catch (Exception e) {
@@ -83,9 +83,9 @@ public class ItemReaderConfig {
 
   @Bean
   @StepScope
-  public SynchronizedItemStreamReader<MasterXML> masterStreamReader() {
+  public ItemStreamReader<MasterXML> masterStreamReader() {
     try {
-      return readerBuilder.build(MasterXML.class, masterDump(null));
+      return readerBuilder.build(MasterXML.class, masterDump(null), MasterSubItemsXML.class);
     } catch (Exception e) {
       throw new InitializationFailureException(
           "failed to initialize master stream reader: " + e.getMessage());
@@ -94,7 +94,7 @@ public class ItemReaderConfig {
 
   @Bean
   @StepScope
-  public SynchronizedItemStreamReader<MasterMainReleaseXML> masterMainReleaseStreamReader() {
+  public ItemStreamReader<MasterMainReleaseXML> masterMainReleaseStreamReader() {
     try {
       return readerBuilder.build(MasterMainReleaseXML.class, masterDump(null));
     } catch (Exception e) {
@@ -105,7 +105,7 @@ public class ItemReaderConfig {
 
   @Bean
   @StepScope
-  public SynchronizedItemStreamReader<MasterSubItemsXML> masterSubItemsStreamReader() {
+  public ItemStreamReader<MasterSubItemsXML> masterSubItemsStreamReader() {
     try {
       return readerBuilder.build(MasterSubItemsXML.class, masterDump(null));
     } catch (Exception e) {
@@ -116,9 +116,10 @@ public class ItemReaderConfig {
 
   @Bean
   @StepScope
-  public SynchronizedItemStreamReader<ReleaseItemXML> releaseItemStreamReader() {
+  public ItemStreamReader<ReleaseItemXML> releaseItemStreamReader() {
     try {
-      return readerBuilder.build(ReleaseItemXML.class, releaseItemDump(null));
+      return readerBuilder.build(
+          ReleaseItemXML.class, releaseItemDump(null), ReleaseItemSubItemsXML.class);
     } catch (Exception e) {
       throw new InitializationFailureException(
           "failed to initialize release stream reader: " + e.getMessage());
@@ -127,7 +128,7 @@ public class ItemReaderConfig {
 
   @Bean
   @StepScope
-  public SynchronizedItemStreamReader<ReleaseItemSubItemsXML> releaseItemSubItemsStreamReader() {
+  public ItemStreamReader<ReleaseItemSubItemsXML> releaseItemSubItemsStreamReader() {
     try {
       return readerBuilder.build(ReleaseItemSubItemsXML.class, releaseItemDump(null));
     } catch (Exception e) {
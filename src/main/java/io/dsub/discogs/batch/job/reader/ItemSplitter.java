@@ -0,0 +1,29 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.util.List;
+
+/**
+ * Weighs items by the amount of work they carry, and splits the heavy ones into several lighter
+ * items of the same kind. See {@link SplittingItemReader}.
+ *
+ * @param <T> type to be split.
+ */
+public interface ItemSplitter<T> {
+
+  /**
+   * Weighs given item.
+   *
+   * @param item item to be weighed.
+   * @return weight of the item, at least 1.
+   */
+  long weigh(T item);
+
+  /**
+   * Splits given item into items that weigh no more than given weight each, if possible.
+   *
+   * @param item      item to be split.
+   * @param maxWeight maximum weight of each split item.
+   * @return split items, or a list of the item itself if it cannot be split.
+   */
+  List<T> split(T item, long maxWeight);
+}
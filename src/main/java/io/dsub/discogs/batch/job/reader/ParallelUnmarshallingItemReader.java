@@ -0,0 +1,137 @@
+package io.dsub.discogs.batch.job.reader;
+
+import io.dsub.discogs.batch.job.reader.mapper.FragmentMapper;
+import io.dsub.discogs.batch.job.reader.mapper.FragmentMappers;
+import java.io.ByteArrayInputStream;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stream.StreamSource;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+
+/**
+ * An {@link ItemStreamReader} that unmarshals raw fragments on the calling thread. Each thread
+ * holds its own {@link Unmarshaller} created from a shared {@link JAXBContext}, so when the chunk
+ * workers share this reader, unmarshalling runs on all of them at once.
+ *
+ * <p>The fragments are read from the delegate, which is expected to be safe to be shared by the
+ * workers (i.e. {@link ConcurrentParsingItemReader} over {@link FragmentItemReader}). The order of
+ * the items is not preserved.
+ *
+ * <p>If a {@link FragmentMapper} is given, fragments are mapped from a cursor instead of being
+ * unmarshalled by JAXB. If a {@link FragmentPruner} is given, each fragment is pruned on the worker
+ * before being parsed.
+ *
+ * @param <T> type to be read.
+ */
+public class ParallelUnmarshallingItemReader<T> implements ItemStreamReader<T> {
+
+  private final Class<T> mappedClass;
+  private final ItemStreamReader<byte[]> fragments;
+  private final FragmentMapper<T> mapper;
+  private final FragmentPruner pruner;
+  private final JAXBContext context;
+  private final ThreadLocal<Unmarshaller> unmarshaller =
+      ThreadLocal.withInitial(this::createUnmarshaller);
+  private final ThreadLocal<XMLInputFactory> inputFactory =
+      ThreadLocal.withInitial(FragmentMappers::newInputFactory);
+
+  public ParallelUnmarshallingItemReader(Class<T> mappedClass, ItemStreamReader<byte[]> fragments)
+      throws JAXBException {
+    this(mappedClass, fragments, null);
+  }
+
+  /**
+   * Constructor with an optional cursor mapper.
+   *
+   * @param mappedClass class to be read.
+   * @param fragments   reader of the raw fragments.
+   * @param mapper      mapper to be used instead of JAXB. if null, JAXB will be used.
+   * @throws JAXBException if failed to create the JAXB context.
+   */
+  public ParallelUnmarshallingItemReader(
+      Class<T> mappedClass, ItemStreamReader<byte[]> fragments, FragmentMapper<T> mapper)
+      throws JAXBException {
+    this(mappedClass, fragments, mapper, null);
+  }
+
+  /**
+   * Constructor with an optional cursor mapper and an optional pruner.
+   *
+   * @param mappedClass class to be read.
+   * @param fragments   reader of the raw fragments.
+   * @param mapper      mapper to be used instead of JAXB. if null, JAXB will be used.
+   * @param pruner      pruner of the fragments. if null, fragments are parsed as they are.
+   * @throws JAXBException if failed to create the JAXB context.
+   */
+  public ParallelUnmarshallingItemReader(
+      Class<T> mappedClass,
+      ItemStreamReader<byte[]> fragments,
+      FragmentMapper<T> mapper,
+      FragmentPruner pruner)
+      throws JAXBException {
+    this.mappedClass = mappedClass;
+    this.fragments = fragments;
+    this.mapper = mapper;
+    this.pruner = pruner;
+    this.context = mapper == null ? JAXBContext.newInstance(mappedClass) : null;
+  }
+
+  private Unmarshaller createUnmarshaller() {
+    try {
+      return context.createUnmarshaller();
+    } catch (JAXBException e) {
+      throw new IllegalStateException("failed to create unmarshaller", e);
+    }
+  }
+
+  @Override
+  public T read() throws Exception {
+    byte[] fragment = fragments.read();
+    if (fragment == null) {
+      return null;
+    }
+    if (pruner != null) {
+      fragment = pruner.prune(fragment);
+    }
+    if (mapper != null) {
+      return map(fragment);
+    }
+    StreamSource source = new StreamSource(new ByteArrayInputStream(fragment));
+    return unmarshaller.get().unmarshal(source, mappedClass).getValue();
+  }
+
+  private T map(byte[] fragment) throws XMLStreamException {
+    XMLStreamReader cursor =
+        inputFactory.get().createXMLStreamReader(new ByteArrayInputStream(fragment));
+    try {
+      while (cursor.next() != XMLStreamConstants.START_ELEMENT) {
+        // move to the root element of the fragment
+      }
+      return mapper.map(cursor);
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    fragments.open(executionContext);
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    fragments.update(executionContext);
+  }
+
+  @Override
+  public void close() throws ItemStreamException {
+    fragments.close();
+  }
+}
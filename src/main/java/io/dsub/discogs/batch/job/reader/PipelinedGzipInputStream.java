@@ -0,0 +1,247 @@
+package io.dsub.discogs.batch.job.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An {@link InputStream} that inflates a gzip source on a dedicated thread. The inflater thread
+ * decompresses into a bounded ring of reusable byte buffers, while the reading thread (i.e. the
+ * parser) consumes them. This lets decompression and parsing run on separate cores.
+ *
+ * <p>If the source is already inflated (i.e. {@link ChannelGzipInputStream}), the dedicated thread
+ * only reads from it. See {@link #ofInflated(InputStream, String)}.
+ *
+ * <p>The time each stage spent waiting on the other is tracked, and reported when the stream gets
+ * closed.
+ */
+@Slf4j
+public class PipelinedGzipInputStream extends InputStream {
+
+  public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+  public static final int DEFAULT_RING_SIZE = 8;
+
+  private static final Chunk END_OF_STREAM = new Chunk(new byte[0]);
+
+  private final String name;
+  private final InputStream source;
+  private final boolean inflated;
+  private final BlockingQueue<Chunk> freeChunks;
+  private final BlockingQueue<Chunk> filledChunks;
+  private final AtomicLong inflaterWaitNanos = new AtomicLong();
+  private final AtomicLong parserWaitNanos = new AtomicLong();
+  private final Thread inflater;
+
+  private volatile IOException failure;
+  private volatile boolean closed = false;
+  private Chunk current;
+  private boolean eof = false;
+
+  public PipelinedGzipInputStream(InputStream source, String name) {
+    this(source, name, DEFAULT_BUFFER_SIZE, DEFAULT_RING_SIZE);
+  }
+
+  /**
+   * Constructor that immediately starts the inflater thread.
+   *
+   * @param source     compressed input stream.
+   * @param name       name to be used for the inflater thread and the report.
+   * @param bufferSize size of each buffer in the ring.
+   * @param ringSize   count of buffers in the ring.
+   */
+  public PipelinedGzipInputStream(InputStream source, String name, int bufferSize, int ringSize) {
+    this(source, false, name, bufferSize, ringSize);
+  }
+
+  private PipelinedGzipInputStream(
+      InputStream source, boolean inflated, String name, int bufferSize, int ringSize) {
+    if (bufferSize < 1 || ringSize < 1) {
+      throw new IllegalArgumentException("bufferSize and ringSize must be greater than zero");
+    }
+    this.name = name;
+    this.source = source;
+    this.inflated = inflated;
+    this.freeChunks = new ArrayBlockingQueue<>(ringSize);
+    // one extra slot for the end of stream marker.
+    this.filledChunks = new ArrayBlockingQueue<>(ringSize + 1);
+    for (int i = 0; i < ringSize; i++) {
+      freeChunks.add(new Chunk(new byte[bufferSize]));
+    }
+    this.inflater = new Thread(this::inflate, "inflater-" + name);
+    this.inflater.setDaemon(true);
+    this.inflater.start();
+  }
+
+  /**
+   * Creates a pipeline over a source that inflates by itself, so that reading and inflating the
+   * source run on the dedicated thread, and parsing on the reading thread.
+   *
+   * @param source inflating input stream.
+   * @param name   name to be used for the dedicated thread and the report.
+   * @return the pipelined input stream.
+   */
+  public static PipelinedGzipInputStream ofInflated(InputStream source, String name) {
+    return new PipelinedGzipInputStream(source, true, name, DEFAULT_BUFFER_SIZE, DEFAULT_RING_SIZE);
+  }
+
+  private void inflate() {
+    try (InputStream in =
+        inflated ? source : new GZIPInputStream(source, DEFAULT_BUFFER_SIZE)) {
+      while (!closed) {
+        long start = System.nanoTime();
+        Chunk chunk = freeChunks.take();
+        inflaterWaitNanos.addAndGet(System.nanoTime() - start);
+        if (!chunk.fill(in)) {
+          break;
+        }
+        filledChunks.put(chunk);
+      }
+    } catch (IOException e) {
+      failure = e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable t) {
+      failure = new IOException("inflater of " + name + " failed unexpectedly", t);
+    } finally {
+      // the extra slot of the ring always has room for the marker, whatever ended the thread.
+      filledChunks.offer(END_OF_STREAM);
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] single = new byte[1];
+    int read = read(single, 0, 1);
+    return read == -1 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!nextChunkIfExhausted()) {
+      return -1;
+    }
+    return current.drainTo(b, off, len);
+  }
+
+  @Override
+  public int available() {
+    return current == null ? 0 : current.remaining();
+  }
+
+  private boolean nextChunkIfExhausted() throws IOException {
+    if (closed) {
+      throw new IOException("stream closed");
+    }
+    while (current == null || current.remaining() == 0) {
+      if (eof) {
+        return false;
+      }
+      if (current != null) {
+        freeChunks.offer(current);
+        current = null;
+      }
+      Chunk next;
+      try {
+        long start = System.nanoTime();
+        next = filledChunks.take();
+        parserWaitNanos.addAndGet(System.nanoTime() - start);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("interrupted while waiting for inflater", e);
+      }
+      if (next == END_OF_STREAM) {
+        eof = true;
+        if (failure != null) {
+          throw new IOException("failed to inflate " + name, failure);
+        }
+        return false;
+      }
+      current = next;
+    }
+    return true;
+  }
+
+  /**
+   * Time the inflater thread spent waiting for the parser to hand back a free buffer.
+   *
+   * @return waited time in nanoseconds.
+   */
+  public long getInflaterWaitNanos() {
+    return inflaterWaitNanos.get();
+  }
+
+  /**
+   * Time the parser spent waiting for the inflater to fill a buffer.
+   *
+   * @return waited time in nanoseconds.
+   */
+  public long getParserWaitNanos() {
+    return parserWaitNanos.get();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    inflater.interrupt();
+    source.close();
+    log.info(
+        "{} pipeline: inflater waited {} ms on parser, parser waited {} ms on inflater",
+        name,
+        TimeUnit.NANOSECONDS.toMillis(getInflaterWaitNanos()),
+        TimeUnit.NANOSECONDS.toMillis(getParserWaitNanos()));
+  }
+
+  /**
+   * A reusable buffer within the ring.
+   */
+  private static final class Chunk {
+
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    private Chunk(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    /**
+     * Fills the buffer from given stream as much as possible.
+     *
+     * @return false if nothing could be read as the stream has reached its end.
+     */
+    private boolean fill(InputStream in) throws IOException {
+      position = 0;
+      limit = 0;
+      while (limit < buffer.length) {
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read == -1) {
+          break;
+        }
+        limit += read;
+      }
+      return limit > 0;
+    }
+
+    private int remaining() {
+      return limit - position;
+    }
+
+    private int drainTo(byte[] b, int off, int len) {
+      int count = Math.min(len, remaining());
+      System.arraycopy(buffer, position, b, off, count);
+      position += count;
+      return count;
+    }
+  }
+}
@@ -1,20 +1,14 @@
 package io.dsub.discogs.batch.job.reader;
 
-import io.dsub.discogs.batch.util.ProgressBarUtil;
 import io.dsub.discogs.batch.util.ToggleProgressBarConsumer;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.zip.GZIPInputStream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import me.tongfei.progressbar.ProgressBar;
-import me.tongfei.progressbar.wrapped.ProgressBarWrappedInputStream;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemStreamException;
-import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.xml.StaxEventItemReader;
 import org.springframework.batch.item.xml.builder.StaxEventItemReaderBuilder;
 import org.springframework.beans.factory.InitializingBean;
@@ -24,27 +18,101 @@ import org.springframework.oxm.jaxb.Jaxb2Marshaller;
 import org.springframework.util.Assert;
 
 /**
- * Decorated ItemReader to show progress bar.
+ * Decorated ItemReader to show progress bar. When resumed, the preceding fragments are skipped by
+ * {@link FragmentScanner} before the delegate starts to unmarshal.
  *
  * @param <T> type to be read.
  */
 @Slf4j
 @RequiredArgsConstructor
-public class ProgressBarStaxEventItemReader<T> implements ItemStreamReader<T>, InitializingBean {
+public class ProgressBarStaxEventItemReader<T>
+    implements ResumableItemStreamReader<T>, InitializingBean {
 
   private static final String TASK_NAME_PREPEND = "READ ";
 
   private final String taskName;
   private final Class<T> mappedClass;
   private final Path filePath;
+  private final boolean pipelined;
+  private final Unmarshaller unmarshaller;
+  private final ShardSpec shard;
+  private final FragmentPruner pruner;
   private final ToggleProgressBarConsumer pbConsumer = new ToggleProgressBarConsumer(System.err);
   private String[] fragmentRootElements;
   private StaxEventItemReader<T> nestedReader;
+  private InputStream in;
+  private long resumeAt = 0;
 
   public ProgressBarStaxEventItemReader(
       Class<T> mappedClass, Path filePath, String... fragmentRootElements) throws Exception {
+    this(mappedClass, filePath, false, fragmentRootElements);
+  }
+
+  /**
+   * Constructor with an option to inflate the dump on a dedicated thread.
+   *
+   * @param mappedClass          class to be unmarshalled.
+   * @param filePath             path of the gzip compressed dump.
+   * @param pipelined            if true, inflates through {@link PipelinedGzipInputStream}.
+   * @param fragmentRootElements root element names of each fragment.
+   * @throws Exception if failed to initialize the delegate.
+   */
+  public ProgressBarStaxEventItemReader(
+      Class<T> mappedClass, Path filePath, boolean pipelined, String... fragmentRootElements)
+      throws Exception {
+    this(mappedClass, filePath, pipelined, null, fragmentRootElements);
+  }
+
+  /**
+   * Constructor with an option to replace the default {@link Jaxb2Marshaller}. Files without
+   * {@code .gz} extension will be read as they are.
+   *
+   * @param mappedClass          class to be unmarshalled.
+   * @param filePath             path of the dump.
+   * @param pipelined            if true, inflates through {@link PipelinedGzipInputStream}.
+   * @param unmarshaller         unmarshaller to be used. if null, a default one will be used.
+   * @param fragmentRootElements root element names of each fragment.
+   * @throws Exception if failed to initialize the delegate.
+   */
+  public ProgressBarStaxEventItemReader(
+      Class<T> mappedClass,
+      Path filePath,
+      boolean pipelined,
+      Unmarshaller unmarshaller,
+      String... fragmentRootElements)
+      throws Exception {
+    this(mappedClass, filePath, pipelined, unmarshaller, null, null, fragmentRootElements);
+  }
+
+  /**
+   * Constructor to read only the fragments of given shard, and only the child elements kept by
+   * given pruner. The rest is dropped before being parsed. See {@link
+   * FilteredDocumentInputStream}.
+   *
+   * @param mappedClass          class to be unmarshalled.
+   * @param filePath             path of the dump.
+   * @param pipelined            if true, inflates through {@link PipelinedGzipInputStream}.
+   * @param unmarshaller         unmarshaller to be used. if null, a default one will be used.
+   * @param shard                shard to be read. if null, every fragment will be read.
+   * @param pruner               pruner of the fragments. if null, fragments are read as they are.
+   * @param fragmentRootElements root element names of each fragment.
+   * @throws Exception if failed to initialize the delegate.
+   */
+  public ProgressBarStaxEventItemReader(
+      Class<T> mappedClass,
+      Path filePath,
+      boolean pipelined,
+      Unmarshaller unmarshaller,
+      ShardSpec shard,
+      FragmentPruner pruner,
+      String... fragmentRootElements)
+      throws Exception {
+    this.unmarshaller = unmarshaller;
+    this.shard = shard;
+    this.pruner = pruner;
     this.mappedClass = mappedClass;
     this.filePath = filePath;
+    this.pipelined = pipelined;
     this.taskName = TASK_NAME_PREPEND + mappedClass.getSimpleName();
     this.pbConsumer.off();
     this.fragmentRootElements =
@@ -62,16 +130,49 @@ public class ProgressBarStaxEventItemReader<T> implements ItemStreamReader<T>, I
   }
 
   private void initDelegate() throws Exception {
+    this.in = openDump();
+    initDelegate(in, unmarshaller);
+  }
+
+  private InputStream openDump() throws IOException {
+    return DumpStreamUtil.open(
+        filePath, taskName, pipelined, pbConsumer, fragmentRootElements[0], shard, pruner);
+  }
+
+  private void initDelegate(InputStream source, Unmarshaller delegateUnmarshaller)
+      throws Exception {
     this.nestedReader =
         new StaxEventItemReaderBuilder<T>()
-            .resource(getInputStreamResource())
+            .resource(new InputStreamResource(source))
             .name(taskName)
             .addFragmentRootElements(fragmentRootElements)
-            .unmarshaller(getUnmarshaller(mappedClass))
+            .unmarshaller(
+                delegateUnmarshaller == null
+                    ? getUnmarshaller(mappedClass)
+                    : delegateUnmarshaller)
             .saveState(false)
             .build();
   }
 
+  /**
+   * Reopens the file to skip the fragments before given ordinal. Projections will not be spooled
+   * when resumed, as the skipped fragments would be missing from them.
+   */
+  private void resume() throws Exception {
+    in.close();
+    in = openDump();
+    FragmentScanner scanner = new FragmentScanner(in, fragmentRootElements[0]);
+    long skipped = scanner.skip(resumeAt);
+    log.info("skipped {} fragment(s) of {} to resume", skipped, filePath);
+    if (unmarshaller instanceof FanOutUnmarshaller) {
+      ((FanOutUnmarshaller) unmarshaller).close();
+      initDelegate(scanner.remaining(), null);
+    } else {
+      initDelegate(scanner.remaining(), unmarshaller);
+    }
+    nestedReader.afterPropertiesSet();
+  }
+
   private Unmarshaller getUnmarshaller(Class<T> clazz) throws Exception {
     Jaxb2Marshaller jaxb2Marshaller = new Jaxb2Marshaller();
     jaxb2Marshaller.setClassesToBeBound(clazz);
@@ -79,15 +180,13 @@ public class ProgressBarStaxEventItemReader<T> implements ItemStreamReader<T>, I
     return jaxb2Marshaller;
   }
 
-  private InputStreamResource getInputStreamResource() throws IOException {
-    InputStream in = Files.newInputStream(filePath);
-    ProgressBar pb = ProgressBarUtil.get(taskName, Files.size(filePath), pbConsumer);
-    return new InputStreamResource(new GZIPInputStream(new ProgressBarWrappedInputStream(in, pb)));
-  }
-
   @Override
   public synchronized T read() throws Exception {
-    return nestedReader.read();
+    T item = nestedReader.read();
+    if (item == null && unmarshaller instanceof FanOutUnmarshaller) {
+      ((FanOutUnmarshaller) unmarshaller).complete();
+    }
+    return item;
   }
 
   @Override
@@ -95,8 +194,20 @@ public class ProgressBarStaxEventItemReader<T> implements ItemStreamReader<T>, I
     nestedReader.afterPropertiesSet();
   }
 
+  @Override
+  public void resumeAt(long ordinal) {
+    this.resumeAt = ordinal;
+  }
+
   @Override
   public synchronized void open(ExecutionContext executionContext) throws ItemStreamException {
+    if (resumeAt > 0) {
+      try {
+        resume();
+      } catch (Exception e) {
+        throw new ItemStreamException("failed to resume " + filePath, e);
+      }
+    }
     this.pbConsumer.on();
     nestedReader.open(executionContext);
   }
@@ -110,5 +221,8 @@ public class ProgressBarStaxEventItemReader<T> implements ItemStreamReader<T>, I
   public void close() {
     this.pbConsumer.close();
     this.nestedReader.close();
+    if (unmarshaller instanceof FanOutUnmarshaller) {
+      ((FanOutUnmarshaller) unmarshaller).close();
+    }
   }
 }
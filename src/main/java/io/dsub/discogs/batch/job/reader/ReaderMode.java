@@ -0,0 +1,37 @@
+package io.dsub.discogs.batch.job.reader;
+
+import io.dsub.discogs.batch.exception.InvalidArgumentException;
+import java.util.Locale;
+
+/**
+ * Modes of how a dump is read by the chunk workers of a step.
+ */
+public enum ReaderMode {
+  /**
+   * Workers take turns to parse the dump, one item at a time.
+   */
+  SYNCHRONIZED,
+  /**
+   * A dedicated thread parses the dump into a queue, which workers take items from one by one.
+   */
+  QUEUED,
+  /**
+   * A dedicated thread cuts the dump into raw fragments, which workers unmarshal by themselves.
+   */
+  PARALLEL;
+
+  public static ReaderMode of(String name) throws InvalidArgumentException {
+    String targetName = name.toLowerCase(Locale.US);
+    for (ReaderMode value : values()) {
+      if (value.toString().equals(targetName)) {
+        return value;
+      }
+    }
+    throw new InvalidArgumentException("unknown reader mode: " + name);
+  }
+
+  @Override
+  public String toString() {
+    return this.name().toLowerCase(Locale.US);
+  }
+}
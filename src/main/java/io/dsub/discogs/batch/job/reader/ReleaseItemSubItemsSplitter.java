@@ -0,0 +1,116 @@
+package io.dsub.discogs.batch.job.reader;
+
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Weighs a release by the count of its sub items (tracks, credited artists, identifiers and so
+ * on), and splits the heavy ones (i.e. box sets with thousands of tracks) into several releases of
+ * the same id, each of which holds a slice of the sub items. As the sub items are written by
+ * upserts, the slices can be processed and written independently.
+ */
+public class ReleaseItemSubItemsSplitter implements ItemSplitter<ReleaseItemSubItemsXML> {
+
+  private static final List<SubItems<?>> SUB_ITEMS =
+      List.of(
+          new SubItems<>(
+              ReleaseItemSubItemsXML::getReleaseAlbumArtists,
+              ReleaseItemSubItemsXML::setReleaseAlbumArtists),
+          new SubItems<>(
+              ReleaseItemSubItemsXML::getReleaseCreditedArtists,
+              ReleaseItemSubItemsXML::setReleaseCreditedArtists),
+          new SubItems<>(
+              ReleaseItemSubItemsXML::getLabelReleaseLabels,
+              ReleaseItemSubItemsXML::setLabelReleaseLabels),
+          new SubItems<>(
+              ReleaseItemSubItemsXML::getReleaseFormats, ReleaseItemSubItemsXML::setReleaseFormats),
+          new SubItems<>(
+              ReleaseItemSubItemsXML::getReleaseTracks, ReleaseItemSubItemsXML::setReleaseTracks),
+          new SubItems<>(
+              ReleaseItemSubItemsXML::getReleaseIdentifiers,
+              ReleaseItemSubItemsXML::setReleaseIdentifiers),
+          new SubItems<>(
+              ReleaseItemSubItemsXML::getCompanies, ReleaseItemSubItemsXML::setCompanies),
+          new SubItems<>(
+              ReleaseItemSubItemsXML::getReleaseVideos, ReleaseItemSubItemsXML::setReleaseVideos),
+          new SubItems<>(ReleaseItemSubItemsXML::getGenres, ReleaseItemSubItemsXML::setGenres),
+          new SubItems<>(ReleaseItemSubItemsXML::getStyles, ReleaseItemSubItemsXML::setStyles));
+
+  @Override
+  public long weigh(ReleaseItemSubItemsXML item) {
+    long weight = 1;
+    for (SubItems<?> subItems : SUB_ITEMS) {
+      weight += subItems.count(item);
+    }
+    return weight;
+  }
+
+  @Override
+  public List<ReleaseItemSubItemsXML> split(ReleaseItemSubItemsXML item, long maxWeight) {
+    // each split release weighs 1 by itself.
+    long capacity = maxWeight - 1;
+    if (capacity < 1 || weigh(item) <= maxWeight) {
+      return List.of(item);
+    }
+    List<ReleaseItemSubItemsXML> pieces = new ArrayList<>();
+    ReleaseItemSubItemsXML piece = newPiece(item, pieces);
+    long room = capacity;
+    for (SubItems<?> subItems : SUB_ITEMS) {
+      int count = subItems.count(item);
+      int from = 0;
+      while (from < count) {
+        if (room == 0) {
+          piece = newPiece(item, pieces);
+          room = capacity;
+        }
+        int to = (int) Math.min(count, from + room);
+        subItems.slice(item, piece, from, to);
+        room -= to - from;
+        from = to;
+      }
+    }
+    return pieces;
+  }
+
+  private static ReleaseItemSubItemsXML newPiece(
+      ReleaseItemSubItemsXML item, List<ReleaseItemSubItemsXML> pieces) {
+    ReleaseItemSubItemsXML piece = new ReleaseItemSubItemsXML();
+    piece.setId(item.getId());
+    pieces.add(piece);
+    return piece;
+  }
+
+  /**
+   * Accessors to a list of sub items.
+   *
+   * @param <E> type of the sub items.
+   */
+  private static final class SubItems<E> {
+
+    private final Function<ReleaseItemSubItemsXML, List<E>> getter;
+    private final BiConsumer<ReleaseItemSubItemsXML, List<E>> setter;
+
+    private SubItems(
+        Function<ReleaseItemSubItemsXML, List<E>> getter,
+        BiConsumer<ReleaseItemSubItemsXML, List<E>> setter) {
+      this.getter = getter;
+      this.setter = setter;
+    }
+
+    private int count(ReleaseItemSubItemsXML item) {
+      List<E> list = getter.apply(item);
+      return list == null ? 0 : list.size();
+    }
+
+    /**
+     * Copies the sub items of the release within given range to the piece.
+     */
+    private void slice(
+        ReleaseItemSubItemsXML item, ReleaseItemSubItemsXML piece, int from, int to) {
+      setter.accept(piece, new ArrayList<>(getter.apply(item).subList(from, to)));
+    }
+  }
+}
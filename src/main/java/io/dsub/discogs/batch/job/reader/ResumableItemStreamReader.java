@@ -0,0 +1,20 @@
+package io.dsub.discogs.batch.job.reader;
+
+import org.springframework.batch.item.ItemStreamReader;
+
+/**
+ * An {@link ItemStreamReader} that reads items in a stable order, and can resume from an ordinal
+ * without mapping the preceding items.
+ *
+ * @param <T> type to be read.
+ */
+public interface ResumableItemStreamReader<T> extends ItemStreamReader<T> {
+
+  /**
+   * Makes the reader start from given ordinal when it is opened. Must be invoked before {@link
+   * #open(org.springframework.batch.item.ExecutionContext)}.
+   *
+   * @param ordinal count of leading items to be skipped.
+   */
+  void resumeAt(long ordinal);
+}
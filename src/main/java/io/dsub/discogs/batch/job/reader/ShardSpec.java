@@ -0,0 +1,111 @@
+package io.dsub.discogs.batch.job.reader;
+
+import io.dsub.discogs.batch.exception.InvalidArgumentException;
+
+/**
+ * Specifies the entities of a dump to be read by a process, by their ids, so that a dump can be
+ * loaded by several processes at once. Either an id range, or a modulo shard.
+ *
+ * <ul>
+ *   <li>{@code from-to}: ids from {@code from} (inclusive) to {@code to} (exclusive). Either side
+ *   can be omitted, i.e. {@code 1000000-} or {@code -1000000}.
+ *   <li>{@code index/count}: ids of which the remainder divided by {@code count} is {@code index},
+ *   i.e. {@code 0/4}, {@code 1/4}, {@code 2/4} and {@code 3/4} split a dump into four shards of
+ *   roughly the same size, as ids are dense.
+ * </ul>
+ *
+ * <p>Fragments without an id are accepted by every shard.
+ */
+public final class ShardSpec {
+
+  private final long from;
+  private final long to;
+  private final int index;
+  private final int count;
+
+  private ShardSpec(long from, long to, int index, int count) {
+    this.from = from;
+    this.to = to;
+    this.index = index;
+    this.count = count;
+  }
+
+  /**
+   * Shard of ids within given range.
+   *
+   * @param from first id, inclusive.
+   * @param to   last id, exclusive.
+   * @return the shard.
+   */
+  public static ShardSpec range(long from, long to) {
+    if (from < 0 || to <= from) {
+      throw new IllegalArgumentException("invalid id range [" + from + ", " + to + ")");
+    }
+    return new ShardSpec(from, to, 0, 1);
+  }
+
+  /**
+   * Shard of ids with given remainder.
+   *
+   * @param index remainder of the ids.
+   * @param count count of the shards.
+   * @return the shard.
+   */
+  public static ShardSpec modulo(int index, int count) {
+    if (count < 1 || index < 0 || index >= count) {
+      throw new IllegalArgumentException("invalid shard " + index + "/" + count);
+    }
+    return new ShardSpec(0, Long.MAX_VALUE, index, count);
+  }
+
+  /**
+   * Parses given value formatted as either {@code from-to} or {@code index/count}.
+   *
+   * @param value value to be parsed.
+   * @return the shard.
+   * @throws InvalidArgumentException if the value is malformed.
+   */
+  public static ShardSpec of(String value) throws InvalidArgumentException {
+    String trimmed = value == null ? "" : value.trim();
+    try {
+      int slash = trimmed.indexOf('/');
+      if (slash != -1) {
+        return modulo(
+            Integer.parseInt(trimmed.substring(0, slash)),
+            Integer.parseInt(trimmed.substring(slash + 1)));
+      }
+      int dash = trimmed.indexOf('-');
+      if (dash != -1 && trimmed.length() > 1) {
+        String lower = trimmed.substring(0, dash);
+        String upper = trimmed.substring(dash + 1);
+        return range(
+            lower.isEmpty() ? 0 : Long.parseLong(lower),
+            upper.isEmpty() ? Long.MAX_VALUE : Long.parseLong(upper));
+      }
+    } catch (IllegalArgumentException ignored) {
+      // reported below, as NumberFormatException is also an IllegalArgumentException.
+    }
+    throw new InvalidArgumentException("malformed shard: " + value);
+  }
+
+  /**
+   * Checks if given id belongs to this shard.
+   *
+   * @param id id of the entity, or a negative value if unknown.
+   * @return true if the entity should be read.
+   */
+  public boolean accepts(long id) {
+    if (id < 0) {
+      return true;
+    }
+    return id >= from && id < to && id % count == index;
+  }
+
+  @Override
+  public String toString() {
+    if (count > 1) {
+      return index + "/" + count;
+    }
+    return from + "-" + (to == Long.MAX_VALUE ? "" : to);
+  }
+}
@@ -0,0 +1,213 @@
+package io.dsub.discogs.batch.job.reader;
+
+import io.dsub.discogs.batch.job.step.WeightedCompletionPolicy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+
+/**
+ * An {@link ItemStreamReader} that splits the heavy items of the delegate by an {@link
+ * ItemSplitter}, and reports the weight of each item it hands out to a {@link
+ * WeightedCompletionPolicy}, so that chunks are formed by their total weight.
+ *
+ * <p>The split items are queued and handed out to any chunk worker. As the delegate commits its
+ * resume point by the items it has read (see {@link CheckpointingItemReader}), the states the
+ * delegate keeps for a split item are captured apart from the chunk, and only settled once every
+ * chunk holding a piece of the item is committed (see {@link ChunkBinding}). The delegate is
+ * updated on every commit, only its resume point never passes a partially written item.
+ *
+ * @param <T> type to be read.
+ */
+@Slf4j
+public class SplittingItemReader<T> implements ItemStreamReader<T> {
+
+  private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+  private final ItemStreamReader<T> delegate;
+  private final ItemSplitter<T> splitter;
+  private final WeightedCompletionPolicy policy;
+  private final long maxItemWeight;
+  private final String key = "splitPieces#" + SEQUENCE.incrementAndGet();
+  private final Deque<Piece<T>> pending = new ArrayDeque<>();
+  private int reading = 0;
+  private long splitCount = 0;
+
+  /**
+   * Constructor of the reader.
+   *
+   * @param delegate      reader of the items to be split.
+   * @param splitter      splitter of the items.
+   * @param policy        policy to be reported with the weights. nullable.
+   * @param maxItemWeight items heavier than this will be split.
+   */
+  public SplittingItemReader(
+      ItemStreamReader<T> delegate,
+      ItemSplitter<T> splitter,
+      WeightedCompletionPolicy policy,
+      long maxItemWeight) {
+    this.delegate = delegate;
+    this.splitter = splitter;
+    this.policy = policy;
+    this.maxItemWeight = maxItemWeight;
+  }
+
+  @Override
+  public T read() throws Exception {
+    T item = poll(false);
+    if (item == null) {
+      item = readDelegate();
+    }
+    if (item == null) {
+      item = poll(true);
+    }
+    if (item != null && policy != null) {
+      policy.add(splitter.weigh(item));
+    }
+    return item;
+  }
+
+  /**
+   * Reads the next item from the delegate, and queues the split items if it is heavy. The states
+   * kept by the delegate go to the current chunk unless the item is split.
+   */
+  private T readDelegate() throws Exception {
+    synchronized (pending) {
+      reading++;
+    }
+    try {
+      ChunkStates states = new ChunkStates();
+      T item = ChunkBinding.callWith(states, delegate::read);
+      List<T> pieces =
+          item == null || splitter.weigh(item) <= maxItemWeight
+              ? List.of()
+              : splitter.split(item, maxItemWeight);
+      if (pieces.size() < 2) {
+        ChunkBinding.current().include(states);
+        return item;
+      }
+      SplitItem split = new SplitItem(states, pieces.size());
+      synchronized (pending) {
+        splitCount++;
+        pieces.subList(1, pieces.size()).forEach(piece -> pending.add(new Piece<>(piece, split)));
+      }
+      handOut(split);
+      return pieces.get(0);
+    } finally {
+      synchronized (pending) {
+        reading--;
+        pending.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Takes a queued split item.
+   *
+   * @param await if true, waits for the other workers which are still reading from the delegate,
+   *              as they may queue more split items. Used once the delegate is exhausted.
+   * @return the split item, or null if none is queued.
+   */
+  private T poll(boolean await) throws InterruptedException {
+    Piece<T> piece;
+    synchronized (pending) {
+      while (await && pending.isEmpty() && reading > 0) {
+        pending.wait();
+      }
+      piece = pending.poll();
+    }
+    if (piece == null) {
+      return null;
+    }
+    handOut(piece.split());
+    return piece.item();
+  }
+
+  private void handOut(SplitItem split) {
+    ChunkBinding.current().get(key, HandedOut::new).add(split);
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    synchronized (pending) {
+      pending.clear();
+      splitCount = 0;
+    }
+    delegate.open(executionContext);
+  }
+
+  /**
+   * Settles the pieces handed out by the calling thread without a chunk bound, then updates the
+   * delegate.
+   */
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    ChunkBinding.settleUnbound();
+    delegate.update(executionContext);
+  }
+
+  @Override
+  public void close() throws ItemStreamException {
+    synchronized (pending) {
+      if (splitCount > 0) {
+        log.info("split {} heavy item(s) heavier than {}", splitCount, maxItemWeight);
+      }
+    }
+    delegate.close();
+  }
+
+  /**
+   * A piece of a split item, queued to be handed out.
+   */
+  private record Piece<T>(T item, SplitItem split) {}
+
+  /**
+   * An item split into pieces, of which the states are settled once every piece is settled.
+   */
+  private static final class SplitItem {
+
+    private final ChunkStates states;
+    private int unsettled;
+
+    private SplitItem(ChunkStates states, int pieces) {
+      this.states = states;
+      this.unsettled = pieces;
+    }
+
+    private void settlePiece() {
+      synchronized (this) {
+        if (--unsettled > 0) {
+          return;
+        }
+      }
+      states.settle();
+    }
+  }
+
+  /**
+   * Pieces handed out to a chunk, settled once the chunk is committed.
+   */
+  private static final class HandedOut implements ChunkStates.State {
+
+    private final List<SplitItem> splits = new ArrayList<>();
+
+    private synchronized void add(SplitItem split) {
+      splits.add(split);
+    }
+
+    @Override
+    public void settle() {
+      List<SplitItem> settling;
+      synchronized (this) {
+        settling = new ArrayList<>(splits);
+        splits.clear();
+      }
+      settling.forEach(SplitItem::settlePiece);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package io.dsub.discogs.batch.job.reader;
+
+import io.dsub.discogs.batch.job.reader.mapper.FragmentMapper;
+import io.dsub.discogs.batch.job.reader.mapper.FragmentMappers;
+import io.dsub.discogs.batch.util.ToggleProgressBarConsumer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link org.springframework.batch.item.ItemStreamReader} that maps each fragment straight from
+ * a {@link XMLStreamReader} cursor with a {@link FragmentMapper}, while showing the progress bar.
+ * Unlike {@link ProgressBarStaxEventItemReader}, no {@link javax.xml.stream.events.XMLEvent} is
+ * created for each tag, attribute and text node, hence much less garbage per item. When resumed,
+ * the preceding fragments are skipped by {@link FragmentScanner}.
+ *
+ * <p>This implementation is NOT thread-safe.
+ *
+ * @param <T> type to be read.
+ */
+@Slf4j
+public class StaxCursorItemReader<T> implements ResumableItemStreamReader<T> {
+
+  private static final String TASK_NAME_PREPEND = "READ ";
+
+  private final Path filePath;
+  private final String rootElement;
+  private final boolean pipelined;
+  private final String taskName;
+  private final FragmentMapper<T> mapper;
+  private final ShardSpec shard;
+  private final FragmentPruner pruner;
+  private final ToggleProgressBarConsumer pbConsumer = new ToggleProgressBarConsumer(System.err);
+  private InputStream in;
+  private XMLStreamReader cursor;
+  private long resumeAt = 0;
+
+  /**
+   * Constructor of the reader. The file will be opened on {@link #open(ExecutionContext)}.
+   *
+   * @param mappedClass class to be mapped. must be supported by {@link FragmentMappers}.
+   * @param filePath    path of the dump.
+   * @param rootElement root element name of each fragment.
+   * @param pipelined   if true, inflates through {@link PipelinedGzipInputStream}.
+   */
+  public StaxCursorItemReader(
+      Class<T> mappedClass, Path filePath, String rootElement, boolean pipelined) {
+    this(mappedClass, filePath, rootElement, pipelined, null, null);
+  }
+
+  /**
+   * Constructor to read only the fragments of given shard, and only the child elements kept by
+   * given pruner. See {@link FilteredDocumentInputStream}.
+   *
+   * @param mappedClass class to be mapped. must be supported by {@link FragmentMappers}.
+   * @param filePath    path of the dump.
+   * @param rootElement root element name of each fragment.
+   * @param pipelined   if true, inflates through {@link PipelinedGzipInputStream}.
+   * @param shard       shard to be read. if null, every fragment will be read.
+   * @param pruner      pruner of the fragments. if null, fragments are read as they are.
+   */
+  public StaxCursorItemReader(
+      Class<T> mappedClass,
+      Path filePath,
+      String rootElement,
+      boolean pipelined,
+      ShardSpec shard,
+      FragmentPruner pruner) {
+    Assert.notNull(mappedClass, "mappedClass cannot be null");
+    Assert.notNull(filePath, "filePath cannot be null");
+    Assert.hasText(rootElement, "rootElement cannot be blank");
+    this.mapper = FragmentMappers.of(mappedClass);
+    Assert.notNull(mapper, "no cursor mapper for " + mappedClass.getSimpleName());
+    this.filePath = filePath;
+    this.rootElement = rootElement;
+    this.pipelined = pipelined;
+    this.shard = shard;
+    this.pruner = pruner;
+    this.taskName = TASK_NAME_PREPEND + mappedClass.getSimpleName();
+  }
+
+  @Override
+  public void resumeAt(long ordinal) {
+    this.resumeAt = ordinal;
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    try {
+      in =
+          DumpStreamUtil.open(
+              filePath, taskName, pipelined, pbConsumer, rootElement, shard, pruner);
+      InputStream source = in;
+      if (resumeAt > 0) {
+        FragmentScanner scanner = new FragmentScanner(in, rootElement);
+        log.info("skipped {} fragment(s) of {} to resume", scanner.skip(resumeAt), filePath);
+        source = scanner.remaining();
+      }
+      cursor = FragmentMappers.newInputFactory().createXMLStreamReader(source);
+    } catch (IOException | XMLStreamException e) {
+      throw new ItemStreamException("failed to open " + filePath, e);
+    }
+    pbConsumer.on();
+  }
+
+  @Override
+  public T read() throws Exception {
+    if (cursor == null) {
+      throw new ItemStreamException("reader must be opened before it is read");
+    }
+    while (cursor.hasNext()) {
+      if (cursor.next() == XMLStreamConstants.START_ELEMENT
+          && rootElement.equals(cursor.getLocalName())) {
+        return mapper.map(cursor);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    // nothing to save
+  }
+
+  @Override
+  public void close() throws ItemStreamException {
+    pbConsumer.close();
+    try {
+      if (cursor != null) {
+        cursor.close();
+      }
+      if (in != null) {
+        in.close();
+      }
+    } catch (IOException | XMLStreamException e) {
+      log.warn("failed to close " + filePath, e);
+    }
+  }
+}
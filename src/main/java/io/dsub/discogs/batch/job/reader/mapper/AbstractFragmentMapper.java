@@ -0,0 +1,174 @@
+package io.dsub.discogs.batch.job.reader.mapper;
+
+import io.dsub.discogs.batch.util.StringDictionary;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Base of {@link FragmentMapper} implementations. Subclasses create an item from the root element
+ * of the fragment, then read each child element by its name. Unknown elements are skipped.
+ *
+ * <p>Helper methods follow how JAXB binds the domain classes: the last value wins for repeated
+ * elements, numbers that cannot be parsed are mapped to null, and a present wrapper element is
+ * mapped to a list even if it is empty.
+ *
+ * @param <T> type to be mapped.
+ */
+public abstract class AbstractFragmentMapper<T> implements FragmentMapper<T> {
+
+  @Override
+  public T map(XMLStreamReader reader) throws XMLStreamException {
+    T item = create(reader);
+    while (nextChild(reader)) {
+      readChild(reader, reader.getLocalName(), item);
+    }
+    return item;
+  }
+
+  /**
+   * Creates an item from the root element, which the cursor is currently on.
+   *
+   * @param reader cursor on the START_ELEMENT of the fragment.
+   * @return created item.
+   */
+  protected abstract T create(XMLStreamReader reader);
+
+  /**
+   * Reads a child element of the fragment into the item. Implementations must leave the cursor on
+   * the END_ELEMENT of the child, i.e. by calling {@link #skip(XMLStreamReader)} if unknown.
+   *
+   * @param reader cursor on the START_ELEMENT of the child.
+   * @param name   local name of the child.
+   * @param item   item to be filled.
+   * @throws XMLStreamException if failed to read.
+   */
+  protected abstract void readChild(XMLStreamReader reader, String name, T item)
+      throws XMLStreamException;
+
+  /**
+   * Moves the cursor to the next child element of current element.
+   *
+   * @return true if the cursor is on a START_ELEMENT of a child, false if on the END_ELEMENT of
+   * current element.
+   */
+  protected static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        return true;
+      }
+      if (event == XMLStreamConstants.END_ELEMENT) {
+        return false;
+      }
+    }
+    throw new XMLStreamException("unexpected end of document");
+  }
+
+  /**
+   * Skips current element including its children, leaving the cursor on its END_ELEMENT.
+   */
+  protected static void skip(XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  protected static String text(XMLStreamReader reader) throws XMLStreamException {
+    return reader.getElementText();
+  }
+
+  /**
+   * Reads the text of a value of low cardinality, interned by {@link StringDictionary#SHARED}.
+   */
+  protected static String internedText(XMLStreamReader reader) throws XMLStreamException {
+    return StringDictionary.SHARED.intern(reader.getElementText());
+  }
+
+  protected static Integer integer(XMLStreamReader reader) throws XMLStreamException {
+    return toInteger(reader.getElementText());
+  }
+
+  protected static String attribute(XMLStreamReader reader, String name) {
+    return reader.getAttributeValue(null, name);
+  }
+
+  protected static String internedAttribute(XMLStreamReader reader, String name) {
+    return StringDictionary.SHARED.intern(reader.getAttributeValue(null, name));
+  }
+
+  protected static Integer integerAttribute(XMLStreamReader reader, String name) {
+    return toInteger(reader.getAttributeValue(null, name));
+  }
+
+  protected static Integer toInteger(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Integer.valueOf(value.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  protected static Short toShort(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Short.valueOf(value.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  protected static boolean toBoolean(String value) {
+    if (value == null) {
+      return false;
+    }
+    String trimmed = value.trim();
+    return trimmed.equals("true") || trimmed.equals("1");
+  }
+
+  /**
+   * Reads children of a wrapper element with given name, skipping the others.
+   *
+   * @param reader    cursor on the START_ELEMENT of the wrapper.
+   * @param childName name of the children to be read.
+   * @param mapper    mapper of each child.
+   * @param <E>       type of each child.
+   * @return list of the children, empty if none.
+   */
+  protected static <E> List<E> list(
+      XMLStreamReader reader, String childName, FragmentMapper<E> mapper)
+      throws XMLStreamException {
+    List<E> items = new ArrayList<>();
+    while (nextChild(reader)) {
+      if (childName.equals(reader.getLocalName())) {
+        items.add(mapper.map(reader));
+      } else {
+        skip(reader);
+      }
+    }
+    return items;
+  }
+
+  protected static List<String> texts(XMLStreamReader reader, String childName)
+      throws XMLStreamException {
+    return list(reader, childName, AbstractFragmentMapper::text);
+  }
+
+  protected static List<String> internedTexts(XMLStreamReader reader, String childName)
+      throws XMLStreamException {
+    return list(reader, childName, AbstractFragmentMapper::internedText);
+  }
+}
@@ -0,0 +1,51 @@
+package io.dsub.discogs.batch.job.reader.mapper;
+
+import io.dsub.discogs.batch.domain.artist.ArtistSubItemsXML;
+import io.dsub.discogs.batch.domain.artist.ArtistSubItemsXML.ArtistAliasXML;
+import io.dsub.discogs.batch.domain.artist.ArtistSubItemsXML.ArtistGroupXML;
+import io.dsub.discogs.batch.domain.artist.ArtistSubItemsXML.ArtistMemberXML;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class ArtistSubItemsXMLMapper extends AbstractFragmentMapper<ArtistSubItemsXML> {
+
+  @Override
+  protected ArtistSubItemsXML create(XMLStreamReader reader) {
+    return new ArtistSubItemsXML();
+  }
+
+  @Override
+  protected void readChild(XMLStreamReader reader, String name, ArtistSubItemsXML item)
+      throws XMLStreamException {
+    switch (name) {
+      case "id" -> item.setId(integer(reader));
+      case "aliases" -> item.setAliases(list(reader, "name", ArtistSubItemsXMLMapper::alias));
+      case "groups" -> item.setGroups(list(reader, "name", ArtistSubItemsXMLMapper::group));
+      case "members" -> item.setMembers(list(reader, "name", ArtistSubItemsXMLMapper::member));
+      case "namevariations" -> item.setNameVariations(texts(reader, "name"));
+      case "urls" -> item.setUrls(texts(reader, "url"));
+      default -> skip(reader);
+    }
+  }
+
+  private static ArtistAliasXML alias(XMLStreamReader reader) throws XMLStreamException {
+    ArtistAliasXML alias = new ArtistAliasXML();
+    alias.setAliasId(integerAttribute(reader, "id"));
+    skip(reader);
+    return alias;
+  }
+
+  private static ArtistGroupXML group(XMLStreamReader reader) throws XMLStreamException {
+    ArtistGroupXML group = new ArtistGroupXML();
+    group.setGroupId(integerAttribute(reader, "id"));
+    skip(reader);
+    return group;
+  }
+
+  private static ArtistMemberXML member(XMLStreamReader reader) throws XMLStreamException {
+    ArtistMemberXML member = new ArtistMemberXML();
+    member.setMemberId(integerAttribute(reader, "id"));
+    skip(reader);
+    return member;
+  }
+}
@@ -0,0 +1,26 @@
+package io.dsub.discogs.batch.job.reader.mapper;
+
+import io.dsub.discogs.batch.domain.artist.ArtistXML;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class ArtistXMLMapper extends AbstractFragmentMapper<ArtistXML> {
+
+  @Override
+  protected ArtistXML create(XMLStreamReader reader) {
+    return new ArtistXML();
+  }
+
+  @Override
+  protected void readChild(XMLStreamReader reader, String name, ArtistXML item)
+      throws XMLStreamException {
+    switch (name) {
+      case "id" -> item.setId(integer(reader));
+      case "name" -> item.setName(text(reader));
+      case "realname" -> item.setRealName(text(reader));
+      case "profile" -> item.setProfile(text(reader));
+      case "data_quality" -> item.setDataQuality(internedText(reader));
+      default -> skip(reader);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package io.dsub.discogs.batch.job.reader.mapper;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A contract to map a single fragment directly from a {@link XMLStreamReader} cursor, without
+ * creating an event object for each tag, attribute and text node.
+ *
+ * @param <T> type to be mapped.
+ */
+public interface FragmentMapper<T> {
+
+  /**
+   * Maps the fragment the cursor is currently on. The cursor must be on the START_ELEMENT of the
+   * fragment, and will be left on its END_ELEMENT.
+   *
+   * @param reader cursor to be read.
+   * @return mapped item.
+   * @throws XMLStreamException if failed to read.
+   */
+  T map(XMLStreamReader reader) throws XMLStreamException;
+}
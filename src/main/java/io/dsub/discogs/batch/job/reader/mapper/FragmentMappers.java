@@ -0,0 +1,60 @@
+package io.dsub.discogs.batch.job.reader.mapper;
+
+import io.dsub.discogs.batch.domain.artist.ArtistSubItemsXML;
+import io.dsub.discogs.batch.domain.artist.ArtistXML;
+import io.dsub.discogs.batch.domain.label.LabelSubItemsXML;
+import io.dsub.discogs.batch.domain.label.LabelXML;
+import io.dsub.discogs.batch.domain.master.MasterMainReleaseXML;
+import io.dsub.discogs.batch.domain.master.MasterSubItemsXML;
+import io.dsub.discogs.batch.domain.master.MasterXML;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML;
+import io.dsub.discogs.batch.domain.release.ReleaseItemXML;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+
+/**
+ * Registry of the hand written {@link FragmentMapper} for each mapped class.
+ */
+public final class FragmentMappers {
+
+  private static final Map<Class<?>, FragmentMapper<?>> MAPPERS =
+      Map.of(
+          ArtistXML.class, new ArtistXMLMapper(),
+          ArtistSubItemsXML.class, new ArtistSubItemsXMLMapper(),
+          LabelXML.class, new LabelXMLMapper(),
+          LabelSubItemsXML.class, new LabelSubItemsXMLMapper(),
+          MasterXML.class, new MasterXMLMapper(),
+          MasterSubItemsXML.class, new MasterSubItemsXMLMapper(),
+          MasterMainReleaseXML.class, new MasterMainReleaseXMLMapper(),
+          ReleaseItemXML.class, new ReleaseItemXMLMapper(),
+          ReleaseItemSubItemsXML.class, new ReleaseItemSubItemsXMLMapper());
+
+  private FragmentMappers() {
+    // prevent initialize
+  }
+
+  /**
+   * Finds the mapper of given class.
+   *
+   * @param mappedClass class to be mapped.
+   * @param <T>         type to be mapped.
+   * @return the mapper, or null if the class is not supported.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> FragmentMapper<T> of(Class<T> mappedClass) {
+    return (FragmentMapper<T>) MAPPERS.get(mappedClass);
+  }
+
+  /**
+   * Creates a factory of cursors to be read by the mappers. DTDs and external entities are not
+   * supported, as is the case with the readers of Spring Batch.
+   *
+   * @return created factory.
+   */
+  public static XMLInputFactory newInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+}
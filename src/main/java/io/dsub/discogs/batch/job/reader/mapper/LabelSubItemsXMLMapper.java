@@ -0,0 +1,33 @@
+package io.dsub.discogs.batch.job.reader.mapper;
+
+import io.dsub.discogs.batch.domain.label.LabelSubItemsXML;
+import io.dsub.discogs.batch.domain.label.LabelSubItemsXML.LabelSubLabelXML;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class LabelSubItemsXMLMapper extends AbstractFragmentMapper<LabelSubItemsXML> {
+
+  @Override
+  protected LabelSubItemsXML create(XMLStreamReader reader) {
+    return new LabelSubItemsXML();
+  }
+
+  @Override
+  protected void readChild(XMLStreamReader reader, String name, LabelSubItemsXML item)
+      throws XMLStreamException {
+    switch (name) {
+      case "id" -> item.setId(integer(reader));
+      case "sublabels" -> item.setLabelSubLabels(
+          list(reader, "label", LabelSubItemsXMLMapper::subLabel));
+      case "urls" -> item.setUrls(texts(reader, "url"));
+      default -> skip(reader);
+    }
+  }
+
+  private static LabelSubLabelXML subLabel(XMLStreamReader reader) throws XMLStreamException {
+    LabelSubLabelXML subLabel = new LabelSubLabelXML();
+    subLabel.setSubLabelId(integerAttribute(reader, "id"));
+    subLabel.setName(text(reader));
+    return subLabel;
+  }
+}
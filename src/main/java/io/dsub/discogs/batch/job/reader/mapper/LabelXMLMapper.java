@@ -0,0 +1,26 @@
+package io.dsub.discogs.batch.job.reader.mapper;
+
+import io.dsub.discogs.batch.domain.label.LabelXML;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class LabelXMLMapper extends AbstractFragmentMapper<LabelXML> {
+
+  @Override
+  protected LabelXML create(XMLStreamReader reader) {
+    return new LabelXML();
+  }
+
+  @Override
+  protected void readChild(XMLStreamReader reader, String name, LabelXML item)
+      throws XMLStreamException {
+    switch (name) {
+      case "id" -> item.setId(integer(reader));
+      case "name" -> item.setName(text(reader));
+      case "contactinfo" -> item.setContactInfo(text(reader));
+      case "profile" -> item.setProfile(text(reader));
+      case "data_quality" -> item.setDataQuality(internedText(reader));
+      default -> skip(reader);
+    }
+  }
+}
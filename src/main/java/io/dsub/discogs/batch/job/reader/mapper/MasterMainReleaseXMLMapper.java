@@ -0,0 +1,25 @@
+package io.dsub.discogs.batch.job.reader.mapper;
+
+import io.dsub.discogs.batch.domain.master.MasterMainReleaseXML;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class MasterMainReleaseXMLMapper extends AbstractFragmentMapper<MasterMainReleaseXML> {
+
+  @Override
+  protected MasterMainReleaseXML create(XMLStreamReader reader) {
+    MasterMainReleaseXML item = new MasterMainReleaseXML();
+    item.setId(integerAttribute(reader, "id"));
+    return item;
+  }
+
+  @Override
+  protected void readChild(XMLStreamReader reader, String name, MasterMainReleaseXML item)
+      throws XMLStreamException {
+    if (name.equals("main_release")) {
+      item.setMainReleaseId(integer(reader));
+    } else {
+      skip(reader);
+    }
+  }
+}
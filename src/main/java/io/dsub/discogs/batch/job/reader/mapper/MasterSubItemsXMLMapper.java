@@ -0,0 +1,55 @@
+package io.dsub.discogs.batch.job.reader.mapper;
+
+import io.dsub.discogs.batch.domain.master.MasterSubItemsXML;
+import io.dsub.discogs.batch.domain.master.MasterSubItemsXML.MasterArtistXML;
+import io.dsub.discogs.batch.domain.master.MasterSubItemsXML.MasterVideoXML;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class MasterSubItemsXMLMapper extends AbstractFragmentMapper<MasterSubItemsXML> {
+
+  @Override
+  protected MasterSubItemsXML create(XMLStreamReader reader) {
+    MasterSubItemsXML item = new MasterSubItemsXML();
+    item.setId(integerAttribute(reader, "id"));
+    return item;
+  }
+
+  @Override
+  protected void readChild(XMLStreamReader reader, String name, MasterSubItemsXML item)
+      throws XMLStreamException {
+    switch (name) {
+      case "artists" -> item.setMasterArtists(
+          list(reader, "artist", MasterSubItemsXMLMapper::artist));
+      case "genres" -> item.setGenres(internedTexts(reader, "genre"));
+      case "styles" -> item.setStyles(internedTexts(reader, "style"));
+      case "videos" -> item.setMasterVideos(list(reader, "video", MasterSubItemsXMLMapper::video));
+      default -> skip(reader);
+    }
+  }
+
+  private static MasterArtistXML artist(XMLStreamReader reader) throws XMLStreamException {
+    MasterArtistXML artist = new MasterArtistXML();
+    while (nextChild(reader)) {
+      if (reader.getLocalName().equals("id")) {
+        artist.setArtistId(integer(reader));
+      } else {
+        skip(reader);
+      }
+    }
+    return artist;
+  }
+
+  private static MasterVideoXML video(XMLStreamReader reader) throws XMLStreamException {
+    MasterVideoXML video = new MasterVideoXML();
+    video.setUrl(attribute(reader, "src"));
+    while (nextChild(reader)) {
+      switch (reader.getLocalName()) {
+        case "title" -> video.setTitle(text(reader));
+        case "description" -> video.setDescription(text(reader));
+        default -> skip(reader);
+      }
+    }
+    return video;
+  }
+}
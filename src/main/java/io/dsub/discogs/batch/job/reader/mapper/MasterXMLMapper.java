@@ -0,0 +1,29 @@
+package io.dsub.discogs.batch.job.reader.mapper;
+
+import io.dsub.discogs.batch.domain.master.MasterXML;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class MasterXMLMapper extends AbstractFragmentMapper<MasterXML> {
+
+  @Override
+  protected MasterXML create(XMLStreamReader reader) {
+    MasterXML item = new MasterXML();
+    item.setId(integerAttribute(reader, "id"));
+    return item;
+  }
+
+  @Override
+  protected void readChild(XMLStreamReader reader, String name, MasterXML item)
+      throws XMLStreamException {
+    switch (name) {
+      case "year" -> item.setYear(toShort(text(reader)));
+      case "title" -> item.setTitle(text(reader));
+      case "main_release" -> item.setMainReleaseId(integer(reader));
+      case "data_quality" -> item.setDataQuality(internedText(reader));
+      case "genres" -> item.setGenres(internedTexts(reader, "genre"));
+      case "styles" -> item.setStyles(internedTexts(reader, "style"));
+      default -> skip(reader);
+    }
+  }
+}
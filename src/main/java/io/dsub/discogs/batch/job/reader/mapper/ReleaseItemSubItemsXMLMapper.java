@@ -0,0 +1,148 @@
+package io.dsub.discogs.batch.job.reader.mapper;
+
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML.LabelItemRelease;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML.ReleaseAlbumArtist;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML.ReleaseCreditedArtist;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML.ReleaseFormat;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML.ReleaseIdentifier;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML.ReleaseTrack;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML.ReleaseVideo;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML.ReleaseWork;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class ReleaseItemSubItemsXMLMapper extends AbstractFragmentMapper<ReleaseItemSubItemsXML> {
+
+  @Override
+  protected ReleaseItemSubItemsXML create(XMLStreamReader reader) {
+    ReleaseItemSubItemsXML item = new ReleaseItemSubItemsXML();
+    item.setId(integerAttribute(reader, "id"));
+    return item;
+  }
+
+  @Override
+  protected void readChild(XMLStreamReader reader, String name, ReleaseItemSubItemsXML item)
+      throws XMLStreamException {
+    switch (name) {
+      case "artists" -> item.setReleaseAlbumArtists(
+          list(reader, "artist", ReleaseItemSubItemsXMLMapper::albumArtist));
+      case "extraartists" -> item.setReleaseCreditedArtists(
+          list(reader, "artist", ReleaseItemSubItemsXMLMapper::creditedArtist));
+      case "labels" -> item.setLabelReleaseLabels(
+          list(reader, "label", ReleaseItemSubItemsXMLMapper::label));
+      case "formats" -> item.setReleaseFormats(
+          list(reader, "format", ReleaseItemSubItemsXMLMapper::format));
+      case "tracklist" -> item.setReleaseTracks(
+          list(reader, "track", ReleaseItemSubItemsXMLMapper::track));
+      case "identifiers" -> item.setReleaseIdentifiers(
+          list(reader, "identifier", ReleaseItemSubItemsXMLMapper::identifier));
+      case "companies" -> item.setCompanies(
+          list(reader, "company", ReleaseItemSubItemsXMLMapper::work));
+      case "videos" -> item.setReleaseVideos(
+          list(reader, "video", ReleaseItemSubItemsXMLMapper::video));
+      case "genres" -> item.setGenres(internedTexts(reader, "genre"));
+      case "styles" -> item.setStyles(internedTexts(reader, "style"));
+      default -> skip(reader);
+    }
+  }
+
+  private static ReleaseAlbumArtist albumArtist(XMLStreamReader reader)
+      throws XMLStreamException {
+    ReleaseAlbumArtist artist = new ReleaseAlbumArtist();
+    while (nextChild(reader)) {
+      switch (reader.getLocalName()) {
+        case "id" -> artist.setArtistId(integer(reader));
+        case "name" -> artist.setName(text(reader));
+        default -> skip(reader);
+      }
+    }
+    return artist;
+  }
+
+  private static ReleaseCreditedArtist creditedArtist(XMLStreamReader reader)
+      throws XMLStreamException {
+    ReleaseCreditedArtist artist = new ReleaseCreditedArtist();
+    while (nextChild(reader)) {
+      switch (reader.getLocalName()) {
+        case "id" -> artist.setArtistId(integer(reader));
+        case "name" -> artist.setName(text(reader));
+        case "role" -> artist.setRole(internedText(reader));
+        default -> skip(reader);
+      }
+    }
+    return artist;
+  }
+
+  private static LabelItemRelease label(XMLStreamReader reader) throws XMLStreamException {
+    LabelItemRelease label = new LabelItemRelease();
+    label.setCategoryNotation(attribute(reader, "catno"));
+    label.setLabelId(integerAttribute(reader, "id"));
+    label.setLabelName(attribute(reader, "name"));
+    skip(reader);
+    return label;
+  }
+
+  private static ReleaseFormat format(XMLStreamReader reader) throws XMLStreamException {
+    ReleaseFormat format = new ReleaseFormat();
+    format.setName(internedAttribute(reader, "name"));
+    format.setQuantity(integerAttribute(reader, "qty"));
+    format.setText(attribute(reader, "text"));
+    while (nextChild(reader)) {
+      if (reader.getLocalName().equals("descriptions")) {
+        format.setDescriptions(internedTexts(reader, "description"));
+      } else {
+        skip(reader);
+      }
+    }
+    return format;
+  }
+
+  private static ReleaseTrack track(XMLStreamReader reader) throws XMLStreamException {
+    ReleaseTrack track = new ReleaseTrack();
+    while (nextChild(reader)) {
+      switch (reader.getLocalName()) {
+        case "position" -> track.setPosition(text(reader));
+        case "title" -> track.setTitle(text(reader));
+        case "duration" -> track.setDuration(text(reader));
+        default -> skip(reader);
+      }
+    }
+    return track;
+  }
+
+  private static ReleaseIdentifier identifier(XMLStreamReader reader)
+      throws XMLStreamException {
+    ReleaseIdentifier identifier = new ReleaseIdentifier();
+    identifier.setType(internedAttribute(reader, "type"));
+    identifier.setDescription(attribute(reader, "description"));
+    identifier.setValue(attribute(reader, "value"));
+    skip(reader);
+    return identifier;
+  }
+
+  private static ReleaseWork work(XMLStreamReader reader) throws XMLStreamException {
+    ReleaseWork work = new ReleaseWork();
+    while (nextChild(reader)) {
+      switch (reader.getLocalName()) {
+        case "id" -> work.setId(integer(reader));
+        case "entity_type_name" -> work.setWork(text(reader));
+        default -> skip(reader);
+      }
+    }
+    return work;
+  }
+
+  private static ReleaseVideo video(XMLStreamReader reader) throws XMLStreamException {
+    ReleaseVideo video = new ReleaseVideo();
+    video.setUrl(attribute(reader, "src"));
+    while (nextChild(reader)) {
+      switch (reader.getLocalName()) {
+        case "title" -> video.setTitle(text(reader));
+        case "description" -> video.setDescription(text(reader));
+        default -> skip(reader);
+      }
+    }
+    return video;
+  }
+}
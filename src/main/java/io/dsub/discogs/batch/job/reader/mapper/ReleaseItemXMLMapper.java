@@ -0,0 +1,40 @@
+package io.dsub.discogs.batch.job.reader.mapper;
+
+import io.dsub.discogs.batch.domain.release.ReleaseItemXML;
+import io.dsub.discogs.batch.domain.release.ReleaseItemXML.Master;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class ReleaseItemXMLMapper extends AbstractFragmentMapper<ReleaseItemXML> {
+
+  @Override
+  protected ReleaseItemXML create(XMLStreamReader reader) {
+    ReleaseItemXML item = new ReleaseItemXML();
+    item.setId(integerAttribute(reader, "id"));
+    item.setStatus(internedAttribute(reader, "status"));
+    return item;
+  }
+
+  @Override
+  protected void readChild(XMLStreamReader reader, String name, ReleaseItemXML item)
+      throws XMLStreamException {
+    switch (name) {
+      case "title" -> item.setTitle(text(reader));
+      case "country" -> item.setCountry(internedText(reader));
+      case "notes" -> item.setNotes(text(reader));
+      case "data_quality" -> item.setDataQuality(internedText(reader));
+      case "released" -> item.setReleaseDate(text(reader));
+      case "master_id" -> item.setMaster(master(reader));
+      case "genres" -> item.setGenres(internedTexts(reader, "genre"));
+      case "styles" -> item.setStyles(internedTexts(reader, "style"));
+      default -> skip(reader);
+    }
+  }
+
+  private static Master master(XMLStreamReader reader) throws XMLStreamException {
+    Master master = new Master();
+    master.setMaster(toBoolean(attribute(reader, "is_main_release")));
+    master.setMasterId(integer(reader));
+    return master;
+  }
+}
@@ -0,0 +1,178 @@
+package io.dsub.discogs.batch.job.registry;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An {@link IdBitSet} on the heap, which grows by fixed size pages of {@link AtomicLongArray}. A
+ * page is allocated on the first set within its range, so the memory stays at about {@code
+ * maxIndex / 8} bytes for dense indices (i.e. entity ids), plus a fixed directory of the pages.
+ *
+ * <p>{@link #get(int)}, {@link #set(int)} and {@link #clear(int)} are lock-free and can be called
+ * concurrently. {@link #flip(int, int)} and {@link #clear()} are atomic per word only, and should
+ * not be called while the bits are being changed by other threads.
+ */
+public class ConcurrentBitSet implements IdBitSet {
+
+  private static final int PAGE_SHIFT = 16;
+  private static final int WORDS_PER_PAGE = 1 << (PAGE_SHIFT - 6);
+  private static final int WORD_MASK = WORDS_PER_PAGE - 1;
+  private static final int PAGE_COUNT = 1 << (31 - PAGE_SHIFT);
+  private static final long PAGE_BYTES = WORDS_PER_PAGE * (long) Long.BYTES;
+
+  private final AtomicReferenceArray<AtomicLongArray> pages =
+      new AtomicReferenceArray<>(PAGE_COUNT);
+
+  @Override
+  public boolean get(int index) {
+    if (index < 0) {
+      return false;
+    }
+    AtomicLongArray page = pages.get(index >>> PAGE_SHIFT);
+    return page != null && (page.get((index >>> 6) & WORD_MASK) & (1L << index)) != 0;
+  }
+
+  @Override
+  public boolean set(int index) {
+    checkIndex(index);
+    AtomicLongArray page = pageOf(index >>> PAGE_SHIFT);
+    int word = (index >>> 6) & WORD_MASK;
+    long mask = 1L << index;
+    long current;
+    do {
+      current = page.get(word);
+      if ((current & mask) != 0) {
+        return false;
+      }
+    } while (!page.compareAndSet(word, current, current | mask));
+    return true;
+  }
+
+  @Override
+  public boolean clear(int index) {
+    if (index < 0) {
+      return false;
+    }
+    AtomicLongArray page = pages.get(index >>> PAGE_SHIFT);
+    if (page == null) {
+      return false;
+    }
+    int word = (index >>> 6) & WORD_MASK;
+    long mask = 1L << index;
+    long current;
+    do {
+      current = page.get(word);
+      if ((current & mask) == 0) {
+        return false;
+      }
+    } while (!page.compareAndSet(word, current, current & ~mask));
+    return true;
+  }
+
+  @Override
+  public long getWord(int wordIndex) {
+    checkIndex(wordIndex);
+    AtomicLongArray page = pages.get(wordIndex >>> (PAGE_SHIFT - 6));
+    return page == null ? 0 : page.get(wordIndex & WORD_MASK);
+  }
+
+  @Override
+  public void orWord(int wordIndex, long bits) {
+    checkIndex(wordIndex);
+    if (bits == 0) {
+      return;
+    }
+    AtomicLongArray page = pageOf(wordIndex >>> (PAGE_SHIFT - 6));
+    int offset = wordIndex & WORD_MASK;
+    long current;
+    do {
+      current = page.get(offset);
+    } while (!page.compareAndSet(offset, current, current | bits));
+  }
+
+  @Override
+  public void flip(int fromIndex, int toIndex) {
+    checkIndex(fromIndex);
+    if (toIndex <= fromIndex) {
+      return;
+    }
+    int last = toIndex - 1;
+    for (int word = fromIndex >>> 6; word <= last >>> 6; word++) {
+      long mask = -1L;
+      if (word == fromIndex >>> 6) {
+        mask &= -1L << fromIndex;
+      }
+      if (word == last >>> 6) {
+        mask &= -1L >>> (63 - (last & 63));
+      }
+      AtomicLongArray page = pageOf(word >>> (PAGE_SHIFT - 6));
+      int offset = word & WORD_MASK;
+      long current;
+      do {
+        current = page.get(offset);
+      } while (!page.compareAndSet(offset, current, current ^ mask));
+    }
+  }
+
+  /**
+   * Allocates every page up to given index, so that no page is allocated while the bits are
+   * being set.
+   *
+   * @param maxIndex largest index expected.
+   */
+  @Override
+  public void ensureCapacity(int maxIndex) {
+    checkIndex(maxIndex);
+    for (int page = 0; page <= maxIndex >>> PAGE_SHIFT; page++) {
+      pageOf(page);
+    }
+  }
+
+  @Override
+  public long cardinality() {
+    long count = 0;
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      AtomicLongArray page = pages.get(i);
+      if (page == null) {
+        continue;
+      }
+      for (int word = 0; word < WORDS_PER_PAGE; word++) {
+        count += Long.bitCount(page.get(word));
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public long allocatedBytes() {
+    long count = 0;
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      if (pages.get(i) != null) {
+        count++;
+      }
+    }
+    return count * PAGE_BYTES;
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      pages.set(i, null);
+    }
+  }
+
+  private AtomicLongArray pageOf(int pageIndex) {
+    AtomicLongArray page = pages.get(pageIndex);
+    if (page != null) {
+      return page;
+    }
+    AtomicLongArray created = new AtomicLongArray(WORDS_PER_PAGE);
+    return pages.compareAndSet(pageIndex, null, created) ? created : pages.get(pageIndex);
+  }
+
+  private static void checkIndex(int index) {
+    if (index < 0) {
+      throw new IndexOutOfBoundsException("index must not be negative: " + index);
+    }
+  }
+}
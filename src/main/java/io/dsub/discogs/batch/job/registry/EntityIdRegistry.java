@@ -1,18 +1,46 @@
 package io.dsub.discogs.batch.job.registry;
 
+import io.dsub.discogs.batch.util.StringDictionary;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class EntityIdRegistry {
 
-  private final IdCache artistCache = new IdCache(Type.ARTIST);
-  private final IdCache masterCache = new IdCache(Type.MASTER);
-  private final IdCache labelCache = new IdCache(Type.LABEL);
-  private final IdCache releaseItemCache = new IdCache(Type.LABEL);
-  private final ConcurrentSkipListSet<String> genreSet = new ConcurrentSkipListSet<>();
-  private final ConcurrentSkipListSet<String> styleSet = new ConcurrentSkipListSet<>();
+  private final IdCache artistCache;
+  private final IdCache masterCache;
+  private final IdCache labelCache;
+  private final IdCache releaseItemCache;
+  // genres and styles are kept as the bits of their codes from the dictionary of the names.
+  private final StringDictionary names = new StringDictionary();
+  private final ConcurrentBitSet genreCodes = new ConcurrentBitSet();
+  private final ConcurrentBitSet styleCodes = new ConcurrentBitSet();
+  private final MainReleaseRegistry mainReleases = new MainReleaseRegistry();
+
+  /**
+   * Creates a registry of which the id caches are kept on the heap.
+   */
+  public EntityIdRegistry() {
+    this(type -> new ConcurrentBitSet());
+  }
+
+  /**
+   * Creates a registry of which the id caches are kept by the bit sets from given function (i.e.
+   * {@link MappedBitSet} to keep them off the heap). Genres and styles are always kept on the
+   * heap, as there are only a few hundreds of them.
+   *
+   * @param bitSets function to create the bit set of each id cache.
+   */
+  public EntityIdRegistry(Function<Type, IdBitSet> bitSets) {
+    this.artistCache = new IdCache(Type.ARTIST, bitSets.apply(Type.ARTIST));
+    this.masterCache = new IdCache(Type.MASTER, bitSets.apply(Type.MASTER));
+    this.labelCache = new IdCache(Type.LABEL, bitSets.apply(Type.LABEL));
+    this.releaseItemCache = new IdCache(Type.RELEASE, bitSets.apply(Type.RELEASE));
+  }
 
   public boolean exists(Type type, Integer id) {
     if (id == null || id < 1) {
@@ -22,7 +50,8 @@ public class EntityIdRegistry {
   }
 
   public boolean exists(Type type, String id) {
-    return getStringIdSetByType(type).contains(id);
+    int code = names.codeIfPresent(id);
+    return code >= 0 && getCodesByType(type).get(code);
   }
 
   public void put(Type type, Integer id) {
@@ -33,7 +62,19 @@ public class EntityIdRegistry {
 
   public void put(Type type, String id) {
     if (id != null && !id.isBlank()) {
-      getStringIdSetByType(type).add(id);
+      getCodesByType(type).set(names.codeOf(id));
+    }
+  }
+
+  /**
+   * Allocates the id cache of given type up to given id ahead of time.
+   *
+   * @param type  type of the cache.
+   * @param maxId largest id expected (i.e. from the statistics of the dump).
+   */
+  public void presize(Type type, long maxId) {
+    if (maxId > 0 && maxId <= Integer.MAX_VALUE) {
+      getLongIdCache(type).presize((int) maxId);
     }
   }
 
@@ -47,17 +88,41 @@ public class EntityIdRegistry {
 
   public void clearAll() {
     for (Type t : List.of(Type.ARTIST, Type.LABEL, Type.MASTER, Type.RELEASE)) {
-      getLongIdCache(t).getConcurrentSkipListSet().clear();
+      getLongIdCache(t).clear();
+    }
+    genreCodes.clear();
+    styleCodes.clear();
+    names.clear();
+    mainReleases.clear();
+  }
+
+  /**
+   * @param type {@link Type#GENRE} or {@link Type#STYLE}.
+   * @return sorted snapshot of the names of given type.
+   */
+  public Set<String> getStringIdSetByType(Type type) {
+    ConcurrentBitSet codes = getCodesByType(type);
+    Set<String> set = new TreeSet<>();
+    for (int code = 0; code < names.size(); code++) {
+      if (codes.get(code)) {
+        set.add(names.valueOf(code));
+      }
     }
-    genreSet.clear();
-    styleSet.clear();
+    return Collections.unmodifiableSet(set);
   }
 
-  public ConcurrentSkipListSet<String> getStringIdSetByType(Type type) {
+  private ConcurrentBitSet getCodesByType(Type type) {
     if (type.equals(Type.GENRE)) {
-      return genreSet;
+      return genreCodes;
     }
-    return styleSet;
+    return styleCodes;
+  }
+
+  /**
+   * @return main release ids of the masters inserted during the run.
+   */
+  public MainReleaseRegistry getMainReleases() {
+    return mainReleases;
   }
 
   public IdCache getLongIdCache(Type type) {
@@ -0,0 +1,71 @@
+package io.dsub.discogs.batch.job.registry;
+
+/**
+ * Bits of non-negative ints backing an {@link IdCache}. Implementations decide where the bits are
+ * kept; i.e. {@link ConcurrentBitSet} on the heap, or {@link MappedBitSet} in a memory-mapped
+ * file.
+ *
+ * <p>{@link #get(int)}, {@link #set(int)} and {@link #clear(int)} must be safe to be called
+ * concurrently. {@link #flip(int, int)} and {@link #clear()} need not be atomic as a whole.
+ */
+public interface IdBitSet {
+
+  boolean get(int index);
+
+  /**
+   * Sets the bit of given index.
+   *
+   * @param index index of the bit.
+   * @return true if the bit was not set before.
+   */
+  boolean set(int index);
+
+  /**
+   * Clears the bit of given index.
+   *
+   * @param index index of the bit.
+   * @return true if the bit was set before.
+   */
+  boolean clear(int index);
+
+  /**
+   * @param wordIndex index of the word, which holds the bits from {@code wordIndex * 64}.
+   * @return the word of given index.
+   */
+  long getWord(int wordIndex);
+
+  /**
+   * Sets the bits of given word in addition to the bits already set, atomically.
+   *
+   * @param wordIndex index of the word, which holds the bits from {@code wordIndex * 64}.
+   * @param bits      bits to be set.
+   */
+  void orWord(int wordIndex, long bits);
+
+  /**
+   * Complements the bits within given range.
+   *
+   * @param fromIndex first index of the range.
+   * @param toIndex   index after the last index of the range.
+   */
+  void flip(int fromIndex, int toIndex);
+
+  /**
+   * Prepares the bits up to given index ahead of time, if the implementation benefits from it.
+   *
+   * @param maxIndex largest index expected.
+   */
+  void ensureCapacity(int maxIndex);
+
+  long cardinality();
+
+  /**
+   * @return bytes taken by the bits so far.
+   */
+  long allocatedBytes();
+
+  /**
+   * Clears every bit.
+   */
+  void clear();
+}
@@ -1,105 +1,164 @@
 package io.dsub.discogs.batch.job.registry;
 
-import java.util.Objects;
-import java.util.OptionalInt;
-import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.IntStream;
 import lombok.Getter;
-
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ids of an entity type, kept as bits of an {@link IdBitSet} (a {@link ConcurrentBitSet} unless
+ * given otherwise), so that {@link #exists(Integer)} is a single word lookup and the memory stays
+ * at about {@code maxId / 8} bytes.
+ *
+ * <p>{@link #invert()} keeps the ids as they are, but complements the stored bits up to the
+ * largest id added so far, with a word at a time. The ids added after the inversion are stored
+ * accordingly, whether they fall within the inverted range or not. Negative ids are ignored.
+ */
+@Slf4j
 public class IdCache {
 
   @Getter
   private final EntityIdRegistry.Type type;
-  @Getter
-  private final ConcurrentSkipListSet<Integer> concurrentSkipListSet;
-  private boolean inverted = false;
-  private AtomicInteger lastMax = null;
+  private final IdBitSet bits;
+  private final AtomicInteger lastMax = new AtomicInteger(-1);
+  private volatile boolean inverted = false;
+  private volatile int invertedMax = -1;
 
   public IdCache(EntityIdRegistry.Type type) {
+    this(type, new ConcurrentBitSet());
+  }
+
+  public IdCache(EntityIdRegistry.Type type, IdBitSet bits) {
     this.type = type;
-    this.concurrentSkipListSet = new ConcurrentSkipListSet<>();
+    this.bits = bits;
   }
 
   public boolean exists(Integer item) {
-    if (item == null || lastMax == null) {
-      return false;
-    }
-
-    if (item > lastMax.get()) {
+    if (item == null || item < 0 || item > lastMax.get()) {
       return false;
     }
+    return bits.get(item) != isStoredInverted(item);
+  }
 
-    if (inverted) {
-      return !concurrentSkipListSet.contains(item);
+  public void add(Integer item) {
+    if (item != null) {
+      add(item.intValue());
     }
-    return concurrentSkipListSet.contains(item);
   }
 
-  public void add(Integer item) {
-    if (item == null) {
+  /**
+   * Adds an id without boxing it, i.e. straight from a cursor of ids.
+   *
+   * @param item the id, which is ignored if negative.
+   */
+  public void add(int item) {
+    if (item < 0) {
       return;
     }
-    if (lastMax == null) {
-      lastMax = new AtomicInteger(item);
-    } else if (lastMax.get() < item) {
-      lastMax.set(item);
-    }
-    if (inverted) {
-      return;
+    lastMax.accumulateAndGet(item, Math::max);
+    if (isStoredInverted(item)) {
+      bits.clear(item);
+    } else {
+      bits.set(item);
     }
-    this.concurrentSkipListSet.add(item);
   }
 
-  public boolean isInverted() {
-    return this.inverted;
+  public boolean isEmpty() {
+    return lastMax.get() < 0;
   }
 
-  public void invert() {
-    if (!this.inverted) {
-      doInvertFromNonInverted();
-    } else {
-      doInvertFromInverted();
-    }
-    this.inverted = !inverted;
-    System.gc(); // force gc call for mem clear
+  /**
+   * @return the largest id added, or -1 if none was added.
+   */
+  public int getMaxId() {
+    return lastMax.get();
   }
 
-  private void doInvertFromInverted() {
-    if (lastMax == null || lastMax.get() < 1) {
-      return;
+  /**
+   * @return count of the ids.
+   */
+  public long size() {
+    int max = lastMax.get();
+    long count = 0;
+    for (int word = 0; max >= 0 && word <= max >>> 6; word++) {
+      count += Long.bitCount(getIdWord(word));
     }
-    flip();
+    return count;
   }
 
-  private void doInvertFromNonInverted() {
-    OptionalInt optMax =
-        this.concurrentSkipListSet.stream().filter(Objects::nonNull).mapToInt(num -> num).max();
+  /**
+   * Gets a word of the ids as they are, regardless of the inversion.
+   *
+   * @param word index of the word, which holds the ids from {@code word * 64}.
+   * @return the bits of the ids within the word.
+   */
+  public long getIdWord(int word) {
+    return bits.getWord(word) ^ invertedMaskOf(word);
+  }
 
-    if (optMax.isEmpty()) {
+  /**
+   * Adds the ids of a word at once, i.e. from a snapshot. Only supported while not inverted.
+   *
+   * @param word index of the word, which holds the ids from {@code word * 64}.
+   * @param ids  bits of the ids within the word.
+   */
+  public void addWord(int word, long ids) {
+    if (inverted) {
+      throw new IllegalStateException("cannot add words to an inverted cache");
+    }
+    if (ids == 0) {
       return;
     }
+    lastMax.accumulateAndGet((word << 6) + 63 - Long.numberOfLeadingZeros(ids), Math::max);
+    bits.orWord(word, ids);
+  }
 
-    int max = optMax.getAsInt();
+  public boolean isInverted() {
+    return this.inverted;
+  }
 
-    if (lastMax == null) {
-      lastMax = new AtomicInteger(max);
-    } else if (lastMax.get() < max) {
-      lastMax.set(max);
+  /**
+   * Allocates the bits up to given id ahead of time (i.e. from the max id of a profiled dump).
+   *
+   * @param maxId largest id expected.
+   */
+  public void presize(int maxId) {
+    if (maxId > 0) {
+      bits.ensureCapacity(maxId);
     }
+  }
 
-    flip();
+  public void invert() {
+    if (!this.inverted) {
+      invertedMax = lastMax.get();
+      if (invertedMax >= 0) {
+        bits.flip(0, invertedMax + 1);
+      }
+    } else if (invertedMax >= 0) {
+      bits.flip(0, invertedMax + 1);
+    }
+    this.inverted = !inverted;
+    log.debug(
+        "inverted {} id cache up to {}. {} bytes allocated.",
+        type.name().toLowerCase(),
+        lastMax.get(),
+        bits.allocatedBytes());
   }
 
-  private void flip() {
-    IntStream.range(1, lastMax.get() + 1).forEach(this::flipSingleValue);
+  public void clear() {
+    bits.clear();
+    lastMax.set(-1);
+    invertedMax = -1;
+    inverted = false;
   }
 
-  private void flipSingleValue(int intValue) {
-    if (this.concurrentSkipListSet.contains(intValue)) {
-      this.concurrentSkipListSet.remove(intValue);
-      return;
+  private boolean isStoredInverted(int item) {
+    return inverted && item <= invertedMax;
+  }
+
+  private long invertedMaskOf(int word) {
+    if (!inverted || invertedMax < 0 || word > invertedMax >>> 6) {
+      return 0;
     }
-    this.concurrentSkipListSet.add(intValue);
+    return word < invertedMax >>> 6 ? -1L : -1L >>> (63 - (invertedMax & 63));
   }
 }
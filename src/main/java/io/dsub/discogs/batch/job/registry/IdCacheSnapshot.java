@@ -0,0 +1,135 @@
+package io.dsub.discogs.batch.job.registry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compact snapshot of an {@link IdCache}, so that the next run can restore the ids of a table in
+ * milliseconds instead of selecting every id of the table. A snapshot holds the ids as words of
+ * bits, tagged with the ETag of the dump the ids came from, and a {@link Fingerprint} of the table
+ * at the time of the snapshot. A snapshot is only restored if the fingerprint of the table still
+ * matches.
+ *
+ * <p>Layout: magic, version, type, ETag, fingerprint (count, max id), count of the words, then
+ * the words.
+ */
+@Slf4j
+public final class IdCacheSnapshot {
+
+  public static final String SNAPSHOT_PREPEND = "id-cache-";
+  public static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+  private static final int MAGIC = 0x49444353; // IDCS
+  private static final int VERSION = 1;
+
+  private IdCacheSnapshot() {
+  }
+
+  public static String filenameOf(EntityIdRegistry.Type type) {
+    return SNAPSHOT_PREPEND + type.name().toLowerCase() + SNAPSHOT_SUFFIX;
+  }
+
+  /**
+   * Writes the snapshot of given cache. The file is written aside and then moved, so that a
+   * reader never sees a partial snapshot.
+   *
+   * @param path        path of the snapshot.
+   * @param cache       cache to be written.
+   * @param fingerprint fingerprint of the table the ids of the cache reflect.
+   * @param eTag        ETag of the dump the ids came from. nullable.
+   * @throws IOException if failed to write.
+   */
+  public static void write(Path path, IdCache cache, Fingerprint fingerprint, String eTag)
+      throws IOException {
+    int maxId = cache.getMaxId();
+    int wordCount = maxId < 0 ? 0 : (maxId >>> 6) + 1;
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(cache.getType().name());
+      out.writeUTF(eTag == null ? "" : eTag);
+      out.writeLong(fingerprint.count());
+      out.writeLong(fingerprint.maxId());
+      out.writeInt(wordCount);
+      for (int word = 0; word < wordCount; word++) {
+        out.writeLong(cache.getIdWord(word));
+      }
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Restores the ids of a snapshot into given cache, if the snapshot exists and was taken with
+   * the same fingerprint. The cache is left empty if the snapshot turns out to be broken.
+   *
+   * @param path        path of the snapshot.
+   * @param cache       empty cache to restore the ids into.
+   * @param fingerprint current fingerprint of the table.
+   * @return true if the ids were restored.
+   */
+  public static boolean restore(Path path, IdCache cache, Fingerprint fingerprint) {
+    if (!Files.isRegularFile(path) || !cache.isEmpty()) {
+      return false;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        log.info("ignoring snapshot of unknown format: {}", path);
+        return false;
+      }
+      if (!cache.getType().name().equals(in.readUTF())) {
+        log.info("ignoring snapshot of another type: {}", path);
+        return false;
+      }
+      String eTag = in.readUTF();
+      Fingerprint snapshot = new Fingerprint(in.readLong(), in.readLong());
+      if (!snapshot.equals(fingerprint)) {
+        log.info("{} does not match current table {}. ignoring snapshot...", snapshot, fingerprint);
+        return false;
+      }
+      int wordCount = in.readInt();
+      long count = 0;
+      for (int word = 0; word < wordCount; word++) {
+        long ids = in.readLong();
+        count += Long.bitCount(ids);
+        cache.addWord(word, ids);
+      }
+      if (count != fingerprint.count() || cache.getMaxId() != Math.max(-1, fingerprint.maxId())) {
+        log.warn("snapshot content does not match its fingerprint: {}", path);
+        cache.clear();
+        return false;
+      }
+      log.info("restored {} ids of {} snapshot (eTag: {})", count, path.getFileName(), eTag);
+      return true;
+    } catch (IOException e) {
+      log.warn("failed to restore snapshot: " + path, e);
+      cache.clear();
+      return false;
+    }
+  }
+
+  /**
+   * A cheap fingerprint of the ids of a table.
+   *
+   * @param count count of the rows.
+   * @param maxId largest id, or -1 if the table is empty.
+   */
+  public record Fingerprint(long count, long maxId) {
+
+    /**
+     * @return whether given cache holds the same count and max id as this fingerprint.
+     */
+    public boolean matches(IdCache cache) {
+      return cache.size() == count && cache.getMaxId() == Math.max(-1, maxId);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package io.dsub.discogs.batch.job.registry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Main release id of each master, captured while the masters are inserted, so that the main
+ * releases can be applied once the releases are inserted, without reading the master dump again.
+ *
+ * <p>The ids are kept as a primitive array indexed by the master id, which grows by fixed size
+ * pages of {@link AtomicIntegerArray} as with {@link ConcurrentBitSet}; about 4 bytes per master
+ * id, as the master ids are dense. Zero stands for no main release.
+ *
+ * <p>{@link #put(Integer, Integer)} and {@link #get(int)} are lock-free and can be called concurrently.
+ */
+public class MainReleaseRegistry {
+
+  private static final int PAGE_SHIFT = 16;
+  private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+  private static final int INDEX_MASK = PAGE_SIZE - 1;
+  private static final int PAGE_COUNT = 1 << (31 - PAGE_SHIFT);
+
+  private final AtomicReferenceArray<AtomicIntegerArray> pages =
+      new AtomicReferenceArray<>(PAGE_COUNT);
+  private final AtomicInteger maxMasterId = new AtomicInteger(-1);
+
+  /**
+   * Records the main release of a master. Ignored if either id is not positive.
+   *
+   * @param masterId      id of the master.
+   * @param mainReleaseId id of the main release.
+   */
+  public void put(Integer masterId, Integer mainReleaseId) {
+    if (masterId == null || mainReleaseId == null || masterId < 1 || mainReleaseId < 1) {
+      return;
+    }
+    pageOf(masterId >>> PAGE_SHIFT).set(masterId & INDEX_MASK, mainReleaseId);
+    if (masterId > maxMasterId.get()) {
+      maxMasterId.accumulateAndGet(masterId, Math::max);
+    }
+  }
+
+  /**
+   * @param masterId id of the master.
+   * @return id of the main release, or 0 if none.
+   */
+  public int get(int masterId) {
+    if (masterId < 0) {
+      return 0;
+    }
+    AtomicIntegerArray page = pages.get(masterId >>> PAGE_SHIFT);
+    return page == null ? 0 : page.get(masterId & INDEX_MASK);
+  }
+
+  /**
+   * @param fromMasterId id of the master to start from, inclusive.
+   * @return id of the first master from given id with a main release, or -1 if none.
+   */
+  public int nextMasterId(int fromMasterId) {
+    int max = maxMasterId.get();
+    int masterId = Math.max(0, fromMasterId);
+    while (masterId <= max) {
+      AtomicIntegerArray page = pages.get(masterId >>> PAGE_SHIFT);
+      if (page == null) {
+        // skip to the start of the next page.
+        masterId = ((masterId >>> PAGE_SHIFT) + 1) << PAGE_SHIFT;
+        if (masterId <= 0) {
+          return -1;
+        }
+        continue;
+      }
+      if (page.get(masterId & INDEX_MASK) != 0) {
+        return masterId;
+      }
+      if (masterId == Integer.MAX_VALUE) {
+        return -1;
+      }
+      masterId++;
+    }
+    return -1;
+  }
+
+  public boolean isEmpty() {
+    return maxMasterId.get() < 0;
+  }
+
+  public long size() {
+    long size = 0;
+    for (int masterId = nextMasterId(0); masterId >= 0; masterId = nextMasterId(masterId + 1)) {
+      size++;
+      if (masterId == Integer.MAX_VALUE) {
+        break;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Clears every main release. Should not be called while the ids are being put.
+   */
+  public void clear() {
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      pages.set(i, null);
+    }
+    maxMasterId.set(-1);
+  }
+
+  private AtomicIntegerArray pageOf(int pageIndex) {
+    AtomicIntegerArray page = pages.get(pageIndex);
+    if (page != null) {
+      return page;
+    }
+    AtomicIntegerArray created = new AtomicIntegerArray(PAGE_SIZE);
+    return pages.compareAndSet(pageIndex, null, created) ? created : pages.get(pageIndex);
+  }
+}
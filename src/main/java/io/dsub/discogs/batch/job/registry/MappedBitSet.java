@@ -0,0 +1,197 @@
+package io.dsub.discogs.batch.job.registry;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link IdBitSet} kept in a memory-mapped file instead of the heap, so that the heap usage
+ * stays the same regardless of the largest id. The file is created sparse, as large as the whole
+ * range of ints (256MB), and only the pages of the file being touched take any disk or memory;
+ * their residency is left to the page cache of the OS.
+ *
+ * <p>The words of the file are accessed by a {@link VarHandle} view of the mapped buffer, so that
+ * {@link #set(int)} and {@link #clear(int)} are lock-free as with {@link ConcurrentBitSet}.
+ *
+ * <p>The file is a scratch file of the running process: it is truncated when created, and deleted
+ * on exit.
+ */
+public class MappedBitSet implements IdBitSet {
+
+  public static final long FILE_SIZE = (1L << 31) / Byte.SIZE;
+
+  private static final VarHandle WORDS =
+      MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+  private final MappedByteBuffer buffer;
+  private final AtomicInteger maxWord = new AtomicInteger(-1);
+
+  private MappedBitSet(MappedByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * Creates an empty bit set backed by given file, replacing the file if it exists.
+   *
+   * @param path path of the file.
+   * @return the bit set.
+   * @throws IOException if failed to create or map the file.
+   */
+  public static MappedBitSet create(Path path) throws IOException {
+    Files.deleteIfExists(path);
+    path.toFile().deleteOnExit();
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.setLength(FILE_SIZE);
+      // the mapping stays valid after the channel is closed.
+      return new MappedBitSet(file.getChannel().map(MapMode.READ_WRITE, 0, FILE_SIZE));
+    }
+  }
+
+  @Override
+  public boolean get(int index) {
+    if (index < 0) {
+      return false;
+    }
+    return (word(index >>> 6) & (1L << index)) != 0;
+  }
+
+  @Override
+  public boolean set(int index) {
+    checkIndex(index);
+    int word = index >>> 6;
+    touch(word);
+    long mask = 1L << index;
+    long current;
+    do {
+      current = word(word);
+      if ((current & mask) != 0) {
+        return false;
+      }
+    } while (!WORDS.compareAndSet(buffer, offsetOf(word), current, current | mask));
+    return true;
+  }
+
+  @Override
+  public boolean clear(int index) {
+    if (index < 0) {
+      return false;
+    }
+    int word = index >>> 6;
+    long mask = 1L << index;
+    long current;
+    do {
+      current = word(word);
+      if ((current & mask) == 0) {
+        return false;
+      }
+    } while (!WORDS.compareAndSet(buffer, offsetOf(word), current, current & ~mask));
+    return true;
+  }
+
+  @Override
+  public long getWord(int wordIndex) {
+    checkIndex(wordIndex);
+    return word(wordIndex);
+  }
+
+  @Override
+  public void orWord(int wordIndex, long bits) {
+    checkIndex(wordIndex);
+    if (bits == 0) {
+      return;
+    }
+    touch(wordIndex);
+    long current;
+    do {
+      current = word(wordIndex);
+    } while (!WORDS.compareAndSet(buffer, offsetOf(wordIndex), current, current | bits));
+  }
+
+  @Override
+  public void flip(int fromIndex, int toIndex) {
+    checkIndex(fromIndex);
+    if (toIndex <= fromIndex) {
+      return;
+    }
+    int last = toIndex - 1;
+    touch(last >>> 6);
+    for (int word = fromIndex >>> 6; word <= last >>> 6; word++) {
+      long mask = -1L;
+      if (word == fromIndex >>> 6) {
+        mask &= -1L << fromIndex;
+      }
+      if (word == last >>> 6) {
+        mask &= -1L >>> (63 - (last & 63));
+      }
+      long current;
+      do {
+        current = word(word);
+      } while (!WORDS.compareAndSet(buffer, offsetOf(word), current, current ^ mask));
+    }
+  }
+
+  /**
+   * Does nothing, as the file is already sized for every int. The pages are left to be faulted in
+   * as they are touched.
+   */
+  @Override
+  public void ensureCapacity(int maxIndex) {
+    checkIndex(maxIndex);
+  }
+
+  @Override
+  public long cardinality() {
+    long count = 0;
+    for (int word = 0; word <= maxWord.get(); word++) {
+      count += Long.bitCount(word(word));
+    }
+    return count;
+  }
+
+  /**
+   * @return bytes of the file up to the last word ever changed. The bytes actually resident are
+   * up to the OS.
+   */
+  @Override
+  public long allocatedBytes() {
+    return (maxWord.get() + 1L) * Long.BYTES;
+  }
+
+  @Override
+  public void clear() {
+    for (int word = 0; word <= maxWord.get(); word++) {
+      // reading a page never written does not allocate it, while writing does.
+      if (word(word) != 0) {
+        WORDS.setVolatile(buffer, offsetOf(word), 0L);
+      }
+    }
+    maxWord.set(-1);
+  }
+
+  private long word(int word) {
+    return (long) WORDS.getVolatile(buffer, offsetOf(word));
+  }
+
+  private void touch(int word) {
+    if (word > maxWord.get()) {
+      maxWord.accumulateAndGet(word, Math::max);
+    }
+  }
+
+  private static int offsetOf(int word) {
+    return word << 3;
+  }
+
+  private static void checkIndex(int index) {
+    if (index < 0) {
+      throw new IndexOutOfBoundsException("index must not be negative: " + index);
+    }
+  }
+}
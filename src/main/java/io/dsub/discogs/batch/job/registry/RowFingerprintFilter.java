@@ -0,0 +1,242 @@
+package io.dsub.discogs.batch.job.registry;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fingerprints of the rows written during the run, so that a row already written can be dropped
+ * before it reaches the database again (i.e. the same sub items of a rerun, or the same rows from
+ * another pass), which would otherwise cost an index probe and a lock of {@code ON CONFLICT} for
+ * nothing.
+ *
+ * <p>A fingerprint is a 64-bit hash of the row, and a row is only considered written once its
+ * chunk is committed: the fingerprints accepted by a thread are staged until {@link
+ * #commitStaged()}, or dropped by {@link #discardStaged()} if the chunk is rolled back. The rows
+ * staged by concurrent chunks are not seen by each other, and are left to the database as before.
+ * Rows written apart from the chunk take their fingerprints by {@link #takeStaged()}, to {@link
+ * #commit(Collection)} them once written instead.
+ *
+ * <p>As with any hash, two different rows may share a fingerprint, in which case the latter is
+ * wrongly dropped. With 64 bits, the chance stays negligible for the row counts of the dumps.
+ */
+public class RowFingerprintFilter {
+
+  private static final int SEGMENT_COUNT = 64;
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final Segment[] segments = new Segment[SEGMENT_COUNT];
+  private final ThreadLocal<Set<Long>> staged = ThreadLocal.withInitial(HashSet::new);
+  private final Map<String, LongAdder> suppressedCounts = new ConcurrentHashMap<>();
+
+  public RowFingerprintFilter() {
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      segments[i] = new Segment();
+    }
+  }
+
+  /**
+   * Accepts a row unless the same fingerprint is committed, or staged by the current thread.
+   *
+   * @param name        name of the rows being counted when suppressed (i.e. the table).
+   * @param fingerprint fingerprint of the row.
+   * @return true if the row is to be written.
+   */
+  public boolean accept(String name, long fingerprint) {
+    if (segmentOf(fingerprint).contains(fingerprint) || !staged.get().add(fingerprint)) {
+      suppressedCounts.computeIfAbsent(name, key -> new LongAdder()).increment();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Marks the fingerprints staged by the current thread as written.
+   */
+  public void commitStaged() {
+    Set<Long> fingerprints = staged.get();
+    commit(fingerprints);
+    fingerprints.clear();
+  }
+
+  /**
+   * Takes the fingerprints staged by the current thread, which are no longer committed nor
+   * discarded along with the chunk.
+   *
+   * @return the fingerprints taken.
+   */
+  public Set<Long> takeStaged() {
+    Set<Long> fingerprints = staged.get();
+    staged.set(new HashSet<>());
+    return fingerprints;
+  }
+
+  /**
+   * Marks given fingerprints as written, on any thread.
+   *
+   * @param fingerprints fingerprints of the rows written.
+   */
+  public void commit(Collection<Long> fingerprints) {
+    for (long fingerprint : fingerprints) {
+      segmentOf(fingerprint).add(fingerprint);
+    }
+  }
+
+  /**
+   * Forgets the fingerprints staged by the current thread, as their rows were not written.
+   */
+  public void discardStaged() {
+    staged.get().clear();
+  }
+
+  public long size() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  /**
+   * @return count of the rows suppressed so far, by the name given to {@link #accept(String,
+   * long)}.
+   */
+  public Map<String, Long> getSuppressedCounts() {
+    Map<String, Long> counts = new TreeMap<>();
+    suppressedCounts.forEach((name, count) -> counts.put(name, count.sum()));
+    return Collections.unmodifiableMap(counts);
+  }
+
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+    suppressedCounts.clear();
+  }
+
+  /**
+   * Folds given value into a fingerprint. Strings are hashed by their chars rather than by {@link
+   * String#hashCode()}, so that the fingerprint does not collide as often as 32-bit hashes.
+   *
+   * @param fingerprint fingerprint so far, or {@link #seed(String)}.
+   * @param value       value to be folded. nullable.
+   * @return the fingerprint.
+   */
+  public static long fold(long fingerprint, Object value) {
+    long hash;
+    if (value == null) {
+      hash = 0;
+    } else if (value instanceof CharSequence chars) {
+      hash = FNV_OFFSET;
+      for (int i = 0; i < chars.length(); i++) {
+        hash = (hash ^ chars.charAt(i)) * FNV_PRIME;
+      }
+    } else if (value instanceof Number number) {
+      hash = number.longValue();
+    } else {
+      hash = value.hashCode();
+    }
+    return mix(fingerprint * 31 + mix(hash));
+  }
+
+  /**
+   * @param name name of the rows (i.e. the table), so that the same values of different tables
+   *             do not share a fingerprint.
+   * @return the initial fingerprint of a row.
+   */
+  public static long seed(String name) {
+    return fold(FNV_OFFSET, name);
+  }
+
+  // finalizer of MurmurHash3
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  private Segment segmentOf(long fingerprint) {
+    return segments[(int) (fingerprint >>> 58)];
+  }
+
+  /**
+   * An open addressing set of longs. Zero marks an empty slot, so a fingerprint of zero is kept
+   * by {@link #containsZero} instead.
+   */
+  private static final class Segment {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private long[] slots = new long[INITIAL_CAPACITY];
+    private int size = 0;
+    private boolean containsZero = false;
+
+    synchronized boolean contains(long value) {
+      if (value == 0) {
+        return containsZero;
+      }
+      int mask = slots.length - 1;
+      for (int i = (int) value & mask; slots[i] != 0; i = (i + 1) & mask) {
+        if (slots[i] == value) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    synchronized void add(long value) {
+      if (value == 0) {
+        containsZero = true;
+        return;
+      }
+      if (insert(slots, value)) {
+        size++;
+        if (size * 4L >= slots.length * 3L) {
+          grow();
+        }
+      }
+    }
+
+    synchronized long size() {
+      return size + (containsZero ? 1 : 0);
+    }
+
+    synchronized void clear() {
+      slots = new long[INITIAL_CAPACITY];
+      size = 0;
+      containsZero = false;
+    }
+
+    private void grow() {
+      long[] grown = new long[slots.length << 1];
+      for (long value : slots) {
+        if (value != 0) {
+          insert(grown, value);
+        }
+      }
+      slots = grown;
+    }
+
+    private static boolean insert(long[] slots, long value) {
+      int mask = slots.length - 1;
+      int i = (int) value & mask;
+      while (slots[i] != 0) {
+        if (slots[i] == value) {
+          return false;
+        }
+        i = (i + 1) & mask;
+      }
+      slots[i] = value;
+      return true;
+    }
+  }
+}
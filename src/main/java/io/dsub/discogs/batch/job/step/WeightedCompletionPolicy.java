@@ -0,0 +1,64 @@
+package io.dsub.discogs.batch.job.step;
+
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+
+/**
+ * A chunk completion policy that completes a chunk either by the count of items, or by their total
+ * weight, whichever comes first. The weight of each item is reported by the reader on the same
+ * thread as it is read (see {@link io.dsub.discogs.batch.job.reader.SplittingItemReader}), hence
+ * the weight is tracked per thread, as each chunk is read by a single worker.
+ */
+public class WeightedCompletionPolicy extends SimpleCompletionPolicy {
+
+  private final long maxWeight;
+  private final ThreadLocal<long[]> weight = ThreadLocal.withInitial(() -> new long[1]);
+
+  /**
+   * Constructor of the policy.
+   *
+   * @param maxCount  maximum count of items in a chunk.
+   * @param maxWeight total weight of items to complete a chunk.
+   */
+  public WeightedCompletionPolicy(int maxCount, long maxWeight) {
+    super(maxCount);
+    if (maxWeight < 1) {
+      throw new IllegalArgumentException("maxWeight must be greater than zero");
+    }
+    this.maxWeight = maxWeight;
+  }
+
+  /**
+   * Adds the weight of an item read by the calling thread to its current chunk.
+   *
+   * @param itemWeight weight of the item.
+   */
+  public void add(long itemWeight) {
+    weight.get()[0] += itemWeight;
+  }
+
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+
+  @Override
+  public RepeatContext start(RepeatContext context) {
+    weight.get()[0] = 0;
+    return super.start(context);
+  }
+
+  @Override
+  public boolean isComplete(RepeatContext context, RepeatStatus result) {
+    return super.isComplete(context, result) || isHeavy();
+  }
+
+  @Override
+  public boolean isComplete(RepeatContext context) {
+    return super.isComplete(context) || isHeavy();
+  }
+
+  private boolean isHeavy() {
+    return weight.get()[0] >= maxWeight;
+  }
+}
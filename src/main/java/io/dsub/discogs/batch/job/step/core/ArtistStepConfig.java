@@ -6,12 +6,21 @@ import io.dsub.discogs.batch.dump.DiscogsDump;
 import io.dsub.discogs.batch.exception.DumpNotFoundException;
 import io.dsub.discogs.batch.exception.InvalidArgumentException;
 import io.dsub.discogs.batch.job.listener.CacheInversionStepExecutionListener;
+import io.dsub.discogs.batch.job.listener.ChunkBindingListener;
+import io.dsub.discogs.batch.job.listener.DeadlockRetryCountingListener;
+import io.dsub.discogs.batch.job.listener.DumpProgressChunkListener;
+import io.dsub.discogs.batch.job.listener.IdCachePresizingStepExecutionListener;
 import io.dsub.discogs.batch.job.listener.IdCachingItemProcessListener;
 import io.dsub.discogs.batch.job.listener.ItemCountingItemProcessListener;
+import io.dsub.discogs.batch.job.listener.RowFingerprintChunkListener;
 import io.dsub.discogs.batch.job.listener.StopWatchStepExecutionListener;
 import io.dsub.discogs.batch.job.listener.StringNormalizingItemReadListener;
+import io.dsub.discogs.batch.job.reader.DiscogsDumpItemReaderBuilder;
+import io.dsub.discogs.batch.job.registry.EntityIdRegistry;
 import io.dsub.discogs.batch.job.step.AbstractStepConfig;
 import io.dsub.discogs.batch.job.tasklet.FileFetchTasklet;
+import io.dsub.discogs.batch.job.tasklet.FragmentStoreTasklet;
+import io.dsub.discogs.batch.job.writer.WriteBehindStage;
 import io.dsub.discogs.batch.util.FileUtil;
 import io.dsub.discogs.jooq.tables.records.ArtistRecord;
 import java.util.Collection;
@@ -19,6 +28,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jooq.UpdatableRecord;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.job.builder.FlowBuilder;
@@ -27,12 +37,13 @@ import org.springframework.batch.core.job.flow.FlowStep;
 import org.springframework.batch.core.job.flow.support.SimpleFlow;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
-import org.springframework.batch.item.support.SynchronizedItemStreamReader;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.retry.RetryListener;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Slf4j
@@ -45,10 +56,11 @@ public class ArtistStepConfig extends AbstractStepConfig {
   public static final String ARTIST_CORE_INSERTION_STEP = "artist core insertion step";
   public static final String ARTIST_SUB_ITEMS_INSERTION_STEP = "artist sub items insertion step";
   public static final String ARTIST_FILE_FETCH_STEP = "artist file fetch step";
+  public static final String ARTIST_FRAGMENT_STORE_STEP = "artist fragment store step";
   public static final String ARTIST_FILE_CLEAR_STEP = "artist file clear step";
 
-  private final SynchronizedItemStreamReader<ArtistXML> artistStreamReader;
-  private final SynchronizedItemStreamReader<ArtistSubItemsXML> artistSubItemsStreamReader;
+  private final ItemStreamReader<ArtistXML> artistStreamReader;
+  private final ItemStreamReader<ArtistSubItemsXML> artistSubItemsStreamReader;
   private final ItemProcessor<ArtistSubItemsXML, Collection<UpdatableRecord<?>>>
       artistSubItemsProcessor;
   private final ItemProcessor<ArtistXML, ArtistRecord> artistCoreProcessor;
@@ -59,12 +71,18 @@ public class ArtistStepConfig extends AbstractStepConfig {
   private final ThreadPoolTaskExecutor taskExecutor;
   private final JobRepository jobRepository;
   private final FileUtil fileUtil;
+  private final DiscogsDumpItemReaderBuilder readerBuilder;
+  private final EntityIdRegistry entityIdRegistry;
 
   private final StopWatchStepExecutionListener stopWatchStepExecutionListener;
+  private final ChunkBindingListener chunkBindingListener;
+  private final DeadlockRetryCountingListener deadlockRetryCountingListener;
+  private final WriteBehindStage writeBehindStage;
   private final CacheInversionStepExecutionListener cacheInversionStepExecutionListener;
   private final StringNormalizingItemReadListener stringNormalizingItemReadListener;
   private final IdCachingItemProcessListener idCachingItemProcessListener;
   private final ItemCountingItemProcessListener itemCountingItemProcessListener;
+  private final RowFingerprintChunkListener rowFingerprintChunkListener;
 
   @Bean
   @JobScope
@@ -87,6 +105,14 @@ public class ArtistStepConfig extends AbstractStepConfig {
             .end()
             .from(artistFileFetchStep())
             .on(ANY)
+            .to(artistFragmentStoreStep())
+
+            // from fragment store
+            .from(artistFragmentStoreStep())
+            .on(FAILED)
+            .end()
+            .from(artistFragmentStoreStep())
+            .on(ANY)
             .to(artistCoreInsertionStep(null))
 
             // from core insert
@@ -125,11 +151,19 @@ public class ArtistStepConfig extends AbstractStepConfig {
         .faultTolerant()
         .retryLimit(100)
         .retry(DeadlockLoserDataAccessException.class)
+        .listener((StepExecutionListener) deadlockRetryCountingListener)
+        .listener(writeBehindStage)
+        .listener((RetryListener) deadlockRetryCountingListener)
         .listener(stopWatchStepExecutionListener)
+        .listener(chunkBindingListener)
         .listener(stringNormalizingItemReadListener)
         .listener(idCachingItemProcessListener)
         .listener(itemCountingItemProcessListener)
         .listener(cacheInversionStepExecutionListener)
+        .listener(new DumpProgressChunkListener(artistDump, fileUtil))
+        .listener(
+            new IdCachePresizingStepExecutionListener(
+                entityIdRegistry, EntityIdRegistry.Type.ARTIST, artistDump, fileUtil))
         .taskExecutor(taskExecutor)
         .throttleLimit(taskExecutor.getMaxPoolSize())
         .allowStartIfComplete(true)
@@ -147,9 +181,14 @@ public class ArtistStepConfig extends AbstractStepConfig {
         .faultTolerant()
         .retryLimit(100)
         .retry(DeadlockLoserDataAccessException.class)
+        .listener((StepExecutionListener) deadlockRetryCountingListener)
+        .listener(writeBehindStage)
+        .listener((RetryListener) deadlockRetryCountingListener)
         .listener(stringNormalizingItemReadListener)
         .listener(stopWatchStepExecutionListener)
+        .listener(chunkBindingListener)
         .listener(itemCountingItemProcessListener)
+        .listener(rowFingerprintChunkListener)
         .taskExecutor(taskExecutor)
         .throttleLimit(taskExecutor.getMaxPoolSize())
         .allowStartIfComplete(true)
@@ -159,8 +198,22 @@ public class ArtistStepConfig extends AbstractStepConfig {
   @Bean
   @JobScope
   public Step artistFileFetchStep() throws DumpNotFoundException {
+    FileFetchTasklet fileFetchTasklet = new FileFetchTasklet(artistDump, fileUtil);
+    fileFetchTasklet.setTee(readerBuilder.isTee());
     return sbf.get(ARTIST_FILE_FETCH_STEP)
-        .tasklet(new FileFetchTasklet(artistDump, fileUtil))
+        .tasklet(fileFetchTasklet)
+        .build();
+  }
+
+  @Bean
+  @JobScope
+  public Step artistFragmentStoreStep() {
+    FragmentStoreTasklet fragmentStoreTasklet =
+        new FragmentStoreTasklet(
+            artistDump, fileUtil, readerBuilder.isStore(), readerBuilder.isPipelined());
+    fragmentStoreTasklet.setProfile(readerBuilder.isProfile());
+    return sbf.get(ARTIST_FRAGMENT_STORE_STEP)
+        .tasklet(fragmentStoreTasklet)
         .build();
   }
 }
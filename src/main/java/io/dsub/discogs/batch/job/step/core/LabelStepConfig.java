@@ -6,12 +6,21 @@ import io.dsub.discogs.batch.dump.DiscogsDump;
 import io.dsub.discogs.batch.exception.DumpNotFoundException;
 import io.dsub.discogs.batch.exception.InvalidArgumentException;
 import io.dsub.discogs.batch.job.listener.CacheInversionStepExecutionListener;
+import io.dsub.discogs.batch.job.listener.ChunkBindingListener;
+import io.dsub.discogs.batch.job.listener.DeadlockRetryCountingListener;
+import io.dsub.discogs.batch.job.listener.DumpProgressChunkListener;
+import io.dsub.discogs.batch.job.listener.IdCachePresizingStepExecutionListener;
 import io.dsub.discogs.batch.job.listener.IdCachingItemProcessListener;
 import io.dsub.discogs.batch.job.listener.ItemCountingItemProcessListener;
+import io.dsub.discogs.batch.job.listener.RowFingerprintChunkListener;
 import io.dsub.discogs.batch.job.listener.StopWatchStepExecutionListener;
 import io.dsub.discogs.batch.job.listener.StringNormalizingItemReadListener;
+import io.dsub.discogs.batch.job.reader.DiscogsDumpItemReaderBuilder;
+import io.dsub.discogs.batch.job.registry.EntityIdRegistry;
 import io.dsub.discogs.batch.job.step.AbstractStepConfig;
 import io.dsub.discogs.batch.job.tasklet.FileFetchTasklet;
+import io.dsub.discogs.batch.job.tasklet.FragmentStoreTasklet;
+import io.dsub.discogs.batch.job.writer.WriteBehindStage;
 import io.dsub.discogs.batch.util.FileUtil;
 import io.dsub.discogs.jooq.tables.records.LabelRecord;
 import java.util.Collection;
@@ -19,6 +28,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jooq.UpdatableRecord;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.job.builder.FlowBuilder;
@@ -27,12 +37,13 @@ import org.springframework.batch.core.job.flow.FlowStep;
 import org.springframework.batch.core.job.flow.support.SimpleFlow;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
-import org.springframework.batch.item.support.SynchronizedItemStreamReader;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.retry.RetryListener;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Slf4j
@@ -45,10 +56,11 @@ public class LabelStepConfig extends AbstractStepConfig {
   public static final String LABEL_CORE_INSERTION_STEP = "label core insertion step";
   public static final String LABEL_SUB_ITEMS_INSERTION_STEP = "label sub items insertion step";
   public static final String LABEL_FILE_FETCH_STEP = "label file fetch step";
+  public static final String LABEL_FRAGMENT_STORE_STEP = "label fragment store step";
   public static final String LABEL_FILE_CLEAR_STEP = "label file clear step";
 
-  private final SynchronizedItemStreamReader<LabelXML> labelStreamReader;
-  private final SynchronizedItemStreamReader<LabelSubItemsXML> labelSubItemsStreamReader;
+  private final ItemStreamReader<LabelXML> labelStreamReader;
+  private final ItemStreamReader<LabelSubItemsXML> labelSubItemsStreamReader;
 
   private final ItemProcessor<LabelXML, LabelRecord> labelCoreProcessor;
   private final ItemProcessor<LabelSubItemsXML, Collection<UpdatableRecord<?>>>
@@ -61,12 +73,18 @@ public class LabelStepConfig extends AbstractStepConfig {
   private final ThreadPoolTaskExecutor taskExecutor;
   private final JobRepository jobRepository;
   private final FileUtil fileUtil;
+  private final DiscogsDumpItemReaderBuilder readerBuilder;
+  private final EntityIdRegistry entityIdRegistry;
 
   private final StopWatchStepExecutionListener stopWatchStepExecutionListener;
+  private final ChunkBindingListener chunkBindingListener;
+  private final DeadlockRetryCountingListener deadlockRetryCountingListener;
+  private final WriteBehindStage writeBehindStage;
   private final CacheInversionStepExecutionListener cacheInversionStepExecutionListener;
   private final StringNormalizingItemReadListener stringNormalizingItemReadListener;
   private final IdCachingItemProcessListener idCachingItemProcessListener;
   private final ItemCountingItemProcessListener itemCountingItemProcessListener;
+  private final RowFingerprintChunkListener rowFingerprintChunkListener;
 
   @Bean
   @JobScope
@@ -89,6 +107,14 @@ public class LabelStepConfig extends AbstractStepConfig {
             .end()
             .from(labelFileFetchStep())
             .on(ANY)
+            .to(labelFragmentStoreStep())
+
+            // from fragment store
+            .from(labelFragmentStoreStep())
+            .on(FAILED)
+            .end()
+            .from(labelFragmentStoreStep())
+            .on(ANY)
             .to(labelCoreInsertionStep(null))
 
             // from core item insertion
@@ -127,11 +153,19 @@ public class LabelStepConfig extends AbstractStepConfig {
         .faultTolerant()
         .retryLimit(10)
         .retry(DeadlockLoserDataAccessException.class)
+        .listener((StepExecutionListener) deadlockRetryCountingListener)
+        .listener(writeBehindStage)
+        .listener((RetryListener) deadlockRetryCountingListener)
         .listener(stopWatchStepExecutionListener)
+        .listener(chunkBindingListener)
         .listener(stringNormalizingItemReadListener)
         .listener(idCachingItemProcessListener)
         .listener(itemCountingItemProcessListener)
         .listener(cacheInversionStepExecutionListener)
+        .listener(new DumpProgressChunkListener(labelDump, fileUtil))
+        .listener(
+            new IdCachePresizingStepExecutionListener(
+                entityIdRegistry, EntityIdRegistry.Type.LABEL, labelDump, fileUtil))
         .taskExecutor(taskExecutor)
         .throttleLimit(taskExecutor.getMaxPoolSize())
         .build();
@@ -148,9 +182,14 @@ public class LabelStepConfig extends AbstractStepConfig {
         .faultTolerant()
         .retryLimit(10)
         .retry(DeadlockLoserDataAccessException.class)
+        .listener((StepExecutionListener) deadlockRetryCountingListener)
+        .listener(writeBehindStage)
+        .listener((RetryListener) deadlockRetryCountingListener)
         .listener(stringNormalizingItemReadListener)
         .listener(stopWatchStepExecutionListener)
+        .listener(chunkBindingListener)
         .listener(itemCountingItemProcessListener)
+        .listener(rowFingerprintChunkListener)
         .taskExecutor(taskExecutor)
         .throttleLimit(taskExecutor.getMaxPoolSize())
         .build();
@@ -159,8 +198,22 @@ public class LabelStepConfig extends AbstractStepConfig {
   @Bean
   @JobScope
   public Step labelFileFetchStep() throws DumpNotFoundException {
+    FileFetchTasklet fileFetchTasklet = new FileFetchTasklet(labelDump, fileUtil);
+    fileFetchTasklet.setTee(readerBuilder.isTee());
     return sbf.get(LABEL_FILE_FETCH_STEP)
-        .tasklet(new FileFetchTasklet(labelDump, fileUtil))
+        .tasklet(fileFetchTasklet)
+        .build();
+  }
+
+  @Bean
+  @JobScope
+  public Step labelFragmentStoreStep() {
+    FragmentStoreTasklet fragmentStoreTasklet =
+        new FragmentStoreTasklet(
+            labelDump, fileUtil, readerBuilder.isStore(), readerBuilder.isPipelined());
+    fragmentStoreTasklet.setProfile(readerBuilder.isProfile());
+    return sbf.get(LABEL_FRAGMENT_STORE_STEP)
+        .tasklet(fragmentStoreTasklet)
         .build();
   }
 }
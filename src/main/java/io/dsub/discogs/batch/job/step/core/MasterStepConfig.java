@@ -6,13 +6,22 @@ import io.dsub.discogs.batch.dump.DiscogsDump;
 import io.dsub.discogs.batch.exception.DumpNotFoundException;
 import io.dsub.discogs.batch.exception.InvalidArgumentException;
 import io.dsub.discogs.batch.job.listener.CacheInversionStepExecutionListener;
+import io.dsub.discogs.batch.job.listener.ChunkBindingListener;
+import io.dsub.discogs.batch.job.listener.DeadlockRetryCountingListener;
+import io.dsub.discogs.batch.job.listener.DumpProgressChunkListener;
+import io.dsub.discogs.batch.job.listener.IdCachePresizingStepExecutionListener;
 import io.dsub.discogs.batch.job.listener.IdCachingItemProcessListener;
 import io.dsub.discogs.batch.job.listener.ItemCountingItemProcessListener;
+import io.dsub.discogs.batch.job.listener.RowFingerprintChunkListener;
 import io.dsub.discogs.batch.job.listener.StopWatchStepExecutionListener;
 import io.dsub.discogs.batch.job.listener.StringNormalizingItemReadListener;
+import io.dsub.discogs.batch.job.reader.DiscogsDumpItemReaderBuilder;
+import io.dsub.discogs.batch.job.registry.EntityIdRegistry;
 import io.dsub.discogs.batch.job.step.AbstractStepConfig;
 import io.dsub.discogs.batch.job.tasklet.FileFetchTasklet;
+import io.dsub.discogs.batch.job.tasklet.FragmentStoreTasklet;
 import io.dsub.discogs.batch.job.tasklet.GenreStyleInsertionTasklet;
+import io.dsub.discogs.batch.job.writer.WriteBehindStage;
 import io.dsub.discogs.batch.util.FileUtil;
 import io.dsub.discogs.jooq.tables.records.MasterRecord;
 import java.util.Collection;
@@ -20,6 +29,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jooq.UpdatableRecord;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.job.builder.FlowBuilder;
@@ -28,12 +38,13 @@ import org.springframework.batch.core.job.flow.FlowStep;
 import org.springframework.batch.core.job.flow.support.SimpleFlow;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
-import org.springframework.batch.item.support.SynchronizedItemStreamReader;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.retry.RetryListener;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Slf4j
@@ -46,12 +57,13 @@ public class MasterStepConfig extends AbstractStepConfig {
   public static final String MASTER_CORE_INSERTION_STEP = "master core insertion step";
   public static final String MASTER_SUB_ITEMS_INSERTION_STEP = "master sub items insertion step";
   public static final String MASTER_FILE_FETCH_STEP = "master file fetch step";
+  public static final String MASTER_FRAGMENT_STORE_STEP = "master fragment store step";
   public static final String MASTER_FILE_CLEAR_STEP = "master file clear step";
   public static final String MASTER_GENRE_STYLE_INSERTION_STEP =
       "master genre style insertion step";
 
-  private final SynchronizedItemStreamReader<MasterXML> masterStreamReader;
-  private final SynchronizedItemStreamReader<MasterSubItemsXML> masterSubItemsStreamReader;
+  private final ItemStreamReader<MasterXML> masterStreamReader;
+  private final ItemStreamReader<MasterSubItemsXML> masterSubItemsStreamReader;
   private final ItemProcessor<MasterXML, MasterRecord> masterCoreProcessor;
   private final ItemProcessor<MasterSubItemsXML, Collection<UpdatableRecord<?>>>
       masterSubItemsProcessor;
@@ -63,13 +75,19 @@ public class MasterStepConfig extends AbstractStepConfig {
   private final ThreadPoolTaskExecutor taskExecutor;
   private final JobRepository jobRepository;
   private final FileUtil fileUtil;
+  private final DiscogsDumpItemReaderBuilder readerBuilder;
+  private final EntityIdRegistry entityIdRegistry;
   private final GenreStyleInsertionTasklet genreStyleInsertionTasklet;
 
   private final StopWatchStepExecutionListener stopWatchStepExecutionListener;
+  private final ChunkBindingListener chunkBindingListener;
+  private final DeadlockRetryCountingListener deadlockRetryCountingListener;
+  private final WriteBehindStage writeBehindStage;
   private final CacheInversionStepExecutionListener cacheInversionStepExecutionListener;
   private final StringNormalizingItemReadListener stringNormalizingItemReadListener;
   private final IdCachingItemProcessListener idCachingItemProcessListener;
   private final ItemCountingItemProcessListener itemCountingItemProcessListener;
+  private final RowFingerprintChunkListener rowFingerprintChunkListener;
 
   @Bean
   @JobScope
@@ -93,6 +111,14 @@ public class MasterStepConfig extends AbstractStepConfig {
             .end()
             .from(masterFileFetchStep())
             .on(ANY)
+            .to(masterFragmentStoreStep())
+
+            // from fragment store
+            .from(masterFragmentStoreStep())
+            .on(FAILED)
+            .end()
+            .from(masterFragmentStoreStep())
+            .on(ANY)
             .to(masterCoreInsertionStep(chunkSize))
 
             // from core insertion
@@ -131,8 +157,22 @@ public class MasterStepConfig extends AbstractStepConfig {
   @Bean
   @JobScope
   public Step masterFileFetchStep() throws DumpNotFoundException {
+    FileFetchTasklet fileFetchTasklet = new FileFetchTasklet(masterDump, fileUtil);
+    fileFetchTasklet.setTee(readerBuilder.isTee());
     return sbf.get(MASTER_FILE_FETCH_STEP)
-        .tasklet(new FileFetchTasklet(masterDump, fileUtil))
+        .tasklet(fileFetchTasklet)
+        .build();
+  }
+
+  @Bean
+  @JobScope
+  public Step masterFragmentStoreStep() {
+    FragmentStoreTasklet fragmentStoreTasklet =
+        new FragmentStoreTasklet(
+            masterDump, fileUtil, readerBuilder.isStore(), readerBuilder.isPipelined());
+    fragmentStoreTasklet.setProfile(readerBuilder.isProfile());
+    return sbf.get(MASTER_FRAGMENT_STORE_STEP)
+        .tasklet(fragmentStoreTasklet)
         .build();
   }
 
@@ -147,11 +187,19 @@ public class MasterStepConfig extends AbstractStepConfig {
         .faultTolerant()
         .retryLimit(10)
         .retry(DeadlockLoserDataAccessException.class)
+        .listener((StepExecutionListener) deadlockRetryCountingListener)
+        .listener(writeBehindStage)
+        .listener((RetryListener) deadlockRetryCountingListener)
         .listener(stopWatchStepExecutionListener)
+        .listener(chunkBindingListener)
         .listener(stringNormalizingItemReadListener)
         .listener(idCachingItemProcessListener)
         .listener(itemCountingItemProcessListener)
         .listener(cacheInversionStepExecutionListener)
+        .listener(new DumpProgressChunkListener(masterDump, fileUtil))
+        .listener(
+            new IdCachePresizingStepExecutionListener(
+                entityIdRegistry, EntityIdRegistry.Type.MASTER, masterDump, fileUtil))
         .taskExecutor(taskExecutor)
         .throttleLimit(taskExecutor.getMaxPoolSize())
         .build();
@@ -168,9 +216,14 @@ public class MasterStepConfig extends AbstractStepConfig {
         .faultTolerant()
         .retryLimit(10)
         .retry(DeadlockLoserDataAccessException.class)
+        .listener((StepExecutionListener) deadlockRetryCountingListener)
+        .listener(writeBehindStage)
+        .listener((RetryListener) deadlockRetryCountingListener)
         .listener(stringNormalizingItemReadListener)
         .listener(stopWatchStepExecutionListener)
+        .listener(chunkBindingListener)
         .listener(itemCountingItemProcessListener)
+        .listener(rowFingerprintChunkListener)
         .taskExecutor(taskExecutor)
         .throttleLimit(taskExecutor.getMaxPoolSize())
         .build();
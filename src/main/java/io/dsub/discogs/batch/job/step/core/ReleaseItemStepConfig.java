@@ -8,21 +8,35 @@ import io.dsub.discogs.batch.exception.DumpNotFoundException;
 import io.dsub.discogs.batch.exception.InvalidArgumentException;
 import io.dsub.discogs.batch.job.decider.MasterMainReleaseStepJobExecutionDecider;
 import io.dsub.discogs.batch.job.listener.CacheInversionStepExecutionListener;
+import io.dsub.discogs.batch.job.listener.ChunkBindingListener;
+import io.dsub.discogs.batch.job.listener.DeadlockRetryCountingListener;
+import io.dsub.discogs.batch.job.listener.DumpProgressChunkListener;
+import io.dsub.discogs.batch.job.listener.IdCachePresizingStepExecutionListener;
 import io.dsub.discogs.batch.job.listener.IdCachingItemProcessListener;
 import io.dsub.discogs.batch.job.listener.ItemCountingItemProcessListener;
+import io.dsub.discogs.batch.job.listener.RowFingerprintChunkListener;
 import io.dsub.discogs.batch.job.listener.StopWatchStepExecutionListener;
 import io.dsub.discogs.batch.job.listener.StringNormalizingItemReadListener;
+import io.dsub.discogs.batch.job.reader.DiscogsDumpItemReaderBuilder;
+import io.dsub.discogs.batch.job.reader.ReleaseItemSubItemsSplitter;
+import io.dsub.discogs.batch.job.reader.SplittingItemReader;
+import io.dsub.discogs.batch.job.registry.EntityIdRegistry;
 import io.dsub.discogs.batch.job.step.AbstractStepConfig;
+import io.dsub.discogs.batch.job.step.WeightedCompletionPolicy;
 import io.dsub.discogs.batch.job.tasklet.FileFetchTasklet;
+import io.dsub.discogs.batch.job.tasklet.FragmentStoreTasklet;
 import io.dsub.discogs.batch.job.tasklet.GenreStyleInsertionTasklet;
+import io.dsub.discogs.batch.job.tasklet.MasterMainReleaseUpdateTasklet;
+import io.dsub.discogs.batch.job.writer.WriteBehindStage;
 import io.dsub.discogs.batch.util.FileUtil;
-import io.dsub.discogs.jooq.tables.records.MasterRecord;
 import io.dsub.discogs.jooq.tables.records.ReleaseItemRecord;
 import java.util.Collection;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
 import org.jooq.UpdatableRecord;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.job.builder.FlowBuilder;
@@ -31,12 +45,13 @@ import org.springframework.batch.core.job.flow.FlowStep;
 import org.springframework.batch.core.job.flow.support.SimpleFlow;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
-import org.springframework.batch.item.support.SynchronizedItemStreamReader;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.retry.RetryListener;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Slf4j
@@ -50,23 +65,26 @@ public class ReleaseItemStepConfig extends AbstractStepConfig {
   public static final String RELEASE_ITEM_SUB_ITEMS_INSERTION_STEP =
       "release item sub items insertion step";
   public static final String RELEASE_FILE_FETCH_STEP = "release item file fetch step";
+  public static final String RELEASE_FRAGMENT_STORE_STEP = "release item fragment store step";
   public static final String MASTER_MAIN_RELEASE_UPDATE_STEP = "master main release update step";
   public static final String RELEASE_GENRE_STYLE_INSERTION_STEP =
       "release genre style insertion step";
 
-  private final SynchronizedItemStreamReader<ReleaseItemSubItemsXML>
-      releaseItemSubItemsStreamReader;
-  private final SynchronizedItemStreamReader<ReleaseItemXML> releaseItemStreamReader;
-  private final SynchronizedItemStreamReader<MasterMainReleaseXML> masterMainReleaseStreamReader;
+  // sub items budgeted per release in a chunk of sub items. a release carrying more than a
+  // quarter of the budget of a whole chunk is split.
+  private static final int SUB_ITEMS_PER_RELEASE = 32;
+  private static final int MAX_SPLIT_RATIO = 4;
+
+  private final ItemStreamReader<ReleaseItemSubItemsXML> releaseItemSubItemsStreamReader;
+  private final ItemStreamReader<ReleaseItemXML> releaseItemStreamReader;
+  private final ItemStreamReader<MasterMainReleaseXML> masterMainReleaseStreamReader;
 
   private final ItemProcessor<ReleaseItemSubItemsXML, Collection<UpdatableRecord<?>>>
       releaseItemSubItemsProcessor;
   private final ItemProcessor<ReleaseItemXML, ReleaseItemRecord> releaseItemCoreProcessor;
-  private final ItemProcessor<MasterMainReleaseXML, MasterRecord> masterMainReleaseItemProcessor;
 
   private final ItemWriter<UpdatableRecord<?>> entityItemWriter;
   private final ItemWriter<Collection<UpdatableRecord<?>>> collectionItemWriter;
-  private final ItemWriter<MasterRecord> postgresJooqMasterMainReleaseItemWriter;
 
   private final DiscogsDump releaseItemDump;
 
@@ -74,11 +92,18 @@ public class ReleaseItemStepConfig extends AbstractStepConfig {
   private final ThreadPoolTaskExecutor taskExecutor;
   private final JobRepository jobRepository;
   private final FileUtil fileUtil;
+  private final DiscogsDumpItemReaderBuilder readerBuilder;
+  private final EntityIdRegistry entityIdRegistry;
   private final GenreStyleInsertionTasklet genreStyleInsertionTasklet;
+  private final DSLContext context;
 
   private final StopWatchStepExecutionListener stopWatchStepExecutionListener;
+  private final ChunkBindingListener chunkBindingListener;
+  private final DeadlockRetryCountingListener deadlockRetryCountingListener;
+  private final WriteBehindStage writeBehindStage;
   private final StringNormalizingItemReadListener stringNormalizingItemReadListener;
   private final ItemCountingItemProcessListener itemCountingItemProcessListener;
+  private final RowFingerprintChunkListener rowFingerprintChunkListener;
   private final IdCachingItemProcessListener idCachingItemProcessListener;
   private final CacheInversionStepExecutionListener cacheInversionStepExecutionListener;
   private final MasterMainReleaseStepJobExecutionDecider masterMainReleaseStepJobExecutionDecider;
@@ -104,6 +129,14 @@ public class ReleaseItemStepConfig extends AbstractStepConfig {
             .end()
             .from(releaseFileFetchStep())
             .on(ANY)
+            .to(releaseFragmentStoreStep())
+
+            // from fragment store
+            .from(releaseFragmentStoreStep())
+            .on(FAILED)
+            .end()
+            .from(releaseFragmentStoreStep())
+            .on(ANY)
             .to(releaseItemCoreInsertionStep(chunkSize))
 
             // from core insertion
@@ -136,10 +169,10 @@ public class ReleaseItemStepConfig extends AbstractStepConfig {
             .end()
             .from(masterMainReleaseStepJobExecutionDecider)
             .on(ANY)
-            .to(masterMainReleaseUpdateStep(chunkSize))
+            .to(masterMainReleaseUpdateStep())
 
             // from master main release update step
-            .from(masterMainReleaseUpdateStep(chunkSize))
+            .from(masterMainReleaseUpdateStep())
             .on(ANY)
             .end()
             // conclude
@@ -165,11 +198,19 @@ public class ReleaseItemStepConfig extends AbstractStepConfig {
         .faultTolerant()
         .retryLimit(100)
         .retry(DeadlockLoserDataAccessException.class)
+        .listener((StepExecutionListener) deadlockRetryCountingListener)
+        .listener(writeBehindStage)
+        .listener((RetryListener) deadlockRetryCountingListener)
         .listener(stopWatchStepExecutionListener)
+        .listener(chunkBindingListener)
         .listener(stringNormalizingItemReadListener)
         .listener(itemCountingItemProcessListener)
         .listener(idCachingItemProcessListener)
         .listener(cacheInversionStepExecutionListener)
+        .listener(new DumpProgressChunkListener(releaseItemDump, fileUtil))
+        .listener(
+            new IdCachePresizingStepExecutionListener(
+                entityIdRegistry, EntityIdRegistry.Type.RELEASE, releaseItemDump, fileUtil))
         .taskExecutor(taskExecutor)
         .throttleLimit(taskExecutor.getMaxPoolSize())
         .build();
@@ -178,18 +219,31 @@ public class ReleaseItemStepConfig extends AbstractStepConfig {
   @Bean
   @JobScope
   public Step releaseItemSubItemsInsertionStep(@Value(CHUNK) Integer chunkSize) {
+    // chunks are formed by the count of sub items, as some releases carry thousands of them.
+    WeightedCompletionPolicy completionPolicy =
+        new WeightedCompletionPolicy(chunkSize, (long) chunkSize * SUB_ITEMS_PER_RELEASE);
+    SplittingItemReader<ReleaseItemSubItemsXML> reader =
+        new SplittingItemReader<>(
+            releaseItemSubItemsStreamReader,
+            new ReleaseItemSubItemsSplitter(),
+            completionPolicy,
+            Math.max(2, completionPolicy.getMaxWeight() / MAX_SPLIT_RATIO));
     return sbf.get(RELEASE_ITEM_SUB_ITEMS_INSERTION_STEP)
-        .<ReleaseItemSubItemsXML, Collection<UpdatableRecord<?>>>chunk(
-            Integer.divideUnsigned(chunkSize, 2)) // due to memory consumptions
-        .reader(releaseItemSubItemsStreamReader)
+        .<ReleaseItemSubItemsXML, Collection<UpdatableRecord<?>>>chunk(completionPolicy)
+        .reader(reader)
         .processor(releaseItemSubItemsProcessor)
         .writer(collectionItemWriter)
         .faultTolerant()
         .retryLimit(100)
         .retry(DeadlockLoserDataAccessException.class)
+        .listener((StepExecutionListener) deadlockRetryCountingListener)
+        .listener(writeBehindStage)
+        .listener((RetryListener) deadlockRetryCountingListener)
         .listener(stringNormalizingItemReadListener)
         .listener(stopWatchStepExecutionListener)
+        .listener(chunkBindingListener)
         .listener(itemCountingItemProcessListener)
+        .listener(rowFingerprintChunkListener)
         .taskExecutor(taskExecutor)
         .throttleLimit(taskExecutor.getMaxPoolSize())
         .build();
@@ -198,23 +252,33 @@ public class ReleaseItemStepConfig extends AbstractStepConfig {
   @Bean
   @JobScope
   public Step releaseFileFetchStep() throws DumpNotFoundException {
+    FileFetchTasklet fileFetchTasklet = new FileFetchTasklet(releaseItemDump, fileUtil);
+    fileFetchTasklet.setTee(readerBuilder.isTee());
     return sbf.get(RELEASE_FILE_FETCH_STEP)
-        .tasklet(new FileFetchTasklet(releaseItemDump, fileUtil))
+        .tasklet(fileFetchTasklet)
         .build();
   }
 
   @Bean
   @JobScope
-  public Step masterMainReleaseUpdateStep(@Value(CHUNK) Integer chunkSize) {
+  public Step releaseFragmentStoreStep() {
+    FragmentStoreTasklet fragmentStoreTasklet =
+        new FragmentStoreTasklet(
+            releaseItemDump, fileUtil, readerBuilder.isStore(), readerBuilder.isPipelined());
+    fragmentStoreTasklet.setProfile(readerBuilder.isProfile());
+    return sbf.get(RELEASE_FRAGMENT_STORE_STEP)
+        .tasklet(fragmentStoreTasklet)
+        .build();
+  }
+
+  @Bean
+  @JobScope
+  public Step masterMainReleaseUpdateStep() {
     return sbf.get(MASTER_MAIN_RELEASE_UPDATE_STEP)
-        .<MasterMainReleaseXML, MasterRecord>chunk(chunkSize)
-        .reader(masterMainReleaseStreamReader)
-        .processor(masterMainReleaseItemProcessor)
-        .writer(postgresJooqMasterMainReleaseItemWriter)
+        .tasklet(
+            new MasterMainReleaseUpdateTasklet(
+                entityIdRegistry, context, masterMainReleaseStreamReader, jobRepository))
         .listener(stopWatchStepExecutionListener)
-        .listener(itemCountingItemProcessListener)
-        .taskExecutor(taskExecutor)
-        .throttleLimit(taskExecutor.getMaxPoolSize())
         .build();
   }
 
@@ -1,5 +1,6 @@
 package io.dsub.discogs.batch.job.tasklet;
 
+import io.dsub.discogs.batch.dump.DumpDownload;
 import io.dsub.discogs.batch.exception.FileException;
 import io.dsub.discogs.batch.util.FileUtil;
 import lombok.RequiredArgsConstructor;
@@ -12,7 +13,9 @@ import org.springframework.batch.repeat.RepeatStatus;
 
 /**
  * A basic implementation of {@link Tasklet} to perform file clear. If file exists, this tasklet
- * will try to delete file from path offered by DiscogsDump.
+ * will try to delete file from path offered by DiscogsDump. Dumps still being fetched in
+ * background are waited for, so that neither a file is deleted while being written, nor the job
+ * ends with a partial dump.
  */
 @Slf4j
 @RequiredArgsConstructor
@@ -29,6 +32,12 @@ public class FileClearTasklet implements Tasklet {
    */
   @Override
   public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+    try {
+      DumpDownload.awaitAll();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.error("interrupted while waiting for dumps being fetched.", e);
+    }
     if (fileUtil.isTemporary()) {
       try {
         fileUtil.clearAll();
@@ -1,12 +1,18 @@
 package io.dsub.discogs.batch.job.tasklet;
 
 import io.dsub.discogs.batch.dump.DiscogsDump;
+import io.dsub.discogs.batch.dump.DumpDownload;
 import io.dsub.discogs.batch.exception.FileException;
 import io.dsub.discogs.batch.util.FileUtil;
 import io.dsub.discogs.batch.util.ProgressBarUtil;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import me.tongfei.progressbar.ProgressBar;
 import me.tongfei.progressbar.wrapped.ProgressBarWrappedInputStream;
@@ -21,6 +27,10 @@ import org.springframework.batch.repeat.RepeatStatus;
  * check the size of the file to decide whether to skip the fetch, or to delete the prior one. *
  * then fetch again. Note that each phase will trigger update to {@link
  * StepContribution#setExitStatus(ExitStatus)}.
+ *
+ * <p>If tee is enabled, the fetch is done on a dedicated thread, and the step completes as soon as
+ * the download starts. The readers of the following steps then read the dump while it is being
+ * written, through {@link DumpDownload#follow()}.
  */
 
 // TODO: test!
@@ -28,9 +38,17 @@ import org.springframework.batch.repeat.RepeatStatus;
 @RequiredArgsConstructor
 public class FileFetchTasklet implements Tasklet {
 
+  private static final int BUFFER_SIZE = 64 * 1024;
+
   private final DiscogsDump targetDump;
   private final FileUtil fileUtil;
 
+  /**
+   * Whether to hand over the dump to the following steps while it is still being downloaded.
+   */
+  @Setter
+  private boolean tee = false;
+
   /**
    * Core implementation of {@link Tasklet#execute(StepContribution, ChunkContext)}. Will either
    * fetch and mark as success, or the opposite.
@@ -77,7 +95,11 @@ public class FileFetchTasklet implements Tasklet {
     String message = "fetching " + targetDump.getFileName() + "...";
 
     try {
-      tryCopyFile(contribution, message);
+      if (tee) {
+        startDownload(contribution);
+      } else {
+        tryCopyFile(contribution, message);
+      }
     } catch (FileException e) {
       return concludeFailure(contribution, chunkContext);
     }
@@ -97,6 +119,61 @@ public class FileFetchTasklet implements Tasklet {
     }
   }
 
+  private void startDownload(StepContribution contribution) throws FileException {
+    String filename = targetDump.getFileName();
+    Path filePath = fileUtil.getFilePath(filename, true);
+    FileChannel out;
+    try {
+      // truncate before the step completes, so that no reader sees the prior file.
+      out =
+          FileChannel.open(
+              filePath,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+    } catch (IOException e) {
+      FileException ex = new FileException("failed to fetch " + filename, e);
+      log.error(ex.getMessage(), ex);
+      throw ex;
+    }
+    long size = targetDump.getSize() == null ? 0 : targetDump.getSize();
+    DumpDownload download = DumpDownload.start(filePath, size);
+    Thread downloader = new Thread(() -> download(download, out), "download-" + filename);
+    downloader.start();
+    log.info("fetching {} in background. proceeding...", filename);
+    contribution.setExitStatus(ExitStatus.COMPLETED);
+  }
+
+  /**
+   * Copies the dump to the file, notifying the download after each write so that the followers
+   * only read what has been written.
+   */
+  private void download(DumpDownload download, FileChannel out) {
+    String filename = targetDump.getFileName();
+    try (out;
+        InputStream in = targetDump.getInputStream()) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        ByteBuffer src = ByteBuffer.wrap(buffer, 0, read);
+        while (src.hasRemaining()) {
+          out.write(src);
+        }
+        download.progress(read);
+      }
+      Long size = targetDump.getSize();
+      if (size != null && size > 0 && download.getWritten() != size) {
+        throw new IOException(
+            "expected " + size + " bytes but fetched " + download.getWritten() + " bytes");
+      }
+      download.complete();
+      log.info("fetched {}.", filename);
+    } catch (IOException e) {
+      log.error("failed to fetch " + filename, e);
+      download.fail(e);
+    }
+  }
+
   private RepeatStatus concludeFailure(StepContribution contribution, ChunkContext chunkContext) {
     contribution.setExitStatus(ExitStatus.FAILED);
     chunkContext.setComplete();
@@ -0,0 +1,148 @@
+package io.dsub.discogs.batch.job.tasklet;
+
+import io.dsub.discogs.batch.dump.DiscogsDump;
+import io.dsub.discogs.batch.dump.DumpDownload;
+import io.dsub.discogs.batch.exception.FileException;
+import io.dsub.discogs.batch.job.reader.DumpProfiler;
+import io.dsub.discogs.batch.job.reader.DumpStatistics;
+import io.dsub.discogs.batch.job.reader.DumpStreamUtil;
+import io.dsub.discogs.batch.job.reader.FragmentScanner;
+import io.dsub.discogs.batch.job.reader.FragmentStore;
+import io.dsub.discogs.batch.job.reader.FragmentStoreWriter;
+import io.dsub.discogs.batch.util.FileUtil;
+import io.dsub.discogs.batch.util.ToggleProgressBarConsumer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+
+/**
+ * An implementation of {@link Tasklet} to write a {@link FragmentStore} from a fetched dump, so
+ * that the readers of the following steps (and of the reruns) can skip inflating the dump. If a
+ * complete store already exists, or the store is not enabled, this tasklet does nothing. Neither
+ * does it while the dump is still being downloaded, so that the readers following the download
+ * are not held back until the whole dump is stored.
+ *
+ * <p>If profile is enabled, {@link DumpStatistics} of the dump are written next to it as well,
+ * within the same scan if the store is to be written too. Otherwise the dump is scanned only for
+ * the statistics.
+ *
+ * <p>The store and the statistics follow the same retention as the dump: they will be removed
+ * after the job unless the mount option is specified.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class FragmentStoreTasklet implements Tasklet {
+
+  private static final String TASK_NAME_PREPEND = "STORE ";
+  private static final String TASK_NAME_PROFILE = "PROFILE ";
+
+  private final DiscogsDump targetDump;
+  private final FileUtil fileUtil;
+  private final boolean enabled;
+  private final boolean pipelined;
+
+  /**
+   * Whether to write the statistics of the dump.
+   */
+  @Setter
+  private boolean profile = false;
+
+  /**
+   * Writes the store and the statistics unless they already exist.
+   *
+   * @param contribution will report {@link ExitStatus#FAILED} if failed to write the store or the
+   *                     statistics.
+   * @param chunkContext chunk context to be marked as complete.
+   * @return {@link RepeatStatus#FINISHED} even if failed to write the store.
+   */
+  @Override
+  public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+    chunkContext.setComplete();
+    if (!enabled && !profile) {
+      contribution.setExitStatus(ExitStatus.COMPLETED);
+      return RepeatStatus.FINISHED;
+    }
+
+    contribution.setExitStatus(ExitStatus.EXECUTING);
+    try {
+      Path dumpPath = fileUtil.getFilePath(targetDump.getFileName());
+      Path storePath = fileUtil.getFilePath(targetDump.getFileName() + FragmentStore.STORE_SUFFIX);
+      Path statsPath = DumpStatistics.statsPathOf(dumpPath);
+      if (fileUtil.isTemporary()) {
+        storePath.toFile().deleteOnExit();
+        FragmentStore.indexPathOf(storePath).toFile().deleteOnExit();
+        statsPath.toFile().deleteOnExit();
+      }
+      boolean writeStore = enabled && !FragmentStore.exists(storePath);
+      boolean writeStats = profile && !DumpStatistics.exists(statsPath);
+      if (enabled && !writeStore) {
+        log.info("found fragment store: {}. proceeding...", storePath);
+      }
+      if (profile && !writeStats) {
+        log.info("found dump statistics: {}. proceeding...", statsPath);
+      }
+      if (!writeStore && !writeStats) {
+        log.debug("nothing to write for {}", targetDump.getFileName());
+      } else if (DumpDownload.inFlight(dumpPath) != null) {
+        log.info("{} is being fetched. skipping fragment store and profile...", targetDump.getFileName());
+      } else {
+        write(dumpPath, writeStore ? storePath : null, writeStats ? statsPath : null);
+      }
+      contribution.setExitStatus(ExitStatus.COMPLETED);
+    } catch (FileException | IOException e) {
+      log.error("failed to store or profile fragments of " + targetDump.getFileName(), e);
+      contribution.setExitStatus(ExitStatus.FAILED);
+    }
+    return RepeatStatus.FINISHED;
+  }
+
+  /**
+   * Scans the dump once, feeding the store writer and the profiler.
+   *
+   * @param storePath path of the store to be written. null if not to be written.
+   * @param statsPath path of the statistics to be written. null if not to be written.
+   */
+  private void write(Path dumpPath, Path storePath, Path statsPath) throws IOException {
+    String taskName = (storePath == null ? TASK_NAME_PROFILE : TASK_NAME_PREPEND)
+        + targetDump.getType();
+    DumpProfiler profiler = statsPath == null ? null : new DumpProfiler();
+    ToggleProgressBarConsumer pbConsumer = new ToggleProgressBarConsumer(System.err);
+    pbConsumer.on();
+    try (InputStream in = DumpStreamUtil.open(dumpPath, taskName, pipelined, pbConsumer);
+        FragmentStoreWriter writer =
+            storePath == null ? null : new FragmentStoreWriter(storePath)) {
+      FragmentScanner scanner = new FragmentScanner(in, targetDump.getType().toString());
+      for (byte[] fragment = scanner.next(); fragment != null; fragment = scanner.next()) {
+        if (writer != null) {
+          writer.append(fragment);
+        }
+        if (profiler != null) {
+          profiler.accept(fragment);
+        }
+      }
+      if (writer != null) {
+        writer.complete();
+      }
+    } finally {
+      pbConsumer.close();
+    }
+    if (profiler != null) {
+      DumpStatistics statistics = profiler.getStatistics();
+      statistics.write(statsPath);
+      log.info(
+          "profiled {}: {} fragments, ids {}..{}",
+          targetDump.getFileName(),
+          statistics.getFragmentCount(),
+          statistics.getMinId(),
+          statistics.getMaxId());
+    }
+  }
+}
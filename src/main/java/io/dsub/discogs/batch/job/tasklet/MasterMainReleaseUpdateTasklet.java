@@ -0,0 +1,156 @@
+package io.dsub.discogs.batch.job.tasklet;
+
+import io.dsub.discogs.batch.domain.master.MasterMainReleaseXML;
+import io.dsub.discogs.batch.job.registry.EntityIdRegistry;
+import io.dsub.discogs.batch.job.registry.MainReleaseRegistry;
+import io.dsub.discogs.batch.job.step.core.MasterStepConfig;
+import io.dsub.discogs.jooq.tables.Master;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.repeat.RepeatStatus;
+
+/**
+ * Applies the main releases of the masters captured by {@link MainReleaseRegistry} during the
+ * master core insertion, once the releases are inserted. Main releases not inserted as release
+ * items are left out.
+ *
+ * <p>The registry only covers every master if the master core insertion step ran to completion
+ * within this job execution, at its first attempt. Otherwise (i.e. the step was completed by a
+ * previous execution, or resumed from a checkpoint), the main releases are read from the master
+ * dump again, {@link #BATCH_SIZE} masters per execution, before being applied.
+ *
+ * <p>Each execution updates up to {@link #BATCH_SIZE} masters by a single set-based statement,
+ * joining the master table against the ids bound as two arrays, then continues from the next
+ * master. Masters already holding the same main release are not updated again.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class MasterMainReleaseUpdateTasklet implements Tasklet {
+
+  public static final int BATCH_SIZE = 10_000;
+
+  private static final String PAIRS = "pairs";
+  private static final String MASTER_ID = "master_id";
+  private static final String MAIN_RELEASE_ID = "main_release_id";
+  private static final Field<Integer> PAIR_MASTER_ID =
+      DSL.field(DSL.name(PAIRS, MASTER_ID), Integer.class);
+  private static final Field<Integer> PAIR_MAIN_RELEASE_ID =
+      DSL.field(DSL.name(PAIRS, MAIN_RELEASE_ID), Integer.class);
+
+  private final EntityIdRegistry idRegistry;
+  private final DSLContext context;
+  private final ItemStreamReader<MasterMainReleaseXML> masterMainReleaseReader;
+  private final JobRepository jobRepository;
+  private final ExecutionContext readerContext = new ExecutionContext();
+  private Boolean reading = null;
+  private int nextMasterId = 0;
+  private long updatedCount = 0;
+
+  @Override
+  public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext)
+      throws Exception {
+    MainReleaseRegistry mainReleases = idRegistry.getMainReleases();
+    if (reading == null) {
+      reading = !isCaptured(chunkContext.getStepContext().getStepExecution().getJobExecution());
+      if (reading) {
+        log.info("main releases were not captured by every master. reading master dump...");
+        mainReleases.clear();
+        masterMainReleaseReader.open(readerContext);
+      }
+    }
+    if (reading) {
+      reading = read(mainReleases);
+      return RepeatStatus.CONTINUABLE;
+    }
+    Integer[] masterIds = new Integer[BATCH_SIZE];
+    Integer[] mainReleaseIds = new Integer[BATCH_SIZE];
+    int count = 0;
+    int masterId = mainReleases.nextMasterId(nextMasterId);
+    while (masterId >= 0 && count < BATCH_SIZE) {
+      int mainReleaseId = mainReleases.get(masterId);
+      contribution.incrementReadCount();
+      if (idRegistry.exists(EntityIdRegistry.Type.RELEASE, mainReleaseId)) {
+        masterIds[count] = masterId;
+        mainReleaseIds[count] = mainReleaseId;
+        count++;
+      } else {
+        contribution.incrementFilterCount(1);
+      }
+      masterId = masterId == Integer.MAX_VALUE ? -1 : mainReleases.nextMasterId(masterId + 1);
+    }
+    if (count > 0) {
+      int updated = update(Arrays.copyOf(masterIds, count), Arrays.copyOf(mainReleaseIds, count));
+      contribution.incrementWriteCount(updated);
+      updatedCount += updated;
+    }
+    if (masterId < 0) {
+      log.info("applied main releases. updated masters: {}", updatedCount);
+      return RepeatStatus.FINISHED;
+    }
+    nextMasterId = masterId;
+    return RepeatStatus.CONTINUABLE;
+  }
+
+  /*
+   * The captured main releases are complete only if the master core insertion step started from
+   * scratch and completed in this job execution.
+   */
+  private boolean isCaptured(JobExecution jobExecution) {
+    return jobExecution.getStepExecutions().stream()
+            .anyMatch(
+                stepExecution ->
+                    stepExecution.getStepName().equals(MasterStepConfig.MASTER_CORE_INSERTION_STEP)
+                        && stepExecution.getStatus() == BatchStatus.COMPLETED)
+        && jobRepository.getStepExecutionCount(
+                jobExecution.getJobInstance(), MasterStepConfig.MASTER_CORE_INSERTION_STEP)
+            == 1;
+  }
+
+  /**
+   * Reads the next main releases from the master dump into given registry.
+   *
+   * @return false once the dump is exhausted.
+   */
+  private boolean read(MainReleaseRegistry mainReleases) throws Exception {
+    for (int count = 0; count < BATCH_SIZE; count++) {
+      MasterMainReleaseXML master = masterMainReleaseReader.read();
+      if (master == null) {
+        masterMainReleaseReader.close();
+        log.info("read main releases of {} masters from master dump", mainReleases.size());
+        return false;
+      }
+      mainReleases.put(master.getId(), master.getMainReleaseId());
+    }
+    masterMainReleaseReader.update(readerContext);
+    return true;
+  }
+
+  private int update(Integer[] masterIds, Integer[] mainReleaseIds) {
+    Table<?> pairs =
+        DSL.table("unnest({0}, {1})", DSL.val(masterIds), DSL.val(mainReleaseIds))
+            .as(PAIRS, MASTER_ID, MAIN_RELEASE_ID);
+    return context
+        .update(Master.MASTER)
+        .set(Master.MASTER.MAIN_RELEASE_ID, PAIR_MAIN_RELEASE_ID)
+        .set(Master.MASTER.LAST_MODIFIED_AT, LocalDateTime.now(Clock.systemUTC()))
+        .from(pairs)
+        .where(Master.MASTER.ID.eq(PAIR_MASTER_ID))
+        .and(Master.MASTER.MAIN_RELEASE_ID.isDistinctFrom(PAIR_MAIN_RELEASE_ID))
+        .execute();
+  }
+}
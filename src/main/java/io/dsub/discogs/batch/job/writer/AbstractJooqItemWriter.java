@@ -1,47 +1,37 @@
 package io.dsub.discogs.batch.job.writer;
 
+import io.dsub.discogs.batch.job.registry.RowFingerprintFilter;
 import io.dsub.discogs.jooq.tables.Artist;
 import io.dsub.discogs.jooq.tables.Label;
 import io.dsub.discogs.jooq.tables.Master;
 import io.dsub.discogs.jooq.tables.ReleaseItem;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Key;
+import org.jooq.Record;
 import org.jooq.Table;
 import org.jooq.UpdatableRecord;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
 
 public abstract class AbstractJooqItemWriter<T extends UpdatableRecord<?>> implements JooqItemWriter<T> {
 
+  private static final SQLExceptionTranslator TRANSLATOR =
+      new SQLErrorCodeSQLExceptionTranslator("PostgreSQL");
+
   private final Map<Table<?>, List<Field<?>>> insertFields = new ConcurrentHashMap<>();
-  private final Map<Table<?>, List<String>> insertFieldNames = new ConcurrentHashMap<>();
-  private final Map<Table<?>, List<String>> keysToDeleteCache = new ConcurrentHashMap<>();
   private final Map<Table<?>, List<Field<?>>> constraintFieldsCache = new ConcurrentHashMap<>();
   private final Map<Table<?>, List<Field<?>>> updateFieldsCache = new ConcurrentHashMap<>();
-
-  protected List<Object> getInsertValues(T record) {
-
-    List<String> fieldNames;
-
-    if (insertFieldNames.containsKey(record.getTable())) {
-      fieldNames = insertFieldNames.get(record.getTable());
-    } else {
-      fieldNames =
-          getInsertFields(record.getTable()).stream()
-              .map(Field::getName)
-              .collect(Collectors.toList());
-      insertFieldNames.put(record.getTable(), fieldNames);
-    }
-
-    return record.intoMap().entrySet().stream()
-        .filter(entry -> fieldNames.contains(entry.getKey()))
-        .map(Map.Entry::getValue)
-        .collect(Collectors.toList());
-  }
+  private final Map<Table<?>, List<Field<?>>> fingerprintFieldsCache = new ConcurrentHashMap<>();
+  private final Map<Table<?>, int[]> constraintIndexesCache = new ConcurrentHashMap<>();
 
   protected List<Field<?>> getInsertFields(Table<?> table) {
     if (insertFields.containsKey(table)) {
@@ -64,32 +54,25 @@ public abstract class AbstractJooqItemWriter<T extends UpdatableRecord<?>> imple
     return fields;
   }
 
-  protected Map<?, ?> getUpdateMap(T record) {
-    Map<?, ?> map = record.intoMap();
-    List<Field<?>> fieldsToUpdate = getUpdateFields(record.getTable());
-    if (fieldsToUpdate == null || fieldsToUpdate.isEmpty()) {
-      return map;
-    }
-
-    List<String> keysToDelete;
-
-    if (keysToDeleteCache.containsKey(record.getTable())) {
-      keysToDelete = keysToDeleteCache.get(record.getTable());
-    } else {
-      List<String> updateFieldNames =
-          fieldsToUpdate.stream().map(Field::getName).collect(Collectors.toList());
-      keysToDelete =
-          map.keySet().stream()
-              .map(Object::toString)
-              .filter(key -> !updateFieldNames.contains(key))
-              .collect(Collectors.toList());
-      keysToDeleteCache.put(record.getTable(), keysToDelete);
-    }
-
-    for (String key : keysToDelete) {
-      map.remove(key);
+  /**
+   * Index of each of given fields within the fields of the table, hence of the records of the
+   * table, so that values can be taken by {@link org.jooq.Record#get(int)}.
+   *
+   * @param table  table of the fields.
+   * @param fields fields to be indexed.
+   * @return the indexes, in the order of given fields.
+   */
+  protected int[] getFieldIndexes(Table<?> table, List<Field<?>> fields) {
+    List<Field<?>> tableFields = List.of(table.fields());
+    int[] indexes = new int[fields.size()];
+    for (int i = 0; i < indexes.length; i++) {
+      indexes[i] = tableFields.indexOf(fields.get(i));
+      if (indexes[i] < 0) {
+        throw new IllegalArgumentException(
+            "field " + fields.get(i).getName() + " does not belong to " + table.getName());
+      }
     }
-    return map;
+    return indexes;
   }
 
   protected List<Field<?>> getConstraintFields(Table<?> table) {
@@ -140,4 +123,102 @@ public abstract class AbstractJooqItemWriter<T extends UpdatableRecord<?>> imple
     updateFieldsCache.put(table, updateFields);
     return updateFields;
   }
+
+  /**
+   * Fingerprint of the values of a record that decide what the row ends up as; the constraint
+   * fields, and the fields to be updated on conflict except for the timestamps. Two records of
+   * the same fingerprint write the same row.
+   *
+   * @param record record to be fingerprinted.
+   * @return the fingerprint.
+   */
+  protected long getFingerprint(T record) {
+    Table<?> table = record.getTable();
+    List<Field<?>> fields = fingerprintFieldsCache.get(table);
+    if (fields == null) {
+      fields = new ArrayList<>(getConstraintFields(table));
+      getUpdateFields(table).stream()
+          .filter(
+              field ->
+                  !field.getName().equals("created_at")
+                      && !field.getName().equals("last_modified_at"))
+          .forEach(fields::add);
+      fingerprintFieldsCache.put(table, fields);
+    }
+    long fingerprint = RowFingerprintFilter.seed(table.getName());
+    for (Field<?> field : fields) {
+      fingerprint = RowFingerprintFilter.fold(fingerprint, record.get(field));
+    }
+    return fingerprint;
+  }
+
+  /**
+   * Sorts the records, all of the same table, by the values of the constraint fields, so that
+   * every writer acquires the row locks in the same order, and concurrent chunks touching the same
+   * rows wait for each other instead of running into a deadlock. The sort is stable, hence the
+   * records of the same constraint are kept in the given order.
+   *
+   * @param items records to be sorted.
+   * @return the records sorted, or the given ones if nothing to sort.
+   */
+  protected List<? extends T> sortByConstraint(List<? extends T> items) {
+    if (items.size() < 2) {
+      return items;
+    }
+    int[] indexes =
+        constraintIndexesCache.computeIfAbsent(
+            items.get(0).getTable(), table -> getFieldIndexes(table, getConstraintFields(table)));
+    if (indexes.length == 0) {
+      return items;
+    }
+    List<T> sorted = new ArrayList<>(items);
+    sorted.sort((left, right) -> compareValues(left, right, indexes));
+    return sorted;
+  }
+
+  /**
+   * Compares the values of given indexes of the records, nulls first. Values not comparable are
+   * compared by their texts.
+   *
+   * @param left    record to be compared.
+   * @param right   record to be compared.
+   * @param indexes indexes of the values to be compared, in order.
+   * @return comparison of the first values differing, or 0 if none.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static int compareValues(Record left, Record right, int[] indexes) {
+    for (int index : indexes) {
+      Object l = left.get(index);
+      Object r = right.get(index);
+      if (l == r) {
+        continue;
+      }
+      if (l == null || r == null) {
+        return l == null ? -1 : 1;
+      }
+      int result =
+          l instanceof Comparable comparable && l.getClass() == r.getClass()
+              ? comparable.compareTo(r)
+              : l.toString().compareTo(r.toString());
+      if (result != 0) {
+        return result;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Translates an exception thrown by JDBC against PostgreSQL into a {@link
+   * org.springframework.dao.DataAccessException}, i.e. {@link
+   * org.springframework.dao.DeadlockLoserDataAccessException} for a deadlock, so that the steps
+   * can retry on it.
+   *
+   * @param task description of the task.
+   * @param e    exception to be translated.
+   * @return the translated exception.
+   */
+  protected RuntimeException translate(String task, SQLException e) {
+    RuntimeException translated = TRANSLATOR.translate(task, null, e);
+    return translated == null ? new UncategorizedSQLException(task, null, e) : translated;
+  }
 }
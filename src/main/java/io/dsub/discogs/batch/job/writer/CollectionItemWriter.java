@@ -1,10 +1,11 @@
 package io.dsub.discogs.batch.job.writer;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.item.ItemWriter;
@@ -17,21 +18,30 @@ public class CollectionItemWriter<T> implements ItemWriter<Collection<T>> {
 
   @Override
   public void write(List<? extends Collection<T>> items) throws Exception {
-    Map<Class<?>, List<T>> consolidatedMap = new HashMap<>();
+    for (List<T> subItems : consolidate(items).values()) {
+      delegate.write(subItems);
+      subItems.clear();
+    }
+  }
+
+  /**
+   * Groups the sub items of the items by their classes, hence by their tables, ordered by the names
+   * of the classes. Every chunk writes the tables in the same order, so that the locks of the rows
+   * are acquired in the same order by every chunk.
+   *
+   * @param items items holding the sub items.
+   * @return sub items of each class.
+   */
+  protected Map<Class<?>, List<T>> consolidate(List<? extends Collection<T>> items) {
+    Map<Class<?>, List<T>> consolidatedMap = new TreeMap<>(Comparator.comparing(Class::getName));
 
     for (Collection<? extends T> subItems : items) {
       for (T subItem : subItems) {
-        Class<?> key = subItem.getClass();
-        if (!consolidatedMap.containsKey(subItem.getClass())) {
-          consolidatedMap.put(key, new LinkedList<>());
-        }
-        consolidatedMap.get(key).add(subItem);
+        consolidatedMap
+            .computeIfAbsent(subItem.getClass(), key -> new ArrayList<>(items.size() * 4))
+            .add(subItem);
       }
     }
-
-    for (List<T> subItems : consolidatedMap.values()) {
-      delegate.write(subItems);
-      subItems.clear();
-    }
+    return consolidatedMap;
   }
 }
@@ -1,64 +1,174 @@
 package io.dsub.discogs.batch.job.writer;
 
+import io.dsub.discogs.batch.job.registry.RowFingerprintFilter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.jooq.BatchBindStep;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Query;
+import org.jooq.Table;
 import org.jooq.UpdatableRecord;
+import org.jooq.impl.DSL;
 
 @Slf4j
 @RequiredArgsConstructor
 public class DefaultLJooqItemWriter<T extends UpdatableRecord<?>> extends AbstractJooqItemWriter<T> {
 
   private final DSLContext context;
+  private final Map<Table<?>, TableStatement> statements = new ConcurrentHashMap<>();
+
+  /**
+   * Filter of the rows already written during the run. If set, such rows are dropped instead of
+   * being written again.
+   */
+  @Getter
+  @Setter
+  private RowFingerprintFilter rowFingerprintFilter;
+
+  /**
+   * Writer of the tables to be written by COPY. If set, records of the tables it supports are
+   * written by it instead.
+   */
+  @Setter
+  private PostgresCopyItemWriter<T> copyWriter;
 
   @Override
   public void write(List<? extends T> items) {
-    if (items.isEmpty()) {
-      return;
-    }
-    Query q = this.getQuery(items.get(0));
-    BatchBindStep batch = context.batch(q);
+    write(context, filter(items));
+  }
 
-    items.forEach(record -> batch.bind(mapValues(record)));
-    batch.execute();
+  /**
+   * Drops the rows already written during the run, if {@link #rowFingerprintFilter} is set. The
+   * rows kept are staged on the calling thread.
+   *
+   * @param items records to be filtered.
+   * @return records to be written.
+   */
+  public List<? extends T> filter(List<? extends T> items) {
+    if (rowFingerprintFilter == null) {
+      return items;
+    }
+    return items.stream()
+        .filter(
+            record ->
+                rowFingerprintFilter.accept(record.getTable().getName(), getFingerprint(record)))
+        .collect(Collectors.toList());
   }
 
   /**
-   * map values from record into a full array
+   * Writes the records, all of the same table, by given context without filtering them, so that
+   * the records can be written within a transaction of the context. The records are bound in the
+   * order of their constraints.
    *
-   * @param record to be parsed into array
-   * @return values
+   * @param context context to write the records.
+   * @param items   records to be written.
    */
-  private Object[] mapValues(T record) {
-    List<Object> values = getInsertValues(record);
-    getUpdateFields(record.getTable()).forEach(field -> values.add(field.getValue(record)));
-    return values.toArray();
+  public void write(DSLContext context, List<? extends T> items) {
+    if (items.isEmpty()) {
+      return;
+    }
+    if (copyWriter != null && copyWriter.supports(items.get(0).getTable())) {
+      copyWriter.write(context, items);
+      return;
+    }
+    TableStatement statement = getStatement(items.get(0).getTable());
+    List<? extends T> sorted = sortByConstraint(items);
+    context.connection(connection -> write(connection, statement, sorted));
+  }
+
+  /*
+   * Binds values straight from each record into a single prepared statement, by the indexes of
+   * the fields.
+   */
+  private void write(Connection connection, TableStatement statement, List<? extends T> items) {
+    int[] indexes = statement.indexes();
+    int[] sqlTypes = statement.sqlTypes();
+    try (PreparedStatement ps = connection.prepareStatement(statement.sql())) {
+      for (T record : items) {
+        for (int i = 0; i < indexes.length; i++) {
+          Object value = record.get(indexes[i]);
+          if (value == null) {
+            ps.setNull(i + 1, sqlTypes[i]);
+          } else {
+            ps.setObject(i + 1, value);
+          }
+        }
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    } catch (SQLException e) {
+      throw translate(statement.sql(), e);
+    }
   }
 
   @Override
   public Query getQuery(T record) {
-    List<Field<?>> constraintFields = getConstraintFields(record.getTable());
-    List<Field<?>> fieldsToUpdate = getUpdateFields(record.getTable());
-    Map<?, ?> updateMap = getUpdateMap(record);
+    return getStatement(record.getTable()).query();
+  }
+
+  private TableStatement getStatement(Table<?> table) {
+    return statements.computeIfAbsent(table, this::prepare);
+  }
 
+  /*
+   * Renders the statement of a table once, with a bind parameter for each value of the insert
+   * fields followed by the update fields.
+   */
+  private TableStatement prepare(Table<?> table) {
+    List<Field<?>> insertFields = getInsertFields(table);
+    List<Field<?>> constraintFields = getConstraintFields(table);
+    List<Field<?>> fieldsToUpdate = getUpdateFields(table);
+    List<Field<?>> boundFields = new ArrayList<>(insertFields);
+
+    List<Field<?>> values = insertFields.stream().map(this::paramOf).collect(Collectors.toList());
+
+    Query query;
     if (fieldsToUpdate.isEmpty()) {
-      return context
-          .insertInto(record.getTable(), getInsertFields(record.getTable()))
-          .values(getInsertValues(record))
+      query = context
+          .insertInto(table, insertFields)
+          .values(values)
           .onConflict(constraintFields)
           .doNothing();
+    } else {
+      Map<Field<?>, Field<?>> updateMap = new LinkedHashMap<>();
+      fieldsToUpdate.forEach(field -> updateMap.put(field, paramOf(field)));
+      boundFields.addAll(fieldsToUpdate);
+      query = context
+          .insertInto(table, insertFields)
+          .values(values)
+          .onConflict(constraintFields)
+          .doUpdate()
+          .set(updateMap);
     }
+    return new TableStatement(
+        query,
+        context.render(query),
+        getFieldIndexes(table, boundFields),
+        boundFields.stream().mapToInt(field -> field.getDataType().getSQLType()).toArray());
+  }
 
-    return context
-        .insertInto(record.getTable(), getInsertFields(record.getTable()))
-        .values(getInsertValues(record))
-        .onConflict(constraintFields)
-        .doUpdate()
-        .set(updateMap);
+  private Field<?> paramOf(Field<?> field) {
+    return DSL.val(null, field.getDataType());
   }
+
+  /**
+   * Statement of a table, rendered with a bind parameter for each value.
+   *
+   * @param query    the statement.
+   * @param sql      the statement rendered.
+   * @param indexes  index of the field of each bind parameter, within the fields of the table.
+   * @param sqlTypes sql type of each bind parameter, to bind nulls.
+   */
+  private record TableStatement(Query query, String sql, int[] indexes, int[] sqlTypes) {}
 }
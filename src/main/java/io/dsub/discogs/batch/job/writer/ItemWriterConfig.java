@@ -1,15 +1,22 @@
 package io.dsub.discogs.batch.job.writer;
 
-import io.dsub.discogs.jooq.tables.records.MasterRecord;
+import io.dsub.discogs.batch.argument.ArgType;
+import io.dsub.discogs.batch.job.listener.DeadlockRetryCountingListener;
+import io.dsub.discogs.batch.job.registry.RowFingerprintFilter;
+import io.dsub.discogs.batch.util.FileUtil;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jooq.DSLContext;
 import org.jooq.UpdatableRecord;
-import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.boot.ApplicationArguments;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Slf4j
 @Configuration
@@ -17,25 +24,114 @@ import org.springframework.context.annotation.Configuration;
 public class ItemWriterConfig {
 
   private final DSLContext context;
+  private final ApplicationArguments args;
+  private final RowFingerprintFilter rowFingerprintFilter;
+  private final ThreadPoolTaskExecutor batchTaskExecutor;
+  private final FileUtil fileUtil;
+  private final DeadlockRetryCountingListener deadlockRetryCountingListener;
+  private PostgresCopyItemWriter<UpdatableRecord<?>> copyWriter;
 
   @Bean
   public ItemWriter<UpdatableRecord<?>> jooqItemWriter() {
-      return new DefaultLJooqItemWriter<>(context);
+    if (isWriteBehind()) {
+      return new WriteBehindItemWriter<>(getJooqItemWriter(), writeBehindStage());
+    }
+    return getJooqItemWriter();
   }
 
+  /*
+   * Registered to every chunk step, where it has nothing to wait for unless the option is given.
+   */
   @Bean
-  public ItemWriter<Collection<UpdatableRecord<?>>> baseEntityCollectionItemWriter() {
-    return getBaseEntityCollectionItemWriter(jooqItemWriter());
+  public WriteBehindStage writeBehindStage() {
+    int writers = WriteBehindStage.getWriterCount(batchTaskExecutor.getMaxPoolSize());
+    if (isWriteBehind()) {
+      log.info(
+          "detected write behind option. rows will be written behind the chunks by {} writers.",
+          writers);
+    }
+    return new WriteBehindStage(
+        getJooqItemWriter(),
+        context,
+        fileUtil,
+        deadlockRetryCountingListener,
+        writers,
+        WriteBehindStage.DEFAULT_MAX_BUFFERED_ROWS,
+        WriteBehindStage.DEFAULT_BACKPRESSURE_MILLIS);
   }
 
   @Bean
-  @StepScope
-  public ItemWriter<MasterRecord> postgresJooqMasterMainReleaseItemWriter() {
-    return new DefaultJooqMasterMainReleaseItemWriter(context);
+  public ItemWriter<Collection<UpdatableRecord<?>>> baseEntityCollectionItemWriter() {
+    DefaultLJooqItemWriter<UpdatableRecord<?>> delegate = getJooqItemWriter();
+    if (args.containsOption(ArgType.DEDUPE.getGlobalName())) {
+      log.info("detected dedupe option. sub item rows already written will be suppressed.");
+      delegate.setRowFingerprintFilter(rowFingerprintFilter);
+    }
+    return getBaseEntityCollectionItemWriter(delegate);
   }
 
   private CollectionItemWriter<UpdatableRecord<?>> getBaseEntityCollectionItemWriter(
-      ItemWriter<UpdatableRecord<?>> delegate) {
-    return new CollectionItemWriter<>(delegate);
+      DefaultLJooqItemWriter<UpdatableRecord<?>> delegate) {
+    if (isWriteBehind()) {
+      if (args.containsOption(ArgType.PARALLEL_FLUSH.getGlobalName())) {
+        log.warn("parallel flush option is ignored with write behind option.");
+      }
+      return new CollectionItemWriter<>(new WriteBehindItemWriter<>(delegate, writeBehindStage()));
+    }
+    if (!args.containsOption(ArgType.PARALLEL_FLUSH.getGlobalName())) {
+      return new CollectionItemWriter<>(delegate);
+    }
+    int budget =
+        ParallelCollectionItemWriter.getConnectionBudget(batchTaskExecutor.getMaxPoolSize());
+    int maxPrepared = ParallelCollectionItemWriter.getMaxPreparedTransactions(context);
+    if (maxPrepared < budget) {
+      log.warn(
+          "parallel flush option requires max_prepared_transactions of {} or more, but is {}."
+              + " ignoring.",
+          budget,
+          maxPrepared);
+      return new CollectionItemWriter<>(delegate);
+    }
+    List<String> left = ParallelCollectionItemWriter.getLeftPreparedTransactions(context);
+    if (!left.isEmpty()) {
+      log.warn(
+          "{} transactions left prepared by a previous run hold their locks until committed or"
+              + " rolled back by hand: {}",
+          left.size(),
+          left);
+    }
+    log.info(
+        "detected parallel flush option. tables of a chunk will be written concurrently, by up to"
+            + " {} connections in total.",
+        budget);
+    return new ParallelCollectionItemWriter<>(delegate, context, new Semaphore(budget, true));
+  }
+
+  private boolean isWriteBehind() {
+    return args.containsOption(ArgType.WRITE_BEHIND.getGlobalName());
+  }
+
+  private DefaultLJooqItemWriter<UpdatableRecord<?>> getJooqItemWriter() {
+    DefaultLJooqItemWriter<UpdatableRecord<?>> writer = new DefaultLJooqItemWriter<>(context);
+    writer.setCopyWriter(getCopyWriter());
+    return writer;
+  }
+
+  /*
+   * Shared by the writers, as it holds nothing but the statements of each table.
+   */
+  private synchronized PostgresCopyItemWriter<UpdatableRecord<?>> getCopyWriter() {
+    if (copyWriter != null || !args.containsOption(ArgType.COPY.getGlobalName())) {
+      return copyWriter;
+    }
+    List<String> tables =
+        args.getOptionValues(ArgType.COPY.getGlobalName()).stream()
+            .filter(table -> !table.isBlank())
+            .collect(Collectors.toList());
+    log.info(
+        "detected copy option. {} will be written by copy.",
+        tables.isEmpty() ? "every table" : String.join(", ", tables));
+    copyWriter = new PostgresCopyItemWriter<>(context, tables);
+    return copyWriter;
   }
 }
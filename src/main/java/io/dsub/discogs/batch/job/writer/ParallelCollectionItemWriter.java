@@ -0,0 +1,303 @@
+package io.dsub.discogs.batch.job.writer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.UpdatableRecord;
+import org.jooq.impl.DefaultConnectionProvider;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * {@link CollectionItemWriter} implementation to write the sub items of each table concurrently,
+ * each on a connection of its own, instead of one table after another.
+ *
+ * <p>The tables of a chunk are committed all or nothing by two phases. Each connection writes
+ * within a transaction of its own and prepares it by {@code PREPARE TRANSACTION}, which leaves the
+ * rows durable but invisible and frees the connection. If any table fails, every transaction
+ * prepared is rolled back by {@code ROLLBACK PREPARED} and the first failure is thrown. Otherwise
+ * the prepared transactions are committed by {@code COMMIT PREPARED} once the transaction of the
+ * chunk itself commits, or rolled back if it rolls back instead; without a transaction of the
+ * chunk, they are committed right away. Requires {@code max_prepared_transactions} of at least
+ * {@link #getConnectionBudget(int)}, see {@link #getMaxPreparedTransactions(DSLContext)}.
+ *
+ * <p>A prepared transaction only fails to commit if the database cannot be reached after the chunk
+ * committed. The step then fails with the transaction left prepared, of which the id is logged to
+ * be committed by hand. Transactions left prepared by a run that stopped in the middle are listed
+ * by {@link #getLeftPreparedTransactions(DSLContext)}.
+ *
+ * <p>As the rows written by a chunk stay locked until the chunk commits, a table blocked by
+ * another chunk which is in turn blocked by the chunk is a deadlock the database cannot see. Hence
+ * the row locks are waited for up to {@link #LOCK_TIMEOUT}, which is thrown as a {@link
+ * DeadlockLoserDataAccessException} for the chunk to be retried.
+ *
+ * <p>A chunk takes up to {@link #CONNECTIONS_PER_CHUNK} connections from a {@link Semaphore}
+ * shared by the writers, all at once to never hold some while waiting for the others. Tables
+ * beyond it share the connections, balanced by their row counts. Rows are filtered by the
+ * delegate on the calling thread, so that they are staged against the chunk.
+ */
+@Slf4j
+public class ParallelCollectionItemWriter<T extends UpdatableRecord<?>>
+    extends CollectionItemWriter<T> {
+
+  public static final int CONNECTIONS_PER_CHUNK = 4;
+  public static final String LOCK_TIMEOUT = "10s";
+  public static final String TRANSACTION_ID_PREFIX = "discogs-batch-flush-";
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private final DefaultLJooqItemWriter<T> delegate;
+  private final DSLContext context;
+  private final Semaphore connections;
+  private final ExecutorService executor =
+      Executors.newCachedThreadPool(
+          runnable -> {
+            Thread thread = new Thread(runnable, "flush-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /**
+   * @param delegate    writer of the sub items of each table.
+   * @param context     context to begin the transactions from.
+   * @param connections permits of the connections, shared by the writers.
+   */
+  public ParallelCollectionItemWriter(
+      DefaultLJooqItemWriter<T> delegate, DSLContext context, Semaphore connections) {
+    super(delegate);
+    this.delegate = delegate;
+    this.context = context;
+    this.connections = connections;
+  }
+
+  /**
+   * @param workers count of the workers writing chunks at once.
+   * @return count of the connections to be reserved for the writers, which is also the most
+   * transactions prepared at once.
+   */
+  public static int getConnectionBudget(int workers) {
+    return Math.max(1, workers) * CONNECTIONS_PER_CHUNK;
+  }
+
+  /**
+   * @param context context of the database.
+   * @return count of the transactions the database can keep prepared at once, which is 0 unless
+   * configured otherwise.
+   */
+  public static int getMaxPreparedTransactions(DSLContext context) {
+    return Integer.parseInt(
+        context.fetchValue("show max_prepared_transactions").toString().trim());
+  }
+
+  /**
+   * @param context context of the database.
+   * @return ids of the transactions prepared by the writers but neither committed nor rolled back.
+   */
+  public static List<String> getLeftPreparedTransactions(DSLContext context) {
+    return context
+        .fetch("select gid from pg_prepared_xacts where gid like ?", TRANSACTION_ID_PREFIX + "%")
+        .getValues(0, String.class);
+  }
+
+  @Override
+  public void write(List<? extends Collection<T>> items) throws Exception {
+    List<List<? extends T>> groups = new ArrayList<>();
+    for (List<T> subItems : consolidate(items).values()) {
+      List<? extends T> filtered = delegate.filter(subItems);
+      if (!filtered.isEmpty()) {
+        groups.add(filtered);
+      }
+    }
+    if (groups.size() < 2) {
+      for (List<? extends T> group : groups) {
+        delegate.write(context, group);
+      }
+      return;
+    }
+    List<List<List<? extends T>>> buckets = distribute(groups, CONNECTIONS_PER_CHUNK);
+    List<String> prepared;
+    connections.acquire(buckets.size());
+    try {
+      prepared = prepare(buckets);
+    } finally {
+      connections.release(buckets.size());
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new PreparedCompletion(prepared));
+    } else {
+      commitPrepared(prepared);
+    }
+  }
+
+  /*
+   * Prepares a transaction for each bucket, or rolls back every one of them if any bucket failed.
+   */
+  private List<String> prepare(List<List<List<? extends T>>> buckets) throws Exception {
+    List<String> ids = new ArrayList<>(buckets.size());
+    List<Future<?>> futures = new ArrayList<>(buckets.size());
+    for (List<List<? extends T>> bucket : buckets) {
+      String id = TRANSACTION_ID_PREFIX + UUID.randomUUID();
+      ids.add(id);
+      futures.add(executor.submit(() -> prepare(bucket, id)));
+    }
+    List<String> prepared = new ArrayList<>(buckets.size());
+    Throwable failure = null;
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        futures.get(i).get();
+        prepared.add(ids.get(i));
+      } catch (ExecutionException e) {
+        failure = failure == null ? e.getCause() : failure;
+      }
+    }
+    if (failure == null) {
+      return prepared;
+    }
+    rollbackPrepared(prepared);
+    if (failure instanceof CannotAcquireLockException e) {
+      // the connections of the chunks wait for each other, unseen by the database.
+      throw new DeadlockLoserDataAccessException("lock wait timed out across connections", e);
+    }
+    if (failure instanceof Exception e) {
+      throw e;
+    }
+    throw (Error) failure;
+  }
+
+  /*
+   * Writes a bucket within a transaction on a connection of its own, then prepares the transaction
+   * by given id, or rolls it back on failure.
+   */
+  private void prepare(List<List<? extends T>> bucket, String id) {
+    context.connection(
+        connection -> {
+          boolean autoCommit = connection.getAutoCommit();
+          connection.setAutoCommit(false);
+          try {
+            DSLContext transactional =
+                context.configuration().derive(new DefaultConnectionProvider(connection)).dsl();
+            transactional.execute("set local lock_timeout = '" + LOCK_TIMEOUT + "'");
+            for (List<? extends T> subItems : bucket) {
+              delegate.write(transactional, subItems);
+            }
+            transactional.execute("prepare transaction '" + id + "'");
+          } catch (Exception | Error e) {
+            connection.rollback();
+            throw e;
+          } finally {
+            connection.setAutoCommit(autoCommit);
+          }
+        });
+  }
+
+  /*
+   * Commits every transaction, even past a failure, so that as few as possible are left prepared.
+   */
+  private void commitPrepared(List<String> ids) {
+    RuntimeException failure = null;
+    for (String id : ids) {
+      try {
+        context.execute("commit prepared '" + id + "'");
+      } catch (RuntimeException e) {
+        log.error("failed to commit {}. commit or roll it back by hand.", id, e);
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void rollbackPrepared(List<String> ids) {
+    for (String id : ids) {
+      try {
+        context.execute("rollback prepared '" + id + "'");
+      } catch (RuntimeException e) {
+        log.error("failed to roll back {}. roll it back by hand.", id, e);
+      }
+    }
+  }
+
+  /*
+   * Completes the transactions prepared for a chunk along with the transaction of the chunk. A
+   * failure to commit them is thrown to the commit of the chunk, which fails the step. They are
+   * left prepared if the outcome of the chunk is unknown.
+   */
+  private class PreparedCompletion implements TransactionSynchronization {
+
+    private final List<String> ids;
+
+    private PreparedCompletion(List<String> ids) {
+      this.ids = ids;
+    }
+
+    @Override
+    public void afterCommit() {
+      commitPrepared(ids);
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      if (status == STATUS_ROLLED_BACK) {
+        rollbackPrepared(ids);
+      } else if (status == STATUS_UNKNOWN) {
+        log.error("chunk may or may not be committed. commit or roll back {} by hand.", ids);
+      }
+    }
+  }
+
+  /**
+   * Distributes the groups into up to given count of buckets, each group into the bucket of the
+   * least rows so far, from the largest group. Each bucket keeps the groups in the given order.
+   *
+   * @param groups      groups to be distributed.
+   * @param bucketCount max count of the buckets.
+   * @param <L>         type of the groups.
+   * @return the buckets, none of which is empty.
+   */
+  static <L extends List<?>> List<List<L>> distribute(List<L> groups, int bucketCount) {
+    Integer[] bySize = new Integer[groups.size()];
+    for (int i = 0; i < bySize.length; i++) {
+      bySize[i] = i;
+    }
+    Arrays.sort(bySize, Comparator.comparingInt((Integer i) -> groups.get(i).size()).reversed());
+    int count = Math.min(bucketCount, groups.size());
+    int[] bucketOf = new int[groups.size()];
+    long[] loads = new long[count];
+    for (int group : bySize) {
+      int lightest = 0;
+      for (int i = 1; i < count; i++) {
+        if (loads[i] < loads[lightest]) {
+          lightest = i;
+        }
+      }
+      bucketOf[group] = lightest;
+      loads[lightest] += groups.get(group).size();
+    }
+    List<List<L>> buckets = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      buckets.add(new ArrayList<>());
+    }
+    for (int group = 0; group < groups.size(); group++) {
+      buckets.get(bucketOf[group]).add(groups.get(group));
+    }
+    return buckets;
+  }
+}
@@ -0,0 +1,276 @@
+package io.dsub.discogs.batch.job.writer;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Query;
+import org.jooq.Table;
+import org.jooq.UpdatableRecord;
+import org.jooq.impl.DSL;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * {@link JooqItemWriter} implementation to write the records by PostgreSQL COPY, instead of
+ * binding each record into a batch of {@code INSERT ... ON CONFLICT} statements.
+ *
+ * <p>The records are streamed by COPY into a temporary staging table holding the insert fields of
+ * the target table, which lives as long as the connection, then merged into the target table by a
+ * single {@code INSERT ... SELECT ... ON CONFLICT} on the same constraint fields and update fields
+ * as {@link DefaultLJooqItemWriter}. A single statement cannot update the same row twice, hence
+ * only the last record of each constraint is merged, which is also what the batch ends up with.
+ * Records with a null constraint field are all merged, as they never conflict in the batch either.
+ *
+ * <p>Only supported with PostgreSQL.
+ */
+@Slf4j
+public class PostgresCopyItemWriter<T extends UpdatableRecord<?>>
+    extends AbstractJooqItemWriter<T> {
+
+  public static final String STAGE_PREFIX = "copy_stage_";
+
+  private static final String ORDINAL = "copy_ordinal";
+  private static final int FLUSH_SIZE = 1 << 16;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final DSLContext context;
+  private final Set<String> tableNames;
+  private final Map<Table<?>, String> stageSqlCache = new ConcurrentHashMap<>();
+  private final Map<Table<?>, String> copySqlCache = new ConcurrentHashMap<>();
+  private final Map<Table<?>, String> mergeSqlCache = new ConcurrentHashMap<>();
+
+  /**
+   * @param context    context to acquire the connections from.
+   * @param tableNames names of the tables to be written by COPY, or empty for every table.
+   */
+  public PostgresCopyItemWriter(DSLContext context, Collection<String> tableNames) {
+    this.context = context;
+    this.tableNames =
+        tableNames.stream()
+            .map(String::trim)
+            .map(String::toLowerCase)
+            .collect(Collectors.toUnmodifiableSet());
+  }
+
+  /**
+   * @param table table to be written.
+   * @return true if the records of given table should be written by this writer.
+   */
+  public boolean supports(Table<?> table) {
+    return tableNames.isEmpty() || tableNames.contains(table.getName().toLowerCase());
+  }
+
+  @Override
+  public void write(List<? extends T> items) {
+    write(context, items);
+  }
+
+  /**
+   * Writes the records, all of the same table, by given context.
+   *
+   * @param context context to write the records.
+   * @param items   records to be written.
+   */
+  public void write(DSLContext context, List<? extends T> items) {
+    if (items.isEmpty()) {
+      return;
+    }
+    Table<?> table = items.get(0).getTable();
+    int merged = context.connectionResult(connection -> write(connection, table, items));
+    log.debug("merged {} of {} rows into {}", merged, items.size(), table.getName());
+  }
+
+  private int write(Connection connection, Table<?> table, List<? extends T> items) {
+    try (Statement statement = connection.createStatement()) {
+      // emptied before each write, as the previous write may have failed in the middle.
+      statement.execute(getStageSql(table));
+      copy(connection, table, items);
+      // rows are merged in the order of their constraints, as selected by distinct on.
+      return statement.executeUpdate(getMergeSql(table));
+    } catch (SQLException e) {
+      throw translate(getMergeSql(table), e);
+    }
+  }
+
+  private void copy(Connection connection, Table<?> table, List<? extends T> items)
+      throws SQLException {
+    List<Field<?>> fields = getInsertFields(table);
+    CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(getCopySql(table));
+    try {
+      StringBuilder rows = new StringBuilder(FLUSH_SIZE + 1024);
+      long ordinal = 0;
+      for (T record : items) {
+        for (Field<?> field : fields) {
+          appendText(rows, record.get(field));
+          rows.append('\t');
+        }
+        rows.append(ordinal++).append('\n');
+        if (rows.length() >= FLUSH_SIZE) {
+          flush(copyIn, rows);
+        }
+      }
+      flush(copyIn, rows);
+      copyIn.endCopy();
+    } finally {
+      if (copyIn.isActive()) {
+        copyIn.cancelCopy();
+      }
+    }
+  }
+
+  private void flush(CopyIn copyIn, StringBuilder rows) throws SQLException {
+    if (rows.length() == 0) {
+      return;
+    }
+    byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+    copyIn.writeToCopy(bytes, 0, bytes.length);
+    rows.setLength(0);
+  }
+
+  @Override
+  public Query getQuery(T record) {
+    return context.query(getMergeSql(record.getTable()));
+  }
+
+  /*
+   * Creates the staging table by the insert fields of the target table, without any constraint
+   * or default, and empties it.
+   */
+  String getStageSql(Table<?> table) {
+    return stageSqlCache.computeIfAbsent(
+        table,
+        key ->
+            String.format(
+                "create temporary table if not exists %s as select %s, 0::bigint as %s from %s"
+                    + " with no data; truncate %s",
+                getStageName(key),
+                namesOf(getInsertFields(key)),
+                ORDINAL,
+                context.render(key),
+                getStageName(key)));
+  }
+
+  String getCopySql(Table<?> table) {
+    return copySqlCache.computeIfAbsent(
+        table,
+        key ->
+            String.format(
+                "copy %s (%s, %s) from stdin",
+                getStageName(key), namesOf(getInsertFields(key)), ORDINAL));
+  }
+
+  /*
+   * Merges the last row of each constraint from the staging table into the target table. Rows of
+   * which any nullable constraint field is null are merged apart from distinct on, as they never
+   * conflict with each other.
+   */
+  String getMergeSql(Table<?> table) {
+    return mergeSqlCache.computeIfAbsent(
+        table,
+        key -> {
+          String insertFields = namesOf(getInsertFields(key));
+          List<Field<?>> constraintFields = getConstraintFields(key);
+          List<Field<?>> updateFields = getUpdateFields(key);
+          StringBuilder sql = new StringBuilder("insert into ").append(context.render(key));
+          sql.append(" (").append(insertFields).append(") ");
+          if (constraintFields.isEmpty()) {
+            sql.append("select ").append(insertFields).append(" from ").append(getStageName(key));
+            return sql.append(" order by ").append(ORDINAL).append(" on conflict do nothing")
+                .toString();
+          }
+          String keys = namesOf(constraintFields);
+          List<Field<?>> nullableFields =
+              constraintFields.stream()
+                  .filter(field -> field.getDataType().nullable())
+                  .collect(Collectors.toList());
+          if (nullableFields.isEmpty()) {
+            sql.append("select distinct on (").append(keys).append(") ").append(insertFields);
+            sql.append(" from ").append(getStageName(key));
+            sql.append(" order by ").append(keys).append(", ").append(ORDINAL).append(" desc");
+          } else {
+            sql.append("(select distinct on (").append(keys).append(") ").append(insertFields);
+            sql.append(" from ").append(getStageName(key)).append(" where ");
+            sql.append(joinConditions(nullableFields, " is not null", " and "));
+            sql.append(" order by ").append(keys).append(", ").append(ORDINAL).append(" desc)");
+            sql.append(" union all (select ").append(insertFields);
+            sql.append(" from ").append(getStageName(key)).append(" where ");
+            sql.append(joinConditions(nullableFields, " is null", " or "));
+            sql.append(" order by ").append(ORDINAL).append(")");
+          }
+          sql.append(" on conflict (").append(keys).append(") do ");
+          if (updateFields.isEmpty()) {
+            return sql.append("nothing").toString();
+          }
+          sql.append("update set ");
+          sql.append(
+              updateFields.stream()
+                  .map(field -> nameOf(field) + " = excluded." + nameOf(field))
+                  .collect(Collectors.joining(", ")));
+          return sql.toString();
+        });
+  }
+
+  private String joinConditions(List<Field<?>> fields, String condition, String delimiter) {
+    return fields.stream()
+        .map(field -> nameOf(field) + condition)
+        .collect(Collectors.joining(delimiter));
+  }
+
+  private String getStageName(Table<?> table) {
+    return context.render(DSL.name(STAGE_PREFIX + table.getName()));
+  }
+
+  private String namesOf(List<Field<?>> fields) {
+    return fields.stream().map(this::nameOf).collect(Collectors.joining(", "));
+  }
+
+  private String nameOf(Field<?> field) {
+    return context.render(field.getUnqualifiedName());
+  }
+
+  /**
+   * Appends given value as a column of the text format of COPY.
+   *
+   * @param out   to be appended.
+   * @param value value of the column.
+   */
+  static void appendText(StringBuilder out, Object value) {
+    if (value == null) {
+      out.append("\\N");
+      return;
+    }
+    if (value instanceof Boolean bool) {
+      out.append(bool ? 't' : 'f');
+      return;
+    }
+    if (value instanceof byte[] bytes) {
+      // hex format of bytea, of which the backslash is escaped as well.
+      out.append("\\\\x");
+      for (byte b : bytes) {
+        out.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+      }
+      return;
+    }
+    String text = value.toString();
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '\\' -> out.append("\\\\");
+        case '\t' -> out.append("\\t");
+        case '\n' -> out.append("\\n");
+        case '\r' -> out.append("\\r");
+        default -> out.append(c);
+      }
+    }
+  }
+}
@@ -0,0 +1,288 @@
+package io.dsub.discogs.batch.job.writer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only file of the rows spilled by {@link WriteBehindStage}. Each row is a frame of its
+ * length, the name of its table and its values, read back in the order appended. The file is
+ * truncated once every row appended is read, so that it only grows while rows are pending.
+ *
+ * <p>The file is not replayed across runs. The rows spilled are never covered by a checkpoint
+ * until written, so the rows left over by a run that stopped are read again from the dump, and
+ * the file is discarded on open.
+ *
+ * <p>Values are written by their types, falling back to the java serialization for the types not
+ * known here.
+ */
+class SpillFile implements Closeable {
+
+  private static final int FLUSH_THRESHOLD = 1 << 16;
+
+  private static final byte NULL = 0;
+  private static final byte INTEGER = 1;
+  private static final byte LONG = 2;
+  private static final byte STRING = 3;
+  private static final byte BOOLEAN = 4;
+  private static final byte SHORT = 5;
+  private static final byte DOUBLE = 6;
+  private static final byte FLOAT = 7;
+  private static final byte LOCAL_DATE_TIME = 8;
+  private static final byte LOCAL_DATE = 9;
+  private static final byte OFFSET_DATE_TIME = 10;
+  private static final byte BIG_DECIMAL = 11;
+  private static final byte BYTES = 12;
+  private static final byte SERIALIZED = 13;
+
+  private final Path path;
+  private final FileChannel channel;
+  private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+  private final DataOutputStream frameOut = new DataOutputStream(frame);
+  private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+  private final DataOutputStream pendingOut = new DataOutputStream(pending);
+  private final ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+  private long writePosition;
+  private long readPosition;
+  private long appended;
+  private long read;
+
+  /**
+   * @param path path of the file, of which the existing content is discarded.
+   * @throws IOException if the file cannot be opened.
+   */
+  SpillFile(Path path) throws IOException {
+    this.path = path;
+    this.channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /**
+   * Appends a row, buffered until enough rows are appended or the rows are read.
+   *
+   * @param table  name of the table of the row.
+   * @param values values of the row.
+   * @throws IOException if the row cannot be written.
+   */
+  synchronized void append(String table, Object[] values) throws IOException {
+    frame.reset();
+    writeString(frameOut, table);
+    frameOut.writeInt(values.length);
+    for (Object value : values) {
+      writeValue(frameOut, value);
+    }
+    frameOut.flush();
+    pendingOut.writeInt(frame.size());
+    frame.writeTo(pending);
+    appended++;
+    if (pending.size() >= FLUSH_THRESHOLD) {
+      flush();
+    }
+  }
+
+  /**
+   * Reads the rows appended but not read yet, up to given count.
+   *
+   * @param max max count of the rows to be read.
+   * @return rows read, in the order appended.
+   * @throws IOException if the rows cannot be read.
+   */
+  synchronized List<Row> read(int max) throws IOException {
+    flush();
+    List<Row> rows = new ArrayList<>(Math.min(max, 1024));
+    while (rows.size() < max && readPosition < writePosition) {
+      lengthBuffer.clear();
+      readFully(lengthBuffer, readPosition);
+      ByteBuffer payload = ByteBuffer.allocate(lengthBuffer.getInt(0));
+      readFully(payload, readPosition + Integer.BYTES);
+      readPosition += Integer.BYTES + payload.capacity();
+      rows.add(readRow(new DataInputStream(new ByteArrayInputStream(payload.array()))));
+    }
+    read += rows.size();
+    if (readPosition == writePosition) {
+      channel.truncate(0);
+      readPosition = 0;
+      writePosition = 0;
+    }
+    return rows;
+  }
+
+  /**
+   * @return count of the rows appended but not read yet.
+   */
+  synchronized long getPendingCount() {
+    return appended - read;
+  }
+
+  Path getPath() {
+    return path;
+  }
+
+  /**
+   * Deletes the file, if exists.
+   *
+   * @throws IOException if the file cannot be deleted.
+   */
+  synchronized void delete() throws IOException {
+    channel.close();
+    Files.deleteIfExists(path);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  private void flush() throws IOException {
+    if (pending.size() == 0) {
+      return;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+    while (buffer.hasRemaining()) {
+      writePosition += channel.write(buffer, writePosition);
+    }
+    pending.reset();
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("unexpected end of " + path);
+      }
+    }
+  }
+
+  private Row readRow(DataInputStream in) throws IOException {
+    String table = readString(in);
+    Object[] values = new Object[in.readInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = readValue(in);
+    }
+    return new Row(table, values);
+  }
+
+  private static void writeValue(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof Integer i) {
+      out.writeByte(INTEGER);
+      out.writeInt(i);
+    } else if (value instanceof Long l) {
+      out.writeByte(LONG);
+      out.writeLong(l);
+    } else if (value instanceof String s) {
+      out.writeByte(STRING);
+      writeString(out, s);
+    } else if (value instanceof Boolean b) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean(b);
+    } else if (value instanceof Short s) {
+      out.writeByte(SHORT);
+      out.writeShort(s);
+    } else if (value instanceof Double d) {
+      out.writeByte(DOUBLE);
+      out.writeDouble(d);
+    } else if (value instanceof Float f) {
+      out.writeByte(FLOAT);
+      out.writeFloat(f);
+    } else if (value instanceof LocalDateTime dateTime) {
+      out.writeByte(LOCAL_DATE_TIME);
+      writeString(out, dateTime.toString());
+    } else if (value instanceof LocalDate date) {
+      out.writeByte(LOCAL_DATE);
+      writeString(out, date.toString());
+    } else if (value instanceof OffsetDateTime dateTime) {
+      out.writeByte(OFFSET_DATE_TIME);
+      writeString(out, dateTime.toString());
+    } else if (value instanceof BigDecimal decimal) {
+      out.writeByte(BIG_DECIMAL);
+      writeString(out, decimal.toString());
+    } else if (value instanceof byte[] bytes) {
+      out.writeByte(BYTES);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    } else if (value instanceof Serializable) {
+      ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+      try (ObjectOutputStream objectOut = new ObjectOutputStream(serialized)) {
+        objectOut.writeObject(value);
+      }
+      out.writeByte(SERIALIZED);
+      out.writeInt(serialized.size());
+      serialized.writeTo(out);
+    } else {
+      throw new IOException("cannot spill a value of " + value.getClass().getName());
+    }
+  }
+
+  private static Object readValue(DataInputStream in) throws IOException {
+    byte type = in.readByte();
+    return switch (type) {
+      case NULL -> null;
+      case INTEGER -> in.readInt();
+      case LONG -> in.readLong();
+      case STRING -> readString(in);
+      case BOOLEAN -> in.readBoolean();
+      case SHORT -> in.readShort();
+      case DOUBLE -> in.readDouble();
+      case FLOAT -> in.readFloat();
+      case LOCAL_DATE_TIME -> LocalDateTime.parse(readString(in));
+      case LOCAL_DATE -> LocalDate.parse(readString(in));
+      case OFFSET_DATE_TIME -> OffsetDateTime.parse(readString(in));
+      case BIG_DECIMAL -> new BigDecimal(readString(in));
+      case BYTES -> in.readNBytes(in.readInt());
+      case SERIALIZED -> readSerialized(in.readNBytes(in.readInt()));
+      default -> throw new IOException("unknown type of spilled value: " + type);
+    };
+  }
+
+  private static Object readSerialized(byte[] bytes) throws IOException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException("cannot read spilled value", e);
+    }
+  }
+
+  // writeUTF is limited to 64KB, which a profile or a note may exceed.
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * A row read from the file.
+   *
+   * @param table  name of the table of the row.
+   * @param values values of the row.
+   */
+  record Row(String table, Object[] values) {}
+}
@@ -0,0 +1,50 @@
+package io.dsub.discogs.batch.job.writer;
+
+import io.dsub.discogs.batch.job.reader.ChunkBinding;
+import io.dsub.discogs.batch.job.reader.ChunkStates;
+import io.dsub.discogs.batch.job.registry.RowFingerprintFilter;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.jooq.UpdatableRecord;
+import org.springframework.batch.item.ItemWriter;
+
+/**
+ * {@link ItemWriter} implementation handing the records over to a {@link WriteBehindStage}
+ * instead of writing them. Records are filtered by the filter writer on the calling thread.
+ *
+ * <p>As the records are only written after the chunk is committed, the chunk holds its states
+ * (i.e. the checkpoint of the reader, see {@link ChunkStates#hold()}) until the stage has written
+ * them, and the fingerprints of the records are only committed by then as well.
+ */
+@RequiredArgsConstructor
+public class WriteBehindItemWriter<T extends UpdatableRecord<?>> implements ItemWriter<T> {
+
+  private final DefaultLJooqItemWriter<T> filter;
+  private final WriteBehindStage stage;
+
+  @Override
+  public void write(List<? extends T> items) throws Exception {
+    List<? extends T> filtered = filter.filter(items);
+    RowFingerprintFilter fingerprints = filter.getRowFingerprintFilter();
+    Set<Long> staged = fingerprints == null ? Set.of() : fingerprints.takeStaged();
+    ChunkStates.State hold = ChunkBinding.current().hold();
+    boolean handedOver = false;
+    try {
+      stage.write(
+          filtered,
+          () -> {
+            if (fingerprints != null) {
+              fingerprints.commit(staged);
+            }
+            hold.settle();
+          });
+      handedOver = true;
+    } finally {
+      // the chunk fails, hence is never settled by the rows not handed over.
+      if (!handedOver) {
+        hold.settle();
+      }
+    }
+  }
+}
@@ -0,0 +1,540 @@
+package io.dsub.discogs.batch.job.writer;
+
+import io.dsub.discogs.batch.exception.FileException;
+import io.dsub.discogs.batch.exception.WriteBehindException;
+import io.dsub.discogs.batch.job.listener.DeadlockRetryCountingListener;
+import io.dsub.discogs.batch.job.reader.ChunkStates;
+import io.dsub.discogs.batch.util.FileUtil;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.Table;
+import org.jooq.UpdatableRecord;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+
+/**
+ * Writes the rows behind the chunks, so that the workers go on to read and process the next chunk
+ * instead of waiting for the database. Rows are buffered per table, and every {@link #BATCH_SIZE}
+ * rows of a table are written by a dedicated pool of writers, each batch within a transaction of
+ * its own.
+ *
+ * <p>Up to a given count of rows, {@link #DEFAULT_MAX_BUFFERED_ROWS} unless configured otherwise,
+ * are kept on the heap. Once the database falls behind, a worker waits up to a given time, {@link
+ * #DEFAULT_BACKPRESSURE_MILLIS} unless configured otherwise, for the buffers to be drained, then
+ * appends its rows to a {@link SpillFile} in the application directory instead. Once anything is
+ * spilled, rows keep being spilled until the writers have read every spilled row back, so that
+ * rows are written in about the order they arrived.
+ *
+ * <p>Each write settles its given state once every row of it is written, by which the chunk
+ * handing the rows over holds its checkpoint and fingerprints until then (see {@link
+ * WriteBehindItemWriter}). Rows buffered or spilled are hence never covered by a checkpoint, and
+ * are read again from the dump on restart should the run stop before they are written; the spill
+ * file is nothing but an overflow of the buffers, discarded once the step is done.
+ *
+ * <p>Should be registered to each step writing through it, as the step is only completed once
+ * every buffer and the spill file is drained. If a batch failed to be written, the rows still
+ * pending are dropped without settling their states and the step fails by a {@link
+ * WriteBehindException} holding the rows of the batch, which is also thrown to the next chunk to be
+ * written. Batches retried on deadlocks are counted by {@link DeadlockRetryCountingListener}.
+ */
+@Slf4j
+public class WriteBehindStage implements StepExecutionListener {
+
+  public static final int BATCH_SIZE = 5_000;
+  public static final long DEFAULT_MAX_BUFFERED_ROWS = 200_000;
+  public static final long DEFAULT_BACKPRESSURE_MILLIS = 100;
+  public static final String SPILL_FILE_NAME = "write-behind.spill";
+  public static final String SPILLED_ROW_COUNT = "writeBehindSpilledRowCount";
+
+  private static final int DEADLOCK_RETRY_LIMIT = 10;
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private final DefaultLJooqItemWriter<UpdatableRecord<?>> delegate;
+  private final DSLContext context;
+  private final FileUtil fileUtil;
+  private final DeadlockRetryCountingListener deadlockRetryCountingListener;
+  private final int writers;
+  private final long maxBufferedRows;
+  private final long backpressureMillis;
+  // rows read back from the spill file at once, reserved on the heap ahead of reading them.
+  private final int drainSize;
+  private final ExecutorService executor;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition drained = lock.newCondition();
+  private final Map<Table<?>, Batch> buffers = new HashMap<>();
+  private final Map<String, Table<?>> spilledTables = new HashMap<>();
+  // handovers of the rows spilled, in the order appended. guarded by itself.
+  private final ArrayDeque<Run> spilledRuns = new ArrayDeque<>();
+  private volatile StepExecution stepExecution;
+  private long bufferedRows;
+  private int running;
+  private int draining;
+  private long spilledRows;
+  private SpillFile spillFile;
+  private WriteBehindException failure;
+
+  /**
+   * @param delegate                      writer of the batches, without filtering them.
+   * @param context                       context to begin the transactions from.
+   * @param fileUtil                      to locate the spill file.
+   * @param deadlockRetryCountingListener to count the batches retried on deadlocks.
+   * @param writers                       count of the writers, hence of the connections taken by
+   *                                      them.
+   * @param maxBufferedRows               max count of the rows kept on the heap before spilling.
+   * @param backpressureMillis            time to wait for the buffers to be drained before
+   *                                      spilling.
+   */
+  public WriteBehindStage(
+      DefaultLJooqItemWriter<UpdatableRecord<?>> delegate,
+      DSLContext context,
+      FileUtil fileUtil,
+      DeadlockRetryCountingListener deadlockRetryCountingListener,
+      int writers,
+      long maxBufferedRows,
+      long backpressureMillis) {
+    if (maxBufferedRows < 1) {
+      throw new IllegalArgumentException("max buffered rows must be positive: " + maxBufferedRows);
+    }
+    this.delegate = delegate;
+    this.context = context;
+    this.fileUtil = fileUtil;
+    this.deadlockRetryCountingListener = deadlockRetryCountingListener;
+    this.writers = Math.max(1, writers);
+    this.maxBufferedRows = maxBufferedRows;
+    this.backpressureMillis = Math.max(0, backpressureMillis);
+    this.drainSize = (int) Math.min(BATCH_SIZE, maxBufferedRows);
+    this.executor =
+        Executors.newFixedThreadPool(
+            this.writers,
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "write-behind-" + THREAD_COUNT.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * @param workers count of the workers writing chunks at once.
+   * @return count of the writers, hence of the connections to be reserved for them.
+   */
+  public static int getWriterCount(int workers) {
+    return Math.max(2, workers / 2);
+  }
+
+  /**
+   * Buffers the rows to be written behind, or spills them if the buffers are full.
+   *
+   * @param items   rows to be written, already filtered.
+   * @param written state to be settled once every row is written, which is never settled if any
+   *                of them is dropped.
+   * @throws WriteBehindException if any batch failed to be written.
+   * @throws IOException          if the rows cannot be spilled.
+   * @throws InterruptedException if interrupted while waiting for the buffers.
+   */
+  public void write(List<? extends UpdatableRecord<?>> items, ChunkStates.State written)
+      throws IOException, InterruptedException {
+    if (items.isEmpty()) {
+      written.settle();
+      return;
+    }
+    Handover handover = new Handover(items.size(), written);
+    lock.lockInterruptibly();
+    try {
+      throwIfFailed();
+      if (getSpilledCount() == 0 && !hasRoomFor(items.size())) {
+        drained.await(backpressureMillis, TimeUnit.MILLISECONDS);
+        throwIfFailed();
+      }
+      if (hasRoomFor(items.size())) {
+        buffer(items, handover);
+      } else {
+        spill(items, handover);
+      }
+      scheduleDrains();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+    this.stepExecution = stepExecution;
+  }
+
+  /*
+   * Waits for every row of the step to be written, then fails the step if any batch failed. Being
+   * registered before other listeners but the deadlock retry counter, this runs after them to have
+   * the last word on the status, while its retries are still counted.
+   */
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    try {
+      flush();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      fail("-", List.of(), e);
+    }
+    WriteBehindException failed;
+    long spilled;
+    lock.lock();
+    try {
+      failed = failure;
+      spilled = spilledRows;
+      reset();
+    } finally {
+      lock.unlock();
+    }
+    this.stepExecution = null;
+    if (spilled > 0) {
+      stepExecution.getExecutionContext().putLong(SPILLED_ROW_COUNT, spilled);
+      log.info("{} spilled {} rows to be written behind", stepExecution.getStepName(), spilled);
+    }
+    if (failed == null) {
+      return null;
+    }
+    log.error("{} failed to write rows behind", stepExecution.getStepName(), failed);
+    stepExecution.setStatus(BatchStatus.FAILED);
+    if (!stepExecution.getFailureExceptions().contains(failed)) {
+      stepExecution.addFailureException(failed);
+    }
+    return ExitStatus.FAILED.addExitDescription(failed);
+  }
+
+  /**
+   * Writes every row buffered or spilled so far, and waits for them to be written. Rows still
+   * pending are dropped once any batch failed.
+   *
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public void flush() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      buffers.forEach(this::submit);
+      buffers.clear();
+      scheduleDrains();
+      while (running > 0 || (failure == null && getSpilledCount() > 0)) {
+        drained.await();
+        scheduleDrains();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean hasRoomFor(int count) {
+    return getSpilledCount() == 0 && bufferedRows + count <= maxBufferedRows;
+  }
+
+  private long getSpilledCount() {
+    return spillFile == null ? 0 : spillFile.getPendingCount();
+  }
+
+  private void buffer(List<? extends UpdatableRecord<?>> items, Handover handover) {
+    for (UpdatableRecord<?> item : items) {
+      Table<?> table = item.getTable();
+      Batch buffer = buffers.computeIfAbsent(table, key -> new Batch());
+      buffer.add(item, handover);
+      if (buffer.size() >= BATCH_SIZE) {
+        buffers.remove(table);
+        submit(table, buffer);
+      }
+    }
+    bufferedRows += items.size();
+  }
+
+  /*
+   * A failure to spill fails the stage, as the file may be left with a partial row. The rows of
+   * the write are never settled then, as some of them are dropped.
+   */
+  private void spill(List<? extends UpdatableRecord<?>> items, Handover handover)
+      throws IOException {
+    try {
+      if (spillFile == null) {
+        try {
+          spillFile = new SpillFile(fileUtil.getFilePath(SPILL_FILE_NAME, true));
+        } catch (FileException e) {
+          throw new IOException(e.getMessage(), e);
+        }
+        log.info("database fell behind. spilling rows to {}.", spillFile.getPath());
+      }
+      synchronized (spilledRuns) {
+        int appended = 0;
+        try {
+          for (UpdatableRecord<?> item : items) {
+            Table<?> table = item.getTable();
+            spilledTables.putIfAbsent(table.getName(), table);
+            spillFile.append(table.getName(), item.intoArray());
+            appended++;
+          }
+        } finally {
+          if (appended > 0) {
+            spilledRuns.add(new Run(handover, appended));
+          }
+        }
+      }
+    } catch (IOException e) {
+      fail(SPILL_FILE_NAME, List.of(), e);
+      throw e;
+    }
+    spilledRows += items.size();
+  }
+
+  private void submit(Table<?> table, Batch batch) {
+    running++;
+    executor.execute(() -> writeBuffered(table, batch));
+  }
+
+  /*
+   * Spilled rows are read back by the writers left idle, as long as the heap has room for them.
+   */
+  private void scheduleDrains() {
+    while (failure == null
+        && running < writers
+        && getSpilledCount() > (long) draining * drainSize
+        && bufferedRows + drainSize <= maxBufferedRows) {
+      running++;
+      draining++;
+      bufferedRows += drainSize;
+      executor.execute(this::drainSpilled);
+    }
+  }
+
+  private void writeBuffered(Table<?> table, Batch batch) {
+    try {
+      writeBatch(table, batch);
+    } finally {
+      lock.lock();
+      try {
+        bufferedRows -= batch.size();
+        running--;
+        scheduleDrains();
+        drained.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private void drainSpilled() {
+    try {
+      List<SpillFile.Row> rows;
+      List<Handover> handovers;
+      // read along with the handovers, as other writers may be reading the rows next to them.
+      synchronized (spilledRuns) {
+        rows = spillFile.read(drainSize);
+        handovers = takeSpilledHandovers(rows.size());
+      }
+      Map<Table<?>, Batch> batches = new LinkedHashMap<>();
+      for (int i = 0; i < rows.size(); i++) {
+        SpillFile.Row row = rows.get(i);
+        Table<?> table = getSpilledTable(row.table());
+        UpdatableRecord<?> record = (UpdatableRecord<?>) context.newRecord(table);
+        record.fromArray(row.values());
+        batches.computeIfAbsent(table, key -> new Batch()).add(record, handovers.get(i));
+      }
+      batches.forEach(this::writeBatch);
+    } catch (IOException e) {
+      fail(SPILL_FILE_NAME, List.of(), e);
+    } finally {
+      lock.lock();
+      try {
+        bufferedRows -= drainSize;
+        running--;
+        draining--;
+        scheduleDrains();
+        drained.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private List<Handover> takeSpilledHandovers(int count) {
+    List<Handover> handovers = new ArrayList<>(count);
+    while (handovers.size() < count) {
+      Run run = spilledRuns.getFirst();
+      handovers.add(run.handover);
+      if (--run.count == 0) {
+        spilledRuns.removeFirst();
+      }
+    }
+    return handovers;
+  }
+
+  private Table<?> getSpilledTable(String name) {
+    lock.lock();
+    try {
+      return spilledTables.get(name);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /*
+   * Writes a batch within a transaction, retried on deadlocks as the chunks would have been, then
+   * settles the rows of the batch. A batch is skipped once any other batch failed, as the step
+   * fails anyway.
+   */
+  private void writeBatch(Table<?> table, Batch batch) {
+    for (int attempt = 1; !isFailed(); attempt++) {
+      try {
+        context.transaction(configuration -> delegate.write(configuration.dsl(), batch.rows));
+        batch.settle();
+        return;
+      } catch (DeadlockLoserDataAccessException e) {
+        if (attempt >= DEADLOCK_RETRY_LIMIT) {
+          fail(table.getName(), batch.rows, e);
+        } else {
+          countDeadlockRetry();
+        }
+      } catch (RuntimeException e) {
+        fail(table.getName(), batch.rows, e);
+      }
+    }
+  }
+
+  private void countDeadlockRetry() {
+    StepExecution current = stepExecution;
+    if (current != null) {
+      deadlockRetryCountingListener.countRetry(current);
+    }
+  }
+
+  private boolean isFailed() {
+    lock.lock();
+    try {
+      return failure != null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void fail(String table, List<UpdatableRecord<?>> batch, Throwable cause) {
+    List<String> rows =
+        batch.stream()
+            .map(record -> Arrays.toString(record.intoArray()))
+            .collect(Collectors.toList());
+    lock.lock();
+    try {
+      if (failure == null) {
+        failure = new WriteBehindException(table, rows, cause);
+      }
+      drained.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void throwIfFailed() {
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /*
+   * Drops the state of the step, including the spill file, for the next step to start over.
+   */
+  private void reset() {
+    if (spillFile != null) {
+      try {
+        spillFile.delete();
+      } catch (IOException e) {
+        log.warn("failed to delete {}", spillFile.getPath(), e);
+      }
+    }
+    spillFile = null;
+    synchronized (spilledRuns) {
+      spilledRuns.clear();
+    }
+    spilledTables.clear();
+    buffers.clear();
+    bufferedRows = 0;
+    spilledRows = 0;
+    failure = null;
+  }
+
+  /*
+   * Rows handed over by a write, of which the state is settled once every row is written.
+   */
+  private static final class Handover {
+
+    private final AtomicInteger pending;
+    private final ChunkStates.State written;
+
+    private Handover(int count, ChunkStates.State written) {
+      this.pending = new AtomicInteger(count);
+      this.written = written;
+    }
+
+    private void written(int count) {
+      if (pending.addAndGet(-count) == 0) {
+        written.settle();
+      }
+    }
+  }
+
+  /*
+   * Consecutive rows spilled by the same handover.
+   */
+  private static final class Run {
+
+    private final Handover handover;
+    private int count;
+
+    private Run(Handover handover, int count) {
+      this.handover = handover;
+      this.count = count;
+    }
+  }
+
+  /*
+   * Rows of a table to be written at once, with the handover of each row.
+   */
+  private static final class Batch {
+
+    private final List<UpdatableRecord<?>> rows = new ArrayList<>(BATCH_SIZE);
+    private final List<Handover> handovers = new ArrayList<>(BATCH_SIZE);
+
+    private void add(UpdatableRecord<?> row, Handover handover) {
+      rows.add(row);
+      handovers.add(handover);
+    }
+
+    private int size() {
+      return rows.size();
+    }
+
+    private void settle() {
+      int from = 0;
+      while (from < handovers.size()) {
+        Handover handover = handovers.get(from);
+        int to = from + 1;
+        while (to < handovers.size() && handovers.get(to) == handover) {
+          to++;
+        }
+        handover.written(to - from);
+        from = to;
+      }
+    }
+  }
+}
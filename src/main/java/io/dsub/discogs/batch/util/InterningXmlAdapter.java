@@ -0,0 +1,20 @@
+package io.dsub.discogs.batch.util;
+
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+
+/**
+ * Interns the values of low cardinality while being unmarshalled, by {@link
+ * StringDictionary#SHARED}.
+ */
+public class InterningXmlAdapter extends XmlAdapter<String, String> {
+
+  @Override
+  public String unmarshal(String value) {
+    return StringDictionary.SHARED.intern(value);
+  }
+
+  @Override
+  public String marshal(String value) {
+    return value;
+  }
+}
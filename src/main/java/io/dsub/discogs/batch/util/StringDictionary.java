@@ -0,0 +1,112 @@
+package io.dsub.discogs.batch.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent dictionary of strings, which assigns each distinct string a compact int code in the
+ * order of their arrivals, and hands out a single instance per distinct string. Meant for the
+ * values of only a few thousands of distinct strings repeated over the dumps (i.e. genres, styles,
+ * countries, formats, roles), so that the items in flight share the same instances instead of
+ * copies of their own.
+ *
+ * <p>Lookups of the strings already known never lock. A dictionary stops taking new strings once
+ * it holds as many as its capacity, so that values of high cardinality only cost a lookup.
+ */
+public class StringDictionary {
+
+  /**
+   * Dictionary shared by the unmarshalling of the dumps.
+   */
+  public static final StringDictionary SHARED = new StringDictionary(1 << 18);
+
+  private final int capacity;
+  private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+  private volatile String[] values = new String[64];
+  private int size = 0;
+
+  /**
+   * Creates a dictionary without limit of the capacity.
+   */
+  public StringDictionary() {
+    this(Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param capacity max count of the strings to be held.
+   */
+  public StringDictionary(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * @param value string to be interned. nullable.
+   * @return the instance held by the dictionary equal to given string, or the string itself if
+   * the dictionary is full.
+   */
+  public String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    int code = codeOf(value);
+    return code < 0 ? value : values[code];
+  }
+
+  /**
+   * @param value string to be coded.
+   * @return code of the string, assigned if not yet known. -1 if the dictionary is full.
+   */
+  public int codeOf(String value) {
+    Integer code = codes.get(value);
+    if (code != null) {
+      return code;
+    }
+    synchronized (this) {
+      code = codes.get(value);
+      if (code != null) {
+        return code;
+      }
+      if (size >= capacity) {
+        return -1;
+      }
+      if (size == values.length) {
+        values = Arrays.copyOf(values, values.length << 1);
+      }
+      // the value is stored before its code is published, so that the code never points nowhere.
+      values[size] = value;
+      codes.put(value, size);
+      return size++;
+    }
+  }
+
+  /**
+   * @param value string to be looked up. nullable.
+   * @return code of the string, or -1 if not known.
+   */
+  public int codeIfPresent(String value) {
+    if (value == null) {
+      return -1;
+    }
+    Integer code = codes.get(value);
+    return code == null ? -1 : code;
+  }
+
+  /**
+   * @param code code of a string.
+   * @return the string of given code.
+   */
+  public String valueOf(int code) {
+    return values[code];
+  }
+
+  public int size() {
+    return codes.size();
+  }
+
+  public synchronized void clear() {
+    codes.clear();
+    values = new String[64];
+    size = 0;
+  }
+}
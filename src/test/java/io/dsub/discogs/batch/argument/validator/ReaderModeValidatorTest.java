@@ -0,0 +1,31 @@
+package io.dsub.discogs.batch.argument.validator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.DefaultApplicationArguments;
+
+class ReaderModeValidatorTest {
+
+  final ReaderModeValidator validator = new ReaderModeValidator();
+
+  @Test
+  void whenKnownModeGiven__ThenShouldNotReportAnyIssue() {
+    ApplicationArguments args = new DefaultApplicationArguments("--reader=QUEUED");
+    assertThat(validator.validate(args).isValid()).isTrue();
+  }
+
+  @Test
+  void whenUnknownModeGiven__ThenShouldReportIssue() {
+    ApplicationArguments args = new DefaultApplicationArguments("--reader=hello");
+    ValidationResult result = validator.validate(args);
+    assertThat(result.getIssues()).containsExactly("unknown reader mode: hello");
+  }
+
+  @Test
+  void whenReaderNotGiven__ThenShouldNotReportAnyIssue() {
+    ApplicationArguments args = new DefaultApplicationArguments("--type=artist");
+    assertThat(validator.validate(args).isValid()).isTrue();
+  }
+}
@@ -0,0 +1,31 @@
+package io.dsub.discogs.batch.argument.validator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.DefaultApplicationArguments;
+
+class ShardSpecValidatorTest {
+
+  final ShardSpecValidator validator = new ShardSpecValidator();
+
+  @Test
+  void whenWellFormedShardGiven__ThenShouldNotReportAnyIssue() {
+    ApplicationArguments args = new DefaultApplicationArguments("--shard=1/4");
+    assertThat(validator.validate(args).isValid()).isTrue();
+  }
+
+  @Test
+  void whenMalformedShardGiven__ThenShouldReportIssue() {
+    ApplicationArguments args = new DefaultApplicationArguments("--shard=4/4");
+    ValidationResult result = validator.validate(args);
+    assertThat(result.getIssues()).containsExactly("malformed shard: 4/4");
+  }
+
+  @Test
+  void whenShardNotGiven__ThenShouldNotReportAnyIssue() {
+    ApplicationArguments args = new DefaultApplicationArguments("--type=artist");
+    assertThat(validator.validate(args).isValid()).isTrue();
+  }
+}
@@ -0,0 +1,181 @@
+package io.dsub.discogs.batch.dump;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.dsub.discogs.batch.TestDumpGenerator;
+import io.dsub.discogs.batch.domain.artist.ArtistXML;
+import io.dsub.discogs.batch.job.reader.ProgressBarStaxEventItemReader;
+import io.dsub.discogs.batch.job.tasklet.FileFetchTasklet;
+import io.dsub.discogs.batch.util.FileUtil;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.item.ExecutionContext;
+
+class DumpDownloadTest {
+
+  static final String URI = "data/2021/discogs_20210101_artists.xml.gz";
+
+  final StepExecution stepExecution = new StepExecution("step", new JobExecution(1L));
+  final ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+  final StepContribution stepContribution = new StepContribution(stepExecution);
+  final CountDownLatch release = new CountDownLatch(1);
+
+  @TempDir
+  Path tempDir;
+
+  @Mock
+  FileUtil fileUtil;
+
+  Path sourcePath;
+  byte[] served;
+  volatile boolean truncated = false;
+  HttpServer server;
+  DiscogsDump dump;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    MockitoAnnotations.openMocks(this);
+    Path sourceDir = Files.createDirectory(tempDir.resolve("source"));
+    sourcePath =
+        new TestDumpGenerator(sourceDir).createDiscogsDumpFiles().get(EntityType.ARTIST).toPath();
+    served = Files.readAllBytes(sourcePath);
+
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/" + URI, this::serve);
+    server.start();
+    URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/" + URI);
+    dump =
+        new DiscogsDump(
+            "etag", EntityType.ARTIST, URI, (long) served.length, LocalDate.now(), url);
+
+    given(fileUtil.getSize(anyString())).willReturn(0L);
+    given(fileUtil.getFilePath(anyString(), anyBoolean()))
+        .willAnswer(invocation -> tempDir.resolve(invocation.<String>getArgument(0)));
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    server.stop(0);
+  }
+
+  /**
+   * Serves the first half of the dump, then holds the rest back until released. If truncated, the
+   * rest is never served.
+   */
+  private void serve(HttpExchange exchange) throws IOException {
+    exchange.sendResponseHeaders(200, served.length);
+    OutputStream body = exchange.getResponseBody();
+    int half = served.length / 2;
+    body.write(served, 0, half);
+    body.flush();
+    try {
+      release.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (truncated) {
+      // closing short of the content length drops the connection.
+      body.close();
+      return;
+    }
+    body.write(served, half, served.length - half);
+    exchange.close();
+  }
+
+  @Test
+  void givenTee__WhenFetching__ShouldReadWhileDownloading() throws Exception {
+    FileFetchTasklet tasklet = new FileFetchTasklet(dump, fileUtil);
+    tasklet.setTee(true);
+
+    // when
+    tasklet.execute(stepContribution, chunkContext);
+    Path filePath = tempDir.resolve(dump.getFileName());
+    DumpDownload download = DumpDownload.inFlight(filePath);
+    CompletableFuture<List<ArtistXML>> followed =
+        CompletableFuture.supplyAsync(() -> readAll(filePath));
+
+    // then
+    assertThat(stepContribution.getExitStatus()).isEqualTo(ExitStatus.COMPLETED);
+    assertThat(download).isNotNull();
+    assertThat(download.isDone()).isFalse();
+    assertThat(followed).isNotDone();
+
+    release.countDown();
+    assertThat(followed.get(10, TimeUnit.SECONDS))
+        .isNotEmpty()
+        .isEqualTo(readAll(sourcePath));
+    download.await();
+    assertThat(DumpDownload.inFlight(filePath)).isNull();
+    assertThat(Files.readAllBytes(filePath)).isEqualTo(served);
+  }
+
+  @Test
+  void givenTee__WhenDownloadFails__ShouldFailFollowers() throws Exception {
+    FileFetchTasklet tasklet = new FileFetchTasklet(dump, fileUtil);
+    tasklet.setTee(true);
+    truncated = true;
+
+    // when
+    tasklet.execute(stepContribution, chunkContext);
+    Path filePath = tempDir.resolve(dump.getFileName());
+    CompletableFuture<List<ArtistXML>> followed =
+        CompletableFuture.supplyAsync(() -> readAll(filePath));
+    release.countDown();
+
+    // then
+    assertThatThrownBy(() -> followed.get(10, TimeUnit.SECONDS)).hasRootCauseInstanceOf(
+        IOException.class);
+    assertThat(DumpDownload.inFlight(filePath)).isNotNull();
+    assertThatThrownBy(() -> DumpDownload.inFlight(filePath).follow())
+        .isInstanceOf(IOException.class);
+  }
+
+  private List<ArtistXML> readAll(Path path) {
+    ProgressBarStaxEventItemReader<ArtistXML> reader = null;
+    List<ArtistXML> items = new ArrayList<>();
+    try {
+      reader = new ProgressBarStaxEventItemReader<>(ArtistXML.class, path, "artist");
+      reader.open(new ExecutionContext());
+      for (ArtistXML item = reader.read(); item != null; item = reader.read()) {
+        items.add(item);
+      }
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    } finally {
+      if (reader != null) {
+        reader.close();
+      }
+    }
+    return items;
+  }
+}
@@ -0,0 +1,54 @@
+package io.dsub.discogs.batch.job.listener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+
+class DeadlockRetryCountingListenerTest {
+
+  DeadlockRetryCountingListener listener = new DeadlockRetryCountingListener();
+
+  @AfterEach
+  void cleanUp() {
+    StepSynchronizationManager.close();
+  }
+
+  @Test
+  void whenDeadlocksRetried__ShouldStoreCountOfStep() {
+    StepExecution stepExecution = new StepExecution("step", new JobExecution(1L), 1L);
+    listener.beforeStep(stepExecution);
+    StepSynchronizationManager.register(stepExecution);
+
+    DeadlockLoserDataAccessException deadlock = new DeadlockLoserDataAccessException("d", null);
+    listener.onError(null, null, deadlock);
+    listener.onError(null, null, new IllegalStateException("wrapped", deadlock));
+    listener.onError(null, null, new DataIntegrityViolationException("other"));
+    listener.afterStep(stepExecution);
+
+    assertThat(
+            stepExecution
+                .getExecutionContext()
+                .getLong(DeadlockRetryCountingListener.DEADLOCK_RETRY_COUNT))
+        .isEqualTo(2);
+  }
+
+  @Test
+  void whenNoDeadlock__ShouldStoreZero() {
+    StepExecution stepExecution = new StepExecution("step", new JobExecution(1L), 2L);
+    listener.beforeStep(stepExecution);
+
+    listener.afterStep(stepExecution);
+
+    assertThat(
+            stepExecution
+                .getExecutionContext()
+                .getLong(DeadlockRetryCountingListener.DEADLOCK_RETRY_COUNT))
+        .isZero();
+  }
+}
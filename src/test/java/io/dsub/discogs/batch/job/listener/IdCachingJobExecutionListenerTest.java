@@ -0,0 +1,37 @@
+package io.dsub.discogs.batch.job.listener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class IdCachingJobExecutionListenerTest {
+
+  @Test
+  void whenSliced__ShouldCoverRangeWithoutOverlap() {
+    int[][] slices = IdCachingJobExecutionListener.slicesOf(3, 1_000, 7);
+
+    assertThat(slices).hasNumberOfRows(7);
+    assertThat(slices[0][0]).isEqualTo(3);
+    assertThat(slices[slices.length - 1][1]).isEqualTo(1_000);
+    for (int i = 1; i < slices.length; i++) {
+      assertThat(slices[i][0]).isEqualTo(slices[i - 1][1] + 1);
+    }
+  }
+
+  @Test
+  void whenRangeIsNarrow__ShouldReduceSlices() {
+    assertThat(IdCachingJobExecutionListener.slicesOf(5, 7, 8))
+        .isDeepEqualTo(new int[][] {{5, 5}, {6, 6}, {7, 7}});
+    assertThat(IdCachingJobExecutionListener.slicesOf(1, 1, 0))
+        .isDeepEqualTo(new int[][] {{1, 1}});
+  }
+
+  @Test
+  void whenRangeIsWide__ShouldNotOverflow() {
+    int[][] slices = IdCachingJobExecutionListener.slicesOf(0, Integer.MAX_VALUE, 3);
+
+    assertThat(slices).hasNumberOfRows(3);
+    assertThat(slices[2][1]).isEqualTo(Integer.MAX_VALUE);
+    assertThat(slices[2][0]).isPositive();
+  }
+}
@@ -0,0 +1,93 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class BoundedItemQueueTest {
+
+  @Test
+  void whenCapacityIsInvalid__ShouldThrow() {
+    Throwable t = catchThrowable(() -> new BoundedItemQueue<>(0));
+    assertThat(t).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void whenTakenByConsumers__ShouldDeliverEveryItemExactlyOnce() throws Exception {
+    int count = 100_000;
+    BoundedItemQueue<Integer> queue = new BoundedItemQueue<>(16);
+    ConcurrentLinkedQueue<Integer> consumed = new ConcurrentLinkedQueue<>();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                Integer item;
+                while ((item = queue.take()) != null) {
+                  consumed.add(item);
+                }
+                return null;
+              }));
+    }
+    for (int i = 0; i < count; i++) {
+      queue.put(i);
+    }
+    queue.finish();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    assertThat(consumed.stream().sorted().collect(Collectors.toList()))
+        .isEqualTo(IntStream.range(0, count).boxed().collect(Collectors.toList()));
+    assertThat(queue.getMaxDepth()).isBetween(1, 16);
+    assertThat(queue.getAverageDepth()).isGreaterThan(0);
+  }
+
+  @Test
+  void whenQueueIsFull__ShouldBlockProducer() throws Exception {
+    BoundedItemQueue<Integer> queue = new BoundedItemQueue<>(1);
+    queue.put(1);
+    Thread producer =
+        new Thread(
+            () -> {
+              try {
+                queue.put(2);
+              } catch (InterruptedException ignored) {
+                // expected when the test fails.
+              }
+            });
+    producer.start();
+    Thread.sleep(50);
+    assertThat(producer.isAlive()).isTrue();
+
+    assertThat(queue.take()).isEqualTo(1);
+    producer.join(1000);
+
+    assertThat(producer.isAlive()).isFalse();
+    assertThat(queue.getProducerBlockedNanos()).isGreaterThan(0);
+  }
+
+  @Test
+  void whenTaken__ShouldReturnItemsThenNullOnceFinished() throws InterruptedException {
+    BoundedItemQueue<Integer> queue = new BoundedItemQueue<>(4);
+    queue.put(1);
+    queue.put(2);
+    queue.finish();
+
+    assertThat(queue.take()).isEqualTo(1);
+    assertThat(queue.take()).isEqualTo(2);
+    assertThat(queue.take()).isNull();
+  }
+}
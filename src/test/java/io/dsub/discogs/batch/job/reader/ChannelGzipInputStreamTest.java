@@ -0,0 +1,157 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import io.dsub.discogs.batch.TestArguments;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class ChannelGzipInputStreamTest {
+
+  @TempDir
+  Path tempDir;
+
+  @ParameterizedTest
+  @MethodSource("io.dsub.discogs.batch.TestArguments#xmlPaths")
+  void whenRead__ShouldMatchGZIPInputStream(Path path) throws IOException {
+    byte[] expected;
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+      expected = in.readAllBytes();
+    }
+
+    // deliberately small buffer to refill it many times, also within the header and trailer.
+    try (InputStream in = new ChannelGzipInputStream(FileChannel.open(path), null, 7)) {
+      assertThat(in.readAllBytes()).isEqualTo(expected);
+    }
+    try (InputStream in = new ChannelGzipInputStream(FileChannel.open(path))) {
+      assertThat(in.readAllBytes()).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void whenPipelined__ShouldMatchGZIPInputStream() throws IOException {
+    Path path = Path.of(TestArguments.BASE_XML_PATH, "release.xml.gz");
+    byte[] expected;
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+      expected = in.readAllBytes();
+    }
+
+    try (InputStream in =
+        PipelinedGzipInputStream.ofInflated(
+            new ChannelGzipInputStream(FileChannel.open(path)), "test")) {
+      assertThat(in.readAllBytes()).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void whenConcatenatedWithOptionalHeaders__ShouldReadEveryMember() throws IOException {
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    file.writeBytes(member("<artists>", true));
+    file.writeBytes(member("<artist/>", false));
+    file.writeBytes(member("</artists>", true));
+    file.writeBytes(new byte[] {0, 0, 0});
+    Path path = write(file.toByteArray());
+
+    try (InputStream in = new ChannelGzipInputStream(FileChannel.open(path), null, 5)) {
+      assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+          .isEqualTo("<artists><artist/></artists>");
+    }
+  }
+
+  @Test
+  void whenCrcMismatches__ShouldThrow() throws IOException {
+    byte[] gzip = gzip("<artists></artists>");
+    gzip[gzip.length - 8] ^= 1;
+    Path path = write(gzip);
+
+    try (InputStream in = new ChannelGzipInputStream(FileChannel.open(path))) {
+      assertThat(catchThrowable(in::readAllBytes))
+          .isInstanceOf(ZipException.class)
+          .hasMessageContaining("crc");
+    }
+  }
+
+  @Test
+  void whenTruncated__ShouldThrow() throws IOException {
+    byte[] gzip = gzip("<artists><artist><id>1</id></artist></artists>");
+    Path path = write(Arrays.copyOf(gzip, gzip.length - 12));
+
+    try (InputStream in = new ChannelGzipInputStream(FileChannel.open(path))) {
+      assertThat(catchThrowable(in::readAllBytes)).isInstanceOf(EOFException.class);
+    }
+  }
+
+  @Test
+  void whenNotGzip__ShouldThrowOnOpen() throws IOException {
+    Path path = write("not a gzip".getBytes(StandardCharsets.UTF_8));
+
+    assertThat(catchThrowable(() -> new ChannelGzipInputStream(FileChannel.open(path))))
+        .isInstanceOf(ZipException.class);
+  }
+
+  private Path write(byte[] bytes) throws IOException {
+    Path path = Files.createTempFile(tempDir, "test", ".gz");
+    Files.write(path, bytes);
+    return path;
+  }
+
+  private static byte[] gzip(String value) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(value.getBytes(StandardCharsets.UTF_8));
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Builds a gzip member by hand, optionally with every optional header field.
+   */
+  private static byte[] member(String value, boolean optionalHeaders) {
+    byte[] data = value.getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.writeBytes(new byte[] {0x1f, (byte) 0x8b, 8, (byte) (optionalHeaders ? 30 : 0)});
+    out.writeBytes(new byte[6]);
+    if (optionalHeaders) {
+      out.writeBytes(new byte[] {3, 0, 'a', 'b', 'c'});
+      out.writeBytes("name.xml\0".getBytes(StandardCharsets.US_ASCII));
+      out.writeBytes("comment\0".getBytes(StandardCharsets.US_ASCII));
+      out.writeBytes(new byte[] {0, 0});
+    }
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] buffer = new byte[256];
+    while (!deflater.finished()) {
+      out.write(buffer, 0, deflater.deflate(buffer));
+    }
+    deflater.end();
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    writeInt(out, crc.getValue());
+    writeInt(out, data.length);
+    return out.toByteArray();
+  }
+
+  private static void writeInt(ByteArrayOutputStream out, long value) {
+    for (int i = 0; i < 4; i++) {
+      out.write((int) (value >>> (8 * i)) & 0xFF);
+    }
+  }
+}
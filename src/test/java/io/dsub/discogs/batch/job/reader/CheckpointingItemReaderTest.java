@@ -0,0 +1,86 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.dsub.discogs.batch.TestArguments;
+import io.dsub.discogs.batch.domain.master.MasterXML;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+
+class CheckpointingItemReaderTest {
+
+  final Path dumpPath = Path.of(TestArguments.BASE_XML_PATH, "master.xml.gz");
+
+  @Test
+  void whenRestarted__ShouldResumeFromLastCommittedItem() throws Exception {
+    List<MasterXML> expected = readAll(staxReader(), new ExecutionContext());
+
+    ExecutionContext executionContext = new ExecutionContext();
+    CheckpointingItemReader<MasterXML> reader =
+        new CheckpointingItemReader<>(staxReader(), "test");
+    reader.open(executionContext);
+    reader.read();
+    reader.update(executionContext);
+    reader.read();
+    reader.close(); // failed before the second commit.
+
+    assertThat(executionContext.getLong("test" + CheckpointingItemReader.CHECKPOINT_SUFFIX))
+        .isEqualTo(1);
+    assertThat(readAll(new CheckpointingItemReader<>(staxReader(), "test"), executionContext))
+        .isEqualTo(expected.subList(1, expected.size()));
+  }
+
+  @Test
+  void whenCursorReaderRestarted__ShouldResumeFromLastCommittedItem() throws Exception {
+    List<MasterXML> expected = readAll(staxReader(), new ExecutionContext());
+
+    ExecutionContext executionContext = new ExecutionContext();
+    executionContext.putLong("test" + CheckpointingItemReader.CHECKPOINT_SUFFIX, 2);
+    StaxCursorItemReader<MasterXML> cursorReader =
+        new StaxCursorItemReader<>(MasterXML.class, dumpPath, "master", false);
+
+    assertThat(readAll(new CheckpointingItemReader<>(cursorReader, "test"), executionContext))
+        .isEqualTo(expected.subList(2, expected.size()));
+  }
+
+  @Test
+  void whenQueuedReaderRestarted__ShouldResumeFromLastCommittedItem() throws Exception {
+    List<MasterXML> expected = readAll(staxReader(), new ExecutionContext());
+
+    ExecutionContext executionContext = new ExecutionContext();
+    ConcurrentParsingItemReader<MasterXML> reader =
+        new ConcurrentParsingItemReader<>(staxReader(), "test", 4);
+    reader.open(executionContext);
+    reader.read();
+    reader.update(executionContext);
+    reader.close();
+
+    assertThat(executionContext.getLong("test" + CheckpointingItemReader.CHECKPOINT_SUFFIX))
+        .isEqualTo(1);
+    assertThat(
+        readAll(new ConcurrentParsingItemReader<>(staxReader(), "test", 4), executionContext))
+        .isEqualTo(expected.subList(1, expected.size()));
+  }
+
+  private ProgressBarStaxEventItemReader<MasterXML> staxReader() throws Exception {
+    return new ProgressBarStaxEventItemReader<>(MasterXML.class, dumpPath, "master");
+  }
+
+  private <T> List<T> readAll(ItemStreamReader<T> reader, ExecutionContext executionContext)
+      throws Exception {
+    List<T> items = new ArrayList<>();
+    try {
+      reader.open(executionContext);
+      for (T item = reader.read(); item != null; item = reader.read()) {
+        items.add(item);
+      }
+    } finally {
+      reader.close();
+    }
+    return items;
+  }
+}
@@ -0,0 +1,98 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.dsub.discogs.batch.job.listener.ChunkBindingListener;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+
+class CommitWatermarkTest {
+
+  final ChunkBindingListener listener = new ChunkBindingListener();
+  final CommitWatermark watermark = new CommitWatermark();
+
+  @Test
+  void whenCommittedOutOfOrder__ShouldOnlyAdvanceOverContiguousOrdinals() throws Exception {
+    ChunkContext leading = chunk();
+    ChunkContext trailing = chunk();
+
+    listener.beforeChunk(trailing);
+    watermark.record(2);
+    watermark.record(3);
+    listener.afterChunk(trailing);
+    assertThat(watermark.get()).isZero();
+
+    // another worker commits the leading chunk.
+    CompletableFuture.runAsync(
+            () -> {
+              listener.beforeChunk(leading);
+              watermark.record(0);
+              watermark.record(1);
+              listener.afterChunk(leading);
+            })
+        .get();
+    assertThat(watermark.get()).isEqualTo(4);
+  }
+
+  @Test
+  void whenRolledBackAndRetriedOnAnotherThread__ShouldWaitForRetryToCommit() throws Exception {
+    ChunkContext failed = chunk();
+    ChunkContext next = chunk();
+
+    listener.beforeChunk(failed);
+    watermark.record(0);
+    watermark.record(1);
+    assertThat(watermark.update()).isZero();
+    failed.setAttribute("INPUTS", List.of("item0", "item1"));
+    listener.afterChunkError(failed);
+
+    // the same thread commits an unrelated chunk before the retry.
+    listener.beforeChunk(next);
+    watermark.record(2);
+    listener.afterChunk(next);
+    assertThat(watermark.get()).isZero();
+
+    // the retry reuses the items of the chunk, without reading them again.
+    CompletableFuture.runAsync(
+            () -> {
+              listener.beforeChunk(failed);
+              listener.afterChunk(failed);
+            })
+        .get();
+    assertThat(watermark.get()).isEqualTo(3);
+  }
+
+  @Test
+  void whenRolledBackWithoutItemsKept__ShouldDiscardOrdinals() {
+    ChunkContext failed = chunk();
+
+    listener.beforeChunk(failed);
+    watermark.record(0);
+    listener.afterChunkError(failed);
+
+    // the retry reads its items again, of which only the new ordinals are to be committed.
+    listener.beforeChunk(failed);
+    watermark.record(1);
+    listener.afterChunk(failed);
+    assertThat(watermark.get()).isZero();
+  }
+
+  @Test
+  void whenReadWithoutChunk__ShouldSettleOnUpdate() {
+    watermark.reset(10);
+
+    watermark.record(9);
+    watermark.record(10);
+
+    assertThat(watermark.update()).isEqualTo(11);
+  }
+
+  private ChunkContext chunk() {
+    return new ChunkContext(new StepContext(new StepExecution("step", new JobExecution(1L))));
+  }
+}
@@ -0,0 +1,171 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.dsub.discogs.batch.TestArguments.ItemReaderTestArgument;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.springframework.batch.item.ItemReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.NonTransientResourceException;
+
+class ConcurrentParsingItemReaderTest {
+
+  @ParameterizedTest
+  @MethodSource("io.dsub.discogs.batch.TestArguments#itemReaderTestArguments")
+  void whenReadByWorkers__ShouldReadAllItemsOnce(ItemReaderTestArgument arg) throws Exception {
+    List<Object> expected = new ArrayList<>();
+    ProgressBarStaxEventItemReader<?> plain =
+        new ProgressBarStaxEventItemReader<>(
+            arg.getMappedClass(), arg.getXmlPath(), arg.getRootElementName());
+    plain.open(new ExecutionContext());
+    for (Object item = plain.read(); item != null; item = plain.read()) {
+      expected.add(item);
+    }
+    plain.close();
+
+    ConcurrentParsingItemReader<?> reader =
+        new ConcurrentParsingItemReader<>(
+            new ProgressBarStaxEventItemReader<>(
+                arg.getMappedClass(), arg.getXmlPath(), arg.getRootElementName()),
+            "test",
+            4);
+    ConcurrentLinkedQueue<Object> actual = new ConcurrentLinkedQueue<>();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    reader.open(new ExecutionContext());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (Object item = reader.read(); item != null; item = reader.read()) {
+                    actual.add(item);
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+      reader.close();
+    }
+
+    assertThat(actual).hasSameSizeAs(expected).containsExactlyInAnyOrderElementsOf(expected);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void whenWorkersStopAtEndOfInput__ShouldNotLoseAnyItem() throws Exception {
+    List<String> expected =
+        IntStream.range(0, 1000).mapToObj(String::valueOf).collect(Collectors.toList());
+    ItemStreamReader<String> delegate = mock(ItemStreamReader.class);
+    when(delegate.read())
+        .thenReturn(
+            expected.get(0),
+            expected.subList(1, expected.size()).toArray(String[]::new))
+        .thenReturn(null);
+    ConcurrentParsingItemReader<String> reader =
+        new ConcurrentParsingItemReader<>(delegate, "test");
+    reader.open(new ExecutionContext());
+
+    List<Object> actual = readInChunks(reader, 4, 37);
+    reader.close();
+
+    assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+  }
+
+  /**
+   * Reads as the workers of a multi-threaded step do: each worker reads a chunk at a time, and no
+   * worker starts another chunk once any of them read null.
+   */
+  static List<Object> readInChunks(ItemReader<?> reader, int workers, int chunkSize)
+      throws Exception {
+    ConcurrentLinkedQueue<Object> actual = new ConcurrentLinkedQueue<>();
+    AtomicBoolean exhausted = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < workers; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  while (!exhausted.get()) {
+                    for (int read = 0; read < chunkSize; read++) {
+                      Object item = reader.read();
+                      if (item == null) {
+                        exhausted.set(true);
+                        break;
+                      }
+                      actual.add(item);
+                    }
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    return new ArrayList<>(actual);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void whenDelegateThrows__ShouldThrowAfterQueuedItems() throws Exception {
+    ItemStreamReader<String> delegate = mock(ItemStreamReader.class);
+    when(delegate.read()).thenReturn("a").thenThrow(new IllegalStateException("boom"));
+    ConcurrentParsingItemReader<String> reader =
+        new ConcurrentParsingItemReader<>(delegate, "test");
+    reader.open(new ExecutionContext());
+
+    assertThat(reader.read()).isEqualTo("a");
+    Throwable t = catchThrowable(reader::read);
+    reader.close();
+
+    assertThat(t)
+        .isInstanceOf(NonTransientResourceException.class)
+        .hasRootCauseInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void whenUpdated__ShouldWriteQueueMetrics() throws Exception {
+    ItemStreamReader<String> delegate = mock(ItemStreamReader.class);
+    when(delegate.read()).thenReturn("a", "b", null);
+    ConcurrentParsingItemReader<String> reader =
+        new ConcurrentParsingItemReader<>(delegate, "test");
+    ExecutionContext executionContext = new ExecutionContext();
+    reader.open(executionContext);
+    while (reader.read() != null) {
+      // drain
+    }
+    reader.update(executionContext);
+    reader.close();
+
+    assertThat(executionContext.getInt("test.queue.capacity"))
+        .isEqualTo(ConcurrentParsingItemReader.DEFAULT_CAPACITY);
+    assertThat(executionContext.getInt("test.queue.depth.max")).isPositive();
+    assertThat(executionContext.containsKey("test.queue.depth.avg")).isTrue();
+    assertThat(executionContext.containsKey("test.parser.blocked.ms")).isTrue();
+    assertThat(executionContext.containsKey("test.workers.blocked.ms")).isTrue();
+  }
+}
@@ -0,0 +1,119 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.dsub.discogs.batch.TestArguments;
+import io.dsub.discogs.batch.job.reader.DumpStatistics.ChildCounts;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class DumpProfilerTest {
+
+  @TempDir
+  Path tempDir;
+
+  static Stream<Arguments> dumps() {
+    return Stream.of(
+        Arguments.of("artist", 3),
+        Arguments.of("label", 2),
+        Arguments.of("master", 3),
+        Arguments.of("release", 3));
+  }
+
+  @ParameterizedTest
+  @MethodSource("dumps")
+  void whenProfiled__ShouldCountFragmentsAndIds(String rootElement, int count) throws IOException {
+    DumpStatistics statistics = profile(rootElement);
+
+    assertThat(statistics.getFragmentCount()).isEqualTo(count);
+    assertThat(statistics.getMinId()).isEqualTo(1);
+    assertThat(statistics.getMaxId()).isEqualTo(count);
+  }
+
+  @Test
+  void whenProfiled__ShouldCountGrandchildren() throws IOException {
+    DumpStatistics statistics = profile("release");
+
+    ChildCounts tracklist = statistics.getChildCounts("tracklist");
+    assertThat(tracklist.getTotal()).isEqualTo(6 + 4 + 14);
+    assertThat(tracklist.getMax()).isEqualTo(14);
+    assertThat(tracklist.getBucket(3)).isEqualTo(2);
+    assertThat(tracklist.getBucket(4)).isEqualTo(1);
+    assertThat(statistics.getChildNames()).contains("tracklist", "videos").doesNotContain("title");
+    assertThat(statistics.getChildCounts("title")).isNull();
+  }
+
+  @Test
+  void whenNested__ShouldOnlyCountDirectGrandchildren() {
+    DumpProfiler profiler = new DumpProfiler();
+    profiler.accept(
+        bytes(
+            "<artist><id>5</id><!-- <members><name/></members> -->"
+                + "<members><name id=\"1\">a</name><name id=\"2\"><b/></name></members>"
+                + "<urls/></artist>"));
+    profiler.accept(bytes("<artist><id>2</id><members/></artist>"));
+
+    DumpStatistics statistics = profiler.getStatistics();
+    assertThat(statistics.getFragmentCount()).isEqualTo(2);
+    assertThat(statistics.getMinId()).isEqualTo(2);
+    assertThat(statistics.getMaxId()).isEqualTo(5);
+    assertThat(statistics.getChildCounts("members").getTotal()).isEqualTo(2);
+    assertThat(statistics.getChildCounts("members").getBucket(0)).isEqualTo(1);
+    assertThat(statistics.getChildCounts("members").getBucket(2)).isEqualTo(1);
+    assertThat(statistics.getChildCounts("urls")).isNull();
+  }
+
+  @Test
+  void whenWritten__ShouldLoadSameStatistics() throws IOException {
+    DumpStatistics statistics = profile("release");
+    Path statsPath = DumpStatistics.statsPathOf(tempDir.resolve("release.xml.gz"));
+    assertThat(DumpStatistics.loadIfExists(statsPath)).isNull();
+
+    statistics.write(statsPath);
+    DumpStatistics loaded = DumpStatistics.loadIfExists(statsPath);
+
+    assertThat(statsPath.getFileName().toString()).isEqualTo("release.xml.gz.stats");
+    assertThat(loaded.getFragmentCount()).isEqualTo(statistics.getFragmentCount());
+    assertThat(loaded.getMinId()).isEqualTo(statistics.getMinId());
+    assertThat(loaded.getMaxId()).isEqualTo(statistics.getMaxId());
+    assertThat(loaded.getChildNames()).isEqualTo(statistics.getChildNames());
+    for (String name : statistics.getChildNames()) {
+      ChildCounts expected = statistics.getChildCounts(name);
+      ChildCounts actual = loaded.getChildCounts(name);
+      assertThat(actual.getTotal()).isEqualTo(expected.getTotal());
+      assertThat(actual.getMax()).isEqualTo(expected.getMax());
+      for (int bucket = 0; bucket < DumpStatistics.BUCKET_COUNT; bucket++) {
+        assertThat(actual.getBucket(bucket)).isEqualTo(expected.getBucket(bucket));
+      }
+    }
+  }
+
+  @Test
+  void whenUnreadable__ShouldNotLoad() throws IOException {
+    Path statsPath = tempDir.resolve("broken.stats");
+    Files.writeString(statsPath, "fragments=abc");
+
+    assertThat(DumpStatistics.loadIfExists(statsPath)).isNull();
+  }
+
+  private static DumpStatistics profile(String rootElement) throws IOException {
+    Path dumpPath = Path.of(TestArguments.BASE_XML_PATH, rootElement + ".xml.gz");
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(dumpPath))) {
+      return DumpProfiler.profile(in, rootElement);
+    }
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,85 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.dsub.discogs.batch.TestArguments;
+import io.dsub.discogs.batch.domain.artist.ArtistSubItemsXML;
+import io.dsub.discogs.batch.domain.artist.ArtistXML;
+import io.dsub.discogs.batch.domain.master.MasterMainReleaseXML;
+import io.dsub.discogs.batch.domain.master.MasterSubItemsXML;
+import io.dsub.discogs.batch.domain.master.MasterXML;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+
+class FanOutUnmarshallerTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void whenReadToEnd__ShouldSpoolSameItemsAsReadingDumpAgain() throws Exception {
+    Path dumpPath = Path.of(TestArguments.BASE_XML_PATH, "master.xml.gz");
+    Map<Class<?>, Path> spoolPaths = new LinkedHashMap<>();
+    spoolPaths.put(MasterSubItemsXML.class, tempDir.resolve("master.sub"));
+    spoolPaths.put(MasterMainReleaseXML.class, tempDir.resolve("master.main"));
+
+    FanOutUnmarshaller unmarshaller = new FanOutUnmarshaller(MasterXML.class, spoolPaths);
+    List<MasterXML> fannedOut =
+        readAll(
+            new ProgressBarStaxEventItemReader<>(
+                MasterXML.class, dumpPath, false, unmarshaller, "master"));
+
+    assertThat(fannedOut).isNotEmpty().isEqualTo(readAll(MasterXML.class, dumpPath));
+    assertThat(readAll(MasterSubItemsXML.class, spoolPaths.get(MasterSubItemsXML.class)))
+        .isNotEmpty()
+        .isEqualTo(readAll(MasterSubItemsXML.class, dumpPath));
+    assertThat(readAll(MasterMainReleaseXML.class, spoolPaths.get(MasterMainReleaseXML.class)))
+        .isNotEmpty()
+        .isEqualTo(readAll(MasterMainReleaseXML.class, dumpPath));
+  }
+
+  @Test
+  void whenClosedBeforeEnd__ShouldNotLeaveSpoolFile() throws Exception {
+    Path dumpPath = Path.of(TestArguments.BASE_XML_PATH, "artist.xml.gz");
+    Path spoolPath = tempDir.resolve("artist.sub");
+
+    FanOutUnmarshaller unmarshaller =
+        new FanOutUnmarshaller(ArtistXML.class, Map.of(ArtistSubItemsXML.class, spoolPath));
+    ProgressBarStaxEventItemReader<ArtistXML> reader =
+        new ProgressBarStaxEventItemReader<>(
+            ArtistXML.class, dumpPath, false, unmarshaller, "artist");
+    reader.open(new ExecutionContext());
+    assertThat(reader.read()).isNotNull();
+    reader.close();
+
+    try (var files = Files.list(tempDir)) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  private <T> List<T> readAll(Class<T> clazz, Path path) throws Exception {
+    return readAll(new ProgressBarStaxEventItemReader<>(clazz, path, "master"));
+  }
+
+  private <T> List<T> readAll(ProgressBarStaxEventItemReader<T> reader) throws Exception {
+    List<T> items = new ArrayList<>();
+    try {
+      reader.open(new ExecutionContext());
+      T item = reader.read();
+      while (item != null) {
+        items.add(item);
+        item = reader.read();
+      }
+    } finally {
+      reader.close();
+    }
+    return items;
+  }
+}
@@ -0,0 +1,83 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.dsub.discogs.batch.TestArguments;
+import io.dsub.discogs.batch.domain.release.ReleaseItemXML;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+
+class FilteredDocumentInputStreamTest {
+
+  final Path dumpPath = Path.of(TestArguments.BASE_XML_PATH, "release.xml.gz");
+
+  @ParameterizedTest
+  @CsvSource({"0/2, 2", "1/2, 1;3", "2-, 2;3", "-2, 1"})
+  void whenSharded__ShouldOnlyReadFragmentsOfShard(String shardValue, String expectedIds)
+      throws Exception {
+    ShardSpec shard = ShardSpec.of(shardValue);
+    List<Integer> expected =
+        List.of(expectedIds.split(";")).stream().map(Integer::valueOf).collect(Collectors.toList());
+
+    assertThat(ids(staxReader(shard))).isEqualTo(expected);
+    assertThat(ids(cursorReader(shard))).isEqualTo(expected);
+
+    FragmentItemReader fragments =
+        new FragmentItemReader(dumpPath, "release", false, "test", shard);
+    List<Integer> fragmentIds = new ArrayList<>();
+    fragments.open(new ExecutionContext());
+    for (byte[] fragment = fragments.read(); fragment != null; fragment = fragments.read()) {
+      fragmentIds.add(FragmentStore.peekId(fragment));
+    }
+    fragments.close();
+    assertThat(fragmentIds).isEqualTo(expected);
+  }
+
+  @Test
+  void whenShardIsEmpty__ShouldStillBeWellFormed() throws Exception {
+    ShardSpec shard = ShardSpec.of("100-200");
+    assertThat(ids(staxReader(shard))).isEmpty();
+    assertThat(ids(cursorReader(shard))).isEmpty();
+  }
+
+  @Test
+  void whenResumed__ShouldSkipFragmentsOfShardOnly() throws Exception {
+    StaxCursorItemReader<ReleaseItemXML> cursorReader = cursorReader(ShardSpec.of("1/2"));
+    cursorReader.resumeAt(1);
+    assertThat(ids(cursorReader)).containsExactly(3);
+
+    ProgressBarStaxEventItemReader<ReleaseItemXML> staxReader = staxReader(ShardSpec.of("1/2"));
+    staxReader.resumeAt(1);
+    assertThat(ids(staxReader)).containsExactly(3);
+  }
+
+  private ProgressBarStaxEventItemReader<ReleaseItemXML> staxReader(ShardSpec shard)
+      throws Exception {
+    return new ProgressBarStaxEventItemReader<>(
+        ReleaseItemXML.class, dumpPath, false, null, shard, null, "release");
+  }
+
+  private StaxCursorItemReader<ReleaseItemXML> cursorReader(ShardSpec shard) {
+    return new StaxCursorItemReader<>(ReleaseItemXML.class, dumpPath, "release", false, shard, null);
+  }
+
+  private List<Integer> ids(ItemStreamReader<ReleaseItemXML> reader) throws Exception {
+    List<Integer> ids = new ArrayList<>();
+    try {
+      reader.open(new ExecutionContext());
+      for (ReleaseItemXML item = reader.read(); item != null; item = reader.read()) {
+        ids.add(item.getId());
+      }
+    } finally {
+      reader.close();
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,195 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.dsub.discogs.batch.TestArguments;
+import io.dsub.discogs.batch.domain.artist.ArtistSubItemsXML;
+import io.dsub.discogs.batch.domain.artist.ArtistXML;
+import io.dsub.discogs.batch.domain.label.LabelSubItemsXML;
+import io.dsub.discogs.batch.domain.label.LabelXML;
+import io.dsub.discogs.batch.domain.master.MasterMainReleaseXML;
+import io.dsub.discogs.batch.domain.master.MasterSubItemsXML;
+import io.dsub.discogs.batch.domain.master.MasterXML;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML;
+import io.dsub.discogs.batch.domain.release.ReleaseItemXML;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlMixed;
+import javax.xml.transform.stream.StreamSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.batch.item.ExecutionContext;
+
+class FragmentPrunerTest {
+
+  static Stream<Arguments> mappedClasses() {
+    return Stream.of(
+        Arguments.of("artist", ArtistXML.class),
+        Arguments.of("artist", ArtistSubItemsXML.class),
+        Arguments.of("label", LabelXML.class),
+        Arguments.of("label", LabelSubItemsXML.class),
+        Arguments.of("master", MasterXML.class),
+        Arguments.of("master", MasterSubItemsXML.class),
+        Arguments.of("master", MasterMainReleaseXML.class),
+        Arguments.of("release", ReleaseItemXML.class),
+        Arguments.of("release", ReleaseItemSubItemsXML.class));
+  }
+
+  @Test
+  void whenDerived__ShouldOnlyKeepMappedElements() {
+    assertThat(FragmentPruner.mappedElementsOf(ArtistXML.class))
+        .containsExactlyInAnyOrder("id", "name", "realname", "profile", "data_quality");
+    assertThat(FragmentPruner.mappedElementsOf(ReleaseItemXML.class))
+        .containsExactlyInAnyOrder(
+            "title", "country", "notes", "data_quality", "released", "master_id", "genres",
+            "styles")
+        .doesNotContain("tracklist", "extraartists", "id", "status");
+  }
+
+  @Test
+  void whenNotDerivable__ShouldNotCreatePruner() {
+    assertThat(FragmentPruner.of(ArtistXML.class, MixedContent.class)).isNull();
+    assertThat(FragmentPruner.of(PropertyAccess.class)).isNull();
+  }
+
+  @ParameterizedTest
+  @MethodSource("mappedClasses")
+  void whenPruned__ShouldUnmarshalSameItems(String rootElement, Class<?> mappedClass)
+      throws Exception {
+    FragmentPruner pruner = FragmentPruner.of(mappedClass);
+    assertThat(pruner).isNotNull();
+    Unmarshaller unmarshaller = JAXBContext.newInstance(mappedClass).createUnmarshaller();
+
+    List<byte[]> fragments = scan(rootElement);
+    assertThat(fragments).isNotEmpty();
+    for (byte[] fragment : fragments) {
+      byte[] pruned = pruner.prune(fragment);
+      assertThat(pruned.length).isLessThanOrEqualTo(fragment.length);
+      assertThat(unmarshal(unmarshaller, pruned, mappedClass))
+          .isEqualTo(unmarshal(unmarshaller, fragment, mappedClass));
+    }
+  }
+
+  @Test
+  void whenReadWithPruner__ShouldReadSameItems() throws Exception {
+    Path dumpPath = Path.of(TestArguments.BASE_XML_PATH, "release.xml.gz");
+    FragmentPruner pruner = FragmentPruner.of(ReleaseItemXML.class);
+
+    List<ReleaseItemXML> cursorItems =
+        read(new StaxCursorItemReader<>(ReleaseItemXML.class, dumpPath, "release", false));
+    List<ReleaseItemXML> staxItems =
+        read(new ProgressBarStaxEventItemReader<>(ReleaseItemXML.class, dumpPath, "release"));
+
+    assertThat(
+            read(
+                new StaxCursorItemReader<>(
+                    ReleaseItemXML.class, dumpPath, "release", false, null, pruner)))
+        .hasSize(3)
+        .isEqualTo(cursorItems);
+    assertThat(
+            read(
+                new ProgressBarStaxEventItemReader<>(
+                    ReleaseItemXML.class, dumpPath, false, null, null, pruner, "release")))
+        .hasSize(3)
+        .isEqualTo(staxItems);
+  }
+
+  @Test
+  void whenPruned__ShouldSkipWholeSubtrees() {
+    FragmentPruner pruner = new FragmentPruner(Set.of("id", "name"));
+
+    assertThat(
+            prune(
+                pruner,
+                "<artist><id>1</id><aliases><name id=\"2\">a</name></aliases>"
+                    + "<name>b</name><urls/></artist>"))
+        .isEqualTo("<artist><id>1</id><name>b</name></artist>");
+    assertThat(
+            prune(
+                pruner,
+                "<artist><members><m a=\"x>y\"><m/></m></members><id>1</id></artist>"))
+        .isEqualTo("<artist><id>1</id></artist>");
+    assertThat(
+            prune(
+                pruner,
+                "<artist><!-- <id> --><profile><![CDATA[</profile>]]></profile>"
+                    + "<name>a</name></artist>"))
+        .isEqualTo("<artist><!-- <id> --><name>a</name></artist>");
+  }
+
+  @Test
+  void whenNothingToPrune__ShouldReturnSameFragment() {
+    FragmentPruner pruner = new FragmentPruner(Set.of("id"));
+    byte[] kept = bytes("<artist><id>1</id></artist>");
+    byte[] truncated = bytes("<artist><urls><url>a</url>");
+
+    assertThat(pruner.prune(kept)).isSameAs(kept);
+    assertThat(pruner.prune(truncated)).isSameAs(truncated);
+  }
+
+  private static String prune(FragmentPruner pruner, String fragment) {
+    return new String(pruner.prune(bytes(fragment)), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static Object unmarshal(Unmarshaller unmarshaller, byte[] fragment, Class<?> mappedClass)
+      throws Exception {
+    StreamSource source = new StreamSource(new ByteArrayInputStream(fragment));
+    return unmarshaller.unmarshal(source, mappedClass).getValue();
+  }
+
+  private static <T> List<T> read(ResumableItemStreamReader<T> reader) throws Exception {
+    List<T> items = new ArrayList<>();
+    try {
+      reader.open(new ExecutionContext());
+      for (T item = reader.read(); item != null; item = reader.read()) {
+        items.add(item);
+      }
+    } finally {
+      reader.close();
+    }
+    return items;
+  }
+
+  private static List<byte[]> scan(String rootElement) throws Exception {
+    List<byte[]> fragments = new ArrayList<>();
+    Path dumpPath = Path.of(TestArguments.BASE_XML_PATH, rootElement + ".xml.gz");
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(dumpPath))) {
+      FragmentScanner scanner = new FragmentScanner(in, rootElement);
+      for (byte[] fragment = scanner.next(); fragment != null; fragment = scanner.next()) {
+        fragments.add(fragment);
+      }
+    }
+    return fragments;
+  }
+
+  @XmlAccessorType(XmlAccessType.FIELD)
+  static class MixedContent {
+
+    @XmlMixed
+    List<Object> content;
+  }
+
+  @XmlAccessorType(XmlAccessType.PROPERTY)
+  static class PropertyAccess {
+
+    String name;
+  }
+}
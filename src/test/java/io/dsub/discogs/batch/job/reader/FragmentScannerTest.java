@@ -0,0 +1,76 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FragmentScannerTest {
+
+  @Test
+  void whenSameNameIsNested__ShouldKeepWithinFragment() throws IOException {
+    String xml =
+        "<labels><label><id>1</id><sublabels><label id=\"2\">a</label></sublabels></label>"
+            + "<label><id>3</id></label></labels>";
+    assertThat(scan(xml, "label"))
+        .containsExactly(
+            "<label><id>1</id><sublabels><label id=\"2\">a</label></sublabels></label>",
+            "<label><id>3</id></label>");
+  }
+
+  @Test
+  void whenNameIsPrefixOfOthers__ShouldIgnoreThem() throws IOException {
+    String xml =
+        "<releases><release id=\"1\"><released>2001</released></release>"
+            + "<release_x/></releases>";
+    assertThat(scan(xml, "release"))
+        .containsExactly("<release id=\"1\"><released>2001</released></release>");
+  }
+
+  @Test
+  void whenSelfClosingOrQuoted__ShouldCutAtTagEnd() throws IOException {
+    String xml =
+        "<masters><master id=\"1\"/><master note='a > b' id=\"2\"><title>t</title></master >"
+            + "</masters>";
+    assertThat(scan(xml, "master"))
+        .containsExactly(
+            "<master id=\"1\"/>", "<master note='a > b' id=\"2\"><title>t</title></master >");
+  }
+
+  @Test
+  void whenStreamEndsWithinFragment__ShouldThrow() {
+    Throwable t = catchThrowable(() -> scan("<artists><artist><id>1</id>", "artist"));
+    assertThat(t).isInstanceOf(IOException.class).hasMessageContaining("<artist>");
+  }
+
+  @Test
+  void whenSkipped__ShouldRemainWellFormedDocumentWithoutSkippedFragments() throws IOException {
+    String xml =
+        "<?xml version=\"1.0\"?>\n<labels>\n<label><id>1</id></label>\n"
+            + "<label><id>2</id></label>\n<label><id>3</id></label>\n</labels>";
+    FragmentScanner scanner =
+        new FragmentScanner(
+            new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), "label");
+
+    assertThat(scanner.skip(2)).isEqualTo(2);
+    assertThat(new String(scanner.remaining().readAllBytes(), StandardCharsets.UTF_8))
+        .isEqualTo(
+            "<?xml version=\"1.0\"?>\n<labels>\n\n<label><id>3</id></label>\n</labels>");
+  }
+
+  private List<String> scan(String xml, String rootElement) throws IOException {
+    FragmentScanner scanner =
+        new FragmentScanner(
+            new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), rootElement);
+    List<String> fragments = new ArrayList<>();
+    for (byte[] fragment = scanner.next(); fragment != null; fragment = scanner.next()) {
+      fragments.add(new String(fragment, StandardCharsets.UTF_8));
+    }
+    return fragments;
+  }
+}
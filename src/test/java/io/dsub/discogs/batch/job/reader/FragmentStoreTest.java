@@ -0,0 +1,131 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.dsub.discogs.batch.TestArguments;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.batch.item.ExecutionContext;
+
+class FragmentStoreTest {
+
+  @TempDir
+  Path tempDir;
+
+  @ParameterizedTest
+  @ValueSource(strings = {"artist", "label", "master", "release"})
+  void whenStored__ShouldHandOutSameFragmentsWithIds(String rootElement) throws Exception {
+    List<byte[]> fragments = scan(rootElement);
+    Path dataPath = tempDir.resolve(rootElement + FragmentStore.STORE_SUFFIX);
+    try (FragmentStoreWriter writer = new FragmentStoreWriter(dataPath)) {
+      for (byte[] fragment : fragments) {
+        writer.append(fragment);
+      }
+      writer.complete();
+    }
+
+    assertThat(FragmentStore.exists(dataPath)).isTrue();
+    try (FragmentStore store = FragmentStore.open(dataPath)) {
+      assertThat(store.size()).isEqualTo(fragments.size()).isPositive();
+      for (int i = 0; i < store.size(); i++) {
+        assertThat(store.get(i)).isEqualTo(fragments.get(i));
+        assertThat(store.getId(i)).isEqualTo(i + 1);
+      }
+    }
+  }
+
+  @Test
+  void whenClosedBeforeComplete__ShouldNotLeaveStore() throws Exception {
+    Path dataPath = tempDir.resolve("artist" + FragmentStore.STORE_SUFFIX);
+    try (FragmentStoreWriter writer = new FragmentStoreWriter(dataPath)) {
+      writer.append("<artist><id>1</id></artist>".getBytes(StandardCharsets.UTF_8));
+    }
+
+    assertThat(FragmentStore.exists(dataPath)).isFalse();
+    try (var files = Files.list(tempDir)) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  @Test
+  void whenPeekId__ShouldPreferRootAttributeThenFirstIdElement() {
+    assertThat(peekId("<release id=\"12\" status=\"Accepted\"><id>3</id></release>"))
+        .isEqualTo(12);
+    assertThat(peekId("<label><images/><id>34</id><sublabels><label id=\"5\">a</label>"))
+        .isEqualTo(34);
+    assertThat(peekId("<artist><name>a</name></artist>")).isEqualTo(-1);
+    assertThat(peekId("<artist><id>x</id></artist>")).isEqualTo(-1);
+  }
+
+  @Test
+  void whenReadWithRange__ShouldOnlyReadWithinRange() throws Exception {
+    Path dataPath = tempDir.resolve("label" + FragmentStore.STORE_SUFFIX);
+    try (FragmentStoreWriter writer = new FragmentStoreWriter(dataPath)) {
+      for (int i = 1; i <= 5; i++) {
+        writer.append(("<label><id>" + i + "</id></label>").getBytes(StandardCharsets.UTF_8));
+      }
+      writer.complete();
+    }
+
+    FragmentStoreItemReader reader = new FragmentStoreItemReader(dataPath, "test", 1, 3);
+    reader.open(new ExecutionContext());
+    List<Integer> ids = new ArrayList<>();
+    for (byte[] fragment = reader.read(); fragment != null; fragment = reader.read()) {
+      ids.add(FragmentStore.peekId(fragment));
+    }
+    reader.close();
+
+    assertThat(ids).containsExactly(2, 3);
+  }
+
+  @Test
+  void whenReadWithShard__ShouldOnlyReadShardButCommitEveryOrdinal() throws Exception {
+    Path dataPath = tempDir.resolve("label" + FragmentStore.STORE_SUFFIX);
+    try (FragmentStoreWriter writer = new FragmentStoreWriter(dataPath)) {
+      for (int i = 1; i <= 5; i++) {
+        writer.append(("<label><id>" + i + "</id></label>").getBytes(StandardCharsets.UTF_8));
+      }
+      writer.complete();
+    }
+
+    FragmentStoreItemReader reader =
+        new FragmentStoreItemReader(dataPath, "test", ShardSpec.modulo(0, 2));
+    ExecutionContext executionContext = new ExecutionContext();
+    reader.open(executionContext);
+    List<Integer> ids = new ArrayList<>();
+    for (byte[] fragment = reader.read(); fragment != null; fragment = reader.read()) {
+      ids.add(FragmentStore.peekId(fragment));
+    }
+    reader.update(executionContext);
+    reader.close();
+
+    assertThat(ids).containsExactly(2, 4);
+    assertThat(executionContext.getLong("test" + CheckpointingItemReader.CHECKPOINT_SUFFIX))
+        .isEqualTo(5);
+  }
+
+  private int peekId(String fragment) {
+    return FragmentStore.peekId(fragment.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private List<byte[]> scan(String rootElement) throws Exception {
+    List<byte[]> fragments = new ArrayList<>();
+    Path dumpPath = Path.of(TestArguments.BASE_XML_PATH, rootElement + ".xml.gz");
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(dumpPath))) {
+      FragmentScanner scanner = new FragmentScanner(in, rootElement);
+      for (byte[] fragment = scanner.next(); fragment != null; fragment = scanner.next()) {
+        fragments.add(fragment);
+      }
+    }
+    return fragments;
+  }
+}
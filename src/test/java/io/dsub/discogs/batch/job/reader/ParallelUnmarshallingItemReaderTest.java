@@ -0,0 +1,97 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.dsub.discogs.batch.TestArguments.ItemReaderTestArgument;
+import io.dsub.discogs.batch.domain.artist.ArtistXML;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+
+class ParallelUnmarshallingItemReaderTest {
+
+  @ParameterizedTest
+  @MethodSource("io.dsub.discogs.batch.TestArguments#itemReaderTestArguments")
+  void whenReadByWorkers__ShouldReadSameItemsAsStaxReader(ItemReaderTestArgument arg)
+      throws Exception {
+    List<Object> expected = new ArrayList<>();
+    ProgressBarStaxEventItemReader<?> plain =
+        new ProgressBarStaxEventItemReader<>(
+            arg.getMappedClass(), arg.getXmlPath(), arg.getRootElementName());
+    plain.open(new ExecutionContext());
+    for (Object item = plain.read(); item != null; item = plain.read()) {
+      expected.add(item);
+    }
+    plain.close();
+
+    FragmentItemReader fragments =
+        new FragmentItemReader(arg.getXmlPath(), arg.getRootElementName(), false, "test");
+    ParallelUnmarshallingItemReader<?> reader =
+        new ParallelUnmarshallingItemReader<>(
+            arg.getMappedClass(), new ConcurrentParsingItemReader<>(fragments, "test", 2));
+
+    ConcurrentLinkedQueue<Object> actual = new ConcurrentLinkedQueue<>();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    reader.open(new ExecutionContext());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (Object item = reader.read(); item != null; item = reader.read()) {
+                    actual.add(item);
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+      reader.close();
+    }
+
+    assertThat(actual).isNotEmpty().containsExactlyInAnyOrderElementsOf(expected);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void whenWorkersStopAtEndOfInput__ShouldNotLoseAnyFragment() throws Exception {
+    List<byte[]> fragments =
+        IntStream.range(0, 1000)
+            .mapToObj(id -> "<artist><id>" + id + "</id></artist>")
+            .map(fragment -> fragment.getBytes(StandardCharsets.UTF_8))
+            .collect(Collectors.toList());
+    ItemStreamReader<byte[]> delegate = mock(ItemStreamReader.class);
+    when(delegate.read())
+        .thenReturn(fragments.get(0), fragments.subList(1, fragments.size()).toArray(byte[][]::new))
+        .thenReturn(null);
+    ParallelUnmarshallingItemReader<ArtistXML> reader =
+        new ParallelUnmarshallingItemReader<>(
+            ArtistXML.class, new ConcurrentParsingItemReader<>(delegate, "test"));
+    reader.open(new ExecutionContext());
+
+    List<Object> actual = ConcurrentParsingItemReaderTest.readInChunks(reader, 4, 37);
+    reader.close();
+
+    assertThat(actual)
+        .extracting(item -> ((ArtistXML) item).getId())
+        .containsExactlyInAnyOrderElementsOf(
+            IntStream.range(0, 1000).boxed().collect(Collectors.toList()));
+  }
+}
@@ -0,0 +1,99 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import io.dsub.discogs.batch.TestArguments;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class PipelinedGzipInputStreamTest {
+
+  @ParameterizedTest
+  @MethodSource("io.dsub.discogs.batch.TestArguments#xmlPaths")
+  void whenRead__ShouldMatchGZIPInputStream(Path path) throws IOException {
+    byte[] expected;
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+      expected = in.readAllBytes();
+    }
+
+    byte[] actual;
+    // deliberately small buffers to rotate the ring several times.
+    try (InputStream in =
+        new PipelinedGzipInputStream(Files.newInputStream(path), "test", 512, 2)) {
+      actual = in.readAllBytes();
+    }
+
+    assertThat(actual).isEqualTo(expected);
+  }
+
+  @Test
+  void whenSingleByteRead__ShouldMatchGZIPInputStream() throws IOException {
+    Path path = Path.of(TestArguments.BASE_XML_PATH, "label.xml.gz");
+    try (InputStream expected = new GZIPInputStream(Files.newInputStream(path));
+        InputStream actual =
+            new PipelinedGzipInputStream(Files.newInputStream(path), "test", 7, 3)) {
+      int b = expected.read();
+      while (b != -1) {
+        assertThat(actual.read()).isEqualTo(b);
+        b = expected.read();
+      }
+      assertThat(actual.read()).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  void whenSourceIsNotGzip__ShouldThrowOnRead() throws IOException {
+    InputStream source = new ByteArrayInputStream("not a gzip".getBytes());
+    try (InputStream in = new PipelinedGzipInputStream(source, "test")) {
+      Throwable t = catchThrowable(in::readAllBytes);
+      assertThat(t).isInstanceOf(IOException.class).hasMessageContaining("failed to inflate");
+    }
+  }
+
+  @Test
+  @Timeout(10)
+  void whenInflaterThrowsUnchecked__ShouldThrowOnReadInsteadOfBlocking() throws IOException {
+    InputStream source =
+        new InputStream() {
+          @Override
+          public int read() {
+            throw new IllegalStateException("broken source");
+          }
+        };
+    try (InputStream in = PipelinedGzipInputStream.ofInflated(source, "test")) {
+      Throwable t = catchThrowable(in::readAllBytes);
+      assertThat(t)
+          .isInstanceOf(IOException.class)
+          .hasMessageContaining("failed to inflate")
+          .hasRootCauseInstanceOf(IllegalStateException.class);
+    }
+  }
+
+  @Test
+  void whenRead__ShouldReportWaitTimes() throws IOException {
+    Path path = Path.of(TestArguments.BASE_XML_PATH, "release.xml.gz");
+    PipelinedGzipInputStream in =
+        new PipelinedGzipInputStream(Files.newInputStream(path), "test");
+    in.readAllBytes();
+    in.close();
+    assertThat(in.getInflaterWaitNanos()).isGreaterThanOrEqualTo(0);
+    assertThat(in.getParserWaitNanos()).isGreaterThanOrEqualTo(0);
+  }
+
+  @Test
+  void whenReadAfterClose__ShouldThrow() throws IOException {
+    Path path = Path.of(TestArguments.BASE_XML_PATH, "artist.xml.gz");
+    InputStream in = new PipelinedGzipInputStream(Files.newInputStream(path), "test");
+    in.close();
+    assertThat(catchThrowable(in::read)).isInstanceOf(IOException.class);
+  }
+}
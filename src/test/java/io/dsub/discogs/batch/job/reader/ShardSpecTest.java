@@ -0,0 +1,60 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.dsub.discogs.batch.exception.InvalidArgumentException;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ShardSpecTest {
+
+  @Test
+  void whenRangeGiven__ShouldAcceptFromInclusiveToExclusive() {
+    ShardSpec shard = ShardSpec.of("10-20");
+    assertThat(shard.accepts(9)).isFalse();
+    assertThat(shard.accepts(10)).isTrue();
+    assertThat(shard.accepts(19)).isTrue();
+    assertThat(shard.accepts(20)).isFalse();
+    assertThat(shard).hasToString("10-20");
+  }
+
+  @Test
+  void whenRangeIsOpen__ShouldAcceptUpToTheOtherSide() {
+    assertThat(ShardSpec.of("10-").accepts(Integer.MAX_VALUE)).isTrue();
+    assertThat(ShardSpec.of("10-").accepts(9)).isFalse();
+    assertThat(ShardSpec.of("-10").accepts(0)).isTrue();
+    assertThat(ShardSpec.of("-10").accepts(10)).isFalse();
+  }
+
+  @Test
+  void whenModuloGiven__ShouldSplitIdsWithoutOverlap() {
+    ShardSpec[] shards = {ShardSpec.of("0/3"), ShardSpec.of("1/3"), ShardSpec.of("2/3")};
+    LongStream.rangeClosed(1, 100)
+        .forEach(
+            id -> {
+              long accepted = 0;
+              for (ShardSpec shard : shards) {
+                accepted += shard.accepts(id) ? 1 : 0;
+              }
+              assertThat(accepted).isEqualTo(1);
+            });
+    assertThat(shards[1]).hasToString("1/3");
+  }
+
+  @Test
+  void whenIdIsUnknown__ShouldAccept() {
+    assertThat(ShardSpec.of("10-20").accepts(-1)).isTrue();
+    assertThat(ShardSpec.of("1/3").accepts(-1)).isTrue();
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"", "-", "a-b", "20-10", "10-10", "3/3", "-1/3", "1/0", "1/", "10"})
+  void whenMalformed__ShouldThrow(String value) {
+    assertThatThrownBy(() -> ShardSpec.of(value))
+        .isInstanceOf(InvalidArgumentException.class)
+        .hasMessage("malformed shard: " + value);
+  }
+}
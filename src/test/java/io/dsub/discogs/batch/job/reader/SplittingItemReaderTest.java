@@ -0,0 +1,165 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML.ReleaseAlbumArtist;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML.ReleaseTrack;
+import io.dsub.discogs.batch.job.listener.ChunkBindingListener;
+import io.dsub.discogs.batch.job.step.WeightedCompletionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+
+class SplittingItemReaderTest {
+
+  final ReleaseItemSubItemsSplitter splitter = new ReleaseItemSubItemsSplitter();
+  final ChunkBindingListener listener = new ChunkBindingListener();
+
+  @Test
+  void whenHeavy__ShouldSplitIntoLighterReleasesOfSameId() {
+    ReleaseItemSubItemsXML release = release(7, 10, 3);
+    assertThat(splitter.weigh(release)).isEqualTo(14);
+
+    List<ReleaseItemSubItemsXML> pieces = splitter.split(release, 5);
+
+    assertThat(pieces).hasSize(4).allMatch(piece -> piece.getId() == 7);
+    assertThat(pieces).allMatch(piece -> splitter.weigh(piece) <= 5);
+    assertThat(
+            pieces.stream()
+                .filter(piece -> piece.getReleaseTracks() != null)
+                .flatMap(piece -> piece.getReleaseTracks().stream())
+                .collect(Collectors.toList()))
+        .isEqualTo(release.getReleaseTracks());
+    assertThat(
+            pieces.stream()
+                .filter(piece -> piece.getReleaseAlbumArtists() != null)
+                .flatMap(piece -> piece.getReleaseAlbumArtists().stream())
+                .collect(Collectors.toList()))
+        .isEqualTo(release.getReleaseAlbumArtists());
+  }
+
+  @Test
+  void whenLight__ShouldNotSplit() {
+    ReleaseItemSubItemsXML release = release(1, 2, 1);
+    assertThat(splitter.split(release, 5)).containsExactly(release);
+    assertThat(splitter.weigh(new ReleaseItemSubItemsXML())).isEqualTo(1);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void whenSplit__ShouldNotCheckpointPastItemUntilEveryPieceIsCommitted() throws Exception {
+    ResumableItemStreamReader<ReleaseItemSubItemsXML> delegate =
+        mock(ResumableItemStreamReader.class);
+    when(delegate.read()).thenReturn(release(1, 1, 0), release(2, 10, 0), release(3, 1, 0), null);
+    WeightedCompletionPolicy policy = new WeightedCompletionPolicy(100, 6);
+    SplittingItemReader<ReleaseItemSubItemsXML> reader =
+        new SplittingItemReader<>(
+            new CheckpointingItemReader<>(delegate, "test"), splitter, policy, 6);
+    ExecutionContext executionContext = new ExecutionContext();
+    reader.open(executionContext);
+    List<ReleaseItemSubItemsXML> read = new ArrayList<>();
+
+    ChunkContext first = chunk();
+    listener.beforeChunk(first);
+    RepeatContext repeatContext = policy.start(new RepeatContextSupport(null));
+    read.add(reader.read());
+    read.add(reader.read());
+    assertThat(policy.isComplete(repeatContext)).isTrue();
+    reader.update(executionContext);
+    listener.afterChunk(first);
+
+    // the chunk holding the last piece is rolled back, to be retried with the same items.
+    ChunkContext second = chunk();
+    listener.beforeChunk(second);
+    read.add(reader.read());
+    reader.update(executionContext);
+    second.setAttribute("INPUTS", List.copyOf(read.subList(2, 3)));
+    listener.afterChunkError(second);
+
+    ChunkContext third = chunk();
+    listener.beforeChunk(third);
+    read.add(reader.read());
+    assertThat(reader.read()).isNull();
+    reader.update(executionContext);
+    listener.afterChunk(third);
+
+    reader.update(executionContext);
+    verify(delegate, times(4)).update(executionContext);
+    assertThat(getCheckpoint(executionContext)).isEqualTo(1);
+
+    CompletableFuture.runAsync(
+            () -> {
+              listener.beforeChunk(second);
+              listener.afterChunk(second);
+            })
+        .get();
+    reader.update(executionContext);
+    reader.close();
+
+    assertThat(getCheckpoint(executionContext)).isEqualTo(3);
+    assertThat(read).extracting(ReleaseItemSubItemsXML::getId).containsExactly(1, 2, 2, 3);
+    assertThat(read.stream().mapToLong(splitter::weigh).sum()).isEqualTo(2 + 12 + 2);
+  }
+
+  @Test
+  void whenLighterThanMaxWeight__ShouldCompleteByCount() {
+    WeightedCompletionPolicy policy = new WeightedCompletionPolicy(2, 100);
+    RepeatContext chunk = policy.start(new RepeatContextSupport(null));
+    policy.add(10);
+    policy.update(chunk);
+    assertThat(policy.isComplete(chunk)).isFalse();
+    policy.add(10);
+    policy.update(chunk);
+    assertThat(policy.isComplete(chunk)).isTrue();
+
+    RepeatContext next = policy.start(new RepeatContextSupport(null));
+    assertThat(policy.isComplete(next)).isFalse();
+  }
+
+  private static long getCheckpoint(ExecutionContext executionContext) {
+    return executionContext.getLong("test" + CheckpointingItemReader.CHECKPOINT_SUFFIX);
+  }
+
+  private static ChunkContext chunk() {
+    return new ChunkContext(new StepContext(new StepExecution("step", new JobExecution(1L))));
+  }
+
+  private static ReleaseItemSubItemsXML release(int id, int trackCount, int artistCount) {
+    ReleaseItemSubItemsXML release = new ReleaseItemSubItemsXML();
+    release.setId(id);
+    release.setReleaseTracks(
+        IntStream.range(0, trackCount)
+            .mapToObj(
+                i -> {
+                  ReleaseTrack track = new ReleaseTrack();
+                  track.setTitle("track " + i);
+                  return track;
+                })
+            .collect(Collectors.toList()));
+    release.setReleaseAlbumArtists(
+        IntStream.range(0, artistCount)
+            .mapToObj(
+                i -> {
+                  ReleaseAlbumArtist artist = new ReleaseAlbumArtist();
+                  artist.setArtistId(i + 1);
+                  return artist;
+                })
+            .collect(Collectors.toList()));
+    return release;
+  }
+}
@@ -0,0 +1,142 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.dsub.discogs.batch.TestArguments;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML;
+import io.dsub.discogs.batch.job.reader.mapper.FragmentMapper;
+import io.dsub.discogs.batch.job.reader.mapper.FragmentMappers;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.xml.StaxEventItemReader;
+import org.springframework.batch.item.xml.builder.StaxEventItemReaderBuilder;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+
+/**
+ * Benchmarks of {@link StaxCursorItemReader}, which are left out of the unit tests and only run
+ * by the {@code benchmark} task.
+ */
+@Slf4j
+@Tag("benchmark")
+class StaxCursorItemReaderBenchmarkTest {
+
+  /**
+   * Compares throughput and allocation of the cursor mapper against the StAX event + JAXB path,
+   * over fragments of the test release dump repeated in memory.
+   */
+  @Test
+  void whenBenchmarked__ShouldAllocateLessThanJaxb() throws Exception {
+    byte[] document = repeatFragments(Path.of(TestArguments.BASE_XML_PATH, "release.xml.gz"));
+    Class<ReleaseItemSubItemsXML> clazz = ReleaseItemSubItemsXML.class;
+
+    Jaxb2Marshaller marshaller = new Jaxb2Marshaller();
+    marshaller.setClassesToBeBound(clazz);
+    marshaller.afterPropertiesSet();
+    Callable<Long> jaxb =
+        () -> {
+          StaxEventItemReader<ReleaseItemSubItemsXML> reader =
+              new StaxEventItemReaderBuilder<ReleaseItemSubItemsXML>()
+                  .name("benchmark")
+                  .resource(new ByteArrayResource(document))
+                  .addFragmentRootElements("release")
+                  .unmarshaller(marshaller)
+                  .saveState(false)
+                  .build();
+          reader.afterPropertiesSet();
+          reader.open(new ExecutionContext());
+          long count = 0;
+          while (reader.read() != null) {
+            count++;
+          }
+          reader.close();
+          return count;
+        };
+
+    FragmentMapper<ReleaseItemSubItemsXML> mapper = FragmentMappers.of(clazz);
+    Callable<Long> cursor =
+        () -> {
+          XMLStreamReader reader =
+              FragmentMappers.newInputFactory()
+                  .createXMLStreamReader(new ByteArrayInputStream(document));
+          long count = 0;
+          while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT
+                && reader.getLocalName().equals("release")) {
+              mapper.map(reader);
+              count++;
+            }
+          }
+          reader.close();
+          return count;
+        };
+
+    double[] jaxbResult = measure("jaxb", jaxb);
+    double[] cursorResult = measure("cursor", cursor);
+
+    assertThat(cursorResult[1]).isLessThan(jaxbResult[1]);
+  }
+
+  /**
+   * Runs the task after a warm up.
+   *
+   * @return items per second, and bytes allocated per item.
+   */
+  private double[] measure(String name, Callable<Long> task) throws Exception {
+    for (int i = 0; i < 3; i++) {
+      task.call();
+    }
+    com.sun.management.ThreadMXBean threadMXBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    long count = task.call();
+    long elapsed = System.nanoTime() - start;
+    long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+    double itemsPerSecond = count * 1_000_000_000d / elapsed;
+    double bytesPerItem = (double) allocated / count;
+    log.info(
+        "{}: {} items, {} items/sec, {} bytes allocated per item",
+        name,
+        count,
+        String.format("%.0f", itemsPerSecond),
+        String.format("%.0f", bytesPerItem));
+    return new double[]{itemsPerSecond, bytesPerItem};
+  }
+
+  private byte[] repeatFragments(Path dumpPath) throws Exception {
+    List<byte[]> fragments = new ArrayList<>();
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(dumpPath))) {
+      FragmentScanner scanner = new FragmentScanner(in, "release");
+      for (byte[] fragment = scanner.next(); fragment != null; fragment = scanner.next()) {
+        fragments.add(fragment);
+      }
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write("<releases>".getBytes(StandardCharsets.UTF_8));
+    for (int i = 0; i < 2000; i++) {
+      for (byte[] fragment : fragments) {
+        out.write(fragment);
+      }
+    }
+    out.write("</releases>".getBytes(StandardCharsets.UTF_8));
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,77 @@
+package io.dsub.discogs.batch.job.reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.dsub.discogs.batch.TestArguments;
+import io.dsub.discogs.batch.TestArguments.ItemReaderTestArgument;
+import io.dsub.discogs.batch.domain.master.MasterMainReleaseXML;
+import io.dsub.discogs.batch.domain.release.ReleaseItemSubItemsXML;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+
+class StaxCursorItemReaderTest {
+
+  static Stream<ItemReaderTestArgument> cursorTestArguments() {
+    return Stream.concat(
+        TestArguments.itemReaderTestArguments(),
+        Stream.of(new ItemReaderTestArgument(MasterMainReleaseXML.class, "master")));
+  }
+
+  @ParameterizedTest
+  @MethodSource("cursorTestArguments")
+  void whenReadToEnd__ShouldReadSameItemsAsStaxReader(ItemReaderTestArgument arg)
+      throws Exception {
+    List<?> expected =
+        readAll(
+            new ProgressBarStaxEventItemReader<>(
+                arg.getMappedClass(), arg.getXmlPath(), arg.getRootElementName()));
+    List<?> actual =
+        readAll(
+            new StaxCursorItemReader<>(
+                arg.getMappedClass(), arg.getXmlPath(), arg.getRootElementName(), false));
+
+    assertThat(actual).isNotEmpty().isEqualTo(expected);
+  }
+
+  @Test
+  void whenFragmentHasUnknownElements__ShouldMapSameAsJaxb() throws Exception {
+    String xml =
+        "<releases><release id=\"1\" status=\"Accepted\"><unknown><artists><artist>"
+            + "<id>2</id></artist></artists></unknown><tracklist><track><position>A1</position>"
+            + "<extra><title>x</title></extra><title>t</title></track></tracklist></release>"
+            + "</releases>";
+    Path path = Files.createTempFile("cursor", ".xml");
+    try {
+      Files.writeString(path, xml);
+      List<?> expected =
+          readAll(
+              new ProgressBarStaxEventItemReader<>(ReleaseItemSubItemsXML.class, path, "release"));
+      List<?> actual =
+          readAll(new StaxCursorItemReader<>(ReleaseItemSubItemsXML.class, path, "release", false));
+      assertThat(actual).hasSize(1).isEqualTo(expected);
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  private <T> List<T> readAll(ItemStreamReader<T> reader) throws Exception {
+    List<T> items = new ArrayList<>();
+    try {
+      reader.open(new ExecutionContext());
+      for (T item = reader.read(); item != null; item = reader.read()) {
+        items.add(item);
+      }
+    } finally {
+      reader.close();
+    }
+    return items;
+  }
+}
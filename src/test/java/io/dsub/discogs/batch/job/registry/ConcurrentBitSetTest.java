@@ -0,0 +1,110 @@
+package io.dsub.discogs.batch.job.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentBitSetTest {
+
+  @Test
+  void whenSetAndCleared__ShouldMatchBitSet() {
+    ConcurrentBitSet bits = new ConcurrentBitSet();
+    BitSet expected = new BitSet();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 10_000; i++) {
+      int index = random.nextInt(300_000);
+      if (random.nextInt(4) == 0) {
+        assertThat(bits.clear(index)).isEqualTo(expected.get(index));
+        expected.clear(index);
+      } else {
+        assertThat(bits.set(index)).isEqualTo(!expected.get(index));
+        expected.set(index);
+      }
+    }
+
+    for (int i = 0; i < 300_000; i++) {
+      assertThat(bits.get(i)).isEqualTo(expected.get(i));
+    }
+    assertThat(bits.cardinality()).isEqualTo(expected.cardinality());
+    assertThat(bits.get(-1)).isFalse();
+    assertThat(bits.get(Integer.MAX_VALUE)).isFalse();
+  }
+
+  @Test
+  void whenFlipped__ShouldComplementOnlyWithinRange() {
+    ConcurrentBitSet bits = new ConcurrentBitSet();
+    BitSet expected = new BitSet();
+    for (int index : new int[] {0, 3, 63, 64, 65_535, 65_536, 70_000}) {
+      bits.set(index);
+      expected.set(index);
+    }
+
+    bits.flip(3, 65_600);
+    expected.flip(3, 65_600);
+    bits.flip(0, 1);
+    expected.flip(0, 1);
+    bits.flip(64, 64);
+
+    for (int i = 0; i < 80_000; i++) {
+      assertThat(bits.get(i)).as("bit %d", i).isEqualTo(expected.get(i));
+    }
+    assertThat(bits.cardinality()).isEqualTo(expected.cardinality());
+  }
+
+  @Test
+  void whenCleared__ShouldReleasePages() {
+    ConcurrentBitSet bits = new ConcurrentBitSet();
+    bits.ensureCapacity(200_000);
+    assertThat(bits.allocatedBytes()).isEqualTo(4 * 8 * 1024);
+
+    bits.set(5);
+    bits.clear();
+
+    assertThat(bits.get(5)).isFalse();
+    assertThat(bits.allocatedBytes()).isZero();
+    assertThat(catchThrowable(() -> bits.set(-1)))
+        .isInstanceOf(IndexOutOfBoundsException.class);
+  }
+
+  @Test
+  void whenSetConcurrently__ShouldNotLoseAnyBit() throws Exception {
+    ConcurrentBitSet bits = new ConcurrentBitSet();
+    int threads = 8;
+    int perThread = 50_000;
+    AtomicInteger newlySet = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int offset = t;
+      futures.add(
+          executor.submit(
+              () -> {
+                // interleaved indices, so that every word is contended.
+                for (int i = 0; i < perThread; i++) {
+                  if (bits.set(i * threads + offset)) {
+                    newlySet.incrementAndGet();
+                  }
+                }
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(bits.cardinality()).isEqualTo((long) threads * perThread);
+    assertThat(newlySet.get()).isEqualTo(threads * perThread);
+  }
+}
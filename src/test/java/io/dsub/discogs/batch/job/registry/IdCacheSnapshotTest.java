@@ -0,0 +1,82 @@
+package io.dsub.discogs.batch.job.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.dsub.discogs.batch.job.registry.IdCacheSnapshot.Fingerprint;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IdCacheSnapshotTest {
+
+  static final List<Integer> IDS = List.of(1, 2, 63, 64, 65, 1_000, 70_000);
+  static final Fingerprint FINGERPRINT = new Fingerprint(IDS.size(), 70_000);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void whenRestoredWithSameFingerprint__ShouldHoldSameIds() throws Exception {
+    IdCache cache = cacheOf(IDS);
+    cache.invert();
+    Path path = tempDir.resolve(IdCacheSnapshot.filenameOf(EntityIdRegistry.Type.ARTIST));
+    assertThat(FINGERPRINT.matches(cache)).isTrue();
+
+    IdCacheSnapshot.write(path, cache, FINGERPRINT, "etag");
+    IdCache restored = new IdCache(EntityIdRegistry.Type.ARTIST);
+
+    assertThat(IdCacheSnapshot.restore(path, restored, FINGERPRINT)).isTrue();
+    assertThat(path.getFileName().toString()).isEqualTo("id-cache-artist.snapshot");
+    assertThat(restored.size()).isEqualTo(IDS.size());
+    assertThat(restored.getMaxId()).isEqualTo(70_000);
+    IntStream.rangeClosed(0, 70_100)
+        .forEach(id -> assertThat(restored.exists(id)).as("id %d", id).isEqualTo(IDS.contains(id)));
+  }
+
+  @Test
+  void whenFingerprintDiffers__ShouldNotRestore() throws Exception {
+    Path path = tempDir.resolve("snapshot");
+    IdCacheSnapshot.write(path, cacheOf(IDS), FINGERPRINT, null);
+    IdCache restored = new IdCache(EntityIdRegistry.Type.ARTIST);
+
+    assertThat(IdCacheSnapshot.restore(path, restored, new Fingerprint(IDS.size() + 1, 70_001)))
+        .isFalse();
+    assertThat(restored.isEmpty()).isTrue();
+    assertThat(IdCacheSnapshot.restore(path, new IdCache(EntityIdRegistry.Type.LABEL), FINGERPRINT))
+        .isFalse();
+    assertThat(IdCacheSnapshot.restore(tempDir.resolve("missing"), restored, FINGERPRINT))
+        .isFalse();
+  }
+
+  @Test
+  void whenBroken__ShouldLeaveCacheEmpty() throws Exception {
+    Path path = tempDir.resolve("snapshot");
+    IdCacheSnapshot.write(path, cacheOf(IDS), FINGERPRINT, "etag");
+    byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length - 8));
+    IdCache restored = new IdCache(EntityIdRegistry.Type.ARTIST);
+
+    assertThat(IdCacheSnapshot.restore(path, restored, FINGERPRINT)).isFalse();
+    assertThat(restored.isEmpty()).isTrue();
+    assertThat(restored.exists(1)).isFalse();
+  }
+
+  @Test
+  void whenCacheDiffersFromFingerprint__ShouldNotMatch() {
+    IdCache cache = cacheOf(IDS);
+
+    assertThat(new Fingerprint(IDS.size(), 70_001).matches(cache)).isFalse();
+    assertThat(new Fingerprint(IDS.size() - 1, 70_000).matches(cache)).isFalse();
+    assertThat(new Fingerprint(0, -1).matches(new IdCache(EntityIdRegistry.Type.ARTIST))).isTrue();
+  }
+
+  private static IdCache cacheOf(List<Integer> ids) {
+    IdCache cache = new IdCache(EntityIdRegistry.Type.ARTIST);
+    ids.forEach(cache::add);
+    return cache;
+  }
+}
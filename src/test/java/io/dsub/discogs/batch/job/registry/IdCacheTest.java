@@ -0,0 +1,87 @@
+package io.dsub.discogs.batch.job.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class IdCacheTest {
+
+  @Test
+  void whenAdded__ShouldExist() {
+    IdCache cache = new IdCache(EntityIdRegistry.Type.ARTIST);
+    assertThat(cache.isEmpty()).isTrue();
+
+    cache.add(1);
+    cache.add(100_000);
+    cache.add(null);
+    cache.add(-3);
+
+    assertThat(cache.isEmpty()).isFalse();
+    assertThat(cache.exists(1)).isTrue();
+    assertThat(cache.exists(100_000)).isTrue();
+    assertThat(cache.exists(2)).isFalse();
+    assertThat(cache.exists(100_001)).isFalse();
+    assertThat(cache.exists(-3)).isFalse();
+    assertThat(cache.exists(null)).isFalse();
+  }
+
+  @Test
+  void whenInverted__ShouldKeepSameIds() {
+    IdCache cache = new IdCache(EntityIdRegistry.Type.MASTER);
+    List<Integer> ids = List.of(1, 2, 5, 64, 65, 70_000);
+    ids.forEach(cache::add);
+
+    cache.invert();
+
+    assertThat(cache.isInverted()).isTrue();
+    IntStream.rangeClosed(0, 70_100)
+        .forEach(id -> assertThat(cache.exists(id)).as("id %d", id).isEqualTo(ids.contains(id)));
+
+    cache.invert();
+
+    assertThat(cache.isInverted()).isFalse();
+    IntStream.rangeClosed(0, 70_100)
+        .forEach(id -> assertThat(cache.exists(id)).as("id %d", id).isEqualTo(ids.contains(id)));
+  }
+
+  @Test
+  void whenAddedAfterInversion__ShouldExistWithinAndBeyondInvertedRange() {
+    IdCache cache = new IdCache(EntityIdRegistry.Type.LABEL);
+    cache.add(3);
+    cache.add(10);
+    cache.invert();
+
+    cache.add(7);
+    cache.add(20);
+
+    assertThat(cache.exists(3)).isTrue();
+    assertThat(cache.exists(7)).isTrue();
+    assertThat(cache.exists(10)).isTrue();
+    assertThat(cache.exists(20)).isTrue();
+    assertThat(cache.exists(4)).isFalse();
+    assertThat(cache.exists(15)).isFalse();
+
+    cache.invert();
+
+    assertThat(cache.exists(7)).isTrue();
+    assertThat(cache.exists(20)).isTrue();
+    assertThat(cache.exists(15)).isFalse();
+  }
+
+  @Test
+  void whenCleared__ShouldBeEmpty() {
+    IdCache cache = new IdCache(EntityIdRegistry.Type.RELEASE);
+    cache.presize(1_000_000);
+    cache.add(5);
+    cache.invert();
+
+    cache.clear();
+
+    assertThat(cache.isEmpty()).isTrue();
+    assertThat(cache.isInverted()).isFalse();
+    assertThat(cache.exists(5)).isFalse();
+    assertThat(cache.exists(4)).isFalse();
+  }
+}
@@ -0,0 +1,65 @@
+package io.dsub.discogs.batch.job.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MainReleaseRegistryTest {
+
+  MainReleaseRegistry registry = new MainReleaseRegistry();
+
+  @Test
+  void whenPut__ShouldGetMainRelease() {
+    registry.put(3, 30);
+    registry.put(1_000_000, 7);
+    registry.put(3, 31);
+
+    assertThat(registry.get(3)).isEqualTo(31);
+    assertThat(registry.get(1_000_000)).isEqualTo(7);
+    assertThat(registry.get(4)).isZero();
+    assertThat(registry.get(-1)).isZero();
+    assertThat(registry.size()).isEqualTo(2);
+  }
+
+  @Test
+  void whenIdsAreMissingOrInvalid__ShouldIgnore() {
+    registry.put(null, 1);
+    registry.put(1, null);
+    registry.put(0, 1);
+    registry.put(1, 0);
+    registry.put(-5, 3);
+
+    assertThat(registry.isEmpty()).isTrue();
+    assertThat(registry.nextMasterId(0)).isEqualTo(-1);
+  }
+
+  @Test
+  void whenIterated__ShouldVisitMastersInOrderAcrossPages() {
+    List<Integer> masterIds = List.of(1, 2, 65_535, 65_536, 5_000_000, Integer.MAX_VALUE);
+    masterIds.forEach(id -> registry.put(id, id % 1_000 + 1));
+
+    List<Integer> visited = new ArrayList<>();
+    for (int id = registry.nextMasterId(0); id >= 0; id = registry.nextMasterId(id + 1)) {
+      visited.add(id);
+      if (id == Integer.MAX_VALUE) {
+        break;
+      }
+    }
+
+    assertThat(visited).isEqualTo(masterIds);
+    assertThat(registry.nextMasterId(5_000_001)).isEqualTo(Integer.MAX_VALUE);
+  }
+
+  @Test
+  void whenCleared__ShouldBeEmpty() {
+    registry.put(10, 100);
+
+    registry.clear();
+
+    assertThat(registry.isEmpty()).isTrue();
+    assertThat(registry.get(10)).isZero();
+    assertThat(registry.size()).isZero();
+  }
+}
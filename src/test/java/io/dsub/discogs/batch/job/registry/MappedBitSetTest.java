@@ -0,0 +1,107 @@
+package io.dsub.discogs.batch.job.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedBitSetTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void whenCreated__ShouldReplaceExistingFile() throws Exception {
+    Path path = tempDir.resolve("id-cache-artist.bits");
+    Files.write(path, new byte[] {-1, -1, -1, -1});
+
+    MappedBitSet bits = MappedBitSet.create(path);
+
+    assertThat(Files.size(path)).isEqualTo(MappedBitSet.FILE_SIZE);
+    assertThat(bits.get(0)).isFalse();
+    assertThat(bits.cardinality()).isZero();
+  }
+
+  @Test
+  void whenSetClearedAndFlipped__ShouldMatchBitSet() throws Exception {
+    MappedBitSet bits = MappedBitSet.create(tempDir.resolve("bits"));
+    BitSet expected = new BitSet();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 10_000; i++) {
+      int index = random.nextInt(300_000);
+      if (random.nextInt(4) == 0) {
+        assertThat(bits.clear(index)).isEqualTo(expected.get(index));
+        expected.clear(index);
+      } else {
+        assertThat(bits.set(index)).isEqualTo(!expected.get(index));
+        expected.set(index);
+      }
+    }
+    bits.flip(3, 310_000);
+    expected.flip(3, 310_000);
+
+    for (int i = 0; i < 320_000; i++) {
+      assertThat(bits.get(i)).isEqualTo(expected.get(i));
+    }
+    assertThat(bits.cardinality()).isEqualTo(expected.cardinality());
+    assertThat(bits.get(Integer.MAX_VALUE)).isFalse();
+    assertThat(bits.set(Integer.MAX_VALUE)).isTrue();
+    assertThat(bits.get(Integer.MAX_VALUE)).isTrue();
+
+    bits.clear();
+
+    assertThat(bits.cardinality()).isZero();
+    assertThat(bits.get(Integer.MAX_VALUE)).isFalse();
+    assertThat(bits.allocatedBytes()).isZero();
+  }
+
+  @Test
+  void whenSetConcurrently__ShouldNotLoseAnyBit() throws Exception {
+    MappedBitSet bits = MappedBitSet.create(tempDir.resolve("bits"));
+    int threads = 8;
+    int perThread = 50_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int offset = t;
+      futures.add(
+          executor.submit(
+              () -> {
+                for (int i = 0; i < perThread; i++) {
+                  bits.set(i * threads + offset);
+                }
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(bits.cardinality()).isEqualTo((long) threads * perThread);
+  }
+
+  @Test
+  void whenBackingIdCache__ShouldKeepIdsOverInversion() throws Exception {
+    IdCache cache =
+        new IdCache(EntityIdRegistry.Type.RELEASE, MappedBitSet.create(tempDir.resolve("bits")));
+    List.of(1, 7, 1_000_000).forEach(cache::add);
+
+    cache.invert();
+
+    assertThat(cache.exists(7)).isTrue();
+    assertThat(cache.exists(1_000_000)).isTrue();
+    assertThat(cache.exists(8)).isFalse();
+  }
+}
@@ -0,0 +1,114 @@
+package io.dsub.discogs.batch.job.registry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class RowFingerprintFilterTest {
+
+  RowFingerprintFilter filter = new RowFingerprintFilter();
+
+  @Test
+  void whenCommitted__ShouldSuppressSameRow() {
+    long fingerprint = fingerprintOf("artist_url", 1, "http://a");
+
+    assertThat(filter.accept("artist_url", fingerprint)).isTrue();
+    assertThat(filter.accept("artist_url", fingerprint)).isFalse();
+    filter.commitStaged();
+
+    assertThat(filter.accept("artist_url", fingerprint)).isFalse();
+    assertThat(filter.accept("artist_url", fingerprintOf("artist_url", 2, "http://a"))).isTrue();
+    assertThat(filter.size()).isEqualTo(1);
+    assertThat(filter.getSuppressedCounts()).isEqualTo(Map.of("artist_url", 2L));
+  }
+
+  @Test
+  void whenDiscarded__ShouldAcceptRowAgain() {
+    long fingerprint = fingerprintOf("artist_url", 1, "http://a");
+
+    assertThat(filter.accept("artist_url", fingerprint)).isTrue();
+    filter.discardStaged();
+    filter.commitStaged();
+
+    assertThat(filter.size()).isZero();
+    assertThat(filter.accept("artist_url", fingerprint)).isTrue();
+  }
+
+  @Test
+  void whenCleared__ShouldForgetEverything() {
+    filter.accept("label_url", 0L);
+    filter.accept("label_url", 0L);
+    filter.commitStaged();
+    assertThat(filter.size()).isEqualTo(1);
+
+    filter.clear();
+
+    assertThat(filter.size()).isZero();
+    assertThat(filter.getSuppressedCounts()).isEmpty();
+    assertThat(filter.accept("label_url", 0L)).isTrue();
+  }
+
+  @Test
+  void whenFingerprinted__ShouldTellValuesAndTablesApart() {
+    assertThat(fingerprintOf("artist_url", 1, "http://a"))
+        .isEqualTo(fingerprintOf("artist_url", 1L, "http://a"))
+        .isNotEqualTo(fingerprintOf("label_url", 1, "http://a"))
+        .isNotEqualTo(fingerprintOf("artist_url", 1, "http://b"))
+        .isNotEqualTo(fingerprintOf("artist_url", "http://a", 1));
+    // "Aa" and "BB" share the same String#hashCode()
+    assertThat(fingerprintOf("artist_url", 1, "Aa"))
+        .isNotEqualTo(fingerprintOf("artist_url", 1, "BB"));
+  }
+
+  @Test
+  void whenAcceptedConcurrently__ShouldWriteEachRowOnce() throws Exception {
+    int threads = 8;
+    int rows = 20_000;
+    AtomicLong accepted = new AtomicLong();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                for (int i = 0; i < rows; i++) {
+                  if (filter.accept("release_item_genre", fingerprintOf("t", i))) {
+                    accepted.incrementAndGet();
+                  }
+                  if (i % 100 == 99) {
+                    filter.commitStaged();
+                  }
+                }
+                filter.commitStaged();
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(filter.size()).isEqualTo(rows);
+    // rows staged by different threads at the same time may both be accepted.
+    assertThat(accepted.get()).isBetween((long) rows, (long) rows * threads);
+    for (int i = 0; i < rows; i++) {
+      assertThat(filter.accept("release_item_genre", fingerprintOf("t", i))).isFalse();
+    }
+  }
+
+  private static long fingerprintOf(String table, Object... values) {
+    long fingerprint = RowFingerprintFilter.seed(table);
+    for (Object value : values) {
+      fingerprint = RowFingerprintFilter.fold(fingerprint, value);
+    }
+    return fingerprint;
+  }
+}
@@ -0,0 +1,116 @@
+package io.dsub.discogs.batch.job.tasklet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import io.dsub.discogs.batch.TestArguments;
+import io.dsub.discogs.batch.dump.DiscogsDump;
+import io.dsub.discogs.batch.dump.EntityType;
+import io.dsub.discogs.batch.job.reader.DumpStatistics;
+import io.dsub.discogs.batch.job.reader.FragmentStore;
+import io.dsub.discogs.batch.util.FileUtil;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+
+class FragmentStoreTaskletTest {
+
+  final StepExecution stepExecution = new StepExecution("step", new JobExecution(1L));
+  final ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+  final StepContribution stepContribution = new StepContribution(stepExecution);
+  final DiscogsDump dump =
+      new DiscogsDump("etag", EntityType.MASTER, "data/master.xml.gz", 0L, LocalDate.now(), null);
+
+  @TempDir
+  Path tempDir;
+
+  @Mock
+  FileUtil fileUtil;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    MockitoAnnotations.openMocks(this);
+    Files.copy(
+        Path.of(TestArguments.BASE_XML_PATH, "master.xml.gz"), tempDir.resolve("master.xml.gz"));
+    given(fileUtil.getFilePath(anyString()))
+        .willAnswer(invocation -> tempDir.resolve(invocation.<String>getArgument(0)));
+    given(fileUtil.isTemporary()).willReturn(false);
+  }
+
+  @Test
+  void givenEnabled__WhenTaskExecutes__ShouldWriteStore() throws Exception {
+    // when
+    new FragmentStoreTasklet(dump, fileUtil, true, false).execute(stepContribution, chunkContext);
+
+    // then
+    Path storePath = tempDir.resolve("master.xml.gz" + FragmentStore.STORE_SUFFIX);
+    assertThat(stepContribution.getExitStatus()).isEqualTo(ExitStatus.COMPLETED);
+    assertThat(FragmentStore.exists(storePath)).isTrue();
+    try (FragmentStore store = FragmentStore.open(storePath)) {
+      assertThat(store.size()).isEqualTo(3);
+      assertThat(store.getId(0)).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void givenProfile__WhenTaskExecutes__ShouldWriteStatisticsWithinSameScan() throws Exception {
+    // given
+    FragmentStoreTasklet tasklet = new FragmentStoreTasklet(dump, fileUtil, true, false);
+    tasklet.setProfile(true);
+
+    // when
+    tasklet.execute(stepContribution, chunkContext);
+
+    // then
+    Path storePath = tempDir.resolve("master.xml.gz" + FragmentStore.STORE_SUFFIX);
+    Path statsPath = tempDir.resolve("master.xml.gz" + DumpStatistics.STATS_SUFFIX);
+    assertThat(stepContribution.getExitStatus()).isEqualTo(ExitStatus.COMPLETED);
+    assertThat(FragmentStore.exists(storePath)).isTrue();
+    DumpStatistics statistics = DumpStatistics.load(statsPath);
+    assertThat(statistics.getFragmentCount()).isEqualTo(3);
+    assertThat(statistics.getMinId()).isEqualTo(1);
+    assertThat(statistics.getMaxId()).isEqualTo(3);
+  }
+
+  @Test
+  void givenProfileOnly__WhenTaskExecutes__ShouldOnlyWriteStatistics() throws Exception {
+    // given
+    FragmentStoreTasklet tasklet = new FragmentStoreTasklet(dump, fileUtil, false, false);
+    tasklet.setProfile(true);
+
+    // when
+    tasklet.execute(stepContribution, chunkContext);
+
+    // then
+    Path storePath = tempDir.resolve("master.xml.gz" + FragmentStore.STORE_SUFFIX);
+    Path statsPath = tempDir.resolve("master.xml.gz" + DumpStatistics.STATS_SUFFIX);
+    assertThat(stepContribution.getExitStatus()).isEqualTo(ExitStatus.COMPLETED);
+    assertThat(FragmentStore.exists(storePath)).isFalse();
+    assertThat(DumpStatistics.exists(statsPath)).isTrue();
+  }
+
+  @Test
+  void givenDisabled__WhenTaskExecutes__ShouldDoNothing() throws Exception {
+    // when
+    new FragmentStoreTasklet(dump, fileUtil, false, false).execute(stepContribution, chunkContext);
+
+    // then
+    verify(fileUtil, never()).getFilePath(anyString());
+    assertThat(stepContribution.getExitStatus()).isEqualTo(ExitStatus.COMPLETED);
+    assertThat(chunkContext.isComplete()).isTrue();
+  }
+}
@@ -0,0 +1,145 @@
+package io.dsub.discogs.batch.job.tasklet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import io.dsub.discogs.batch.domain.master.MasterMainReleaseXML;
+import io.dsub.discogs.batch.job.registry.EntityIdRegistry;
+import io.dsub.discogs.batch.job.registry.MainReleaseRegistry;
+import io.dsub.discogs.batch.job.step.core.MasterStepConfig;
+import java.util.ArrayList;
+import java.util.List;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.repeat.RepeatStatus;
+
+class MasterMainReleaseUpdateTaskletTest {
+
+  final JobExecution jobExecution =
+      new JobExecution(new JobInstance(1L, "job"), new JobParameters());
+  final EntityIdRegistry idRegistry = new EntityIdRegistry();
+  final List<String> statements = new ArrayList<>();
+  final DSLContext context =
+      DSL.using(
+          new MockConnection(
+              ctx -> {
+                statements.add(ctx.sql());
+                return new MockResult[] {new MockResult(2, null)};
+              }),
+          SQLDialect.POSTGRES);
+
+  @Mock
+  ItemStreamReader<MasterMainReleaseXML> reader;
+
+  @Mock
+  JobRepository jobRepository;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    MockitoAnnotations.openMocks(this);
+    given(reader.read()).willReturn(master(1, 10), master(2, 20), master(3, 30), null);
+    idRegistry.put(EntityIdRegistry.Type.RELEASE, 10);
+    idRegistry.put(EntityIdRegistry.Type.RELEASE, 20);
+  }
+
+  @Test
+  void whenMasterStepCompletedByPreviousExecution__ShouldReadMainReleasesFromDump()
+      throws Exception {
+    StepContribution contribution = execute();
+
+    verify(reader).open(any(ExecutionContext.class));
+    verify(reader).close();
+    assertMainReleasesRead();
+    assertThat(statements).hasSize(1);
+    assertThat(statements.get(0)).startsWith("update").contains("unnest");
+    assertThat(contribution.getWriteCount()).isEqualTo(2);
+    assertThat(contribution.getFilterCount()).isEqualTo(1);
+  }
+
+  @Test
+  void whenMasterStepResumed__ShouldReadMainReleasesFromDump() throws Exception {
+    jobExecution
+        .createStepExecution(MasterStepConfig.MASTER_CORE_INSERTION_STEP)
+        .setStatus(BatchStatus.COMPLETED);
+    given(
+            jobRepository.getStepExecutionCount(
+                any(), eq(MasterStepConfig.MASTER_CORE_INSERTION_STEP)))
+        .willReturn(2);
+    // only the masters after the checkpoint were captured.
+    idRegistry.getMainReleases().put(3, 30);
+
+    execute();
+
+    verify(reader).open(any(ExecutionContext.class));
+    assertMainReleasesRead();
+    assertThat(statements).hasSize(1);
+  }
+
+  @Test
+  void whenMasterStepCapturedEveryMaster__ShouldNotReadDump() throws Exception {
+    jobExecution
+        .createStepExecution(MasterStepConfig.MASTER_CORE_INSERTION_STEP)
+        .setStatus(BatchStatus.COMPLETED);
+    given(
+            jobRepository.getStepExecutionCount(
+                any(), eq(MasterStepConfig.MASTER_CORE_INSERTION_STEP)))
+        .willReturn(1);
+    idRegistry.getMainReleases().put(1, 10);
+
+    StepContribution contribution = execute();
+
+    verify(reader, never()).open(any(ExecutionContext.class));
+    assertThat(statements).hasSize(1);
+    assertThat(contribution.getReadCount()).isEqualTo(1);
+  }
+
+  private StepContribution execute() throws Exception {
+    StepExecution stepExecution = jobExecution.createStepExecution("update");
+    ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+    StepContribution contribution = new StepContribution(stepExecution);
+    MasterMainReleaseUpdateTasklet tasklet =
+        new MasterMainReleaseUpdateTasklet(idRegistry, context, reader, jobRepository);
+    int executions = 0;
+    while (tasklet.execute(contribution, chunkContext) == RepeatStatus.CONTINUABLE) {
+      assertThat(++executions).isLessThan(10);
+    }
+    return contribution;
+  }
+
+  private void assertMainReleasesRead() {
+    MainReleaseRegistry mainReleases = idRegistry.getMainReleases();
+    assertThat(mainReleases.size()).isEqualTo(3);
+    assertThat(mainReleases.get(1)).isEqualTo(10);
+    assertThat(mainReleases.get(2)).isEqualTo(20);
+    assertThat(mainReleases.get(3)).isEqualTo(30);
+  }
+
+  private static MasterMainReleaseXML master(int id, int mainReleaseId) {
+    MasterMainReleaseXML master = new MasterMainReleaseXML();
+    master.setId(id);
+    master.setMainReleaseId(mainReleaseId);
+    return master;
+  }
+}
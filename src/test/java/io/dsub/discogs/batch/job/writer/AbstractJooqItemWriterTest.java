@@ -0,0 +1,44 @@
+package io.dsub.discogs.batch.job.writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.jooq.Record;
+import org.junit.jupiter.api.Test;
+
+class AbstractJooqItemWriterTest {
+
+  final int[] indexes = {0, 1};
+
+  @Test
+  void whenFirstValuesDiffer__ShouldCompareByThem() {
+    assertThat(AbstractJooqItemWriter.compareValues(record(1, "b"), record(2, "a"), indexes))
+        .isNegative();
+    assertThat(AbstractJooqItemWriter.compareValues(record(2, "a"), record(1, "b"), indexes))
+        .isPositive();
+  }
+
+  @Test
+  void whenFirstValuesEqual__ShouldCompareByNextValues() {
+    assertThat(AbstractJooqItemWriter.compareValues(record(1, "b"), record(1, "a"), indexes))
+        .isPositive();
+    assertThat(AbstractJooqItemWriter.compareValues(record(1, "a"), record(1, "a"), indexes))
+        .isZero();
+  }
+
+  @Test
+  void whenValueIsNull__ShouldComeFirst() {
+    assertThat(AbstractJooqItemWriter.compareValues(record(null, "b"), record(1, "a"), indexes))
+        .isNegative();
+    assertThat(AbstractJooqItemWriter.compareValues(record(1, null), record(1, null), indexes))
+        .isZero();
+  }
+
+  private Record record(Object first, Object second) {
+    Record record = mock(Record.class);
+    when(record.get(0)).thenReturn(first);
+    when(record.get(1)).thenReturn(second);
+    return record;
+  }
+}
@@ -0,0 +1,139 @@
+package io.dsub.discogs.batch.job.writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.dsub.discogs.batch.job.writer.PostgresCopyItemWriterTest.Track;
+import io.dsub.discogs.batch.job.writer.PostgresCopyItemWriterTest.TrackRecord;
+import io.dsub.discogs.jooq.tables.Artist;
+import io.dsub.discogs.jooq.tables.records.ArtistRecord;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.jooq.Field;
+import org.jooq.SQLDialect;
+import org.jooq.UpdatableRecord;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class DefaultLJooqItemWriterTest {
+
+  final Connection connection = mock(Connection.class);
+  final PreparedStatement ps = mock(PreparedStatement.class);
+  final List<String> binds = new ArrayList<>();
+  final DefaultLJooqItemWriter<UpdatableRecord<?>> writer =
+      new DefaultLJooqItemWriter<>(DSL.using(connection, SQLDialect.POSTGRES));
+
+  @BeforeEach
+  void setUp() throws Exception {
+    given(connection.prepareStatement(anyString())).willReturn(ps);
+    doAnswer(
+            invocation -> binds.add(invocation.getArgument(0) + "=" + invocation.getArgument(1)))
+        .when(ps)
+        .setObject(anyInt(), any());
+    doAnswer(
+            invocation ->
+                binds.add(invocation.getArgument(0) + "=null:" + invocation.getArgument(1)))
+        .when(ps)
+        .setNull(anyInt(), anyInt());
+  }
+
+  @Test
+  void whenSubItemWritten__ShouldBindInsertFieldsThenUpdateFields() throws Exception {
+    LocalDateTime createdAt = LocalDateTime.of(2021, 7, 1, 12, 30);
+    TrackRecord record = new TrackRecord();
+    record.set(Track.TRACK.ID, 99);
+    record.set(Track.TRACK.RELEASE_ID, 1);
+    record.set(Track.TRACK.TITLE, "title");
+    record.set(Track.TRACK.CREATED_AT, createdAt);
+
+    writer.write(List.of(record));
+
+    String sql = getPreparedSql(record);
+    assertThat(sql)
+        .startsWith(
+            "insert into \"track\" (\"release_id\", \"position\", \"title\", \"created_at\","
+                + " \"last_modified_at\") values (")
+        .contains(") on conflict (\"release_id\", \"position\") do update set \"title\" = ")
+        .contains(", \"last_modified_at\" = ");
+    assertThat(sql.chars().filter(c -> c == '?')).hasSize(7);
+    // the generated id is neither inserted nor updated.
+    assertThat(binds)
+        .containsExactly(
+            "1=1",
+            "2=null:" + Types.VARCHAR,
+            "3=title",
+            "4=" + createdAt,
+            "5=null:" + Types.TIMESTAMP,
+            "6=title",
+            "7=null:" + Types.TIMESTAMP);
+    verify(ps, times(1)).addBatch();
+    verify(ps, times(1)).executeBatch();
+  }
+
+  @Test
+  void whenCoreItemsWritten__ShouldBindEachRecordInOrderOfConstraint() throws Exception {
+    ArtistRecord second = new ArtistRecord().setId(2).setName("second");
+    ArtistRecord first = new ArtistRecord().setId(1).setProfile("first");
+
+    writer.write(List.of(second, first));
+
+    String sql = getPreparedSql(first);
+    assertThat(sql)
+        .startsWith("insert into \"artist\" (\"id\", ")
+        .contains(" on conflict (\"id\"")
+        .contains(" do update set ");
+    // the id of a core table is inserted, but neither the id nor the creation is updated.
+    List<Field<?>> insertFields = List.of(Artist.ARTIST.fields());
+    List<Field<?>> keyFields =
+        Artist.ARTIST.getKeys().stream().flatMap(key -> key.getFields().stream()).toList();
+    List<Field<?>> updateFields =
+        insertFields.stream()
+            .filter(field -> !keyFields.contains(field))
+            .filter(field -> !Set.of("id", "created_at").contains(field.getName()))
+            .filter(
+                field ->
+                    Artist.ARTIST.field("hash") == null
+                        || field.getName().equals("last_modified_at"))
+            .toList();
+    assertThat(sql.chars().filter(c -> c == '?'))
+        .hasSize(insertFields.size() + updateFields.size());
+    List<String> expected = new ArrayList<>();
+    for (ArtistRecord record : List.of(first, second)) {
+      List<Field<?>> boundFields = new ArrayList<>(insertFields);
+      boundFields.addAll(updateFields);
+      for (int i = 0; i < boundFields.size(); i++) {
+        Field<?> field = boundFields.get(i);
+        Object value = record.get(field);
+        expected.add(
+            (i + 1) + "=" + (value == null ? "null:" + field.getDataType().getSQLType() : value));
+      }
+    }
+    assertThat(binds).containsExactlyElementsOf(expected);
+    verify(ps, times(2)).addBatch();
+    verify(ps, times(1)).executeBatch();
+  }
+
+  /*
+   * The statement prepared, which is rendered once by the query of the table.
+   */
+  private String getPreparedSql(UpdatableRecord<?> record) throws Exception {
+    ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+    verify(connection).prepareStatement(sql.capture());
+    assertThat(sql.getValue()).isEqualTo(writer.getQuery(record).getSQL());
+    return sql.getValue();
+  }
+}
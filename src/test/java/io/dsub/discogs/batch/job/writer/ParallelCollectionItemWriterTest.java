@@ -0,0 +1,203 @@
+package io.dsub.discogs.batch.job.writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import io.dsub.discogs.batch.job.writer.PostgresCopyItemWriterTest.TrackRecord;
+import io.dsub.discogs.jooq.tables.records.ArtistRecord;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.UpdatableRecord;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ParallelCollectionItemWriterTest {
+
+  final List<Connection> connections = Collections.synchronizedList(new ArrayList<>());
+  final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+  final Semaphore permits = new Semaphore(ParallelCollectionItemWriter.CONNECTIONS_PER_CHUNK);
+  final List<Collection<UpdatableRecord<?>>> items =
+      List.of(List.of(new ArtistRecord().setId(1), new TrackRecord()));
+
+  DefaultLJooqItemWriter<UpdatableRecord<?>> delegate;
+  ParallelCollectionItemWriter<UpdatableRecord<?>> writer;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() throws Exception {
+    DataSource dataSource = mock(DataSource.class);
+    given(dataSource.getConnection())
+        .willAnswer(
+            invocation -> {
+              Connection connection = mock(Connection.class);
+              given(connection.prepareStatement(anyString()))
+                  .willAnswer(
+                      statement -> {
+                        statements.add(statement.getArgument(0));
+                        return mock(PreparedStatement.class);
+                      });
+              connections.add(connection);
+              return connection;
+            });
+    DSLContext context = DSL.using(dataSource, SQLDialect.POSTGRES);
+    delegate = mock(DefaultLJooqItemWriter.class);
+    given(delegate.filter(anyList())).willAnswer(invocation -> invocation.getArgument(0));
+    writer = new ParallelCollectionItemWriter<>(delegate, context, permits);
+  }
+
+  @AfterEach
+  void cleanUp() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void whenOneTableFailsToBeWritten__ShouldRollBackEveryTable() throws Exception {
+    DataIntegrityViolationException failure = new DataIntegrityViolationException("track");
+    willAnswer(
+            invocation -> {
+              List<UpdatableRecord<?>> subItems = invocation.getArgument(1);
+              if (subItems.get(0) instanceof TrackRecord) {
+                throw failure;
+              }
+              return null;
+            })
+        .given(delegate)
+        .write(any(DSLContext.class), anyList());
+
+    assertThatThrownBy(() -> writer.write(items)).isSameAs(failure);
+
+    // the artist is prepared, then rolled back along with the track.
+    List<String> prepared = getTransactionIds("prepare transaction ");
+    assertThat(prepared).hasSize(1);
+    assertThat(getTransactionIds("rollback prepared ")).isEqualTo(prepared);
+    assertThat(getTransactionIds("commit prepared ")).isEmpty();
+    for (Connection connection : connections) {
+      verify(connection, never()).commit();
+    }
+    assertThat(connections).anySatisfy(connection -> verify(connection).rollback());
+    assertThat(permits.availablePermits())
+        .isEqualTo(ParallelCollectionItemWriter.CONNECTIONS_PER_CHUNK);
+  }
+
+  @Test
+  void whenChunkCommits__ShouldCommitPreparedTablesOnlyThen() throws Exception {
+    TransactionSynchronizationManager.initSynchronization();
+
+    writer.write(items);
+
+    List<String> prepared = getTransactionIds("prepare transaction ");
+    assertThat(prepared).hasSize(2);
+    assertThat(getTransactionIds("commit prepared ")).isEmpty();
+    for (TransactionSynchronization synchronization :
+        TransactionSynchronizationManager.getSynchronizations()) {
+      synchronization.afterCommit();
+      synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+    }
+    assertThat(getTransactionIds("commit prepared ")).containsExactlyInAnyOrderElementsOf(prepared);
+    assertThat(getTransactionIds("rollback prepared ")).isEmpty();
+  }
+
+  @Test
+  void whenChunkRollsBack__ShouldRollBackPreparedTables() throws Exception {
+    TransactionSynchronizationManager.initSynchronization();
+
+    writer.write(items);
+    for (TransactionSynchronization synchronization :
+        TransactionSynchronizationManager.getSynchronizations()) {
+      synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+
+    List<String> prepared = getTransactionIds("prepare transaction ");
+    assertThat(prepared).hasSize(2);
+    assertThat(getTransactionIds("rollback prepared "))
+        .containsExactlyInAnyOrderElementsOf(prepared);
+    assertThat(getTransactionIds("commit prepared ")).isEmpty();
+  }
+
+  @Test
+  void whenNoChunkTransaction__ShouldCommitPreparedTablesRightAway() throws Exception {
+    writer.write(items);
+
+    List<String> prepared = getTransactionIds("prepare transaction ");
+    assertThat(prepared).hasSize(2);
+    assertThat(getTransactionIds("commit prepared ")).containsExactlyInAnyOrderElementsOf(prepared);
+  }
+
+  @Test
+  void whenGroupsExceedBuckets__ShouldBalanceByRowCount() {
+    List<List<Integer>> groups = new ArrayList<>();
+    for (int size : new int[] {5, 1, 9, 3, 3, 2, 7, 1, 1}) {
+      groups.add(Collections.nCopies(size, size));
+    }
+
+    List<List<List<Integer>>> buckets = ParallelCollectionItemWriter.distribute(groups, 4);
+
+    assertThat(buckets).hasSize(4);
+    assertThat(buckets.stream().mapToInt(List::size).sum()).isEqualTo(groups.size());
+    assertThat(buckets)
+        .extracting(bucket -> bucket.stream().mapToInt(List::size).sum())
+        .containsExactlyInAnyOrder(9, 8, 8, 7);
+  }
+
+  @Test
+  void whenGroupsAreFewerThanBuckets__ShouldNotLeaveEmptyBucket() {
+    List<List<Integer>> groups = List.of(List.of(1), List.of(2, 2));
+
+    List<List<List<Integer>>> buckets = ParallelCollectionItemWriter.distribute(groups, 4);
+
+    assertThat(buckets).hasSize(2).allSatisfy(bucket -> assertThat(bucket).hasSize(1));
+  }
+
+  @Test
+  void whenDistributed__ShouldKeepGivenOrderWithinBucket() {
+    List<List<Integer>> groups = List.of(List.of(1), List.of(3, 3, 3), List.of(2, 2));
+
+    List<List<List<Integer>>> buckets = ParallelCollectionItemWriter.distribute(groups, 1);
+
+    assertThat(buckets).containsExactly(groups);
+  }
+
+  @Test
+  void whenBudgetComputed__ShouldReserveConnectionsPerWorker() {
+    assertThat(ParallelCollectionItemWriter.getConnectionBudget(3))
+        .isEqualTo(3 * ParallelCollectionItemWriter.CONNECTIONS_PER_CHUNK);
+    assertThat(ParallelCollectionItemWriter.getConnectionBudget(0))
+        .isEqualTo(ParallelCollectionItemWriter.CONNECTIONS_PER_CHUNK);
+  }
+
+  /*
+   * Ids of the transactions given statement was executed with, in the order executed.
+   */
+  private List<String> getTransactionIds(String statement) {
+    synchronized (statements) {
+      return statements.stream()
+          .filter(sql -> sql.startsWith(statement))
+          .map(sql -> sql.substring(statement.length()))
+          .collect(Collectors.toList());
+    }
+  }
+}
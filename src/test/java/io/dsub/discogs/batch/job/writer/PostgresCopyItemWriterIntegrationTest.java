@@ -0,0 +1,87 @@
+package io.dsub.discogs.batch.job.writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.dsub.discogs.batch.container.PostgreSQLContainerBaseTest;
+import io.dsub.discogs.batch.job.writer.PostgresCopyItemWriterTest.Track;
+import io.dsub.discogs.batch.job.writer.PostgresCopyItemWriterTest.TrackRecord;
+import java.sql.Connection;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PostgresCopyItemWriterIntegrationTest extends PostgreSQLContainerBaseTest {
+
+  Connection connection;
+  DSLContext context;
+  PostgresCopyItemWriter<TrackRecord> writer;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // every write goes through the same connection, as a pooled connection would be reused.
+    connection = dataSource.getConnection();
+    context = DSL.using(connection, SQLDialect.POSTGRES);
+    context.execute(
+        "create table if not exists track (id serial primary key, release_id int not null,"
+            + " position varchar, title varchar, created_at timestamp,"
+            + " last_modified_at timestamp, constraint track_uq unique (release_id, position))");
+    context.execute("truncate track");
+    writer = new PostgresCopyItemWriter<>(context, List.of());
+  }
+
+  @AfterEach
+  void cleanUp() throws Exception {
+    context.execute("drop table if exists " + PostgresCopyItemWriter.STAGE_PREFIX + "track");
+    context.execute("drop table track");
+    connection.close();
+  }
+
+  @Test
+  void whenKeysDuplicated__ShouldMergeLastRowOfEachKey() {
+    writer.write(
+        context, List.of(track(1, "A1", "first"), track(2, "A1", "other"), track(1, "A1", "last")));
+
+    assertThat(fetchTracks()).containsExactly("1:A1:last", "2:A1:other");
+  }
+
+  @Test
+  void whenKeysHaveNull__ShouldMergeEveryRowOfNullKey() {
+    writer.write(
+        context,
+        List.of(track(1, null, "first"), track(1, null, "second"), track(1, "A1", "title")));
+
+    assertThat(fetchTracks()).containsExactly("1:A1:title", "1:null:first", "1:null:second");
+  }
+
+  @Test
+  void whenWrittenAgainOnSameConnection__ShouldMergeOnlyRowsOfSecondWrite() {
+    writer.write(context, List.of(track(1, "A1", "first"), track(1, null, "untitled")));
+    writer.write(context, List.of(track(1, "A1", "second"), track(2, "A1", "title")));
+
+    // the staging table left by the first write is emptied, rather than merged again.
+    assertThat(fetchTracks()).containsExactly("1:A1:second", "1:null:untitled", "2:A1:title");
+  }
+
+  private List<String> fetchTracks() {
+    return context
+        .fetch(
+            "select release_id, position, title from track"
+                + " order by release_id, position nulls last, title")
+        .stream()
+        .map(record -> record.get(0) + ":" + record.get(1) + ":" + record.get(2))
+        .collect(Collectors.toList());
+  }
+
+  private static TrackRecord track(int releaseId, String position, String title) {
+    TrackRecord record = new TrackRecord();
+    record.set(Track.TRACK.RELEASE_ID, releaseId);
+    record.set(Track.TRACK.POSITION, position);
+    record.set(Track.TRACK.TITLE, title);
+    return record;
+  }
+}
@@ -0,0 +1,221 @@
+package io.dsub.discogs.batch.job.writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+import io.dsub.discogs.jooq.tables.Artist;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.TableField;
+import org.jooq.UniqueKey;
+import org.jooq.UpdatableRecord;
+import org.jooq.impl.DSL;
+import org.jooq.impl.Internal;
+import org.jooq.impl.SQLDataType;
+import org.jooq.impl.TableImpl;
+import org.jooq.impl.UpdatableRecordImpl;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+class PostgresCopyItemWriterTest {
+
+  static final String TRACK_FIELDS =
+      "\"release_id\", \"position\", \"title\", \"created_at\", \"last_modified_at\"";
+
+  final PostgresCopyItemWriter<UpdatableRecord<?>> writer =
+      new PostgresCopyItemWriter<>(DSL.using(SQLDialect.POSTGRES), List.of());
+
+  @Test
+  void whenStaged__ShouldCreateStageOfInsertFieldsAndOrdinal() {
+    assertThat(writer.getStageSql(Track.TRACK))
+        .isEqualTo(
+            "create temporary table if not exists \"copy_stage_track\" as select "
+                + TRACK_FIELDS
+                + ", 0::bigint as copy_ordinal from \"track\" with no data;"
+                + " truncate \"copy_stage_track\"");
+    assertThat(writer.getCopySql(Track.TRACK))
+        .isEqualTo(
+            "copy \"copy_stage_track\" (" + TRACK_FIELDS + ", copy_ordinal) from stdin");
+  }
+
+  @Test
+  void whenKeyIsNullable__ShouldMergeNullKeysApartFromDistinctOn() {
+    assertThat(writer.getMergeSql(Track.TRACK))
+        .isEqualTo(
+            "insert into \"track\" ("
+                + TRACK_FIELDS
+                + ") (select distinct on (\"release_id\", \"position\") "
+                + TRACK_FIELDS
+                + " from \"copy_stage_track\" where \"position\" is not null"
+                + " order by \"release_id\", \"position\", copy_ordinal desc)"
+                + " union all (select "
+                + TRACK_FIELDS
+                + " from \"copy_stage_track\" where \"position\" is null order by copy_ordinal)"
+                + " on conflict (\"release_id\", \"position\") do update set"
+                + " \"title\" = excluded.\"title\","
+                + " \"last_modified_at\" = excluded.\"last_modified_at\"");
+  }
+
+  @Test
+  void whenKeyIsNotNullable__ShouldMergeByDistinctOnOnly() {
+    assertThat(writer.getMergeSql(Artist.ARTIST))
+        .startsWith("insert into \"artist\" (\"id\", ")
+        .contains(") select distinct on (\"id\"")
+        .contains(" from \"copy_stage_artist\" order by \"id\"")
+        .doesNotContain("is null")
+        .doesNotContain("union all");
+  }
+
+  @Test
+  void whenKeysAreDuplicateOrNull__ShouldCopyEveryRowInOrderThenMerge() throws Exception {
+    Connection connection = mock(Connection.class);
+    Statement statement = mock(Statement.class);
+    PGConnection pgConnection = mock(PGConnection.class);
+    CopyManager copyManager = mock(CopyManager.class);
+    CopyIn copyIn = mock(CopyIn.class);
+    ByteArrayOutputStream copied = new ByteArrayOutputStream();
+    given(connection.createStatement()).willReturn(statement);
+    given(connection.unwrap(PGConnection.class)).willReturn(pgConnection);
+    given(pgConnection.getCopyAPI()).willReturn(copyManager);
+    given(copyManager.copyIn(anyString())).willReturn(copyIn);
+    doAnswer(
+            invocation -> {
+              copied.write(
+                  invocation.<byte[]>getArgument(0),
+                  invocation.<Integer>getArgument(1),
+                  invocation.<Integer>getArgument(2));
+              return null;
+            })
+        .when(copyIn)
+        .writeToCopy(any(byte[].class), anyInt(), anyInt());
+    DSLContext context = DSL.using(connection, SQLDialect.POSTGRES);
+
+    writer.write(
+        context,
+        List.of(
+            track(1, "A1", "first"),
+            track(1, "A1", "second"),
+            track(1, null, "third"),
+            track(1, null, "fourth")));
+
+    InOrder inOrder = inOrder(statement, copyManager, copyIn);
+    inOrder.verify(statement).execute(writer.getStageSql(Track.TRACK));
+    inOrder.verify(copyManager).copyIn(writer.getCopySql(Track.TRACK));
+    inOrder.verify(copyIn).endCopy();
+    inOrder.verify(statement).executeUpdate(writer.getMergeSql(Track.TRACK));
+    // the merge keeps the last row of the duplicate key, and every row of a null key.
+    assertThat(copied.toString(StandardCharsets.UTF_8))
+        .isEqualTo(
+            "1\tA1\tfirst\t\\N\t\\N\t0\n"
+                + "1\tA1\tsecond\t\\N\t\\N\t1\n"
+                + "1\t\\N\tthird\t\\N\t\\N\t2\n"
+                + "1\t\\N\tfourth\t\\N\t\\N\t3\n");
+  }
+
+  @Test
+  void whenNullOrBooleanGiven__ShouldAppendCopyLiteral() {
+    StringBuilder out = new StringBuilder();
+
+    PostgresCopyItemWriter.appendText(out, null);
+    out.append('|');
+    PostgresCopyItemWriter.appendText(out, true);
+    PostgresCopyItemWriter.appendText(out, false);
+
+    assertThat(out).hasToString("\\N|tf");
+  }
+
+  @Test
+  void whenTextHasSpecialCharacters__ShouldEscape() {
+    StringBuilder out = new StringBuilder();
+
+    PostgresCopyItemWriter.appendText(out, "a\\b\tc\nd\re \\N");
+
+    assertThat(out).hasToString("a\\\\b\\tc\\nd\\re \\\\N");
+  }
+
+  @Test
+  void whenOtherValuesGiven__ShouldAppendAsText() {
+    StringBuilder out = new StringBuilder();
+
+    PostgresCopyItemWriter.appendText(out, 42);
+    out.append('|');
+    PostgresCopyItemWriter.appendText(out, LocalDateTime.of(2021, 7, 1, 12, 30, 15));
+    out.append('|');
+    PostgresCopyItemWriter.appendText(out, new byte[] {0x0f, (byte) 0xa0});
+
+    assertThat(out).hasToString("42|2021-07-01T12:30:15|\\\\x0fa0");
+  }
+
+  private static TrackRecord track(int releaseId, String position, String title) {
+    TrackRecord record = new TrackRecord();
+    record.set(Track.TRACK.RELEASE_ID, releaseId);
+    record.set(Track.TRACK.POSITION, position);
+    record.set(Track.TRACK.TITLE, title);
+    return record;
+  }
+
+  /**
+   * A sub item table, of which the unique key has a nullable field.
+   */
+  static final class Track extends TableImpl<TrackRecord> {
+
+    static final Track TRACK = new Track();
+
+    final TableField<TrackRecord, Integer> ID =
+        createField(DSL.name("id"), SQLDataType.INTEGER.nullable(false).identity(true), this, "");
+    final TableField<TrackRecord, Integer> RELEASE_ID =
+        createField(DSL.name("release_id"), SQLDataType.INTEGER.nullable(false), this, "");
+    final TableField<TrackRecord, String> POSITION =
+        createField(DSL.name("position"), SQLDataType.VARCHAR, this, "");
+    final TableField<TrackRecord, String> TITLE =
+        createField(DSL.name("title"), SQLDataType.VARCHAR, this, "");
+    final TableField<TrackRecord, LocalDateTime> CREATED_AT =
+        createField(DSL.name("created_at"), SQLDataType.LOCALDATETIME, this, "");
+    final TableField<TrackRecord, LocalDateTime> LAST_MODIFIED_AT =
+        createField(DSL.name("last_modified_at"), SQLDataType.LOCALDATETIME, this, "");
+
+    private Track() {
+      super(DSL.name("track"));
+    }
+
+    @Override
+    public Class<TrackRecord> getRecordType() {
+      return TrackRecord.class;
+    }
+
+    @Override
+    public UniqueKey<TrackRecord> getPrimaryKey() {
+      return Internal.createUniqueKey(this, DSL.name("track_pkey"), new TableField[] {ID}, true);
+    }
+
+    @Override
+    public List<UniqueKey<TrackRecord>> getKeys() {
+      return List.of(
+          getPrimaryKey(),
+          Internal.createUniqueKey(
+              this, DSL.name("track_uq"), new TableField[] {RELEASE_ID, POSITION}, true));
+    }
+  }
+
+  static final class TrackRecord extends UpdatableRecordImpl<TrackRecord> {
+
+    TrackRecord() {
+      super(Track.TRACK);
+    }
+  }
+}
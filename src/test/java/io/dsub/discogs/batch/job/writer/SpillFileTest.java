@@ -0,0 +1,89 @@
+package io.dsub.discogs.batch.job.writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SpillFileTest {
+
+  @TempDir Path tempDir;
+  SpillFile spillFile;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    spillFile = new SpillFile(tempDir.resolve("test.spill"));
+  }
+
+  @AfterEach
+  void cleanUp() throws IOException {
+    spillFile.close();
+  }
+
+  @Test
+  void whenRowAppended__ShouldReadSameValues() throws IOException {
+    Object[] values = {
+      1,
+      2L,
+      "ünïcode text",
+      true,
+      (short) 3,
+      4.5d,
+      5.5f,
+      LocalDateTime.of(2021, 3, 4, 5, 6, 7),
+      LocalDate.of(2021, 3, 4),
+      new BigDecimal("12.340"),
+      new byte[] {1, 2, 3},
+      UUID.fromString("123e4567-e89b-12d3-a456-426614174000"),
+      null
+    };
+
+    spillFile.append("artist", values);
+    List<SpillFile.Row> rows = spillFile.read(10);
+
+    assertThat(rows).hasSize(1);
+    assertThat(rows.get(0).table()).isEqualTo("artist");
+    assertThat(rows.get(0).values()).containsExactly(values);
+  }
+
+  @Test
+  void whenReadInBatches__ShouldKeepOrderAppended() throws IOException {
+    for (int i = 0; i < 5; i++) {
+      spillFile.append("label", new Object[] {i});
+    }
+
+    assertThat(spillFile.read(3)).extracting(row -> row.values()[0]).containsExactly(0, 1, 2);
+    assertThat(spillFile.getPendingCount()).isEqualTo(2);
+    spillFile.append("label", new Object[] {5});
+    assertThat(spillFile.read(10)).extracting(row -> row.values()[0]).containsExactly(3, 4, 5);
+    assertThat(spillFile.getPendingCount()).isZero();
+  }
+
+  @Test
+  void whenEveryRowRead__ShouldTruncateFile() throws IOException {
+    spillFile.append("label", new Object[] {"x".repeat(100_000)});
+
+    assertThat(spillFile.read(1)).hasSize(1);
+    assertThat(Files.size(spillFile.getPath())).isZero();
+    assertThat(spillFile.read(1)).isEmpty();
+  }
+
+  @Test
+  void whenDeleted__ShouldRemoveFile() throws IOException {
+    spillFile.append("label", new Object[] {1});
+
+    spillFile.delete();
+
+    assertThat(spillFile.getPath()).doesNotExist();
+  }
+}
@@ -0,0 +1,181 @@
+package io.dsub.discogs.batch.job.writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+
+import io.dsub.discogs.batch.job.listener.DeadlockRetryCountingListener;
+import io.dsub.discogs.batch.job.writer.PostgresCopyItemWriterTest.Track;
+import io.dsub.discogs.batch.job.writer.PostgresCopyItemWriterTest.TrackRecord;
+import io.dsub.discogs.batch.util.FileUtil;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.SQLDialect;
+import org.jooq.UpdatableRecord;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+
+class WriteBehindStageTest {
+
+  final DSLContext context =
+      DSL.using(new MockConnection(ctx -> new MockResult[0]), SQLDialect.POSTGRES);
+  final DeadlockRetryCountingListener deadlockRetryCountingListener =
+      new DeadlockRetryCountingListener();
+  final StepExecution stepExecution = new StepExecution("step", new JobExecution(1L), 1L);
+  final AtomicInteger settled = new AtomicInteger();
+  final FileUtil fileUtil = mock(FileUtil.class);
+
+  @TempDir Path tempDir;
+  DefaultLJooqItemWriter<UpdatableRecord<?>> delegate;
+  WriteBehindStage stage;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() throws Exception {
+    delegate = mock(DefaultLJooqItemWriter.class);
+    given(fileUtil.getFilePath(WriteBehindStage.SPILL_FILE_NAME, true))
+        .willReturn(tempDir.resolve(WriteBehindStage.SPILL_FILE_NAME));
+    deadlockRetryCountingListener.beforeStep(stepExecution);
+    stage = newStage(WriteBehindStage.DEFAULT_MAX_BUFFERED_ROWS);
+  }
+
+  @Test
+  void whenRowsWritten__ShouldSettleOnlyOnceWritten() throws Exception {
+    stage.write(List.of(track(1), track(2)), settled::incrementAndGet);
+
+    // buffered until a batch is filled, or the step is done.
+    assertThat(settled).hasValue(0);
+    ExitStatus exitStatus = stage.afterStep(stepExecution);
+
+    assertThat(settled).hasValue(1);
+    assertThat(exitStatus).isNull();
+  }
+
+  @Test
+  void whenRowsFailedToBeWritten__ShouldFailStepWithoutSettling() throws Exception {
+    willThrow(new DataIntegrityViolationException("track"))
+        .given(delegate)
+        .write(any(DSLContext.class), anyList());
+
+    stage.write(List.of(track(1)), settled::incrementAndGet);
+    ExitStatus exitStatus = stage.afterStep(stepExecution);
+
+    assertThat(settled).hasValue(0);
+    assertThat(exitStatus.getExitCode()).isEqualTo(ExitStatus.FAILED.getExitCode());
+    assertThat(stepExecution.getStatus()).isEqualTo(BatchStatus.FAILED);
+  }
+
+  @Test
+  void whenRetriedOnDeadlocks__ShouldCountRetriesOfStep() throws Exception {
+    AtomicInteger attempts = new AtomicInteger();
+    willAnswer(
+            invocation -> {
+              if (attempts.incrementAndGet() < 3) {
+                throw new DeadlockLoserDataAccessException("deadlock", null);
+              }
+              return null;
+            })
+        .given(delegate)
+        .write(any(DSLContext.class), anyList());
+
+    stage.write(List.of(track(1)), settled::incrementAndGet);
+    stage.afterStep(stepExecution);
+    deadlockRetryCountingListener.afterStep(stepExecution);
+
+    assertThat(settled).hasValue(1);
+    assertThat(
+            stepExecution
+                .getExecutionContext()
+                .getLong(DeadlockRetryCountingListener.DEADLOCK_RETRY_COUNT))
+        .isEqualTo(2);
+  }
+
+  @Test
+  void whenSpilled__ShouldSettleEachHandoverOnceDrained() throws Exception {
+    List<UpdatableRecord<?>> written = Collections.synchronizedList(new ArrayList<>());
+    willAnswer(invocation -> written.addAll(invocation.getArgument(1)))
+        .given(delegate)
+        .write(any(DSLContext.class), anyList());
+    // writes of 4 rows never fit the buffers, hence are always spilled.
+    stage = newStage(3);
+
+    List<AtomicInteger> handovers = new ArrayList<>();
+    int rows = 0;
+    for (int write = 0; write < 40; write++) {
+      List<TrackRecord> items = new ArrayList<>();
+      for (int i = 0; i <= write % 4; i++) {
+        items.add(track(rows++));
+      }
+      AtomicInteger handover = new AtomicInteger();
+      handovers.add(handover);
+      stage.write(items, handover::incrementAndGet);
+    }
+    ExitStatus exitStatus = stage.afterStep(stepExecution);
+
+    assertThat(exitStatus).isNull();
+    assertThat(stepExecution.getExecutionContext().getLong(WriteBehindStage.SPILLED_ROW_COUNT))
+        .isPositive();
+    assertThat(handovers).allSatisfy(handover -> assertThat(handover).hasValue(1));
+    assertThat(written)
+        .extracting(row -> row.get(Track.TRACK.RELEASE_ID))
+        .containsExactlyInAnyOrderElementsOf(
+            IntStream.range(0, rows).boxed().collect(Collectors.toList()));
+    assertThat(tempDir.resolve(WriteBehindStage.SPILL_FILE_NAME)).doesNotExist();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void whenSpillFailedPartway__ShouldLeaveHandoverUnsettled() throws Exception {
+    stage = newStage(1);
+    TrackRecord unspillable = track(2);
+    unspillable.set((Field<Object>) (Field<?>) Track.TRACK.TITLE, new Object());
+
+    // the first row is appended before the second fails to be.
+    assertThatThrownBy(
+            () -> stage.write(List.of(track(1), unspillable), settled::incrementAndGet))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("cannot spill");
+    ExitStatus exitStatus = stage.afterStep(stepExecution);
+
+    assertThat(settled).hasValue(0);
+    assertThat(exitStatus.getExitCode()).isEqualTo(ExitStatus.FAILED.getExitCode());
+    assertThat(stepExecution.getStatus()).isEqualTo(BatchStatus.FAILED);
+  }
+
+  private WriteBehindStage newStage(long maxBufferedRows) {
+    WriteBehindStage newStage =
+        new WriteBehindStage(
+            delegate, context, fileUtil, deadlockRetryCountingListener, 2, maxBufferedRows, 0);
+    newStage.beforeStep(stepExecution);
+    return newStage;
+  }
+
+  private static TrackRecord track(int releaseId) {
+    TrackRecord record = new TrackRecord();
+    record.set(Track.TRACK.RELEASE_ID, releaseId);
+    return record;
+  }
+}
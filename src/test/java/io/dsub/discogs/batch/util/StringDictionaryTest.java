@@ -0,0 +1,87 @@
+package io.dsub.discogs.batch.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class StringDictionaryTest {
+
+  @Test
+  void whenInterned__ShouldReturnSameInstance() {
+    StringDictionary dictionary = new StringDictionary();
+    String first = new String("Electronic");
+    String second = new String("Electronic");
+
+    assertThat(dictionary.intern(first)).isSameAs(first);
+    assertThat(dictionary.intern(second)).isSameAs(first);
+    assertThat(dictionary.intern(null)).isNull();
+    assertThat(dictionary.size()).isEqualTo(1);
+  }
+
+  @Test
+  void whenCoded__ShouldAssignCodesInOrder() {
+    StringDictionary dictionary = new StringDictionary();
+
+    assertThat(dictionary.codeIfPresent("Rock")).isEqualTo(-1);
+    assertThat(dictionary.codeOf("Rock")).isZero();
+    assertThat(dictionary.codeOf("Jazz")).isEqualTo(1);
+    assertThat(dictionary.codeOf("Rock")).isZero();
+    assertThat(dictionary.codeIfPresent("Jazz")).isEqualTo(1);
+    assertThat(dictionary.codeIfPresent(null)).isEqualTo(-1);
+    assertThat(dictionary.valueOf(1)).isEqualTo("Jazz");
+
+    dictionary.clear();
+
+    assertThat(dictionary.size()).isZero();
+    assertThat(dictionary.codeIfPresent("Rock")).isEqualTo(-1);
+    assertThat(dictionary.codeOf("Jazz")).isZero();
+  }
+
+  @Test
+  void whenFull__ShouldLeaveNewValuesAsIs() {
+    StringDictionary dictionary = new StringDictionary(2);
+    dictionary.codeOf("CD");
+    dictionary.codeOf("Vinyl");
+    String cassette = new String("Cassette");
+
+    assertThat(dictionary.codeOf("Cassette")).isEqualTo(-1);
+    assertThat(dictionary.intern(cassette)).isSameAs(cassette);
+    assertThat(dictionary.intern(new String("CD"))).isEqualTo("CD");
+    assertThat(dictionary.size()).isEqualTo(2);
+  }
+
+  @Test
+  void whenCodedConcurrently__ShouldAssignOneCodePerValue() throws Exception {
+    StringDictionary dictionary = new StringDictionary();
+    int threads = 8;
+    int values = 5_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                for (int i = 0; i < values; i++) {
+                  String value = "style-" + i;
+                  assertThat(dictionary.valueOf(dictionary.codeOf(value))).isEqualTo(value);
+                }
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(dictionary.size()).isEqualTo(values);
+    for (int code = 0; code < values; code++) {
+      assertThat(dictionary.codeIfPresent(dictionary.valueOf(code))).isEqualTo(code);
+    }
+  }
+}